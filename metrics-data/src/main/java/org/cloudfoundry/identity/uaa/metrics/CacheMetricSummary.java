@@ -0,0 +1,45 @@
+package org.cloudfoundry.identity.uaa.metrics;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CacheMetricSummary {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long size;
+
+    @JsonCreator
+    public CacheMetricSummary(@JsonProperty("hitCount") long hitCount,
+                              @JsonProperty("missCount") long missCount,
+                              @JsonProperty("evictionCount") long evictionCount,
+                              @JsonProperty("size") long size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
@@ -0,0 +1,159 @@
+package org.cloudfoundry.identity.uaa.metrics;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Histogram of latencies in milliseconds with a fixed number of log scaled buckets.
+ * <p>
+ * Values up to 15 ms have a bucket each, above that every power of two is split in eight buckets, so that
+ * percentiles are off by at most 12.5%. Values of 2^40 ms and more share the last bucket. Recording takes no lock
+ * and the memory used does not depend on the number of recorded values. Histograms can be merged, and serialize
+ * to their non-empty buckets only.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+    }
+
+    @JsonCreator
+    public LatencyHistogram(@JsonProperty("counts") Map<Integer, Long> counts,
+                            @JsonProperty("max") long max) {
+        ofNullable(counts).orElse(Map.of()).forEach((index, count) -> {
+            if (index >= 0 && index < BUCKET_COUNT && count != null) {
+                this.counts.set(index, count);
+            }
+        });
+        this.max.set(max);
+    }
+
+    public void record(long value) {
+        counts.incrementAndGet(indexOf(value));
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        max.accumulateAndGet(other.getMax(), Math::max);
+    }
+
+    /**
+     * @return the values recorded after {@code previous}, a copy of this histogram taken earlier. The maximum is
+     * estimated from the buckets.
+     */
+    public LatencyHistogram since(LatencyHistogram previous) {
+        LatencyHistogram result = new LatencyHistogram();
+        int highest = -1;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i) - previous.counts.get(i);
+            if (count > 0) {
+                result.counts.set(i, count);
+                highest = i;
+            }
+        }
+        result.max.set(highest < 0 ? 0 : Math.min(highestValueOf(highest), getMax()));
+        return result;
+    }
+
+    @JsonProperty("counts")
+    public Map<Integer, Long> getCounts() {
+        Map<Integer, Long> result = new TreeMap<>();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                result.put(i, count);
+            }
+        }
+        return result;
+    }
+
+    public long getCount() {
+        long result = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            result += counts.get(i);
+        }
+        return result;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getP50() {
+        return getValueAtPercentile(50);
+    }
+
+    public long getP95() {
+        return getValueAtPercentile(95);
+    }
+
+    public long getP99() {
+        return getValueAtPercentile(99);
+    }
+
+    /**
+     * @return the highest value of the bucket holding the given percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int offset = index - LINEAR_BUCKETS;
+        int shift = offset / SUB_BUCKETS + 1;
+        long mantissa = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import org.cloudfoundry.identity.uaa.metrics.MetricsUtil.MutableDouble;
 import org.cloudfoundry.identity.uaa.metrics.MetricsUtil.MutableLong;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -58,17 +59,32 @@ public class MetricsQueue  {
         }
 
         StatusCodeGroup statusCode = StatusCodeGroup.valueOf(metric.getStatusCode());
-        if (!statistics.containsKey(statusCode)) {
-            statistics.putIfAbsent(statusCode, new RequestMetricSummary());
-        }
         RequestMetricSummary totals = statistics.get(statusCode);
+        if (totals == null) {
+            totals = statistics.computeIfAbsent(statusCode, key -> new RequestMetricSummary());
+        }
         long time = metric.getRequestCompleteTime() - metric.getRequestStartTime();
+        // a single pass over the queries, this runs twice for every request
+        long databaseQueryTime = 0;
+        long intolerableQueryCount = 0;
+        long intolerableQueryTime = 0;
+        List<QueryMetric> queries = metric.getQueries();
+        for (int i = 0; i < queries.size(); i++) {
+            QueryMetric query = queries.get(i);
+            long queryTime = query.getRequestCompleteTime() - query.getRequestStartTime();
+            databaseQueryTime += queryTime;
+            totals.addDatabaseQueryTime(queryTime);
+            if (query.isIntolerable()) {
+                intolerableQueryCount++;
+                intolerableQueryTime += queryTime;
+            }
+        }
         totals.add(time,
                    time < metric.getUriGroup().getLimit(),
-                   metric.getNrOfDatabaseQueries(),
-                   metric.getDatabaseQueryTime(),
-                   metric.getQueries().stream().filter(QueryMetric::isIntolerable).count(),
-                   metric.getQueries().stream().filter(QueryMetric::isIntolerable).mapToLong(q -> q.getRequestCompleteTime()-q.getRequestStartTime()).sum()
+                   queries.size(),
+                   databaseQueryTime,
+                   intolerableQueryCount,
+                   intolerableQueryTime
         );
         return true;
     }
@@ -124,7 +140,7 @@ public class MetricsQueue  {
             databaseIntolerableQueryCount.add(summary.getDatabaseIntolerableQueryCount());
 
         });
-        return new RequestMetricSummary(count.get(),
+        RequestMetricSummary totals = new RequestMetricSummary(count.get(),
                                         averageTime.get(),
                                         intolerableCount.get(),
                                         averageIntolerableTime.get(),
@@ -132,6 +148,11 @@ public class MetricsQueue  {
                                         averageDatabaseQueryTime.get(),
                                         databaseIntolerableQueryCount.get(),
                                         averageDatabaseIntolerableQueryTime.get());
+        statistics.values().forEach(summary -> {
+            totals.getRequestTimes().merge(summary.getRequestTimes());
+            totals.getDatabaseQueryTimes().merge(summary.getDatabaseQueryTimes());
+        });
+        return totals;
     }
 
 }
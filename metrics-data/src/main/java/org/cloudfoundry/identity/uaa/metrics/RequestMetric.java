@@ -18,7 +18,7 @@ package org.cloudfoundry.identity.uaa.metrics;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -28,7 +28,7 @@ public class RequestMetric {
     private int statusCode;
     private long requestStartTime;
     private long requestCompleteTime;
-    private List<QueryMetric> queries = new LinkedList<>();
+    private final List<QueryMetric> queries = new ArrayList<>();
 
     public static RequestMetric start(String uri, UrlGroup group, long start) {
         RequestMetric metric = new RequestMetric();
@@ -73,7 +73,12 @@ public class RequestMetric {
     }
 
     public long getDatabaseQueryTime() {
-        return queries.stream().mapToLong(q -> q.getRequestCompleteTime() - q.getRequestStartTime()).sum();
+        long time = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            QueryMetric query = queries.get(i);
+            time += query.getRequestCompleteTime() - query.getRequestStartTime();
+        }
+        return time;
     }
 
     public UrlGroup getUriGroup() {
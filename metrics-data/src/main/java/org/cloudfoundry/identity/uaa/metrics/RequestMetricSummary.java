@@ -30,6 +30,8 @@ public class RequestMetricSummary {
     double averageDatabaseQueryTime = 0;
     long databaseIntolerableQueryCount = 0;
     double averageDatabaseIntolerableQueryTime = 0;
+    private final LatencyHistogram requestTimes = new LatencyHistogram();
+    private final LatencyHistogram databaseQueryTimes = new LatencyHistogram();
 
     public RequestMetricSummary() {
     }
@@ -53,18 +55,25 @@ public class RequestMetricSummary {
         this.averageDatabaseIntolerableQueryTime = averageDatabaseIntolerableQueryTime;
     }
 
-    public synchronized void add(long time, boolean tolerable, long dbQueries, long dbTime, long failedDbQueries, long failedDbQueryTime) {
-        averageTime = addToAverage(count, averageTime, 1, time);
-        count++;
-        if (!tolerable) {
-            averageIntolerableTime = addToAverage(intolerableCount, averageIntolerableTime, 1, time);
-            ++intolerableCount;
+    public void add(long time, boolean tolerable, long dbQueries, long dbTime, long failedDbQueries, long failedDbQueryTime) {
+        requestTimes.record(time);
+        synchronized (this) {
+            averageTime = addToAverage(count, averageTime, 1, time);
+            count++;
+            if (!tolerable) {
+                averageIntolerableTime = addToAverage(intolerableCount, averageIntolerableTime, 1, time);
+                ++intolerableCount;
+            }
+            averageDatabaseQueryTime = addToAverage(databaseQueryCount, averageDatabaseQueryTime, dbQueries, dbTime);
+            databaseQueryCount += dbQueries;
+
+            averageDatabaseIntolerableQueryTime = addToAverage(databaseIntolerableQueryCount, averageDatabaseIntolerableQueryTime, failedDbQueries, failedDbQueryTime);
+            databaseIntolerableQueryCount += failedDbQueries;
         }
-        averageDatabaseQueryTime = addToAverage(databaseQueryCount, averageDatabaseQueryTime, dbQueries, dbTime);
-        databaseQueryCount += dbQueries;
+    }
 
-        averageDatabaseIntolerableQueryTime = addToAverage(databaseIntolerableQueryCount, averageDatabaseIntolerableQueryTime, failedDbQueries, failedDbQueryTime);
-        databaseIntolerableQueryCount += failedDbQueries;
+    public void addDatabaseQueryTime(long time) {
+        databaseQueryTimes.record(time);
     }
 
     public long getCount() {
@@ -98,4 +107,22 @@ public class RequestMetricSummary {
     public double getAverageDatabaseIntolerableQueryTime() {
         return averageDatabaseIntolerableQueryTime;
     }
+
+    public LatencyHistogram getRequestTimes() {
+        return requestTimes;
+    }
+
+    public LatencyHistogram getDatabaseQueryTimes() {
+        return databaseQueryTimes;
+    }
+
+    @JsonProperty("requestTimes")
+    void setRequestTimes(LatencyHistogram requestTimes) {
+        this.requestTimes.merge(requestTimes);
+    }
+
+    @JsonProperty("databaseQueryTimes")
+    void setDatabaseQueryTimes(LatencyHistogram databaseQueryTimes) {
+        this.databaseQueryTimes.merge(databaseQueryTimes);
+    }
 }
@@ -22,6 +22,8 @@ public enum StatusCodeGroup {
     CLIENT_ERROR("4xx",4),
     SERVER_ERROR("5xx",5);
 
+    private static final StatusCodeGroup[] VALUES = values();
+
     private final String name;
     private final int value;
 
@@ -36,7 +38,7 @@ public enum StatusCodeGroup {
 
     public static StatusCodeGroup valueOf(int statusCode) {
         int seriesCode = statusCode / 100;
-        for (StatusCodeGroup series : values()) {
+        for (StatusCodeGroup series : VALUES) {
             if (series.value == seriesCode) {
                 return series;
             }
@@ -0,0 +1,123 @@
+package org.cloudfoundry.identity.uaa.metrics;
+
+import org.cloudfoundry.identity.uaa.util.JsonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverAllValues() {
+        long previousHighest = -1;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT - 1; i++) {
+            long highest = LatencyHistogram.highestValueOf(i);
+            assertEquals(i, LatencyHistogram.indexOf(previousHighest + 1));
+            assertEquals(i, LatencyHistogram.indexOf(highest));
+            assertTrue(highest - previousHighest <= Math.max(1, highest / 8 + 1));
+            previousHighest = highest;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.indexOf(-5));
+    }
+
+    @Test
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertWithinBucket(500, histogram.getP50());
+        assertWithinBucket(950, histogram.getP95());
+        assertWithinBucket(990, histogram.getP99());
+        assertEquals(0, new LatencyHistogram().getP99());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(7);
+
+        assertEquals(3, histogram.getP50());
+        assertEquals(7, histogram.getP99());
+    }
+
+    @Test
+    void merge() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(10);
+        b.record(5000);
+
+        a.merge(b);
+
+        assertEquals(3, a.getCount());
+        assertEquals(5000, a.getMax());
+        assertEquals(10, a.getP50());
+    }
+
+    @Test
+    void since() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        LatencyHistogram previous = JsonUtils.readValue(JsonUtils.writeValueAsString(histogram), LatencyHistogram.class);
+        histogram.record(10);
+        histogram.record(12);
+
+        LatencyHistogram interval = histogram.since(previous);
+
+        assertEquals(2, interval.getCount());
+        assertEquals(12, interval.getMax());
+        assertEquals(10, interval.getP50());
+    }
+
+    @Test
+    void jsonRoundTrip() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1);
+        histogram.record(250);
+        histogram.record(250);
+
+        LatencyHistogram deserialized = JsonUtils.readValue(JsonUtils.writeValueAsString(histogram), LatencyHistogram.class);
+
+        assertEquals(histogram.getCounts(), deserialized.getCounts());
+        assertEquals(250, deserialized.getMax());
+        assertEquals(histogram.getP50(), deserialized.getP50());
+    }
+
+    @Test
+    void concurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i % 100);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(99, histogram.getMax());
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.125, expected + " ~ " + actual);
+    }
+}
@@ -61,6 +61,24 @@ class MetricsQueueTest {
         assertEquals(3.5, summary.getAverageDatabaseIntolerableQueryTime(), DELTA);
     }
 
+    @Test
+    void latencyHistograms() {
+        RequestMetricSummary summary = queue.getTotals();
+        assertEquals(3, summary.getRequestTimes().getCount());
+        assertEquals(5, summary.getRequestTimes().getP50());
+        assertEquals(MAX_TIME + 1, summary.getRequestTimes().getMax());
+        assertEquals(3, summary.getDatabaseQueryTimes().getCount());
+        assertEquals(5, summary.getDatabaseQueryTimes().getMax());
+
+        RequestMetricSummary serverErrors = queue.getDetailed().get(StatusCodeGroup.SERVER_ERROR);
+        assertEquals(1, serverErrors.getRequestTimes().getCount());
+        assertEquals(5, serverErrors.getRequestTimes().getP99());
+
+        MetricsQueue deserialized = JsonUtils.readValue(JsonUtils.writeValueAsString(queue), MetricsQueue.class);
+        assertEquals(summary.getRequestTimes().getCounts(), deserialized.getTotals().getRequestTimes().getCounts());
+        assertEquals(summary.getDatabaseQueryTimes().getCounts(), deserialized.getTotals().getDatabaseQueryTimes().getCounts());
+    }
+
     @Test
     void json_serialize() {
         String json = JsonUtils.writeValueAsString(queue);
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.cloudfoundry.identity.uaa.resources;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -23,11 +25,17 @@ import java.util.List;
  */
 public class SearchResults<T> {
 
+    /**
+     * Total results of cursor paged searches, which do not count the matching resources. Not serialized.
+     */
+    public static final int UNKNOWN_TOTAL_RESULTS = -1;
+
     private List<T> resources;
     private int startIndex;
     private int itemsPerPage;
     private int totalResults;
     private Collection<String> schemas;
+    private String nextCursor;
 
     public SearchResults() {}
     public SearchResults(Collection<String> schemas, Collection<T> resources, int startIndex, int itemsPerPage,
@@ -39,6 +47,12 @@ public class SearchResults<T> {
         this.totalResults = totalResults;
     }
 
+    public SearchResults(Collection<String> schemas, Collection<T> resources, int startIndex, int itemsPerPage,
+                    int totalResults, String nextCursor) {
+        this(schemas, resources, startIndex, itemsPerPage, totalResults);
+        this.nextCursor = nextCursor;
+    }
+
     public Collection<String> getSchemas() {
         return schemas;
     }
@@ -51,10 +65,16 @@ public class SearchResults<T> {
         return itemsPerPage;
     }
 
+    @JsonInclude(value = JsonInclude.Include.CUSTOM, valueFilter = UnknownTotalResultsFilter.class)
     public int getTotalResults() {
         return totalResults;
     }
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     public List<T> getResources() {
         return resources;
     }
@@ -77,4 +97,15 @@ public class SearchResults<T> {
         return builder.toString();
     }
 
+    static class UnknownTotalResultsFilter {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Integer total && total == UNKNOWN_TOTAL_RESULTS;
+        }
+
+        @Override
+        public int hashCode() {
+            return UNKNOWN_TOTAL_RESULTS;
+        }
+    }
 }
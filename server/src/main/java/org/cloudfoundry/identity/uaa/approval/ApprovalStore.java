@@ -13,7 +13,10 @@
  *******************************************************************************/
 package org.cloudfoundry.identity.uaa.approval;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface ApprovalStore {
 
@@ -32,4 +35,15 @@ public interface ApprovalStore {
     List<Approval> getApprovalsForUser(String userId, final String zoneId);
 
     List<Approval> getApprovalsForClient(String clientId, final String zoneId);
+
+    /**
+     * @return the approvals of each of the given users, by user id, with an entry for every given user id
+     */
+    default Map<String, List<Approval>> getApprovalsForUsers(Collection<String> userIds, final String zoneId) {
+        Map<String, List<Approval>> result = new HashMap<>();
+        for (String userId : userIds) {
+            result.put(userId, getApprovalsForUser(userId, zoneId));
+        }
+        return result;
+    }
 }
@@ -19,6 +19,7 @@ import org.slf4j.LoggerFactory;
 import org.cloudfoundry.identity.uaa.approval.Approval.ApprovalStatus;
 import org.cloudfoundry.identity.uaa.audit.event.ApprovalModifiedEvent;
 import org.cloudfoundry.identity.uaa.audit.event.SystemDeletable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
@@ -34,8 +35,13 @@ import org.springframework.util.Assert;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.cloudfoundry.identity.uaa.approval.Approval.ApprovalStatus.APPROVED;
 
@@ -75,6 +81,9 @@ public class JdbcApprovalStore implements ApprovalStore, ApplicationEventPublish
     public static final String DELETE_OF_USER_APPROVALS_BY_PROVIDER = "delete from authz_approvals where user_id in (select id from users where origin = ? and identity_zone_id = ?)";
 
 
+    @Value("${database.maxParameters:-1}")
+    private int maxSqlParameters;
+
     private boolean handleRevocationsAsExpiry = false;
     private ApplicationEventPublisher applicationEventPublisher;
 
@@ -87,6 +96,10 @@ public class JdbcApprovalStore implements ApprovalStore, ApplicationEventPublish
         this.handleRevocationsAsExpiry = handleRevocationsAsExpiry;
     }
 
+    public void setMaxSqlParameters(int maxSqlParameters) {
+        this.maxSqlParameters = maxSqlParameters;
+    }
+
     public boolean refreshApproval(final Approval approval, final String zoneId) {
         logger.debug("refreshing approval: [{}]", UaaStringUtils.getCleanedUserControlString(approval.toString()));
         int refreshed = jdbcTemplate.update(REFRESH_AUTHZ_SQL, ps -> {
@@ -207,6 +220,28 @@ public class JdbcApprovalStore implements ApprovalStore, ApplicationEventPublish
         );
     }
 
+    @Override
+    public Map<String, List<Approval>> getApprovalsForUsers(Collection<String> userIds, final String zoneId) {
+        Map<String, List<Approval>> result = new HashMap<>();
+        userIds.forEach(userId -> result.put(userId, new ArrayList<>()));
+        List<String> userList = new ArrayList<>(result.keySet());
+        while (!userList.isEmpty()) {
+            int size = maxSqlParameters > 1 ? Math.min(maxSqlParameters - 1, userList.size()) : userList.size();
+            List<String> chunk = userList.subList(0, size);
+            String sql = GET_AUTHZ_SQL + " WHERE identity_zone_id = ? AND user_id IN (" +
+                    chunk.stream().map(s -> "?").collect(Collectors.joining(", ")) + ")";
+            List<Object> parameters = new ArrayList<>(size + 1);
+            parameters.add(zoneId);
+            parameters.addAll(chunk);
+            for (Approval approval : jdbcTemplate.query(sql, rowMapper, parameters.toArray())) {
+                // the database may match ids that are not equal, e.g. ignoring case
+                result.computeIfAbsent(approval.getUserId(), k -> new ArrayList<>()).add(approval);
+            }
+            userList = userList.subList(size, userList.size());
+        }
+        return result;
+    }
+
     @Override
     public List<Approval> getApprovalsForClient(String clientId, final String zoneId) {
         String sql = GET_AUTHZ_SQL + " WHERE client_id = ? AND identity_zone_id = ?";
@@ -0,0 +1,343 @@
+package org.cloudfoundry.identity.uaa.audit;
+
+import org.cloudfoundry.identity.uaa.audit.JdbcAuditService.ZonedAuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Logs the events of a {@link JdbcAuditService} from a background thread, in batches, rather than on the threads
+ * publishing them.
+ * <p>
+ * Events wait in a queue of {@code capacity} events. When it is full, the {@link OverflowPolicy} decides whether the
+ * event is logged on the publishing thread, waited for room for, or dropped. On {@link #shutdown()}, the queued
+ * events are written for at most {@code drainTimeoutMillis}, and later events are logged on the publishing thread.
+ * <p>
+ * Events are written in the order they were queued: batches are always taken from the head of the queue, one at a
+ * time, and a publishing thread logging an event that does not fit writes the whole queue before it. A reset (e.g. a
+ * successful login) is therefore never written before the failures it resets.
+ * <p>
+ * {@link #find} reads its own writes: the events of the principal not written yet are merged with the events found in
+ * the database, so that lockout policies count the failures that just happened, and no longer count the failures reset
+ * by a login that just succeeded. Every written event gets a sequence number before its batch is committed, and the
+ * sequence of the last committed batch is recorded after, so that events committed while the database is queried are
+ * neither counted twice nor missed.
+ */
+@ManagedResource(
+        objectName = "cloudfoundry.identity:name=AsyncAudit",
+        description = "Asynchronous Audit Metrics"
+)
+public class AsyncAuditService implements UaaAuditService {
+
+    public enum OverflowPolicy {
+        /**
+         * Write the queued events, then the event, on the publishing thread
+         */
+        CALLER_RUNS,
+        /**
+         * Wait for room in the queue
+         */
+        BLOCK,
+        /**
+         * Drop the event
+         */
+        DISCARD
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncAuditService.class);
+    private static final long IN_FLIGHT_TIMEOUT_MILLIS = 100;
+
+    private final JdbcAuditService delegate;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Map<PrincipalKey, List<Pending>> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object progress = new Object();
+    private long lastSequence;
+    private volatile long lastWrittenSequence;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private volatile boolean running;
+    private long drainTimeoutMillis = 10000;
+    private Thread writer;
+
+    public AsyncAuditService(JdbcAuditService delegate,
+                             boolean enabled,
+                             int capacity,
+                             int maxBatchSize,
+                             OverflowPolicy overflowPolicy) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.overflowPolicy = overflowPolicy;
+        this.running = enabled;
+    }
+
+    @Override
+    public List<AuditEvent> find(String principal, long after, String zoneId) {
+        PrincipalKey key = new PrincipalKey(zoneId, principal);
+        while (true) {
+            List<Pending> notWritten = List.copyOf(pending.getOrDefault(key, List.of()));
+            long writtenBefore = lastWrittenSequence;
+            List<AuditEvent> events = delegate.find(principal, after, zoneId);
+            if (notWritten.isEmpty()) {
+                return events;
+            }
+            // the events being written while querying may or may not have been found, query again once they are
+            long inFlight = notWritten.stream().mapToLong(event -> event.sequence).max().orElse(0);
+            if (inFlight > writtenBefore && awaitWritten(inFlight)) {
+                continue;
+            }
+            List<AuditEvent> merged = new ArrayList<>(events);
+            for (Pending event : notWritten) {
+                long sequence = event.sequence;
+                if (sequence != 0 && sequence <= writtenBefore) {
+                    // written before querying, found in the database
+                    continue;
+                }
+                if (delegate.isReset(event.auditEvent())) {
+                    merged.clear();
+                } else if (event.auditEvent().getTime() > after) {
+                    merged.add(event.auditEvent());
+                }
+            }
+            merged.sort(Comparator.comparingLong(AuditEvent::getTime).reversed());
+            return merged;
+        }
+    }
+
+    @Override
+    public void log(AuditEvent auditEvent, String zoneId) {
+        if (!running) {
+            delegate.log(auditEvent, zoneId);
+            return;
+        }
+        start();
+        Pending event = new Pending(new ZonedAuditEvent(auditEvent, zoneId));
+        pending.compute(event.key(), (k, events) -> {
+            List<Pending> added = events == null ? new CopyOnWriteArrayList<>() : events;
+            added.add(event);
+            return added;
+        });
+        if (queue.offer(event)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(event);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (overflowPolicy == OverflowPolicy.DISCARD) {
+            removePending(event);
+            discarded.incrementAndGet();
+            logger.warn("Audit queue is full, discarding the {} event of {}", auditEvent.getType(), auditEvent.getPrincipalId());
+        } else {
+            writeQueueAndThen(event);
+        }
+    }
+
+    /**
+     * Writes the queued events, then the event that did not fit in the queue, on the publishing thread.
+     */
+    private void writeQueueAndThen(Pending event) {
+        writeLock.lock();
+        try {
+            if (queue.offer(event)) {
+                // the writer made room meanwhile
+                return;
+            }
+            List<Pending> batch = new ArrayList<>(queue.size() + 1);
+            queue.drainTo(batch);
+            batch.add(event);
+            for (int from = 0; from < batch.size(); from += maxBatchSize) {
+                write(batch.subList(from, Math.min(batch.size(), from + maxBatchSize)));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the queued events, and logs later events on the publishing thread.
+     */
+    public void shutdown() {
+        Thread stopped;
+        synchronized (this) {
+            running = false;
+            stopped = writer;
+            writer = null;
+        }
+        if (stopped != null) {
+            try {
+                stopped.join(drainTimeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (stopped.isAlive()) {
+                logger.warn("Audit queue not drained on shutdown, {} events were not written", queue.size());
+                return;
+            }
+        }
+        // the events queued while stopping
+        writeLock.lock();
+        try {
+            List<Pending> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            if (!rest.isEmpty()) {
+                write(rest);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void setDrainTimeoutMillis(long drainTimeoutMillis) {
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, displayName = "Queued Audit Events")
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, displayName = "Written Audit Events")
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, displayName = "Discarded Audit Events")
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    private synchronized void start() {
+        if (writer == null && running) {
+            writer = new Thread(this::run, "AsyncAuditService");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            // taken and written under the lock, so that a publishing thread writing the queue cannot overtake the batch
+            writeLock.lock();
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                writeLock.unlock();
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Only called holding the write lock.
+     */
+    private void write(List<Pending> batch) {
+        for (Pending event : batch) {
+            event.sequence = ++lastSequence;
+        }
+        try {
+            delegate.log(batch.stream().map(event -> event.event).toList());
+        } catch (RuntimeException e) {
+            logger.debug("Batch of {} audit events failed, writing them one at a time.", batch.size(), e);
+            for (Pending event : batch) {
+                try {
+                    delegate.log(event.auditEvent(), event.event.zoneId());
+                } catch (RuntimeException eventFailure) {
+                    logger.error("Unable to write the {} audit event of {}", event.auditEvent().getType(), event.auditEvent().getPrincipalId(), eventFailure);
+                }
+            }
+        }
+        written.addAndGet(batch.size());
+        synchronized (progress) {
+            lastWrittenSequence = lastSequence;
+            progress.notifyAll();
+        }
+        for (Pending event : batch) {
+            removePending(event);
+        }
+    }
+
+    /**
+     * @return false if the event was not written within {@link #IN_FLIGHT_TIMEOUT_MILLIS}, and is most likely not
+     * committed yet
+     */
+    private boolean awaitWritten(long sequence) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IN_FLIGHT_TIMEOUT_MILLIS);
+        synchronized (progress) {
+            while (lastWrittenSequence < sequence) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void removePending(Pending event) {
+        pending.computeIfPresent(event.key(), (k, events) -> {
+            events.remove(event);
+            return events.isEmpty() ? null : events;
+        });
+    }
+
+    private record PrincipalKey(String zoneId, String principalId) {
+    }
+
+    private static final class Pending {
+        private final ZonedAuditEvent event;
+        /**
+         * The order in which the event was written, 0 while it is queued
+         */
+        private volatile long sequence;
+
+        private Pending(ZonedAuditEvent event) {
+            this.event = event;
+        }
+
+        private AuditEvent auditEvent() {
+            return event.auditEvent();
+        }
+
+        private PrincipalKey key() {
+            return new PrincipalKey(event.zoneId(), event.auditEvent().getPrincipalId());
+        }
+    }
+}
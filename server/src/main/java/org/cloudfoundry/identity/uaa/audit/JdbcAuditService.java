@@ -20,10 +20,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.stream.Collectors;
 
 
 public class JdbcAuditService implements UaaAuditService {
 
+    private static final String INSERT_SQL = "insert into sec_audit (principal_id, event_type, origin, event_data, identity_zone_id) values (?,?,?,?,?)";
+
     private final JdbcTemplate template;
 
     public JdbcAuditService(JdbcTemplate template) {
@@ -43,15 +46,41 @@ public class JdbcAuditService implements UaaAuditService {
 
     @Override
     public void log(AuditEvent auditEvent, String zoneId) {
+        template.update(INSERT_SQL, insertArguments(auditEvent, zoneId));
+    }
+
+    /**
+     * Logs the events in order, as {@link #log(AuditEvent, String)} would, with as few statements as possible.
+     */
+    public void log(List<ZonedAuditEvent> auditEvents) {
+        if (!auditEvents.isEmpty()) {
+            template.batchUpdate(INSERT_SQL, auditEvents.stream()
+                    .map(e -> insertArguments(e.auditEvent(), e.zoneId()))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * @return whether logging the event deletes the events logged before it for its principal
+     */
+    protected boolean isReset(AuditEvent auditEvent) {
+        return false;
+    }
+
+    private static Object[] insertArguments(AuditEvent auditEvent, String zoneId) {
         String origin = auditEvent.getOrigin();
         String data = auditEvent.getData();
         origin = origin == null ? "" : origin;
         origin = origin.length() > 255 ? origin.substring(0, 255) : origin;
         data = data == null ? "" : data;
         data = data.length() > 255 ? data.substring(0, 255) : data;
-        template.update("insert into sec_audit (principal_id, event_type, origin, event_data, identity_zone_id) values (?,?,?,?,?)",
-                        auditEvent.getPrincipalId(), auditEvent.getType().getCode(), origin,
-                        data, zoneId);
+        return new Object[] {auditEvent.getPrincipalId(), auditEvent.getType().getCode(), origin, data, zoneId};
+    }
+
+    /**
+     * An event, and the zone it is logged in.
+     */
+    public record ZonedAuditEvent(AuditEvent auditEvent, String zoneId) {
     }
 
     private class AuditEventRowMapper implements RowMapper<AuditEvent> {
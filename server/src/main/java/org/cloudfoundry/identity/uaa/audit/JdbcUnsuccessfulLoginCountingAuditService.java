@@ -2,11 +2,14 @@ package org.cloudfoundry.identity.uaa.audit;
 
 import org.cloudfoundry.identity.uaa.util.TimeService;
 import org.cloudfoundry.identity.uaa.util.TimeServiceImpl;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import java.sql.Timestamp;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticationFailure;
@@ -19,6 +22,8 @@ import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticat
 @Component("jdbcAuditService")
 public class JdbcUnsuccessfulLoginCountingAuditService extends JdbcAuditService {
 
+    public static final Duration SAVE_DATA_PERIOD = Duration.ofDays(1L);
+
     private final TimeService timeService;
 
     private final Duration saveDataPeriod;
@@ -26,13 +31,16 @@ public class JdbcUnsuccessfulLoginCountingAuditService extends JdbcAuditService
 
     private AtomicLong lastDelete;
 
+    @Value("${database.expirySweeper.enabled:true}")
+    private boolean expirySweeperEnabled;
+
     public JdbcUnsuccessfulLoginCountingAuditService(
             final JdbcTemplate template,
             final TimeService timeService) {
         super(template);
         this.timeService = timeService;
         this.lastDelete = new AtomicLong(0);
-        this.saveDataPeriod = Duration.ofDays(1L);
+        this.saveDataPeriod = SAVE_DATA_PERIOD;
         this.timeBetweenDelete = Duration.ofSeconds(30L);
     }
 
@@ -51,11 +59,56 @@ public class JdbcUnsuccessfulLoginCountingAuditService extends JdbcAuditService
         }
     }
 
+    /**
+     * Inserts the failures in batches, up to the next reset of a principal's failures.
+     */
+    @Override
+    public void log(List<ZonedAuditEvent> auditEvents) {
+        List<ZonedAuditEvent> failures = new ArrayList<>();
+        for (ZonedAuditEvent event : auditEvents) {
+            switch (event.auditEvent().getType()) {
+                case UserAuthenticationSuccess, PasswordChangeSuccess, UserAccountUnlockedEvent:
+                    super.log(failures);
+                    failures.clear();
+                    resetAuthenticationEvents(event.auditEvent(), event.zoneId(), UserAuthenticationFailure);
+                    break;
+                case UserAuthenticationFailure:
+                    failures.add(event);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!failures.isEmpty()) {
+            periodicDelete();
+            super.log(failures);
+        }
+    }
+
+    @Override
+    protected boolean isReset(AuditEvent auditEvent) {
+        return switch (auditEvent.getType()) {
+            case UserAuthenticationSuccess, PasswordChangeSuccess, UserAccountUnlockedEvent -> true;
+            default -> false;
+        };
+    }
+
     private void resetAuthenticationEvents(AuditEvent auditEvent, String zoneId, AuditEventType eventType) {
         getJdbcTemplate().update("delete from sec_audit where principal_id=? and identity_zone_id=? and event_type=?", auditEvent.getPrincipalId(), zoneId, eventType.getCode());
     }
 
+    /**
+     * Old failures are deleted by the {@link org.cloudfoundry.identity.uaa.resources.jdbc.JdbcExpirySweeper} when it
+     * is enabled, rather than here.
+     */
+    public void setExpirySweeperEnabled(boolean expirySweeperEnabled) {
+        this.expirySweeperEnabled = expirySweeperEnabled;
+    }
+
     protected void periodicDelete() {
+        if (expirySweeperEnabled) {
+            return;
+        }
         long now = timeService.getCurrentTimeMillis();
         long lastCheck = lastDelete.get();
         if (now - lastCheck > timeBetweenDelete.toMillis() && lastDelete.compareAndSet(lastCheck, now)) {
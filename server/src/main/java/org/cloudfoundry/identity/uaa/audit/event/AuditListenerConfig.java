@@ -1,7 +1,10 @@
 package org.cloudfoundry.identity.uaa.audit.event;
 
+import org.cloudfoundry.identity.uaa.audit.AsyncAuditService;
+import org.cloudfoundry.identity.uaa.audit.JdbcAuditService;
 import org.cloudfoundry.identity.uaa.audit.UaaAuditService;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,9 +20,23 @@ public class AuditListenerConfig {
 
     @Bean
     public AuditListener jdbcAuditListener(
-            @Qualifier("jdbcAuditService") UaaAuditService jdbcAuditService
+            @Qualifier("asyncJdbcAuditService") UaaAuditService asyncJdbcAuditService
     ) {
-        return new AuditListener(jdbcAuditService);
+        return new AuditListener(asyncJdbcAuditService);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public AsyncAuditService asyncJdbcAuditService(
+            @Qualifier("jdbcAuditService") JdbcAuditService jdbcAuditService,
+            @Value("${audit.async.enabled:true}") boolean enabled,
+            @Value("${audit.async.capacity:10000}") int capacity,
+            @Value("${audit.async.maxBatchSize:500}") int maxBatchSize,
+            @Value("${audit.async.overflowPolicy:CALLER_RUNS}") AsyncAuditService.OverflowPolicy overflowPolicy,
+            @Value("${audit.async.drainTimeoutMillis:10000}") long drainTimeoutMillis
+    ) {
+        AsyncAuditService asyncAuditService = new AsyncAuditService(jdbcAuditService, enabled, capacity, maxBatchSize, overflowPolicy);
+        asyncAuditService.setDrainTimeoutMillis(drainTimeoutMillis);
+        return asyncAuditService;
     }
 
 }
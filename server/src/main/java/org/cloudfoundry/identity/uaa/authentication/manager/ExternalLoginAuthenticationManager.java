@@ -306,11 +306,9 @@ public class ExternalLoginAuthenticationManager<ExternalAuthenticationDetails> i
 
     protected List<? extends GrantedAuthority> mapAuthorities(String origin, Collection<? extends GrantedAuthority> authorities) {
         List<GrantedAuthority> result = new LinkedList<>();
-        for (GrantedAuthority authority : authorities ) {
-            String externalGroup = authority.getAuthority();
-            for (ScimGroupExternalMember internalGroup : externalMembershipManager.getExternalGroupMapsByExternalGroup(externalGroup, origin, IdentityZoneHolder.get().getId())) {
-                result.add(new SimpleGrantedAuthority(internalGroup.getDisplayName()));
-            }
+        List<String> externalGroups = authorities.stream().map(GrantedAuthority::getAuthority).toList();
+        for (ScimGroupExternalMember internalGroup : externalMembershipManager.getExternalGroupMapsByExternalGroups(externalGroups, origin, IdentityZoneHolder.get().getId())) {
+            result.add(new SimpleGrantedAuthority(internalGroup.getDisplayName()));
         }
         return result;
     }
@@ -0,0 +1,209 @@
+package org.cloudfoundry.identity.uaa.authentication.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.cloudfoundry.identity.uaa.audit.AuditEvent;
+import org.cloudfoundry.identity.uaa.audit.AuditEventType;
+import org.cloudfoundry.identity.uaa.audit.UaaAuditService;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticationFailure;
+
+/**
+ * Keeps the recent login failures of each principal in memory, so that the {@link CommonLoginPolicy} does not query
+ * the audit table on every login.
+ * <p>
+ * The failures of a principal are loaded from the {@code delegate} when its login is first checked, and again every
+ * {@code refreshSeconds} to pick up the failures logged on other nodes. In between, the failures and resets (successful
+ * logins, password changes and unlocks) logged on this node are applied to the loaded state, which keeps the times of
+ * the last {@code maxFailures} failures. When more failures than that happened within the period checked, the
+ * {@code delegate} is queried instead. Principals not checked for {@code idleSeconds} are evicted, as are the least
+ * recently checked beyond {@code maxPrincipals}.
+ * <p>
+ * Failures are persisted (and shared between nodes) by the audit listener writing them to the {@code delegate}.
+ */
+public class LoginFailureTracker implements UaaAuditService {
+
+    private static final List<AuditEventType> RESETS = List.of(
+            AuditEventType.UserAuthenticationSuccess,
+            AuditEventType.PasswordChangeSuccess,
+            AuditEventType.UserAccountUnlockedEvent
+    );
+
+    private final UaaAuditService delegate;
+    private final TimeService timeService;
+    private final boolean enabled;
+    private final int maxFailures;
+    private final long refreshMillis;
+    private final Cache<Key, Failures> cache;
+
+    public LoginFailureTracker(UaaAuditService delegate,
+                               TimeService timeService,
+                               boolean enabled,
+                               int maxPrincipals,
+                               int maxFailures,
+                               int idleSeconds,
+                               int refreshSeconds) {
+        this.delegate = delegate;
+        this.timeService = timeService;
+        this.enabled = enabled;
+        this.maxFailures = Math.max(1, maxFailures);
+        this.refreshMillis = Duration.ofSeconds(refreshSeconds).toMillis();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxPrincipals)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                .build();
+    }
+
+    @Override
+    public List<AuditEvent> find(String principal, long after, String zoneId) {
+        if (!enabled) {
+            return delegate.find(principal, after, zoneId);
+        }
+        long now = timeService.getCurrentTimeMillis();
+        Key key = new Key(zoneId, principal);
+        Failures failures = cache.getIfPresent(key);
+        if (failures == null || failures.loadedAfter > after || now - failures.loadedAt > refreshMillis) {
+            // loaded outside of the map, not to hold its lock while querying
+            Failures loaded = load(principal, after, zoneId, now);
+            if (failures == null ? cache.asMap().putIfAbsent(key, loaded) == null : cache.asMap().replace(key, failures, loaded)) {
+                failures = loaded;
+            } else {
+                // loaded meanwhile by another login
+                Failures current = cache.getIfPresent(key);
+                failures = current != null && current.loadedAt >= loaded.loadedAt && current.loadedAfter <= after ? current : loaded;
+            }
+        }
+        long[] times = failures.since(after);
+        if (times == null) {
+            return delegate.find(principal, after, zoneId);
+        }
+        List<AuditEvent> events = new ArrayList<>(times.length);
+        for (long time : times) {
+            events.add(new AuditEvent(UserAuthenticationFailure, principal, null, null, time, zoneId, null, null));
+        }
+        return events;
+    }
+
+    @Override
+    public void log(AuditEvent auditEvent, String zoneId) {
+        if (!enabled || (auditEvent.getType() != UserAuthenticationFailure && !RESETS.contains(auditEvent.getType()))) {
+            return;
+        }
+        Failures failures = cache.getIfPresent(new Key(zoneId, auditEvent.getPrincipalId()));
+        if (failures != null) {
+            failures.apply(auditEvent);
+        }
+    }
+
+    private Failures load(String principal, long after, String zoneId, long now) {
+        Failures failures = new Failures(maxFailures, after, now);
+        List<AuditEvent> events = delegate.find(principal, after, zoneId);
+        for (int i = events.size() - 1; i >= 0; i--) {
+            failures.record(events.get(i));
+        }
+        return failures;
+    }
+
+    private record Key(String zoneId, String principal) {
+    }
+
+    /**
+     * The times of the last failures, in a ring.
+     */
+    private static final class Failures {
+        private final long[] times;
+        private final long loadedAfter;
+        private final long loadedAt;
+        private int next;
+        private int size;
+        private boolean overflowed;
+
+        private Failures(int maxFailures, long loadedAfter, long loadedAt) {
+            this.times = new long[maxFailures];
+            this.loadedAfter = loadedAfter;
+            this.loadedAt = loadedAt;
+        }
+
+        private synchronized void record(AuditEvent event) {
+            if (event.getType() == UserAuthenticationFailure) {
+                times[next] = event.getTime();
+                next = (next + 1) % times.length;
+                overflowed |= size == times.length;
+                size = Math.min(size + 1, times.length);
+            } else if (RESETS.contains(event.getType())) {
+                next = 0;
+                size = 0;
+                overflowed = false;
+            }
+        }
+
+        /**
+         * Applies an event logged on this node. The audit listener may have written the event before it was loaded,
+         * so a failure not after the load is only recorded when its time is not already kept, and a reset only drops
+         * the failures up to its time.
+         */
+        private synchronized void apply(AuditEvent event) {
+            if (event.getType() == UserAuthenticationFailure) {
+                if (event.getTime() > loadedAt || !contains(event.getTime())) {
+                    record(event);
+                }
+            } else if (RESETS.contains(event.getType())) {
+                long[] kept = new long[size];
+                int count = 0;
+                boolean droppedOldest = false;
+                for (int i = size; i >= 1; i--) {
+                    long time = times[Math.floorMod(next - i, times.length)];
+                    if (time > event.getTime()) {
+                        kept[count++] = time;
+                    } else if (i == size) {
+                        droppedOldest = true;
+                    }
+                }
+                System.arraycopy(kept, 0, times, 0, count);
+                next = count % times.length;
+                size = count;
+                // the failures no longer kept are older than the oldest kept
+                overflowed &= !droppedOldest;
+            }
+        }
+
+        private boolean contains(long time) {
+            for (int i = 1; i <= size; i++) {
+                if (times[Math.floorMod(next - i, times.length)] == time) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the times of the failures after the given time, the most recent first, or null when failures that
+         * are no longer kept may have happened after it
+         */
+        private synchronized long[] since(long after) {
+            long[] since = new long[size];
+            int count = 0;
+            for (int i = 1; i <= size; i++) {
+                long time = times[Math.floorMod(next - i, times.length)];
+                if (time > after) {
+                    since[count++] = time;
+                }
+            }
+            if (overflowed && count == size) {
+                return null;
+            }
+            Arrays.sort(since, 0, count);
+            long[] descending = new long[count];
+            for (int i = 0; i < count; i++) {
+                descending[i] = since[count - 1 - i];
+            }
+            return descending;
+        }
+    }
+}
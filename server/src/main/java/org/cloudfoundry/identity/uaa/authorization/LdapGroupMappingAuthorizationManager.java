@@ -24,6 +24,7 @@ import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -39,21 +40,24 @@ public class LdapGroupMappingAuthorizationManager implements ExternalGroupMappin
     @Override
     public Set<? extends GrantedAuthority> findScopesFromAuthorities(Set<? extends GrantedAuthority> authorities) {
         Set<GrantedAuthority> result = new HashSet<>();
+        List<String> dns = new ArrayList<>();
         for (GrantedAuthority a : authorities) {
             if (a instanceof LdapAuthority) {
-                LdapAuthority la = (LdapAuthority)a;
-                List<ScimGroupExternalMember> members = extMbrMgr.getExternalGroupMapsByExternalGroup(la.getDn(), OriginKeys.LDAP, IdentityZoneHolder.get().getId());
-                for (ScimGroupExternalMember member : members) {
-                    SimpleGrantedAuthority mapped = new SimpleGrantedAuthority(member.getDisplayName());
-                    result.add(mapped);
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Ldap Group Mapped[dn="+la.getDn()+" scope:"+mapped.getAuthority());
-                    }
-                }
+                dns.add(((LdapAuthority)a).getDn());
             } else {
                 result.add(a);
             }
         }
+        if (!dns.isEmpty()) {
+            List<ScimGroupExternalMember> members = extMbrMgr.getExternalGroupMapsByExternalGroups(dns, OriginKeys.LDAP, IdentityZoneHolder.get().getId());
+            for (ScimGroupExternalMember member : members) {
+                SimpleGrantedAuthority mapped = new SimpleGrantedAuthority(member.getDisplayName());
+                result.add(mapped);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Ldap Group Mapped[dn="+member.getExternalGroup()+" scope:"+mapped.getAuthority());
+                }
+            }
+        }
         return result;
     }
 
@@ -9,6 +9,8 @@ import static org.cloudfoundry.identity.uaa.oauth.token.TokenConstants.GRANT_TYP
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -23,6 +25,7 @@ import org.cloudfoundry.identity.uaa.oauth.client.ClientConstants;
 import org.cloudfoundry.identity.uaa.provider.ClientAlreadyExistsException;
 import org.cloudfoundry.identity.uaa.provider.NoSuchClientException;
 import org.cloudfoundry.identity.uaa.user.UaaAuthority;
+import org.cloudfoundry.identity.uaa.util.BootstrapPhases;
 import org.cloudfoundry.identity.uaa.zone.IdentityZone;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.cloudfoundry.identity.uaa.zone.MultitenantClientServices;
@@ -59,6 +62,10 @@ public class ClientAdminBootstrap implements
     private final Set<String> autoApproveClients;
     private final Set<String> allowPublicClients;
     private final boolean defaultOverride;
+    private int parallelism = BootstrapPhases.DEFAULT_PARALLELISM;
+
+    private static final String GET_EXISTING_CLIENT_IDS_SQL = "select client_id from oauth_client_details where identity_zone_id = ? and client_id in (%s)";
+    private static final int CLIENTS_PER_QUERY = 100;
 
     /**
      * @param defaultOverride    the default override flag to set. Flag to indicate
@@ -96,11 +103,24 @@ public class ClientAdminBootstrap implements
         this.allowPublicClients = new HashSet<>(ofNullable(allowPublicClients).orElse(Collections.emptySet()));
     }
 
+    /**
+     * @param parallelism maximum number of clients added or updated at the same time
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Prepares and validates all clients, fetches which of them exist in one query, and then adds or updates them
+     * (hashing their secrets) on a bounded pool of threads.
+     */
     @Override
     public void afterPropertiesSet() {
-        addNewClients();
-        updateAutoApproveClients();
-        updateAllowedPublicClients();
+        BootstrapPhases phases = new BootstrapPhases("clients", parallelism);
+        addNewClients(phases);
+        phases.run("autoapprove", this::updateAutoApproveClients);
+        phases.run("allowpublic", this::updateAllowedPublicClients);
+        phases.report();
     }
 
     /**
@@ -149,105 +169,151 @@ public class ClientAdminBootstrap implements
         return StringUtils.arrayToCommaDelimitedString(redirectUris.toArray(new String[]{}));
     }
 
-    private void addNewClients() {
+    private void addNewClients(BootstrapPhases phases) {
         Set<Map.Entry<String, Map<String, Object>>> entries = clients.entrySet();
         entries.removeIf(entry -> clientsToDelete.contains(entry.getKey()));
-        for (Map.Entry<String, Map<String, Object>> entry : entries) {
-            String clientId = entry.getKey();
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<ClientChange> changes = phases.run("prepare", () -> entries.stream()
+                .map(entry -> getChange(entry.getKey(), entry.getValue()))
+                .toList());
+        Set<String> existingClientIds = phases.run("prefetch", () -> getExistingClientIds(changes));
+        phases.forEach("apply", changes, change -> apply(change, existingClientIds.contains(change.client().getClientId())));
+        phases.run("bcrypt-prefix", () -> addBcryptPrefix(changes));
+    }
 
-            Map<String, Object> map = entry.getValue();
-            if (map.get("authorized-grant-types") == null) {
-                throw new InvalidClientDetailsException("Client must have at least one authorized-grant-type. client ID: " + clientId);
-            }
-            UaaClientDetails client = new UaaClientDetails(clientId, (String) map.get("resource-ids"),
-                    (String) map.get("scope"), (String) map.get("authorized-grant-types"),
-                    (String) map.get("authorities"), getRedirectUris(map));
-
-            // support second secret
-            String secondSecret = null;
-            if (map.get("secret") instanceof List) {
-                List<String> secrets = (List<String>) map.get("secret");
-                if (!secrets.isEmpty()) {
-                    client.setClientSecret(secrets.get(0) == null ? "" : secrets.get(0));
-                    if (secrets.size() > 1) {
-                        secondSecret = secrets.get(1) == null ? "" : secrets.get(1);
-                    }
+    private ClientChange getChange(String clientId, Map<String, Object> map) {
+        if (map.get("authorized-grant-types") == null) {
+            throw new InvalidClientDetailsException("Client must have at least one authorized-grant-type. client ID: " + clientId);
+        }
+        UaaClientDetails client = new UaaClientDetails(clientId, (String) map.get("resource-ids"),
+                (String) map.get("scope"), (String) map.get("authorized-grant-types"),
+                (String) map.get("authorities"), getRedirectUris(map));
+
+        // support second secret
+        String secondSecret = null;
+        if (map.get("secret") instanceof List) {
+            List<String> secrets = (List<String>) map.get("secret");
+            if (!secrets.isEmpty()) {
+                client.setClientSecret(secrets.get(0) == null ? "" : secrets.get(0));
+                if (secrets.size() > 1) {
+                    secondSecret = secrets.get(1) == null ? "" : secrets.get(1);
                 }
-            } else {
-                client.setClientSecret((String) map.get("secret"));
             }
+        } else {
+            client.setClientSecret((String) map.get("secret"));
+        }
 
-            Integer validity = (Integer) map.get("access-token-validity");
-            Boolean override = (Boolean) map.get("override");
-            if (override == null) {
-                override = defaultOverride;
-            }
-            Map<String, Object> info = new HashMap<>(map);
-            if (validity != null) {
-                client.setAccessTokenValiditySeconds(validity);
-            }
-            validity = (Integer) map.get("refresh-token-validity");
-            if (validity != null) {
-                client.setRefreshTokenValiditySeconds(validity);
-            }
-            // UAA does not use the resource ids in client registrations
-            client.setResourceIds(Collections.singleton("none"));
-            if (client.getScope().isEmpty()) {
-                client.setScope(Collections.singleton("uaa.none"));
-            }
-            if (client.getAuthorities().isEmpty()) {
-                client.setAuthorities(Collections.singleton(UaaAuthority.UAA_NONE));
-            }
-            if (client.getAuthorizedGrantTypes().contains(GRANT_TYPE_AUTHORIZATION_CODE)) {
-                client.getAuthorizedGrantTypes().add(GRANT_TYPE_REFRESH_TOKEN);
+        Integer validity = (Integer) map.get("access-token-validity");
+        Boolean override = (Boolean) map.get("override");
+        if (override == null) {
+            override = defaultOverride;
+        }
+        Map<String, Object> info = new HashMap<>(map);
+        if (validity != null) {
+            client.setAccessTokenValiditySeconds(validity);
+        }
+        validity = (Integer) map.get("refresh-token-validity");
+        if (validity != null) {
+            client.setRefreshTokenValiditySeconds(validity);
+        }
+        // UAA does not use the resource ids in client registrations
+        client.setResourceIds(Collections.singleton("none"));
+        if (client.getScope().isEmpty()) {
+            client.setScope(Collections.singleton("uaa.none"));
+        }
+        if (client.getAuthorities().isEmpty()) {
+            client.setAuthorities(Collections.singleton(UaaAuthority.UAA_NONE));
+        }
+        if (client.getAuthorizedGrantTypes().contains(GRANT_TYPE_AUTHORIZATION_CODE)) {
+            client.getAuthorizedGrantTypes().add(GRANT_TYPE_REFRESH_TOKEN);
+        }
+        for (String key : Arrays.asList("resource-ids", "scope", "authorized-grant-types", "authorities",
+                "redirect-uri", "secret", "id", "override", "access-token-validity",
+                "refresh-token-validity", "show-on-homepage", "app-launch-url", "app-icon", JWKS, JWKS_URI)) {
+            info.remove(key);
+        }
+
+        client.setAdditionalInformation(info);
+
+        if (map.get(JWKS_URI) instanceof String || map.get(JWKS) instanceof String) {
+            String jwksUri = (String) map.get(JWKS_URI);
+            String jwks = (String) map.get(JWKS);
+            ClientJwtConfiguration keyConfig = ClientJwtConfiguration.parse(jwksUri, jwks);
+            if (keyConfig != null && keyConfig.getCleanString() != null) {
+                keyConfig.writeValue(client);
+            } else {
+                throw new InvalidClientDetailsException("Client jwt configuration invalid syntax. ClientID: " + client.getClientId());
             }
-            for (String key : Arrays.asList("resource-ids", "scope", "authorized-grant-types", "authorities",
-                    "redirect-uri", "secret", "id", "override", "access-token-validity",
-                    "refresh-token-validity", "show-on-homepage", "app-launch-url", "app-icon", JWKS, JWKS_URI)) {
-                info.remove(key);
+        }
+
+        for (String s : Arrays.asList(GRANT_TYPE_AUTHORIZATION_CODE, GRANT_TYPE_IMPLICIT)) {
+            if (client.getAuthorizedGrantTypes().contains(s) && isMissingRedirectUris(client)) {
+                throw new InvalidClientDetailsException(s + " grant type requires at least one redirect URL. ClientID: " + client.getClientId());
             }
+        }
 
-            client.setAdditionalInformation(info);
+        boolean bcryptPrefix = map.containsKey("use-bcrypt-prefix") && "true".equals(map.get("use-bcrypt-prefix"));
+        return new ClientChange(client, secondSecret, override, bcryptPrefix, buildClientMetadata(map, clientId));
+    }
 
-            if (map.get(JWKS_URI) instanceof String || map.get(JWKS) instanceof String) {
-                String jwksUri = (String) map.get(JWKS_URI);
-                String jwks = (String) map.get(JWKS);
-                ClientJwtConfiguration keyConfig = ClientJwtConfiguration.parse(jwksUri, jwks);
-                if (keyConfig != null && keyConfig.getCleanString() != null) {
-                    keyConfig.writeValue(client);
-                } else {
-                    throw new InvalidClientDetailsException("Client jwt configuration invalid syntax. ClientID: " + client.getClientId());
-                }
-            }
+    /**
+     * @return the IDs of the clients that already exist, empty if unknown
+     */
+    private Set<String> getExistingClientIds(List<ClientChange> changes) {
+        if (jdbcTemplate == null) {
+            // every client is then added, those that exist are detected by the insert
+            return Collections.emptySet();
+        }
+        List<String> clientIds = changes.stream().map(change -> change.client().getClientId()).toList();
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < clientIds.size(); from += CLIENTS_PER_QUERY) {
+            List<String> chunk = clientIds.subList(from, Math.min(clientIds.size(), from + CLIENTS_PER_QUERY));
+            List<Object> params = new ArrayList<>(chunk.size() + 1);
+            params.add(IdentityZone.getUaaZoneId());
+            params.addAll(chunk);
+            existing.addAll(jdbcTemplate.queryForList(
+                    String.format(GET_EXISTING_CLIENT_IDS_SQL, String.join(",", Collections.nCopies(chunk.size(), "?"))),
+                    String.class, params.toArray()));
+        }
+        return existing;
+    }
 
+    private void apply(ClientChange change, boolean exists) {
+        UaaClientDetails client = change.client();
+        String clientId = client.getClientId();
+        boolean added = false;
+        if (!exists) {
             try {
                 clientRegistrationService.addClientDetails(client, IdentityZone.getUaaZoneId());
-                if (secondSecret != null) {
-                    clientRegistrationService.addClientSecret(clientId, secondSecret, IdentityZone.getUaaZoneId());
-                }
+                added = true;
             } catch (ClientAlreadyExistsException e) {
-                if (override) {
-                    logger.debug("Overriding client details for " + clientId);
-                    clientRegistrationService.updateClientDetails(client, IdentityZone.getUaaZoneId());
-                    updatePasswordsIfChanged(clientId, client.getClientSecret(), secondSecret);
-                } else {
-                    // ignore it
-                    logger.debug(e.getMessage());
-                }
+                logger.debug(e.getMessage());
             }
-
-            if (map.containsKey("use-bcrypt-prefix") && "true".equals(map.get("use-bcrypt-prefix"))) {
-                jdbcTemplate.update("update oauth_client_details set client_secret=concat(?, client_secret) where client_id = ?", "{bcrypt}", clientId);
-            }
-
-            for (String s : Arrays.asList(GRANT_TYPE_AUTHORIZATION_CODE, GRANT_TYPE_IMPLICIT)) {
-                if (client.getAuthorizedGrantTypes().contains(s) && isMissingRedirectUris(client)) {
-                    throw new InvalidClientDetailsException(s + " grant type requires at least one redirect URL. ClientID: " + client.getClientId());
-                }
+        }
+        if (added) {
+            if (change.secondSecret() != null) {
+                clientRegistrationService.addClientSecret(clientId, change.secondSecret(), IdentityZone.getUaaZoneId());
             }
+        } else if (change.override()) {
+            logger.debug("Overriding client details for " + clientId);
+            clientRegistrationService.updateClientDetails(client, IdentityZone.getUaaZoneId());
+            updatePasswordsIfChanged(clientId, client.getClientSecret(), change.secondSecret());
+        } else {
+            logger.debug("Client " + clientId + " already exists, not overriding it");
+        }
+        clientMetadataProvisioning.update(change.metadata(), IdentityZone.getUaaZoneId());
+    }
 
-            ClientMetadata clientMetadata = buildClientMetadata(map, clientId);
-            clientMetadataProvisioning.update(clientMetadata, IdentityZone.getUaaZoneId());
+    private void addBcryptPrefix(List<ClientChange> changes) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> updates = changes.stream()
+                .filter(ClientChange::bcryptPrefix)
+                .map(change -> new Object[]{"{bcrypt}", now, change.client().getClientId()})
+                .toList();
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("update oauth_client_details set client_secret=concat(?, client_secret), lastmodified=?, revision=revision+1 where client_id = ?", updates);
         }
     }
 
@@ -311,6 +377,10 @@ public class ClientAdminBootstrap implements
         }
     }
 
+    private record ClientChange(UaaClientDetails client, String secondSecret, boolean override, boolean bcryptPrefix,
+                                ClientMetadata metadata) {
+    }
+
     @Override
     public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
         this.publisher = applicationEventPublisher;
@@ -40,7 +40,7 @@ public abstract class AbstractClientAdminEvent extends AbstractUaaEvent {
         this.client = client;
     }
 
-    ClientDetails getClient() {
+    public ClientDetails getClient() {
         return client;
     }
 
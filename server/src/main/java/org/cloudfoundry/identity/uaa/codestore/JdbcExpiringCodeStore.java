@@ -53,6 +53,7 @@ public class JdbcExpiringCodeStore implements ExpiringCodeStore {
 
     private AtomicLong lastExpired = new AtomicLong();
     private long expirationInterval = 60 * 1_000L; // once a minute
+    private boolean expirySweeperEnabled;
 
     public long getExpirationInterval() {
         return expirationInterval;
@@ -62,6 +63,14 @@ public class JdbcExpiringCodeStore implements ExpiringCodeStore {
         this.expirationInterval = expirationInterval;
     }
 
+    /**
+     * Expired codes are deleted by the {@link org.cloudfoundry.identity.uaa.resources.jdbc.JdbcExpirySweeper} when it
+     * is enabled, rather than here.
+     */
+    public void setExpirySweeperEnabled(boolean expirySweeperEnabled) {
+        this.expirySweeperEnabled = expirySweeperEnabled;
+    }
+
     protected JdbcExpiringCodeStore() {
         // package protected for unit tests only
     }
@@ -166,6 +175,9 @@ public class JdbcExpiringCodeStore implements ExpiringCodeStore {
     }
 
     public int cleanExpiredEntries() {
+        if (expirySweeperEnabled) {
+            return 0;
+        }
         long now = timeService.getCurrentTimeMillis();
         long lastCheck = lastExpired.get();
 
@@ -0,0 +1,20 @@
+package org.cloudfoundry.identity.uaa.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Implemented by beans that hold an in-process cache whose effectiveness should be
+ * reported through the {@link UaaMetrics} MBean.
+ */
+public interface CacheMetrics {
+
+    String getCacheName();
+
+    CacheMetricSummary getCacheMetrics();
+
+    static CacheMetricSummary summarize(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheMetricSummary(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize());
+    }
+}
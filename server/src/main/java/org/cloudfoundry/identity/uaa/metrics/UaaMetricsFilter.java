@@ -5,6 +5,8 @@ import org.cloudfoundry.identity.uaa.util.TimeService;
 import org.cloudfoundry.identity.uaa.util.UaaYamlUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jmx.export.annotation.ManagedMetric;
@@ -12,7 +14,6 @@ import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.jmx.export.notification.NotificationPublisher;
 import org.springframework.jmx.export.notification.NotificationPublisherAware;
 import org.springframework.lang.NonNull;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.yaml.snakeyaml.Yaml;
 
@@ -23,9 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -48,11 +47,12 @@ public class UaaMetricsFilter extends OncePerRequestFilter implements UaaMetrics
     private final TimeService timeService;
     private final IdleTimer inflight;
     private final Map<String, MetricsQueue> perUriMetrics;
-    private final LinkedHashMap<AntPathRequestMatcher, UrlGroup> urlGroups;
+    private final UrlGroupMatcher urlGroups;
     private boolean enabled = true;
     private boolean perRequestMetrics = false;
 
     private NotificationPublisher notificationPublisher;
+    private ObjectProvider<CacheMetrics> cacheMetrics;
 
     public UaaMetricsFilter(
             final @Value("${metrics.enabled:true}") boolean enabled,
@@ -64,11 +64,7 @@ public class UaaMetricsFilter extends OncePerRequestFilter implements UaaMetrics
         this.timeService = timeService;
         this.perUriMetrics = new ConcurrentHashMap<>();
         this.perUriMetrics.put(MetricsUtil.GLOBAL_GROUP, new MetricsQueue());
-        this.urlGroups = new LinkedHashMap<>();
-        List<UrlGroup> groups = getUrlGroups();
-        groups.forEach(
-                group -> urlGroups.put(new AntPathRequestMatcher(group.getPattern()), group)
-        );
+        this.urlGroups = new UrlGroupMatcher(getUrlGroups());
         this.inflight = new IdleTimer();
     }
 
@@ -91,10 +87,8 @@ public class UaaMetricsFilter extends OncePerRequestFilter implements UaaMetrics
                 if (perRequestMetrics) {
                     sendRequestTime(uriGroup.getGroup(), metric.getRequestCompleteTime() - metric.getRequestStartTime());
                 }
-                for (String group : Arrays.asList(uriGroup.getGroup(), MetricsUtil.GLOBAL_GROUP)) {
-                    MetricsQueue queue = getMetricsQueue(group);
-                    queue.offer(metric);
-                }
+                getMetricsQueue(uriGroup.getGroup()).offer(metric);
+                getMetricsQueue(MetricsUtil.GLOBAL_GROUP).offer(metric);
             }
         } else {
             filterChain.doFilter(request, response);
@@ -110,10 +104,8 @@ public class UaaMetricsFilter extends OncePerRequestFilter implements UaaMetrics
     }
 
     protected MetricsQueue getMetricsQueue(String uri) {
-        if (!perUriMetrics.containsKey(uri)) {
-            perUriMetrics.putIfAbsent(uri, new MetricsQueue());
-        }
-        return perUriMetrics.get(uri);
+        MetricsQueue queue = perUriMetrics.get(uri);
+        return queue != null ? queue : perUriMetrics.computeIfAbsent(uri, key -> new MetricsQueue());
     }
 
     /**
@@ -121,15 +113,12 @@ public class UaaMetricsFilter extends OncePerRequestFilter implements UaaMetrics
      */
     protected UrlGroup getUriGroup(final HttpServletRequest request) {
         if (urlGroups != null) {
-            String uri = request.getRequestURI();
-            for (Map.Entry<AntPathRequestMatcher, UrlGroup> entry : urlGroups.entrySet()) {
-                if (entry.getKey().matches(request)) {
-                    UrlGroup group = entry.getValue();
-                    if (logger.isDebugEnabled()) {
-                        logger.debug(String.format("Successfully matched URI: %s to a group: %s", uri, group.getGroup()));
-                    }
-                    return group;
+            UrlGroup group = urlGroups.match(request);
+            if (group != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(String.format("Successfully matched URI: %s to a group: %s", request.getRequestURI(), group.getGroup()));
                 }
+                return group;
             }
             return FALLBACK;
         } else {
@@ -169,6 +158,25 @@ public class UaaMetricsFilter extends OncePerRequestFilter implements UaaMetrics
         return JsonUtils.writeValueAsString(perUriMetrics.get(MetricsUtil.GLOBAL_GROUP));
     }
 
+    @Override
+    @ManagedMetric(category = "performance", displayName = "In-process Cache Summary")
+    public Map<String, String> getCacheSummary() {
+        Map<String, String> data = new HashMap<>();
+        if (cacheMetrics != null) {
+            cacheMetrics.orderedStream().forEach(cache -> data.put(cache.getCacheName(), JsonUtils.writeValueAsString(cache.getCacheMetrics())));
+        }
+        return data;
+    }
+
+    /**
+     * Caches are looked up when the summary is requested, so that this filter does not force
+     * the early initialization of the beans holding them.
+     */
+    @Autowired(required = false)
+    public void setCacheMetrics(ObjectProvider<CacheMetrics> cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+    }
+
     public List<UrlGroup> getUrlGroups() throws IOException {
         ClassPathResource resource = new ClassPathResource("performance-url-groups.yml");
         Yaml yaml = UaaYamlUtils.createYaml();
@@ -0,0 +1,202 @@
+package org.cloudfoundry.identity.uaa.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.util.AntPathMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resolves the {@link UrlGroup} of a request path the same way an ordered list of {@link AntPathRequestMatcher}s
+ * would: the first group whose pattern matches wins, {@code null} if none does.
+ * <p>
+ * The literal prefix of every pattern, up to its first wildcard, is compiled into a character trie. Walking the
+ * request path down the trie yields the few patterns that can possibly match it, which are then evaluated in their
+ * configured order. Resolved groups are kept in a size bounded cache keyed on the path, so that repeated requests
+ * for the same path cost a single hash lookup.
+ */
+class UrlGroupMatcher {
+
+    static final int MAX_CACHED_PATHS = 10_000;
+
+    private static final String MATCH_ALL = "/**";
+
+    private final PathPattern[] patterns;
+    private final Node root;
+    private final Cache<String, UrlGroup> cache;
+
+    UrlGroupMatcher(List<UrlGroup> groups) {
+        this(groups, MAX_CACHED_PATHS);
+    }
+
+    UrlGroupMatcher(List<UrlGroup> groups, int maxCachedPaths) {
+        AntPathMatcher antPathMatcher = new AntPathMatcher();
+        antPathMatcher.setTrimTokens(false);
+        antPathMatcher.setCaseSensitive(true);
+        this.patterns = new PathPattern[groups.size()];
+        MutableNode builder = new MutableNode();
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = new PathPattern(groups.get(i), antPathMatcher);
+            builder.add(patterns[i].literalPrefix, i);
+        }
+        this.root = builder.freeze();
+        this.cache = Caffeine.newBuilder().maximumSize(maxCachedPaths).build();
+    }
+
+    /**
+     * @return the group of the first pattern matching the request path, null if no pattern matches
+     */
+    UrlGroup match(HttpServletRequest request) {
+        return match(getRequestPath(request));
+    }
+
+    UrlGroup match(String path) {
+        // a null value cannot be cached, unmatched paths are resolved every time
+        UrlGroup group = cache.getIfPresent(path);
+        if (group == null) {
+            group = resolve(path);
+            if (group != null) {
+                cache.put(path, group);
+            }
+        }
+        return group;
+    }
+
+    private UrlGroup resolve(String path) {
+        if (path.contains("//")) {
+            // ant patterns ignore empty path segments, which a literal prefix does not
+            return resolveLinearly(path);
+        }
+        int best = Integer.MAX_VALUE;
+        Node node = root;
+        int position = 0;
+        while (node != null) {
+            for (int index : node.patterns) {
+                if (index >= best) {
+                    break;
+                }
+                if (patterns[index].matches(path, false)) {
+                    best = index;
+                    break;
+                }
+            }
+            node = position < path.length() ? node.child(path.charAt(position++)) : null;
+        }
+        return best == Integer.MAX_VALUE ? null : patterns[best].group;
+    }
+
+    private UrlGroup resolveLinearly(String path) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path, true)) {
+                return pattern.group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The path {@link AntPathRequestMatcher} matches against.
+     */
+    static String getRequestPath(HttpServletRequest request) {
+        String url = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null) {
+            url = url != null && !url.isEmpty() ? url + pathInfo : pathInfo;
+        }
+        return url != null ? url : "";
+    }
+
+    private static final class PathPattern {
+        private final UrlGroup group;
+        private final String pattern;
+        private final String literalPrefix;
+        private final String subpath;
+        private final boolean matchAll;
+        private final boolean literal;
+        private final AntPathMatcher antPathMatcher;
+
+        PathPattern(UrlGroup group, AntPathMatcher antPathMatcher) {
+            this.group = group;
+            this.pattern = group.getPattern();
+            this.antPathMatcher = antPathMatcher;
+            this.matchAll = MATCH_ALL.equals(pattern) || "**".equals(pattern);
+            int wildcard = firstWildcard(pattern);
+            this.literal = wildcard == pattern.length();
+            // same shortcut as AntPathRequestMatcher: a trailing /** is the only wildcard
+            this.subpath = pattern.endsWith(MATCH_ALL) && wildcard == pattern.length() - 2 && !matchAll ?
+                    pattern.substring(0, pattern.length() - MATCH_ALL.length()) : null;
+            String prefix = matchAll ? "" : pattern.substring(0, wildcard);
+            // "/x/**" also matches "/x"
+            this.literalPrefix = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        }
+
+        boolean matches(String path, boolean emptySegments) {
+            if (matchAll) {
+                return true;
+            } else if (subpath != null) {
+                return path.startsWith(subpath) && (path.length() == subpath.length() || path.charAt(subpath.length()) == '/');
+            } else if (literal && !emptySegments) {
+                return pattern.equals(path);
+            }
+            return antPathMatcher.match(pattern, path);
+        }
+
+        private static int firstWildcard(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' || c == '?' || c == '{' || c == '}') {
+                    return i;
+                }
+            }
+            return pattern.length();
+        }
+    }
+
+    private static final class Node {
+        private final char[] labels;
+        private final Node[] children;
+        private final int[] patterns;
+
+        Node(char[] labels, Node[] children, int[] patterns) {
+            this.labels = labels;
+            this.children = children;
+            this.patterns = patterns;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(labels, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    private static final class MutableNode {
+        private final Map<Character, MutableNode> children = new TreeMap<>();
+        private final List<Integer> patterns = new ArrayList<>();
+
+        void add(String prefix, int index) {
+            MutableNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new MutableNode());
+            }
+            node.patterns.add(index);
+        }
+
+        Node freeze() {
+            char[] labels = new char[children.size()];
+            Node[] frozen = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, MutableNode> entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                frozen[i++] = entry.getValue().freeze();
+            }
+            // patterns are added in configured order
+            return new Node(labels, frozen, patterns.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
@@ -48,6 +48,7 @@ public class KeyInfo {
     private final JsonWebKey.KeyType type;
     private final JWK jwk;
     private final String algorithm;
+    private volatile Map<String, Object> jwkMap;
 
     public KeyInfo(String keyId, String signingKey, String keyUrl) {
         this(keyId, signingKey, keyUrl, null, null);
@@ -124,6 +125,16 @@ public class KeyInfo {
     }
 
     public Map<String, Object> getJwkMap() {
+        Map<String, Object> result = this.jwkMap;
+        if (result == null) {
+            // the key material is immutable, so the encoded certificate, thumbprints and modulus are computed once
+            result = Collections.unmodifiableMap(buildJwkMap());
+            this.jwkMap = result;
+        }
+        return new HashMap<>(result);
+    }
+
+    private Map<String, Object> buildJwkMap() {
         Map<String, Object> result = new HashMap<>();
         result.put(HeaderParameterNames.ALGORITHM, this.algorithm());
         //new values per OpenID and JWK spec
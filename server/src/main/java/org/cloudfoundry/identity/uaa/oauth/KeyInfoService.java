@@ -14,24 +14,55 @@
  */
 package org.cloudfoundry.identity.uaa.oauth;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.cloudfoundry.identity.uaa.audit.event.AbstractUaaEvent;
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
 import org.cloudfoundry.identity.uaa.impl.config.LegacyTokenKey;
 import org.cloudfoundry.identity.uaa.util.UaaTokenUtils;
+import org.cloudfoundry.identity.uaa.zone.IdentityZone;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneConfiguration;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.cloudfoundry.identity.uaa.zone.TokenPolicy;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityZoneModifiedEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.util.StringUtils;
 
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 
 import static org.cloudfoundry.identity.uaa.util.UaaUrlUtils.addSubdomainToUrl;
 
-public class KeyInfoService {
-    private String uaaBaseURL;
+/**
+ * Resolves the signing and verification keys of the current identity zone.
+ * <p>
+ * Building a {@link KeyInfo} parses the PEM encoded key and constructs the signer, verifier and JWK, which is
+ * expensive enough that it must not happen on every token request. Built keys are therefore kept in a bounded
+ * per-zone registry, keyed by a fingerprint of the zone's token policy key material. A key rotation changes the
+ * fingerprint, so stale entries are never served even if a zone update happened on another node; zone modified
+ * and deleted events merely release the memory held by the outdated entries early.
+ */
+public class KeyInfoService implements ApplicationListener<AbstractUaaEvent> {
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final String uaaBaseURL;
+    private final Cache<ZoneKeysKey, Map<String, KeyInfo>> keyRegistry;
 
     public KeyInfoService(String uaaBaseURL) {
+        this(uaaBaseURL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public KeyInfoService(String uaaBaseURL, int maxEntries) {
         this.uaaBaseURL = uaaBaseURL;
+        this.keyRegistry = Caffeine.newBuilder().maximumSize(maxEntries).build();
     }
 
     public KeyInfo getKey(String keyId, String sigAlg) {
@@ -52,32 +83,41 @@ public class KeyInfoService {
             config = IdentityZoneHolder.getUaaZone().getConfig();
         }
 
+        Map<String, TokenPolicy.KeyInformation> keyInformation = config.getTokenPolicy().getKeys();
+        if (keyInformation.isEmpty()) {
+            Map<String, KeyInfo> keys = new HashMap<>();
+            keys.put(LegacyTokenKey.LEGACY_TOKEN_KEY_ID, LegacyTokenKey.getLegacyTokenKeyInfo());
+            return keys;
+        }
+
+        IdentityZone zone = IdentityZoneHolder.get();
+        String subdomain = zone.getSubdomain();
+        ZoneKeysKey registryKey = new ZoneKeysKey(zone.getId(), fingerprint(subdomain, keyInformation), sigAlg);
+        return keyRegistry.get(registryKey, k -> buildKeys(keyInformation, subdomain, sigAlg));
+    }
+
+    private Map<String, KeyInfo> buildKeys(Map<String, TokenPolicy.KeyInformation> keyInformation, String subdomain, String sigAlg) {
         Map<String, KeyInfo> keys = new HashMap<>();
-        for (Map.Entry<String, TokenPolicy.KeyInformation> entry : config.getTokenPolicy().getKeys().entrySet()) {
-            KeyInfo keyInfo = KeyInfoBuilder.build(entry.getKey(), entry.getValue().getSigningKey(), addSubdomainToUrl(uaaBaseURL, IdentityZoneHolder.get().getSubdomain()),
+        for (Map.Entry<String, TokenPolicy.KeyInformation> entry : keyInformation.entrySet()) {
+            KeyInfo keyInfo = KeyInfoBuilder.build(entry.getKey(), entry.getValue().getSigningKey(), addSubdomainToUrl(uaaBaseURL, subdomain),
                 sigAlg != null ? sigAlg : entry.getValue().getSigningAlg(),
                 entry.getValue().getSigningCert());
             keys.put(entry.getKey(), keyInfo);
         }
-
-        if (keys.isEmpty()) {
-            keys.put(LegacyTokenKey.LEGACY_TOKEN_KEY_ID, LegacyTokenKey.getLegacyTokenKeyInfo());
-        }
-
-        return keys;
+        return Collections.unmodifiableMap(keys);
     }
 
     public KeyInfo getActiveKey() {
-        return getKeys().get(getActiveKeyId());
+        Map<String, KeyInfo> keys = getKeys();
+        return keys.get(getActiveKeyId(keys));
     }
 
-    private String getActiveKeyId() {
+    private String getActiveKeyId(Map<String, KeyInfo> keys) {
         IdentityZoneConfiguration config = IdentityZoneHolder.get().getConfig();
         if (config == null) return IdentityZoneHolder.getUaaZone().getConfig().getTokenPolicy().getActiveKeyId();
         String activeKeyId = config.getTokenPolicy().getActiveKeyId();
 
-        Map<String, KeyInfo> keys;
-        if (!StringUtils.hasText(activeKeyId) && (keys = getKeys()).size() == 1) {
+        if (!StringUtils.hasText(activeKeyId) && keys.size() == 1) {
             activeKeyId = keys.keySet().stream().findAny().get();
         }
 
@@ -95,4 +135,54 @@ public class KeyInfoService {
     public String getTokenEndpointUrl() throws URISyntaxException {
         return UaaTokenUtils.constructTokenEndpointUrl(uaaBaseURL, IdentityZoneHolder.get());
     }
+
+    @Override
+    public void onApplicationEvent(AbstractUaaEvent event) {
+        if (event instanceof IdentityZoneModifiedEvent) {
+            evict(((IdentityZone) event.getSource()).getId());
+        } else if (event instanceof EntityDeletedEvent<?> deletedEvent && deletedEvent.getDeleted() instanceof IdentityZone zone) {
+            evict(zone.getId());
+        }
+    }
+
+    public void evict(String zoneId) {
+        keyRegistry.asMap().keySet().removeIf(k -> Objects.equals(k.zoneId(), zoneId));
+    }
+
+    public void clear() {
+        keyRegistry.invalidateAll();
+    }
+
+    long size() {
+        keyRegistry.cleanUp();
+        return keyRegistry.estimatedSize();
+    }
+
+    private static String fingerprint(String subdomain, Map<String, TokenPolicy.KeyInformation> keyInformation) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, subdomain);
+        for (Map.Entry<String, TokenPolicy.KeyInformation> entry : new TreeMap<>(keyInformation).entrySet()) {
+            update(digest, entry.getKey());
+            update(digest, entry.getValue().getSigningKey());
+            update(digest, entry.getValue().getSigningCert());
+            update(digest, entry.getValue().getSigningAlg());
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // separator, so that adjacent values cannot be shifted into one another
+        digest.update((byte) 0);
+    }
+
+    private record ZoneKeysKey(String zoneId, String fingerprint, String sigAlg) {
+    }
 }
@@ -0,0 +1,176 @@
+package org.cloudfoundry.identity.uaa.oauth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.cloudfoundry.identity.uaa.account.event.AbstractPasswordChangeEvent;
+import org.cloudfoundry.identity.uaa.audit.event.AbstractUaaEvent;
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
+import org.cloudfoundry.identity.uaa.client.event.AbstractClientAdminEvent;
+import org.cloudfoundry.identity.uaa.oauth.event.TokenRevocationEvent;
+import org.cloudfoundry.identity.uaa.oauth.provider.ClientDetails;
+import org.cloudfoundry.identity.uaa.scim.ScimUser;
+import org.cloudfoundry.identity.uaa.scim.event.UserModifiedEvent;
+import org.cloudfoundry.identity.uaa.user.UaaUser;
+import org.cloudfoundry.identity.uaa.util.JwtTokenSignedByThisUAA;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityZoneModifiedEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.cloudfoundry.identity.uaa.oauth.token.ClaimConstants.CID;
+import static org.cloudfoundry.identity.uaa.oauth.token.ClaimConstants.EXPIRY_IN_SECONDS;
+import static org.cloudfoundry.identity.uaa.oauth.token.ClaimConstants.USER_ID;
+
+/**
+ * Size bounded cache of the access tokens successfully validated by the {@link TokenValidationService}, so that a
+ * resource server checking the same token over and over does not have every check verify the signature, load the
+ * client and the user and compute the revocation signature again.
+ * <p>
+ * Entries are keyed by the zone and a hash of the token, and expire {@code expiration} after the validation, or when
+ * the token expires if that is sooner. Failed validations are not cached. Revoking tokens, and modifying or deleting
+ * the user or the client of a token (which changes or removes its revocation signature), evicts the entries of that
+ * user or client; modifying a zone (its keys or issuer) evicts the entries of the zone.
+ * <p>
+ * These events are only seen by the node they happen on, so {@code expiration} is how long a token revoked on another
+ * node may still be accepted.
+ */
+public class TokenValidationCache implements ApplicationListener<AbstractUaaEvent> {
+
+    private final boolean enabled;
+    private final Cache<Key, Entry> cache;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TokenValidationCache(TimeService timeService, boolean enabled, int maxEntries, int expirationSeconds) {
+        this(timeService, enabled, maxEntries, Duration.ofSeconds(expirationSeconds), Ticker.systemTicker());
+    }
+
+    TokenValidationCache(TimeService timeService, boolean enabled, int maxEntries, Duration expiration, Ticker ticker) {
+        this.enabled = enabled && !expiration.isZero() && !expiration.isNegative();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new UntilTokenExpiry(timeService, expiration))
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * @param validate called on a cache miss, validates the token or throws
+     * @return the validated token, shared between callers and to be treated as read-only
+     */
+    public JwtTokenSignedByThisUAA get(String token, String zoneId, Supplier<JwtTokenSignedByThisUAA> validate) {
+        if (!enabled) {
+            return validate.get();
+        }
+        Key key = new Key(zoneId, DigestUtils.sha256Hex(token));
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return entry.token();
+        }
+        long evictionsBefore = evictions.get();
+        JwtTokenSignedByThisUAA validated = validate.get();
+        Map<String, Object> claims = validated.getClaims();
+        Object expiresAt = claims.get(EXPIRY_IN_SECONDS);
+        if (expiresAt != null) {
+            cache.put(key, new Entry(validated, (String) claims.get(USER_ID), (String) claims.get(CID),
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(expiresAt.toString()))));
+            if (evictions.get() != evictionsBefore) {
+                // the token may have been revoked while it was validated
+                cache.invalidate(key);
+            }
+        }
+        return validated;
+    }
+
+    /**
+     * Evicts the tokens of the given zone issued to the given user and/or client, null matching any.
+     */
+    public void evict(String zoneId, String userId, String clientId) {
+        evictions.incrementAndGet();
+        cache.asMap().entrySet().removeIf(e ->
+                Objects.equals(e.getKey().zoneId(), zoneId)
+                        && (userId == null || userId.equals(e.getValue().userId()))
+                        && (clientId == null || clientId.equals(e.getValue().clientId())));
+    }
+
+    public void clear() {
+        evictions.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void onApplicationEvent(AbstractUaaEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String zoneId = event.getIdentityZoneId();
+        if (event instanceof TokenRevocationEvent revocation) {
+            evict(revocation.getZoneId(), revocation.getUserId(), revocation.getClientId());
+        } else if (event instanceof IdentityZoneModifiedEvent) {
+            evict(((IdentityZone) event.getSource()).getId(), null, null);
+        } else if (event instanceof UserModifiedEvent userModified) {
+            evict(zoneId, userModified.getUserId(), null);
+        } else if (event instanceof AbstractPasswordChangeEvent passwordChange && passwordChange.getUser() != null) {
+            evict(zoneId, passwordChange.getUser().getId(), null);
+        } else if (event instanceof AbstractClientAdminEvent clientAdmin && clientAdmin.getClient() != null) {
+            evict(zoneId, null, clientAdmin.getClient().getClientId());
+        } else if (event instanceof EntityDeletedEvent<?> deleted) {
+            Object entity = deleted.getDeleted();
+            if (entity instanceof IdentityZone zone) {
+                evict(zone.getId(), null, null);
+            } else if (entity instanceof ScimUser user) {
+                evict(zoneId, user.getId(), null);
+            } else if (entity instanceof UaaUser user) {
+                evict(zoneId, user.getId(), null);
+            } else if (entity instanceof ClientDetails client) {
+                evict(zoneId, null, client.getClientId());
+            }
+        }
+    }
+
+    private record Key(String zoneId, String tokenHash) {
+    }
+
+    private record Entry(JwtTokenSignedByThisUAA token, String userId, String clientId, long expiresAtMillis) {
+    }
+
+    private static class UntilTokenExpiry implements Expiry<Key, Entry> {
+        private final TimeService timeService;
+        private final long expirationNanos;
+
+        UntilTokenExpiry(TimeService timeService, Duration expiration) {
+            this.timeService = timeService;
+            this.expirationNanos = expiration.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+            long untilTokenExpiry = TimeUnit.MILLISECONDS.toNanos(entry.expiresAtMillis() - timeService.getCurrentTimeMillis());
+            return Math.max(0, Math.min(expirationNanos, untilTokenExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -24,6 +24,7 @@ public class TokenValidationService {
     private UaaUserDatabase userDatabase;
     private MultitenantClientServices multitenantClientServices;
     private KeyInfoService keyInfoService;
+    private TokenValidationCache validationCache;
 
     public TokenValidationService(RevocableTokenProvisioning revocableTokenProvisioning,
                                   TokenEndpointBuilder tokenEndpointBuilder,
@@ -37,7 +38,18 @@ public class TokenValidationService {
         this.keyInfoService = keyInfoService;
     }
 
+    public void setValidationCache(TokenValidationCache validationCache) {
+        this.validationCache = validationCache;
+    }
+
     public JwtTokenSignedByThisUAA validateToken(String token, boolean isAccessToken) {
+        if (isAccessToken && validationCache != null) {
+            return validationCache.get(token, IdentityZoneHolder.get().getId(), () -> validate(token, true));
+        }
+        return validate(token, isAccessToken);
+    }
+
+    private JwtTokenSignedByThisUAA validate(String token, boolean isAccessToken) {
         if (!UaaTokenUtils.isJwtToken(token)) {
             RevocableToken revocableToken;
             try {
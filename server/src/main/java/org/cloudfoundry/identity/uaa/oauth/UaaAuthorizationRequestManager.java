@@ -15,8 +15,8 @@ import org.cloudfoundry.identity.uaa.provider.IdentityProviderProvisioning;
 import org.cloudfoundry.identity.uaa.security.beans.SecurityContextAccessor;
 import org.cloudfoundry.identity.uaa.user.UaaUser;
 import org.cloudfoundry.identity.uaa.user.UaaUserDatabase;
+import org.cloudfoundry.identity.uaa.util.ScopeMatcher;
 import org.cloudfoundry.identity.uaa.util.UaaSecurityContextUtils;
-import org.cloudfoundry.identity.uaa.util.UaaStringUtils;
 import org.cloudfoundry.identity.uaa.util.UaaTokenUtils;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.cloudfoundry.identity.uaa.zone.MultitenantClientServices;
@@ -41,7 +41,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import static java.util.Collections.emptySet;
 import static java.util.Collections.unmodifiableMap;
@@ -181,10 +180,10 @@ public class UaaAuthorizationRequestManager implements OAuth2RequestFactory {
             if (GRANT_TYPE_CLIENT_CREDENTIALS.equals(parameters.get("grant_type"))) {
                 validScope = AuthorityUtils.authorityListToSet(clientDetails.getAuthorities());
             }
-            Set<Pattern> validWildcards = constructWildcards(validScope);
+            ScopeMatcher validWildcards = ScopeMatcher.of(validScope);
             Set<String> scopes = OAuth2Utils.parseParameterList(parameters.get("scope"));
             for (String scope : scopes) {
-                if (!matches(validWildcards, scope)) {
+                if (!validWildcards.matches(scope)) {
                     throw new InvalidScopeException(scope + " is invalid. Please use a valid scope name in the request");
                 }
             }
@@ -256,23 +255,15 @@ public class UaaAuthorizationRequestManager implements OAuth2RequestFactory {
     protected Set<String> intersectScopes(Set<String> requestedScopes, Set<String> clientScopes, Set<String> userScopes) {
         Set<String> result = new HashSet<>(userScopes);
 
-        Set<Pattern> clientWildcards = constructWildcards(clientScopes);
-        result.removeIf(scope1 -> !matches(clientWildcards, scope1));
+        ScopeMatcher clientWildcards = ScopeMatcher.of(clientScopes);
+        result.removeIf(scope1 -> !clientWildcards.matches(scope1));
 
-        Set<Pattern> requestedWildcards = constructWildcards(requestedScopes);
-        result.removeIf(scope -> !matches(requestedWildcards, scope));
+        ScopeMatcher requestedWildcards = ScopeMatcher.of(requestedScopes);
+        result.removeIf(scope -> !requestedWildcards.matches(scope));
 
         return result;
     }
 
-    protected Set<Pattern> constructWildcards(Set<String> scopes) {
-        return UaaStringUtils.constructWildcards(scopes);
-    }
-
-    protected boolean matches(Set<Pattern> wildcards, String scope) {
-        return UaaStringUtils.matches(wildcards, scope);
-    }
-
     private Set<String> getResourceIds(ClientDetails clientDetails, Set<String> scopes) {
         Set<String> resourceIds = new LinkedHashSet<>();
         //at a minimum - the resourceIds should contain the client this is intended for
@@ -17,7 +17,7 @@ import org.cloudfoundry.identity.uaa.oauth.common.util.OAuth2Utils;
 import org.cloudfoundry.identity.uaa.oauth.provider.AuthorizationRequest;
 import org.cloudfoundry.identity.uaa.oauth.provider.OAuth2RequestValidator;
 import org.cloudfoundry.identity.uaa.oauth.provider.TokenRequest;
-import org.cloudfoundry.identity.uaa.util.UaaStringUtils;
+import org.cloudfoundry.identity.uaa.util.ScopeMatcher;
 import org.cloudfoundry.identity.uaa.zone.MultitenantClientServices;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.springframework.security.core.GrantedAuthority;
@@ -27,7 +27,6 @@ import org.cloudfoundry.identity.uaa.oauth.provider.ClientDetails;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import static org.cloudfoundry.identity.uaa.oauth.token.TokenConstants.GRANT_TYPE_CLIENT_CREDENTIALS;
 import static org.cloudfoundry.identity.uaa.oauth.token.TokenConstants.GRANT_TYPE_USER_TOKEN;
@@ -67,9 +66,9 @@ public class UaaOauth2RequestValidator implements OAuth2RequestValidator {
         }
 
         if (wildCardsAllowed) {
-            Set<Pattern> wildcards = UaaStringUtils.constructWildcards(clientScopes);
+            ScopeMatcher wildcards = ScopeMatcher.of(clientScopes);
             for (String scope : requestScopes) {
-                if (!UaaStringUtils.matches(wildcards, scope)) {
+                if (!wildcards.matches(scope)) {
                     throw new InvalidScopeException("Invalid scope: " + scope, clientScopes);
                 }
             }
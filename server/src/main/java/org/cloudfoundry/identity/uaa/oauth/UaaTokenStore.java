@@ -89,6 +89,7 @@ public class UaaTokenStore implements AuthorizationCodeServices {
 
     private Instant lastClean = Instant.EPOCH;
     private Semaphore cleanMutex = new Semaphore(1);
+    private boolean expirySweeperEnabled;
 
     @Autowired
     public UaaTokenStore(DataSource dataSource, TimeService timeService) {
@@ -217,8 +218,16 @@ public class UaaTokenStore implements AuthorizationCodeServices {
         return new OAuth2Authentication(request, userAuthentication);
     }
 
+    /**
+     * Expired codes are deleted by the {@link org.cloudfoundry.identity.uaa.resources.jdbc.JdbcExpirySweeper} when it
+     * is enabled, rather than here.
+     */
+    public void setExpirySweeperEnabled(boolean expirySweeperEnabled) {
+        this.expirySweeperEnabled = expirySweeperEnabled;
+    }
+
     protected void performExpirationCleanIfEnoughTimeHasElapsed() {
-        if (cleanMutex.tryAcquire()) {
+        if (!expirySweeperEnabled && cleanMutex.tryAcquire()) {
             //check if we should expire again
             try {
                 Instant now = timeService.getCurrentInstant();
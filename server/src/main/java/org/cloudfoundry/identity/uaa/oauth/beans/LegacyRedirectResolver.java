@@ -1,5 +1,7 @@
 package org.cloudfoundry.identity.uaa.oauth.beans;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.cloudfoundry.identity.uaa.util.UaaUrlUtils;
@@ -42,21 +44,31 @@ public class LegacyRedirectResolver extends org.cloudfoundry.identity.uaa.oauth.
 
     private final SpecCompliantRedirectMatcher specCompliantRedirectMatcher = new SpecCompliantRedirectMatcher();
 
+    /**
+     * The registered redirect uris of the clients, normalized and parsed once. Entries are keyed by the registered uri,
+     * so that a client updated with other redirect uris gets new entries, and the replaced ones are evicted as the
+     * least recently used.
+     */
+    private final Cache<String, ClientRedirectUriPattern> clientRedirectUriPatterns = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
+
     @Override
     protected boolean redirectMatches(String requestedRedirect, String clientRedirect) {
         try {
             String normalizedRequestedRedirect = normalizeUri(requestedRedirect);
-            String normalizedClientRedirect = normalizeWildcardUri(clientRedirect);
+            ClientRedirectUriPattern clientRedirectUri = clientRedirectUriPatterns.get(clientRedirect,
+                    uri -> new ClientRedirectUriPattern(normalizeWildcardUri(uri)));
+            String normalizedClientRedirect = clientRedirectUri.getRedirectUri();
 
             URI requestedRedirectURI = URI.create(normalizedRequestedRedirect);
-            ClientRedirectUriPattern clientRedirectUri = new ClientRedirectUriPattern(normalizedClientRedirect);
 
             if (!clientRedirectUri.isValidRedirect()) {
                 logger.error(String.format("Invalid redirect uri: %s", normalizedClientRedirect));
                 return false;
             }
 
-            if (clientRedirectUri.isWildcard(normalizedClientRedirect) &&
+            if (clientRedirectUri.isWildcard() &&
                     clientRedirectUri.isSafeRedirect(requestedRedirectURI) &&
                     clientRedirectUri.match(requestedRedirectURI)) {
                 return true;
@@ -199,12 +211,13 @@ public class LegacyRedirectResolver extends org.cloudfoundry.identity.uaa.oauth.
         private static final int URI_EXTRACTOR_AUTHORITY_GROUP = 4; // "Authority" means "user:password@example.com"
         private static final String WILDCARD_PORT = "99999";
         private static final String WILDCARD_PORT_PATTERN = ":" + WILDCARD_PORT;
+        private static final AntPathMatcher matcher = new AntPathMatcher();
 
-        private Matcher redirectMatcher;
-        private boolean isValidRedirect = true;
-        private boolean hasWildcardPort = false;
-        private AntPathMatcher matcher;
-        private String redirectUri;
+        private final boolean isValidRedirect;
+        private final boolean hasWildcardPort;
+        private final boolean isWildcard;
+        private final String redirectUri;
+        private final String[] configuredRedirectHost;
 
         ClientRedirectUriPattern(String redirectUri) {
             if (redirectUri == null) {
@@ -212,17 +225,15 @@ public class LegacyRedirectResolver extends org.cloudfoundry.identity.uaa.oauth.
             }
 
             this.redirectUri = redirectUri;
-            matcher = new AntPathMatcher();
-            this.redirectMatcher = URI_EXTRACTOR.matcher(redirectUri);
-            if (!redirectMatcher.matches()) {
-                isValidRedirect = false;
-            }
+            Matcher redirectMatcher = URI_EXTRACTOR.matcher(redirectUri);
+            this.isValidRedirect = redirectMatcher.matches();
             this.hasWildcardPort = isWildcardPort(redirectUri);
+            this.isWildcard = isWildcard(redirectUri);
+            this.configuredRedirectHost = isValidRedirect && isWildcard ? splitAndReverseHost(getHost(redirectMatcher)) : null;
         }
 
         boolean isSafeRedirect(URI requestedRedirect) {
             // We iterate backwards through the hosts to make sure the TLD and domain match
-            String[] configuredRedirectHost = splitAndReverseHost(getHost());
             String[] requestedRedirectHost = splitAndReverseHost((Optional.ofNullable(requestedRedirect.getHost()).orElse("")));
 
             if (requestedRedirectHost.length < configuredRedirectHost.length) {
@@ -241,6 +252,14 @@ public class LegacyRedirectResolver extends org.cloudfoundry.identity.uaa.oauth.
             return isValidRedirect;
         }
 
+        boolean isWildcard() {
+            return isWildcard;
+        }
+
+        String getRedirectUri() {
+            return redirectUri;
+        }
+
         boolean match(URI requestedRedirect) {
             if(hasWildcardPort) {
                  if(requestedRedirect.getPort() > 0) {
@@ -260,7 +279,7 @@ public class LegacyRedirectResolver extends org.cloudfoundry.identity.uaa.oauth.
             return configuredRedirectPattern.contains(WILDCARD_PORT_PATTERN);
         }
 
-        private String getHost() {
+        private String getHost(Matcher redirectMatcher) {
             String authority = redirectMatcher.group(URI_EXTRACTOR_AUTHORITY_GROUP);
             return stripPort(stripAuthority(authority));
         }
@@ -13,6 +13,7 @@ import org.springframework.util.StringUtils;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -44,10 +45,14 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
     private final RowMapper<RevocableToken> rowMapper;
     private final JdbcTemplate template;
     private final LimitSqlAdapter limitSqlAdapter;
+    private final String upsertQuery;
+    private final String insertIfAbsentQuery;
     private TimeService timeService;
+    private RevocableTokenBatchWriter batchWriter;
 
     private AtomicLong lastExpiredCheck = new AtomicLong(0);
     private Duration maxExpirationRuntime = Duration.ofMillis(2500L);
+    private boolean expirySweeperEnabled;
     private final static Duration EXPIRATION_CHECK_INTERVAL = Duration.ofSeconds(30);
 
     public JdbcRevocableTokenProvisioning(JdbcTemplate jdbcTemplate,
@@ -57,6 +62,17 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
         this.template = jdbcTemplate;
         this.limitSqlAdapter = limitSqlAdapter;
         this.timeService = timeService;
+        List<String> columns = Arrays.asList(FIELDS.split(","));
+        this.upsertQuery = limitSqlAdapter.getUpsertSql(TABLE, "token_id", columns);
+        this.insertIfAbsentQuery = limitSqlAdapter.getInsertIfAbsentSql(TABLE, "token_id", columns);
+    }
+
+    /**
+     * Group commits the tokens stored by {@link #upsert} and {@link #createIfNotExists}, when the database has single
+     * statement upserts.
+     */
+    public void setBatchWriter(RevocableTokenBatchWriter batchWriter) {
+        this.batchWriter = batchWriter;
     }
 
     @Override
@@ -95,6 +111,11 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
     }
 
     public void createIfNotExists(RevocableToken t, String zoneId) {
+        if (insertIfAbsentQuery != null) {
+            checkExpired();
+            write(insertIfAbsentQuery, insertArguments(t, zoneId));
+            return;
+        }
         if (exists(t.getTokenId(), true, zoneId)) {
             return;
         }
@@ -145,6 +166,11 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
     }
 
     public void upsert(String id, RevocableToken t, String zoneId) {
+        if (upsertQuery != null && id.equals(t.getTokenId())) {
+            checkExpired();
+            write(upsertQuery, insertArguments(t, zoneId));
+            return;
+        }
         if (exists(t.getTokenId(), true, zoneId)) {
             template.update(UPDATE_QUERY, // NOSONAR
                     t.getClientId(),
@@ -172,6 +198,29 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
         }
     }
 
+    private void write(String sql, Object[] args) {
+        if (batchWriter != null) {
+            batchWriter.write(sql, args);
+        } else {
+            template.update(sql, args);
+        }
+    }
+
+    private static Object[] insertArguments(RevocableToken t, String zoneId) {
+        return new Object[] {
+                t.getTokenId(),
+                t.getClientId(),
+                t.getUserId(),
+                t.getFormat(),
+                t.getResponseType().toString(),
+                t.getIssuedAt(),
+                t.getExpiresAt(),
+                t.getScope(),
+                t.getValue(),
+                zoneId
+        };
+    }
+
     @Override
     public RevocableToken delete(String id, int version, String zoneId) {
         RevocableToken previous = retrieve(id, false, zoneId);
@@ -218,6 +267,9 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
     }
 
     private void checkExpired() {
+        if (expirySweeperEnabled) {
+            return;
+        }
         long now = timeService.getCurrentTimeMillis();
         long lastCheck = lastExpiredCheck.get();
         if ((now - lastCheck) > EXPIRATION_CHECK_INTERVAL.toMillis() && lastExpiredCheck.compareAndSet(lastCheck, now)) {
@@ -252,6 +304,14 @@ public class JdbcRevocableTokenProvisioning implements RevocableTokenProvisionin
         this.maxExpirationRuntime = Duration.ofMillis(maxExpirationRuntime);
     }
 
+    /**
+     * Expired tokens are deleted by the {@link org.cloudfoundry.identity.uaa.resources.jdbc.JdbcExpirySweeper} when it
+     * is enabled, rather than here.
+     */
+    public void setExpirySweeperEnabled(boolean expirySweeperEnabled) {
+        this.expirySweeperEnabled = expirySweeperEnabled;
+    }
+
     protected static final class RevocableTokenRowMapper implements RowMapper<RevocableToken> {
 
         @Override
@@ -0,0 +1,221 @@
+package org.cloudfoundry.identity.uaa.oauth.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Group commits the revocable tokens written by concurrent token requests.
+ * <p>
+ * Writes are queued, and a single writer thread executes what is queued as JDBC batches (one per statement) in one
+ * transaction, collecting writes for at most {@code maxDelayMillis} or until {@code maxBatchSize} are queued. With no
+ * delay, the writes queued while a batch commits make up the next batch. A request waits until the transaction holding
+ * its write committed, so no token is returned before it is stored, and gets the exception of its own write should it
+ * fail: a failed batch is retried one write at a time. When {@code queueCapacity} writes are waiting already, requests
+ * write on their own thread instead.
+ * <p>
+ * A request whose write was not taken by the writer within {@code maxWaitMillis}, or whose writer stopped before taking
+ * it, writes on its own thread too. A write is taken by either the writer or its request, never both.
+ */
+public class RevocableTokenBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocableTokenBatchWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionOperations transactionOperations;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Write> queue;
+    private long maxWaitMillis = 10000;
+    private Thread writer;
+
+    public RevocableTokenBatchWriter(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     boolean enabled,
+                                     int maxBatchSize,
+                                     long maxDelayMillis,
+                                     int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionOperations = transactionManager == null ?
+                TransactionOperations.withoutTransaction() : new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    /**
+     * Executes the statement with the given arguments, returning once it is committed.
+     */
+    public void write(String sql, Object... args) {
+        Write write = new Write(sql, args);
+        if (!enabled || !queue.offer(write)) {
+            jdbcTemplate.update(sql, args);
+            return;
+        }
+        start();
+        try {
+            write.committed().get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException | ExecutionException e) {
+            if (!write.take()) {
+                // taken by the writer, the outcome is its own
+                await(write);
+                return;
+            }
+            // not taken in time, or the writer stopped before taking it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!write.take()) {
+                await(write);
+                return;
+            }
+        }
+        queue.remove(write);
+        jdbcTemplate.update(sql, args);
+    }
+
+    private static void await(Write write) {
+        try {
+            write.committed().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the writer once it wrote what is queued. Later writes start a new writer once it stopped.
+     */
+    public synchronized void shutdown() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    private synchronized void start() {
+        if (writer == null) {
+            writer = new Thread(this::run, "RevocableTokenBatchWriter");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                    collect(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                flush(batch);
+            }
+            // the requests queued meanwhile are still waiting
+            queue.drainTo(batch);
+            flush(batch);
+        } finally {
+            synchronized (this) {
+                if (writer == Thread.currentThread()) {
+                    writer = null;
+                }
+            }
+            // should the writer have failed, or writes have been queued since, their requests write on their own
+            queue.drainTo(batch);
+            WriterStoppedException stopped = new WriterStoppedException();
+            batch.forEach(write -> write.committed().completeExceptionally(stopped));
+        }
+    }
+
+    private void collect(List<Write> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            Write next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Write> batch) {
+        batch.removeIf(write -> !write.take());
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<Object[]>> argsBySql = new LinkedHashMap<>();
+        for (Write write : batch) {
+            argsBySql.computeIfAbsent(write.sql(), sql -> new ArrayList<>()).add(write.args());
+        }
+        try {
+            transactionOperations.executeWithoutResult(status ->
+                    argsBySql.forEach((sql, args) -> jdbcTemplate.batchUpdate(sql, args)));
+            batch.forEach(write -> write.committed().complete(null));
+        } catch (RuntimeException e) {
+            logger.debug("Batch of {} revocable token writes failed, writing them one at a time.", batch.size(), e);
+            for (Write write : batch) {
+                try {
+                    jdbcTemplate.update(write.sql(), write.args());
+                    write.committed().complete(null);
+                } catch (RuntimeException writeFailure) {
+                    write.committed().completeExceptionally(writeFailure);
+                }
+            }
+        } finally {
+            // the writes left when the writer fails with an error
+            batch.stream()
+                    .filter(write -> !write.committed().isDone())
+                    .forEach(write -> write.committed().completeExceptionally(new WriterStoppedException()));
+            batch.clear();
+        }
+    }
+
+    private record Write(String sql, Object[] args, CompletableFuture<Void> committed, AtomicBoolean taken) {
+
+        private Write(String sql, Object[] args) {
+            this(sql, args, new CompletableFuture<>(), new AtomicBoolean());
+        }
+
+        /**
+         * @return true for the first of the writer and the request to take the write
+         */
+        private boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+
+    private static final class WriterStoppedException extends RuntimeException {
+        private WriterStoppedException() {
+            super("Revocable token writer stopped", null, false, false);
+        }
+    }
+}
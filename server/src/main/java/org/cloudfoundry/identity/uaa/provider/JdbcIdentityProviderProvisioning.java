@@ -1,18 +1,28 @@
 package org.cloudfoundry.identity.uaa.provider;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 import lombok.extern.slf4j.Slf4j;
 import org.cloudfoundry.identity.uaa.audit.event.SystemDeletable;
 import org.cloudfoundry.identity.uaa.constants.OriginKeys;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetricSummary;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetrics;
 import org.cloudfoundry.identity.uaa.util.JsonUtils;
 import org.cloudfoundry.identity.uaa.util.ObjectUtils;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -21,18 +31,31 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static java.sql.Types.VARCHAR;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.joining;
 import static org.cloudfoundry.identity.uaa.util.UaaStringUtils.isNotEmpty;
 
+/**
+ * Identity providers stored in the {@code identity_provider} table.
+ * <p>
+ * The lookups by zone, type, origin and external key are answered from a snapshot of the rows of the zone, kept in a
+ * size bounded cache for {@code identityProviders.cache.timeToLiveMillis}, so that changes made on other nodes are
+ * seen once it expired. Writes through this class drop the snapshot of the zone, and again once the transaction they
+ * take part in committed or rolled back. Definitions are mutable, so every
+ * caller receives providers parsed from the snapshot for it. Lookups not matching any row of the snapshot are
+ * delegated to the database, which may compare differently (e.g. ignoring case).
+ */
 @Slf4j
 @Component("identityProviderProvisioning")
-public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisioning, SystemDeletable {
+public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisioning, SystemDeletable, CacheMetrics {
 
     public static final String ID_PROVIDER_FIELDS = "id,version,created,lastmodified,name,origin_key,type,config,identity_zone_id,active,alias_id,alias_zid,external_key";
 
@@ -64,12 +87,54 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
 
     protected final JdbcTemplate jdbcTemplate;
 
-    private final RowMapper<IdentityProvider> mapper = new IdentityProviderRowMapper();
+    private final RowMapper<ProviderRow> rowMapper = new ProviderRowMapper();
+
+    private final RowMapper<IdentityProvider> mapper = (rs, rowNum) -> rowMapper.mapRow(rs, rowNum).toIdentityProvider();
+
+    @Value("${identityProviders.cache.enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${identityProviders.cache.maxZones:1000}")
+    private int cacheMaxZones;
+    @Value("${identityProviders.cache.timeToLiveMillis:5000}")
+    private long cacheTimeToLiveMillis;
+    private Cache<String, List<ProviderRow>> providerCache;
 
     public JdbcIdentityProviderProvisioning(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
+    public void init() {
+        if (cacheEnabled) {
+            enableCache(cacheMaxZones, cacheTimeToLiveMillis, Ticker.systemTicker());
+        }
+    }
+
+    void enableCache(int maxZones, long timeToLiveMillis, Ticker ticker) {
+        this.providerCache = Caffeine.newBuilder()
+                .maximumSize(maxZones)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public void clearCache() {
+        if (providerCache != null) {
+            providerCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public String getCacheName() {
+        return "identityProviders";
+    }
+
+    @Override
+    public CacheMetricSummary getCacheMetrics() {
+        return providerCache == null ? new CacheMetricSummary(0, 0, 0, 0) : CacheMetrics.summarize(providerCache);
+    }
+
     @Override
     public boolean idpWithAliasExistsInZone(final String zoneId) {
         final List<Integer> result = jdbcTemplate.queryForList(
@@ -89,6 +154,9 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
 
     @Override
     public List<IdentityProvider> retrieveActive(String zoneId) {
+        if (providerCache != null) {
+            return fromSnapshot(zoneId, ProviderRow::active);
+        }
         return jdbcTemplate.query(IDENTITY_ACTIVE_PROVIDERS_QUERY, mapper, zoneId, true);
     }
 
@@ -97,6 +165,9 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
         if (ObjectUtils.isNotEmpty(types)) {
             // eliminate duplicates
             final Set<String> typesAsSet = new HashSet<>(Arrays.asList(types));
+            if (providerCache != null) {
+                return fromSnapshot(zoneId, row -> row.active() && typesAsSet.contains(row.type()));
+            }
 
             // adjust the number of SQL parameters in the prepared statement
             final String sqlPlaceholdersForTypes = typesAsSet.stream().map(type -> "?").collect(joining(","));
@@ -116,6 +187,8 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
     public List<IdentityProvider> retrieveAll(boolean activeOnly, String zoneId) {
         if (activeOnly) {
             return retrieveActive(zoneId);
+        } else if (providerCache != null) {
+            return fromSnapshot(zoneId, row -> true);
         } else {
             return jdbcTemplate.query(IDENTITY_PROVIDERS_QUERY, mapper, zoneId);
         }
@@ -123,19 +196,73 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
 
     @Override
     public IdentityProvider retrieveByOrigin(String origin, String zoneId) {
+        IdentityProvider provider = singleFromSnapshot(zoneId, row -> row.active() && Objects.equals(row.originKey(), origin));
+        if (provider != null) {
+            return provider;
+        }
         return jdbcTemplate.queryForObject(IDENTITY_PROVIDER_BY_ORIGIN_QUERY_ACTIVE, mapper, origin, zoneId, true);
     }
 
     @Override
     public IdentityProvider retrieveByOriginIgnoreActiveFlag(String origin, String zoneId) {
+        IdentityProvider provider = singleFromSnapshot(zoneId, row -> Objects.equals(row.originKey(), origin));
+        if (provider != null) {
+            return provider;
+        }
         return jdbcTemplate.queryForObject(IDENTITY_PROVIDER_BY_ORIGIN_QUERY, mapper, origin, zoneId);
     }
 
     @Override
     public IdentityProvider retrieveByExternId(String externId, String type, String zoneId) {
+        IdentityProvider provider = singleFromSnapshot(zoneId, row -> Objects.equals(row.type(), type) && externId != null && externId.equals(row.externalKey()));
+        if (provider != null) {
+            return provider;
+        }
         return jdbcTemplate.queryForObject(IDENTITY_PROVIDER_BY_EXTERNAL_QUERY, mapper, zoneId, type, externId);
     }
 
+    private List<IdentityProvider> fromSnapshot(String zoneId, Predicate<ProviderRow> filter) {
+        return snapshot(zoneId).stream()
+                .filter(filter)
+                .map(ProviderRow::toIdentityProvider)
+                .toList();
+    }
+
+    /**
+     * @return the only provider of the snapshot matching the filter, or null when none does and the database is to
+     * be queried instead
+     */
+    private IdentityProvider singleFromSnapshot(String zoneId, Predicate<ProviderRow> filter) {
+        if (providerCache == null) {
+            return null;
+        }
+        List<ProviderRow> matching = snapshot(zoneId).stream().filter(filter).toList();
+        if (matching.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, matching.size());
+        }
+        return matching.isEmpty() ? null : matching.get(0).toIdentityProvider();
+    }
+
+    private List<ProviderRow> snapshot(String zoneId) {
+        return providerCache.get(zoneId, id -> List.copyOf(jdbcTemplate.query(IDENTITY_PROVIDERS_QUERY, rowMapper, id)));
+    }
+
+    private void evict(String zoneId) {
+        if (providerCache == null || zoneId == null) {
+            return;
+        }
+        providerCache.invalidate(zoneId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // snapshots read meanwhile hold either the rows before the commit, or uncommitted rows that may be rolled back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    providerCache.invalidate(zoneId);
+                }
+            });
+        }
+    }
+
     @Override
     public IdentityProvider create(final IdentityProvider identityProvider, String zoneId) {
         String externId = validate(identityProvider);
@@ -160,6 +287,7 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
         } catch (DuplicateKeyException e) {
             throw new IdpAlreadyExistsException(e.getMostSpecificCause().getMessage());
         }
+        evict(zoneId);
         return retrieve(id, zoneId);
     }
 
@@ -184,6 +312,7 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
             ps.setString(pos++, identityProvider.getId().trim());
             ps.setString(pos, zoneId);
         });
+        evict(zoneId);
         return retrieve(identityProvider.getId(), zoneId);
     }
 
@@ -210,12 +339,16 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
 
     @Override
     public int deleteByIdentityZone(String zoneId) {
-        return jdbcTemplate.update(DELETE_IDENTITY_PROVIDER_BY_ZONE_SQL, zoneId);
+        int count = jdbcTemplate.update(DELETE_IDENTITY_PROVIDER_BY_ZONE_SQL, zoneId);
+        evict(zoneId);
+        return count;
     }
 
     @Override
     public int deleteByOrigin(String origin, String zoneId) {
-        return jdbcTemplate.update(DELETE_IDENTITY_PROVIDER_BY_ORIGIN_SQL, zoneId, origin);
+        int count = jdbcTemplate.update(DELETE_IDENTITY_PROVIDER_BY_ORIGIN_SQL, zoneId, origin);
+        evict(zoneId);
+        return count;
     }
 
     @Override
@@ -223,24 +356,58 @@ public class JdbcIdentityProviderProvisioning implements IdentityProviderProvisi
         return log;
     }
 
-    private static final class IdentityProviderRowMapper implements RowMapper<IdentityProvider> {
+    private static final class ProviderRowMapper implements RowMapper<ProviderRow> {
         @Override
-        public IdentityProvider mapRow(ResultSet rs, int rowNum) throws SQLException {
-            IdentityProvider identityProvider = new IdentityProvider();
+        public ProviderRow mapRow(ResultSet rs, int rowNum) throws SQLException {
             int pos = 1;
-            identityProvider.setId(rs.getString(pos++).trim());
-            identityProvider.setVersion(rs.getInt(pos++));
-            identityProvider.setCreated(rs.getTimestamp(pos++));
-            identityProvider.setLastModified(rs.getTimestamp(pos++));
-            identityProvider.setName(rs.getString(pos++));
-            identityProvider.setOriginKey(rs.getString(pos++));
-            identityProvider.setType(rs.getString(pos++));
-            String config = rs.getString(pos++);
-            identityProvider.setIdentityZoneId(rs.getString(pos++));
-            identityProvider.setActive(rs.getBoolean(pos++));
-            identityProvider.setAliasId(rs.getString(pos++));
-            identityProvider.setAliasZid(rs.getString(pos++));
-            String externalKey = rs.getString(pos);
+            return new ProviderRow(
+                    rs.getString(pos++).trim(),
+                    rs.getInt(pos++),
+                    rs.getTimestamp(pos++),
+                    rs.getTimestamp(pos++),
+                    rs.getString(pos++),
+                    rs.getString(pos++),
+                    rs.getString(pos++),
+                    rs.getString(pos++),
+                    rs.getString(pos++),
+                    rs.getBoolean(pos++),
+                    rs.getString(pos++),
+                    rs.getString(pos++),
+                    rs.getString(pos)
+            );
+        }
+    }
+
+    /**
+     * The columns of an {@code identity_provider} row, the config still serialized.
+     */
+    private record ProviderRow(String id,
+                               int version,
+                               Timestamp created,
+                               Timestamp lastModified,
+                               String name,
+                               String originKey,
+                               String type,
+                               String config,
+                               String identityZoneId,
+                               boolean active,
+                               String aliasId,
+                               String aliasZid,
+                               String externalKey) {
+
+        private IdentityProvider toIdentityProvider() {
+            IdentityProvider identityProvider = new IdentityProvider();
+            identityProvider.setId(id);
+            identityProvider.setVersion(version);
+            identityProvider.setCreated(created);
+            identityProvider.setLastModified(lastModified);
+            identityProvider.setName(name);
+            identityProvider.setOriginKey(originKey);
+            identityProvider.setType(type);
+            identityProvider.setIdentityZoneId(identityZoneId);
+            identityProvider.setActive(active);
+            identityProvider.setAliasId(aliasId);
+            identityProvider.setAliasZid(aliasZid);
             if (StringUtils.hasText(config)) {
                 AbstractIdentityProviderDefinition definition;
                 switch (identityProvider.getType()) {
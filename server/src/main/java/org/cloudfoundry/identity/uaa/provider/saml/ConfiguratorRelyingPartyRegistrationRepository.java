@@ -5,9 +5,11 @@ import org.cloudfoundry.identity.uaa.provider.AbstractIdentityProviderDefinition
 import org.cloudfoundry.identity.uaa.provider.SamlIdentityProviderDefinition;
 import org.cloudfoundry.identity.uaa.util.KeyWithCert;
 import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.cloudfoundry.identity.uaa.zone.SamlConfig;
 import org.springframework.security.saml2.provider.service.registration.RelyingPartyRegistration;
 import org.springframework.util.Assert;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,15 +17,28 @@ import java.util.Optional;
 public class ConfiguratorRelyingPartyRegistrationRepository extends BaseUaaRelyingPartyRegistrationRepository {
 
     private final SamlIdentityProviderConfigurator configurator;
+    private final RelyingPartyRegistrationCache registrationCache;
 
     public ConfiguratorRelyingPartyRegistrationRepository(String uaaWideSamlEntityID,
                                                           String uaaWideSamlEntityIDAlias,
                                                           SamlIdentityProviderConfigurator configurator,
                                                           List<SignatureAlgorithm> signatureAlgorithms,
                                                           String uaaWideSamlNameId) {
+        this(uaaWideSamlEntityID, uaaWideSamlEntityIDAlias, configurator, signatureAlgorithms, uaaWideSamlNameId,
+                new RelyingPartyRegistrationCache(1000, Duration.ofMinutes(10)));
+    }
+
+    public ConfiguratorRelyingPartyRegistrationRepository(String uaaWideSamlEntityID,
+                                                          String uaaWideSamlEntityIDAlias,
+                                                          SamlIdentityProviderConfigurator configurator,
+                                                          List<SignatureAlgorithm> signatureAlgorithms,
+                                                          String uaaWideSamlNameId,
+                                                          RelyingPartyRegistrationCache registrationCache) {
         super(uaaWideSamlEntityID, uaaWideSamlEntityIDAlias, signatureAlgorithms, uaaWideSamlNameId);
         Assert.notNull(configurator, "configurator cannot be null");
+        Assert.notNull(registrationCache, "registrationCache cannot be null");
         this.configurator = configurator;
+        this.registrationCache = registrationCache;
     }
 
     /**
@@ -58,24 +73,30 @@ public class ConfiguratorRelyingPartyRegistrationRepository extends BaseUaaRelyi
     }
 
     private RelyingPartyRegistration createRelyingPartyRegistration(String registrationId, SamlIdentityProviderDefinition identityProviderDefinition, IdentityZone currentZone) {
-        SamlKeyManager samlKeyManager = retrieveKeyManager();
-        List<KeyWithCert> keyWithCerts = samlKeyManager.getAvailableCredentials();
-
         String zonedSamlEntityID = getZoneEntityId(currentZone);
         String zonedSamlEntityIDAlias = getZoneEntityIdAlias(currentZone);
-        boolean requestSigned = currentZone.getConfig().getSamlConfig().isRequestSigned();
+        SamlConfig samlConfig = currentZone.getConfig().getSamlConfig();
+        boolean requestSigned = samlConfig.isRequestSigned();
         String nameID = Optional.ofNullable(identityProviderDefinition.getNameID()).orElse(uaaWideSamlNameId);
 
-        RelyingPartyRegistrationBuilder.Params params = RelyingPartyRegistrationBuilder.Params.builder()
-                .samlEntityID(zonedSamlEntityID)
-                .samlSpNameId(nameID)
-                .keys(keyWithCerts)
-                .metadataLocation(identityProviderDefinition.getMetaDataLocation())
-                .rpRegistrationId(registrationId)
-                .samlSpAlias(zonedSamlEntityIDAlias)
-                .requestSigned(requestSigned)
-                .signatureAlgorithms(signatureAlgorithms)
-                .build();
-        return RelyingPartyRegistrationBuilder.buildRelyingPartyRegistration(params);
+        RelyingPartyRegistrationCache.Key key = new RelyingPartyRegistrationCache.Key(currentZone.getId(), registrationId,
+                identityProviderDefinition.getMetaDataLocation(), nameID, zonedSamlEntityID, zonedSamlEntityIDAlias,
+                requestSigned, samlConfig.getActiveKeyId(), samlConfig.getKeys());
+        return registrationCache.get(key, () -> {
+            SamlKeyManager samlKeyManager = retrieveKeyManager();
+            List<KeyWithCert> keyWithCerts = samlKeyManager.getAvailableCredentials();
+
+            RelyingPartyRegistrationBuilder.Params params = RelyingPartyRegistrationBuilder.Params.builder()
+                    .samlEntityID(zonedSamlEntityID)
+                    .samlSpNameId(nameID)
+                    .keys(keyWithCerts)
+                    .metadataLocation(identityProviderDefinition.getMetaDataLocation())
+                    .rpRegistrationId(registrationId)
+                    .samlSpAlias(zonedSamlEntityIDAlias)
+                    .requestSigned(requestSigned)
+                    .signatureAlgorithms(signatureAlgorithms)
+                    .build();
+            return RelyingPartyRegistrationBuilder.buildRelyingPartyRegistration(params);
+        });
     }
 }
@@ -0,0 +1,84 @@
+package org.cloudfoundry.identity.uaa.provider.saml;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.cloudfoundry.identity.uaa.audit.event.AbstractUaaEvent;
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
+import org.cloudfoundry.identity.uaa.provider.IdentityProvider;
+import org.cloudfoundry.identity.uaa.saml.SamlKey;
+import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityProviderModifiedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.saml2.provider.service.registration.RelyingPartyRegistration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the {@link RelyingPartyRegistration}s built from the SAML identity providers, so that their metadata is
+ * parsed (or fetched) and the zone keys are converted once, rather than on every SAML request.
+ * <p>
+ * Registrations are keyed by everything they are built from: the zone, the registration id, the metadata, the
+ * service provider settings of the zone and its SAML keys. Any change to the provider or the zone is therefore a new
+ * entry. The entries of a zone are evicted when one of its providers is modified or deleted, and all entries expire
+ * after {@code timeToLive}, so that the metadata of providers configured with a URL is fetched again.
+ */
+public class RelyingPartyRegistrationCache implements ApplicationListener<AbstractUaaEvent> {
+
+    private final Cache<Key, RelyingPartyRegistration> cache;
+
+    public RelyingPartyRegistrationCache(int maxEntries, Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * @return the registration cached for the key, built by {@code builder} if there is none
+     */
+    public RelyingPartyRegistration get(Key key, Supplier<RelyingPartyRegistration> builder) {
+        return cache.get(key, k -> builder.get());
+    }
+
+    public void evict(String zoneId) {
+        cache.asMap().keySet().removeIf(key -> key.zoneId() != null && key.zoneId().equals(zoneId));
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void onApplicationEvent(AbstractUaaEvent event) {
+        if (event instanceof IdentityProviderModifiedEvent && event.getSource() instanceof IdentityProvider<?> provider) {
+            evict(provider.getIdentityZoneId());
+        } else if (event instanceof EntityDeletedEvent<?> deleted) {
+            if (deleted.getDeleted() instanceof IdentityProvider<?> provider) {
+                evict(provider.getIdentityZoneId());
+            } else if (deleted.getDeleted() instanceof IdentityZone zone) {
+                evict(zone.getId());
+            }
+        }
+    }
+
+    /**
+     * What a registration is built from.
+     */
+    public record Key(String zoneId,
+                      String registrationId,
+                      String metadataLocation,
+                      String nameId,
+                      String entityId,
+                      String entityIdAlias,
+                      boolean requestSigned,
+                      String activeKeyId,
+                      Map<String, SamlKey> keys) {
+
+        public Key {
+            keys = keys == null ? Map.of() : new LinkedHashMap<>(keys);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.security.saml2.provider.service.registration.InMemory
 import org.springframework.security.saml2.provider.service.registration.RelyingPartyRegistration;
 import org.springframework.security.saml2.provider.service.registration.RelyingPartyRegistrationRepository;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,6 +29,12 @@ public class SamlRelyingPartyRegistrationRepositoryConfig {
     private final String samlSpNameID;
     private final List<SignatureAlgorithm> signatureAlgorithms;
 
+    @Value("${login.saml.registrationCache.maxEntries:1000}")
+    private int registrationCacheMaxEntries = 1000;
+
+    @Value("${login.saml.registrationCache.timeToLiveSeconds:600}")
+    private int registrationCacheTimeToLiveSeconds = 600;
+
     public SamlRelyingPartyRegistrationRepositoryConfig(@Qualifier("samlEntityID") String samlEntityID,
                                                         SamlConfigProps samlConfigProps,
                                                         BootstrapSamlIdentityProviderData bootstrapSamlIdentityProviderData,
@@ -95,13 +102,18 @@ public class SamlRelyingPartyRegistrationRepositoryConfig {
         InMemoryRelyingPartyRegistrationRepository bootstrapRepo = new InMemoryRelyingPartyRegistrationRepository(relyingPartyRegistrations);
         ConfiguratorRelyingPartyRegistrationRepository configuratorRepo =
                 new ConfiguratorRelyingPartyRegistrationRepository(samlEntityID, uaaWideSamlEntityIDAlias,
-                        samlIdentityProviderConfigurator, signatureAlgorithms, samlSpNameID);
+                        samlIdentityProviderConfigurator, signatureAlgorithms, samlSpNameID, relyingPartyRegistrationCache());
         DefaultRelyingPartyRegistrationRepository defaultRepo =
                 new DefaultRelyingPartyRegistrationRepository(samlEntityID, uaaWideSamlEntityIDAlias, signatureAlgorithms, samlSpNameID);
 
         return new DelegatingRelyingPartyRegistrationRepository(bootstrapRepo, configuratorRepo, defaultRepo);
     }
 
+    @Bean
+    RelyingPartyRegistrationCache relyingPartyRegistrationCache() {
+        return new RelyingPartyRegistrationCache(registrationCacheMaxEntries, Duration.ofSeconds(registrationCacheTimeToLiveSeconds));
+    }
+
     @Autowired
     @Bean
     UaaRelyingPartyRegistrationResolver relyingPartyRegistrationResolver(RelyingPartyRegistrationRepository relyingPartyRegistrationRepository,
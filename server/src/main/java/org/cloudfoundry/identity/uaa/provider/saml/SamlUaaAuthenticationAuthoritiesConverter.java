@@ -50,14 +50,11 @@ public class SamlUaaAuthenticationAuthoritiesConverter {
     protected Collection<SamlUserAuthority> mapAuthorities(String origin, Collection<? extends GrantedAuthority> authorities, String identityZoneId) {
         Collection<SamlUserAuthority> result = new LinkedList<>();
         log.debug("Mapping SAML authorities:" + authorities);
-        for (GrantedAuthority authority : authorities) {
-            String externalGroup = authority.getAuthority();
-            log.debug("Attempting to map external group: {}", externalGroup);
-            for (ScimGroupExternalMember internalGroup : externalMembershipManager.getExternalGroupMapsByExternalGroup(externalGroup, origin, identityZoneId)) {
-                String internalName = internalGroup.getDisplayName();
-                log.debug("Mapped external: '{}' to internal: '{}'", externalGroup, internalName);
-                result.add(new SamlUserAuthority(internalName));
-            }
+        List<String> externalGroups = authorities.stream().map(GrantedAuthority::getAuthority).toList();
+        for (ScimGroupExternalMember internalGroup : externalMembershipManager.getExternalGroupMapsByExternalGroups(externalGroups, origin, identityZoneId)) {
+            String internalName = internalGroup.getDisplayName();
+            log.debug("Mapped external: '{}' to internal: '{}'", internalGroup.getExternalGroup(), internalName);
+            result.add(new SamlUserAuthority(internalName));
         }
         return result;
     }
@@ -0,0 +1,90 @@
+package org.cloudfoundry.identity.uaa.ratelimiting.core.http;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.jmx.support.MetricType;
+
+/**
+ * A size bounded cache of the Caller Credentials IDs extracted from bearer tokens, shared by the JWT based
+ * <code>AuthorizationCredentialIdExtractor</code>(s), so that a token is decoded (and its claims parsed) once per
+ * <code>timeToLive</code> rather than on every request.
+ * <p>
+ * The entries are keyed on the whole token (and the extractor's description), as the claims of a token can be altered
+ * without altering its signature, and a forged token must never be attributed the Credentials ID of another caller.
+ * <p>
+ * Note: extracting nothing (<code>null</code>) is cached as well, so a malformed token is only logged once per <code>timeToLive</code>.
+ */
+@ManagedResource(
+        objectName = "cloudfoundry.identity:name=RateLimitingCredentialIdCache",
+        description = "Rate Limiting Caller Credentials ID Cache"
+)
+public class CredentialIdCache {
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes( 5 );
+
+    private static final String NONE = ""; // Caffeine does not cache nulls
+
+    private final Cache<Key, String> cache;
+
+    public CredentialIdCache() {
+        this( DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE );
+    }
+
+    public CredentialIdCache( long maximumSize, Duration timeToLive ) {
+        cache = Caffeine.newBuilder()
+                .maximumSize( maximumSize )
+                .expireAfterWrite( timeToLive )
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param extractor description of the extractor, distinguishes the IDs extracted from the same token by different configurations
+     * @param token     the (non-null) bearer token
+     * @param extract   called (only on a cache miss) to extract the Credentials ID from the token
+     * @return the Credentials ID extracted, null if none
+     */
+    public String get( String extractor, String token, Supplier<String> extract ) {
+        String id = cache.get( new Key( extractor, token ), key -> {
+            String extracted = extract.get();
+            return (extracted == null) ? NONE : extracted;
+        } );
+        return NONE.equals( id ) ? null : id;
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, displayName = "Credentials IDs found in the cache")
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @ManagedMetric(metricType = MetricType.COUNTER, displayName = "Credentials IDs extracted from a token")
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, displayName = "Ratio of the Credentials IDs found in the cache")
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, displayName = "Average nanoseconds to extract a Credentials ID from a token")
+    public double getAverageExtractionNanos() {
+        CacheStats stats = cache.stats();
+        long extractions = stats.loadCount();
+        return (extractions == 0) ? 0.0 : ((double)stats.totalLoadTime() / extractions);
+    }
+
+    @ManagedMetric(metricType = MetricType.GAUGE, displayName = "Cached Credentials IDs")
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    private record Key(String extractor, String token) {
+    }
+}
@@ -61,6 +61,30 @@ public abstract class CredentialIdTypeAbstractJWT implements CredentialIdType {
         }
     }
 
+    /**
+     * A <code>SectionJWT</code> that decodes its section, so the Credentials ID it extracts from a token is cached.
+     */
+    protected abstract static class DecodingSectionJWT extends SectionJWT {
+        private final CredentialIdCache cache;
+
+        protected DecodingSectionJWT( int section, CredentialIdCache cache ) {
+            super( section );
+            this.cache = cache;
+        }
+
+        @Override
+        public String mapAuthorizationToCredentialsID( RequestInfo info ) {
+            String token = (info == null) ? null : JWTparts.bearerToken( info.getAuthorizationHeader() );
+            if ( (token == null) || (cache == null) ) {
+                return super.mapAuthorizationToCredentialsID( info );
+            }
+            return cache.get( toString(), token, () -> {
+                JWTparts jp = JWTparts.fromToken( token );
+                return jp == null ? null : from( jp );
+            } );
+        }
+    }
+
     protected static class AllJWT implements AuthorizationCredentialIdExtractor {
         protected String from( JWTparts jp ) {
             return jp.token;
@@ -96,13 +120,22 @@ public abstract class CredentialIdTypeAbstractJWT implements CredentialIdType {
             return info == null ? null : from( info.getAuthorizationHeader() );
         }
 
-        static JWTparts from( String authorization ) { //. . . . . . . .1234567
+        static JWTparts from( String authorization ) {
+            String token = bearerToken( authorization );
+            return (token == null) ? null : fromToken( token );
+        }
+
+        static String bearerToken( String authorization ) { //. . . . . . . .1234567
             if ( (authorization != null) && (authorization.startsWith( "Bearer " ) || authorization.startsWith( "bearer " )) ) {
-                String token = authorization.substring( 7 ).trim();
-                String[] parts = token.split( "\\." );
-                if ( (3 <= parts.length) && looksOK( parts[0] ) && looksOK( parts[1] ) && looksOK( parts[2] ) ) {
-                    return new JWTparts( token, parts );
-                }
+                return authorization.substring( 7 ).trim();
+            }
+            return null;
+        }
+
+        static JWTparts fromToken( String token ) {
+            String[] parts = token.split( "\\." );
+            if ( (3 <= parts.length) && looksOK( parts[0] ) && looksOK( parts[1] ) && looksOK( parts[2] ) ) {
+                return new JWTparts( token, parts );
             }
             return null;
         }
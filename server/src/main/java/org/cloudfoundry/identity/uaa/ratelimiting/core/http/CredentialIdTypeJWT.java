@@ -5,11 +5,18 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
-import lombok.RequiredArgsConstructor;
-
-@RequiredArgsConstructor
 public class CredentialIdTypeJWT extends CredentialIdTypeAbstractJWT {
     private final AuthorizationCredentialIdExtractorErrorLogger errorLogger;
+    private final CredentialIdCache cache;
+
+    public CredentialIdTypeJWT( AuthorizationCredentialIdExtractorErrorLogger errorLogger ) {
+        this( errorLogger, new CredentialIdCache() );
+    }
+
+    public CredentialIdTypeJWT( AuthorizationCredentialIdExtractorErrorLogger errorLogger, CredentialIdCache cache ) {
+        this.errorLogger = errorLogger;
+        this.cache = cache;
+    }
 
     @Override
     public String key() {
@@ -34,18 +41,19 @@ public class CredentialIdTypeJWT extends CredentialIdTypeAbstractJWT {
         if ( regex == null ) {
             return new SectionJWT( section );
         }
-        return new SectionRegexJWT( section, errorLogger, regex );
+        return new SectionRegexJWT( section, errorLogger, cache, regex );
     }
 
-    static class SectionRegexJWT extends SectionJWT {
+    static class SectionRegexJWT extends DecodingSectionJWT {
         private final AuthorizationCredentialIdExtractorErrorLogger errorLogger;
         private final String regex;
         private final Pattern pattern;
 
         public SectionRegexJWT( int section,
                                 AuthorizationCredentialIdExtractorErrorLogger errorLogger,
+                                CredentialIdCache cache,
                                 String regex ) {
-            super( section );
+            super( section, cache );
             this.errorLogger = errorLogger;
             this.regex = regex;
             pattern = Pattern.compile( regex );
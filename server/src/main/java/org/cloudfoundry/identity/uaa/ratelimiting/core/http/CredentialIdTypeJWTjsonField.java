@@ -8,11 +8,18 @@ import org.cloudfoundry.identity.uaa.ratelimiting.core.config.exception.RateLimi
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import lombok.RequiredArgsConstructor;
-
-@RequiredArgsConstructor
 public class CredentialIdTypeJWTjsonField extends CredentialIdTypeAbstractJWT {
     private final AuthorizationCredentialIdExtractorErrorLogger errorLogger;
+    private final CredentialIdCache cache;
+
+    public CredentialIdTypeJWTjsonField( AuthorizationCredentialIdExtractorErrorLogger errorLogger ) {
+        this( errorLogger, new CredentialIdCache() );
+    }
+
+    public CredentialIdTypeJWTjsonField( AuthorizationCredentialIdExtractorErrorLogger errorLogger, CredentialIdCache cache ) {
+        this.errorLogger = errorLogger;
+        this.cache = cache;
+    }
 
     @Override
     public String key() {
@@ -30,7 +37,7 @@ public class CredentialIdTypeJWTjsonField extends CredentialIdTypeAbstractJWT {
             int section = Section.sectionNumberFrom( sectionAndField[0], 1 );
             String fieldName = sectionAndField[1].trim();
             if ( !fieldName.isEmpty() ) {
-                return new SectionFieldJWT( section, errorLogger, fieldName );
+                return new SectionFieldJWT( section, errorLogger, cache, fieldName );
             }
             errorMsg = "NO field Name (after the ':')";
         }
@@ -38,15 +45,16 @@ public class CredentialIdTypeJWTjsonField extends CredentialIdTypeAbstractJWT {
                                                " section and field name, but got " + errorMsg + " from: " + keyTypeParameters );
     }
 
-    static class SectionFieldJWT extends SectionJWT {
+    static class SectionFieldJWT extends DecodingSectionJWT {
         private final ObjectMapper mapper = new ObjectMapper();
         private final AuthorizationCredentialIdExtractorErrorLogger errorLogger;
         private final String field;
 
         public SectionFieldJWT( int section,
                                 AuthorizationCredentialIdExtractorErrorLogger errorLogger,
+                                CredentialIdCache cache,
                                 String field ) {
-            super( section );
+            super( section, cache );
             this.errorLogger = errorLogger;
             this.field = field;
         }
@@ -8,8 +8,6 @@ import javax.annotation.Nonnull;
 import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
 
 public class InternalLimiter {
-    // Uses an "inner" Lock Object to discourage other developers from messing with the lock order
-    private final Object lockObject = new Object();
     // Used for tracking information (and toString - debugging context)
     private final CompoundKey compoundKey;
     // Used by the Expiration infrastructure to determine if this is still the instance added to the Expiration infrastructure and should be deleted
@@ -35,23 +33,29 @@ public class InternalLimiter {
      * <p>
      * If <code>true</code> returned: none of the InternalLimiter(s) should have their <code>requestsRemaining</code> reduced
      * If <code>false</code> returned: ALL the InternalLimiter(s) should have their <code>requestsRemaining</code> reduced
+     * <p>
+     * No locks are taken: the requests remaining are checked on the way down, and decremented (only if still positive) as the
+     * recursion unwinds. Should another request have taken the last remaining request in between, the decrements already made
+     * by the subsequent InternalLimiter(s) are restored by the <code>LimiterImpl</code> and the request is limited.
      *
      * @param orderedInternalLimiters an appropriately ordered (non-null) iterator of <code>InternalLimiter</code>(s) (no entries null) to be called recursively
      * @return true - if should limit, ; otherwise - false, don't limit
      */
     public boolean shouldLimit( @Nonnull Iterator<InternalLimiter> orderedInternalLimiters, @Nonnull LimiterImpl limiter ) {
-        // Note: synchronization here NOT for Memory barriers, but for temporary exclusive access!
-        synchronized ( lockObject ) { // build up synchronization locks in list order!
-            if ( limiter.recordLimiting( getRequestsRemaining() < 1 ) ) {
-                return true; // Limit - don't decrement
-            }
-            // Not Limiting, so check on next Recursively
-            if ( orderedInternalLimiters.hasNext() && orderedInternalLimiters.next().shouldLimit( orderedInternalLimiters, limiter ) ) { // still in range - so recurse
-                return true; // Limit - subsequent InternalLimiter says limit - so don't decrement
-            }
-            // all InternalLimiter(s) in the Iterator indicated have remaining requests, so decrement each as we unwind
-            limiter.recordRemaining( decrementRequestsRemaining() );
+        if ( limiter.recordLimiting( getRequestsRemaining() < 1 ) ) {
+            return true; // Limit - don't decrement
+        }
+        // Not Limiting, so check on next Recursively
+        if ( orderedInternalLimiters.hasNext() && orderedInternalLimiters.next().shouldLimit( orderedInternalLimiters, limiter ) ) { // still in range - so recurse
+            return true; // Limit - subsequent InternalLimiter says limit - so don't decrement
+        }
+        // all InternalLimiter(s) in the Iterator indicated have remaining requests, so decrement each as we unwind
+        int remaining = decrementRequestsRemaining();
+        if ( remaining < 0 ) {
+            limiter.recordLostRace(); // Limit - the subsequent decrements are undone
+            return true;
         }
+        limiter.recordRemaining( remaining );
         return false;
     }
 
@@ -67,8 +71,36 @@ public class InternalLimiter {
         return windowEndExclusive;
     }
 
+    /**
+     * Take one of the requests remaining, if there is still one.
+     *
+     * @return the requests remaining after the decrement, or -1 if there were none remaining (and nothing was decremented)
+     */
     protected int decrementRequestsRemaining() {
-        return requestsRemaining.decrementAndGet();
+        int current;
+        do {
+            current = requestsRemaining.get();
+            if ( current < 1 ) {
+                return -1;
+            }
+        } while ( !requestsRemaining.compareAndSet( current, current - 1 ) );
+        return current - 1;
+    }
+
+    /**
+     * Give back a request taken by <code>decrementRequestsRemaining</code> for a request that was limited after all.
+     */
+    protected void incrementRequestsRemaining() {
+        requestsRemaining.incrementAndGet();
+    }
+
+    /**
+     * Reduce the requests remaining by requests that were forwarded elsewhere (e.g. by other nodes) in the same window.
+     * <p>
+     * Note: the requests remaining may become negative, which limits just like zero.
+     */
+    protected void consumeRequests( int requests ) {
+        requestsRemaining.addAndGet( -requests );
     }
 
     @Override
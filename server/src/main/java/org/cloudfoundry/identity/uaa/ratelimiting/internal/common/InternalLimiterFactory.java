@@ -4,6 +4,7 @@ import java.time.Instant;
 import javax.annotation.Nonnull;
 
 import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.config.RequestsPerWindowSecs;
 
 public interface InternalLimiterFactory {
     /**
@@ -15,4 +16,11 @@ public interface InternalLimiterFactory {
      */
     @Nonnull
     InternalLimiter newLimiter( CompoundKey compoundKey, @Nonnull Instant now );
+
+    /**
+     * @return the limit the created internal limiters enforce, or null if not known (then a <code>LimiterStore</code> can not share it)
+     */
+    default RequestsPerWindowSecs getRequestsPerWindow() {
+        return null;
+    }
 }
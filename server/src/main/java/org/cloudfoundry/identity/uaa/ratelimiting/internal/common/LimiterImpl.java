@@ -18,6 +18,7 @@ public class LimiterImpl implements Limiter {
     private static final String NOT_CALLED  = "noCheck   ";
 
     private final LoggingOption loggingOption;
+    private final List<InternalLimiter> orderedLimiters;
     private final List<CompoundKey> orderedLimiterKeys;
     private final Boolean[] calledAndLimited;
     private final int[] remaining;
@@ -31,6 +32,7 @@ public class LimiterImpl implements Limiter {
         // size the arrays and list from the (1-n) InternalLimiter.
         remaining = new int[count];
         calledAndLimited = new Boolean[count];
+        orderedLimiters = limiters;
         orderedLimiterKeys = new ArrayList<>( count );
         // populate the <code>CompoundKeys</code> from the limiters
         for ( InternalLimiter limiter : limiters ) {
@@ -121,4 +123,20 @@ public class LimiterImpl implements Limiter {
     void recordRemaining( int remaining ) {
         this.remaining[--updateIndex] = remaining;
     }
+
+    /**
+     * Called by the <code>InternalLimiter</code> that found no requests remaining when unwinding (another request took the last one
+     * after it was checked). The already decremented subsequent <code>InternalLimiter</code>(s) are restored, and this one is recorded
+     * as limiting.
+     */
+    // package friendly so InternalLimiter can call it!
+    void recordLostRace() {
+        int index = updateIndex - 1;
+        for ( int i = index + 1; i < orderedLimiters.size(); i++ ) {
+            orderedLimiters.get( i ).incrementRequestsRemaining();
+        }
+        limiting = true;
+        indexOfLimiting = index;
+        calledAndLimited[index] = true;
+    }
 }
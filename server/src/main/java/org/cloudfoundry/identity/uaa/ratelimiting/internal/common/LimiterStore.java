@@ -0,0 +1,35 @@
+package org.cloudfoundry.identity.uaa.ratelimiting.internal.common;
+
+import java.time.Instant;
+import javax.annotation.Nonnull;
+
+import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
+
+/**
+ * Creates the <code>InternalLimiter</code> for each new window of a <code>CompoundKey</code>, and is thereby the place where
+ * the requests counted against a limiter can be shared beyond the current node.
+ * <p>
+ * The default (<code>PER_NODE</code>) simply asks the factory, so every node enforces the configured limits on its own.
+ */
+public interface LimiterStore {
+    /**
+     * Create the internal limiter for a new window.
+     *
+     * @param compoundKey the key the limiter is tracked by
+     * @param factory     the factory for the configured limit (not Null)
+     * @param now         non-Null Instant for the current time (from the <code>NanoTimeSupplier</code>).
+     * @return internal limiter (not Null)
+     */
+    @Nonnull
+    InternalLimiter newLimiter( CompoundKey compoundKey, @Nonnull InternalLimiterFactory factory, @Nonnull Instant now );
+
+    default void startBackgroundProcessing() {
+        // nothing to do for a per node store
+    }
+
+    default void shutdownBackgroundProcessing() {
+        // nothing to do for a per node store
+    }
+
+    LimiterStore PER_NODE = ( compoundKey, factory, now ) -> factory.newLimiter( compoundKey, now );
+}
@@ -1,8 +1,7 @@
 package org.cloudfoundry.identity.uaa.ratelimiting.internal.limitertracking;
 
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 import lombok.Getter;
@@ -14,6 +13,12 @@ import org.cloudfoundry.identity.uaa.ratelimiting.util.NanoTimeSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A ring of one bucket per second, holding the <code>CompoundKey</code>(s) whose limiters expire in that second.
+ * <p>
+ * Adding takes no lock: the buckets are concurrent queues, and the (immutable) mapping of the ring onto seconds is only
+ * advanced by the single purging thread.
+ */
 public class ExpirationBuckets implements CompoundKeyExpirationAdder,
                                           Runnable {
     private static final Logger log = LoggerFactory.getLogger( ExpirationBuckets.class );
@@ -22,8 +27,8 @@ public class ExpirationBuckets implements CompoundKeyExpirationAdder,
     private final CompoundKeyPurger compoundKeyPurger;
     private final int wrapAroundMask;
     private final long buckets; // need long version for efficient bounds checking
-    private final List<CompoundKey>[] expirationsBucketRing;
-    private ExpirationBucketMapping ebm;
+    private final Queue<CompoundKey>[] expirationsBucketRing;
+    private volatile ExpirationBucketMapping ebm;
     private volatile boolean wereDying = false;
 
     public ExpirationBuckets( NanoTimeSupplier currentTimeSupplier, CompoundKeyPurger compoundKeyPurger,
@@ -34,9 +39,9 @@ public class ExpirationBuckets implements CompoundKeyExpirationAdder,
         this.buckets = bucketsInternal; // long version for efficient bounds checking
         wrapAroundMask = bucketsInternal - 1;
         //noinspection unchecked
-        expirationsBucketRing = new List[bucketsInternal];
+        expirationsBucketRing = new Queue[bucketsInternal];
         for ( int i = 0; i < expirationsBucketRing.length; i++ ) {
-            expirationsBucketRing[i] = Collections.synchronizedList( new LinkedList<>() ); // Cheap adding!
+            expirationsBucketRing[i] = new ConcurrentLinkedQueue<>(); // Cheap (lock free) adding!
         }
         // provide ebm with purging 'tail' being two seconds behind available adding offsets
         ebm = new ExpirationBucketMapping( 0,
@@ -46,7 +51,7 @@ public class ExpirationBuckets implements CompoundKeyExpirationAdder,
 
     @Override
     public void addCompoundKeyExpiration( CompoundKey compoundKey, long expirationSecond ) {
-        List<CompoundKey> bucket = getBucket( expirationSecond );
+        Queue<CompoundKey> bucket = getBucket( expirationSecond );
         bucket.add( compoundKey );
     }
 
@@ -88,17 +93,20 @@ public class ExpirationBuckets implements CompoundKeyExpirationAdder,
         return TimeUnit.NANOSECONDS.toSeconds(currentTimeSupplier.now()); // Drop nano
     }
 
-    synchronized ExpirationBucketMapping getExpirationBucketMapping() {
+    ExpirationBucketMapping getExpirationBucketMapping() {
         return ebm;
     }
 
-    private synchronized void updateBucketBase( long secondJustPurged ) {
-        if ( ebm.currentRingBucketBaseSecond < secondJustPurged ) { // Can move base forward
-            ebm = ebm.increment();
+    // only called by the purging thread, so a volatile write suffices
+    private void updateBucketBase( long secondJustPurged ) {
+        ExpirationBucketMapping current = ebm;
+        if ( current.currentRingBucketBaseSecond < secondJustPurged ) { // Can move base forward
+            ebm = current.increment();
         }
     }
 
-    synchronized List<CompoundKey> getBucket( long secondOfInterest ) {
+    Queue<CompoundKey> getBucket( long secondOfInterest ) {
+        ExpirationBucketMapping ebm = this.ebm; // one consistent mapping
         long secondsOffset = secondOfInterest - ebm.currentRingBucketBaseSecond;
         if ( (secondsOffset < 0) || (buckets <= secondsOffset) ) {
             throw new BucketRingBoundsException( ebm, buckets, secondOfInterest );
@@ -147,10 +155,10 @@ public class ExpirationBuckets implements CompoundKeyExpirationAdder,
         }
     }
 
-    public void purge( List<CompoundKey> keys, CompoundKeyPurger compoundKeyPurger, long secondToPurge ) {
-        for ( CompoundKey compoundKey : keys ) {
+    public void purge( Queue<CompoundKey> keys, CompoundKeyPurger compoundKeyPurger, long secondToPurge ) {
+        CompoundKey compoundKey;
+        while ( (compoundKey = keys.poll()) != null ) {
             compoundKeyPurger.removeCompoundKey( compoundKey, secondToPurge );
         }
-        keys.clear();
     }
 }
@@ -1,30 +1,39 @@
 package org.cloudfoundry.identity.uaa.ratelimiting.internal.limitertracking;
 
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiter;
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiterFactory;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.LimiterStore;
 import org.cloudfoundry.identity.uaa.ratelimiting.util.NanoTimeSupplier;
 
 public class LimiterByCompoundKey implements CompoundKeyPurger {
-    private final Map<CompoundKey, InternalLimiter> map = new HashMap<>();
+    private final Map<CompoundKey, InternalLimiter> map = new ConcurrentHashMap<>();
     private final NanoTimeSupplier currentTimeSupplier;
+    private volatile LimiterStore limiterStore = LimiterStore.PER_NODE;
 
     public LimiterByCompoundKey( NanoTimeSupplier currentTimeSupplier ) {
         this.currentTimeSupplier = currentTimeSupplier;
     }
 
+    public LimiterStore getLimiterStore() {
+        return limiterStore;
+    }
+
+    public void setLimiterStore( LimiterStore limiterStore ) {
+        this.limiterStore = (limiterStore != null) ? limiterStore : LimiterStore.PER_NODE;
+    }
+
     @Override
-    public synchronized boolean removeCompoundKey( CompoundKey compoundKey, long expectedExpirationSecond ) {
+    public boolean removeCompoundKey( CompoundKey compoundKey, long expectedExpirationSecond ) {
         InternalLimiter limiter = map.get( compoundKey );
         if ( limiter != null ) {
             long limiterExpirationSecond = limiter.getWindowEndExclusive().getEpochSecond();
             if ( expectedExpirationSecond == limiterExpirationSecond ) {
-                map.remove( compoundKey );
-                return true;
+                return map.remove( compoundKey, limiter ); // only if not replaced in the meantime
             }
         }
         return false;
@@ -32,12 +41,12 @@ public class LimiterByCompoundKey implements CompoundKeyPurger {
 
     public InternalLimiter get( CompoundKey compoundKey, InternalLimiterFactory factory,
                                 CompoundKeyExpirationAdder compoundKeyExpirationAdder ) {
-        InternalLimiter existingLimiter = get( compoundKey );
+        InternalLimiter existingLimiter = map.get( compoundKey );
         Instant now = currentTimeSupplier.nowAsInstant();
         if ( (existingLimiter != null) && !existingLimiter.isExpired( now ) ) {
             return existingLimiter;
         }
-        InternalLimiter plannedNewLimiter = factory.newLimiter( compoundKey, now );
+        InternalLimiter plannedNewLimiter = limiterStore.newLimiter( compoundKey, factory, now );
         InternalLimiter actualNewLimiter = put( compoundKey, existingLimiter, plannedNewLimiter );
         if ( actualNewLimiter == plannedNewLimiter ) {
             compoundKeyExpirationAdder.addCompoundKeyExpiration( compoundKey,
@@ -46,16 +55,26 @@ public class LimiterByCompoundKey implements CompoundKeyPurger {
         return actualNewLimiter;
     }
 
-    private synchronized InternalLimiter get( CompoundKey compoundKey ) {
-        return map.get( compoundKey );
-    }
-
-    private synchronized InternalLimiter put( CompoundKey compoundKey, InternalLimiter existingLimiter, InternalLimiter newLimiter ) {
-        InternalLimiter mappedLimiter = map.get( compoundKey );
-        if ( existingLimiter != mappedLimiter ) { // Our Thread paused between get and put, and another thread updated map already
-            return mappedLimiter; // return updated
+    private InternalLimiter put( CompoundKey compoundKey, InternalLimiter existingLimiter, InternalLimiter newLimiter ) {
+        while ( true ) {
+            if ( existingLimiter == null ) {
+                InternalLimiter mappedLimiter = map.putIfAbsent( compoundKey, newLimiter );
+                if ( mappedLimiter == null ) {
+                    return newLimiter;
+                }
+                if ( !mappedLimiter.isExpired( currentTimeSupplier.nowAsInstant() ) ) {
+                    return mappedLimiter; // another thread added one already
+                }
+                existingLimiter = mappedLimiter;
+            } else if ( map.replace( compoundKey, existingLimiter, newLimiter ) ) {
+                return newLimiter;
+            } else { // Our Thread paused between get and put, and another thread updated map already
+                InternalLimiter mappedLimiter = map.get( compoundKey );
+                if ( mappedLimiter != null ) {
+                    return mappedLimiter; // return updated
+                }
+                existingLimiter = null; // purged in the meantime
+            }
         }
-        map.put( compoundKey, newLimiter );
-        return newLimiter;
     }
 }
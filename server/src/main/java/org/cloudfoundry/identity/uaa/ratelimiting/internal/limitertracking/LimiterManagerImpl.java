@@ -18,6 +18,7 @@ import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimite
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiterFactory;
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.LimiterFactorySupplierUpdatable;
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.LimiterImpl;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.LimiterStore;
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.RateLimitingFactoriesSupplierWithStatus;
 import org.cloudfoundry.identity.uaa.ratelimiting.util.NanoTimeSupplier;
 import org.cloudfoundry.identity.uaa.ratelimiting.util.Singleton;
@@ -62,11 +63,12 @@ public class LimiterManagerImpl implements LimiterManager,
      * <li>Frequency (of list membership) try for least to most - <code>globals</code> (not using any caller ID) should be later in the list</li>
      * </ul>
      * <p>
-     * Note-2: Consistent ordering ensures no Dead Locks when creating the exclusive access for each entry in order.
+     * Note-2: No locks are taken, each entry's requests remaining is claimed (compare and set) in order; consistent ordering
+     * ensures that concurrent requests sharing several entries contend on them in the same order.
      * <p>
      * Note-3: Frequency order is immaterial, if no limiting is indicated, as every <code>InternalLimiter</code> must be checked.
      * However, if any <code>InternalLimiter</code>, before the last one, indicates limiting, then subsequent <code>InternalLimiter</code>(s)
-     * are not involved, and they are not seized for exclusive access.
+     * are not involved, and their requests remaining are not claimed.
      * <p>
      * Note-3: Special Scenario - where no internal limiter factories returned:<ul>
      * <li>no "all"</li>
@@ -102,8 +104,18 @@ public class LimiterManagerImpl implements LimiterManager,
         return limiters == null ? Limiter.FORWARD_REQUEST : LimiterImpl.from( limiters, loggingOption );
     }
 
+    /**
+     * Replace the store that creates (and possibly shares) the internal limiters, must be called before <code>startBackgroundProcessing</code>.
+     *
+     * @param limiterStore null for the default per node store
+     */
+    public synchronized void setLimiterStore( LimiterStore limiterStore ) {
+        limiterByCompoundKey.setLimiterStore( limiterStore );
+    }
+
     @Override
     public synchronized void startBackgroundProcessing() {
+        limiterByCompoundKey.getLimiterStore().startBackgroundProcessing();
         if ( backgroundThread == null ) {
             backgroundThread = new Thread( expirationBuckets );
             backgroundThread.setName( "LimiterExpirationProcess" );
@@ -114,6 +126,7 @@ public class LimiterManagerImpl implements LimiterManager,
 
     @Override
     public synchronized void shutdownBackgroundProcessing() {
+        limiterByCompoundKey.getLimiterStore().shutdownBackgroundProcessing();
         expirationBuckets.die();
         if ( backgroundThread != null ) {
             backgroundThread.interrupt();
@@ -0,0 +1,246 @@
+package org.cloudfoundry.identity.uaa.ratelimiting.internal.shared;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.config.RequestsPerWindowSecs;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiter;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiterFactory;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.LimiterStore;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * <code>LimiterStore</code> that shares the requests forwarded by every node through the <code>rate_limit_counter</code> table.
+ * <p>
+ * Requests are still limited by local <code>InternalLimiter</code>(s), so no request waits for the database. Their windows are
+ * aligned to the wall clock, so all nodes count the same window. Every <code>syncInterval</code> a background thread adds the
+ * requests each node forwarded since the last synchronization to the shared counters (in batches), reads back the totals, and
+ * reduces the requests remaining of the local limiters by what the other nodes forwarded.
+ * <p>
+ * Limits are thus enforced cluster wide, overshooting by at most what the other nodes forward within one synchronization interval.
+ * Should the database be unavailable, every node keeps limiting on its own and reports its requests once it is reachable again.
+ * Ended windows are forgotten once reported, or at the latest once their counters would have been purged from the database,
+ * whether they could be reported or not. A limiter replaced by the limiter of the next window is kept aside until then, so that
+ * the requests it forwarded since the last synchronization are still reported.
+ */
+public class JdbcLimiterStore implements LimiterStore {
+    private static final Logger log = LoggerFactory.getLogger( JdbcLimiterStore.class );
+
+    static final String UPDATE_SQL = "update rate_limit_counter set requests = requests + ? where limiter_key = ? and window_start = ?";
+    static final String INSERT_SQL = "insert into rate_limit_counter (limiter_key, window_start, expires_at, requests) values (?, ?, ?, ?)";
+    static final String SELECT_SQL = "select limiter_key, window_start, requests from rate_limit_counter where limiter_key in (%s)";
+    static final String DELETE_EXPIRED_SQL = "delete from rate_limit_counter where expires_at < ?";
+    static final int MAX_KEYS_PER_SELECT = 100;
+    private static final long PURGE_INTERVAL_MILLIS = Duration.ofMinutes( 1 ).toMillis();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TimeService timeService;
+    private final long syncIntervalMillis;
+    private final Map<CompoundKey, SharedInternalLimiter> limiters = new ConcurrentHashMap<>();
+    private final Queue<SharedInternalLimiter> replaced = new ConcurrentLinkedQueue<>();
+    private final Set<SharedInternalLimiter> retired = new LinkedHashSet<>(); // only used while synchronizing
+    private final AtomicLong unreportedRequests = new AtomicLong();
+    private ScheduledExecutorService executor;
+    private long nextPurge;
+
+    public JdbcLimiterStore( JdbcTemplate jdbcTemplate, TimeService timeService, long syncIntervalMillis ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeService = timeService;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    @Override
+    @Nonnull
+    public InternalLimiter newLimiter( CompoundKey compoundKey, @Nonnull InternalLimiterFactory factory, @Nonnull Instant now ) {
+        RequestsPerWindowSecs requestsPerWindow = factory.getRequestsPerWindow();
+        if ( requestsPerWindow == null ) {
+            return factory.newLimiter( compoundKey, now );
+        }
+        long wallClockNow = timeService.getCurrentTimeMillis();
+        long windowMillis = TimeUnit.SECONDS.toMillis( requestsPerWindow.getWindowSecs() );
+        long windowStart = wallClockNow - (wallClockNow % windowMillis);
+        long windowEnd = windowStart + windowMillis;
+        SharedInternalLimiter created = new SharedInternalLimiter( compoundKey, requestsPerWindow.getMaxRequestsPerWindow(),
+                                                                   now.plusMillis( windowEnd - wallClockNow ),
+                                                                   storeKey( compoundKey ), windowStart, windowEnd );
+        // threads racing for the same new window must share one limiter
+        return limiters.compute( compoundKey, ( key, existing ) -> {
+            if ( (existing != null) && (existing.getWindowStartMillis() == windowStart) && !existing.isExpired( now ) ) {
+                return existing;
+            }
+            if ( existing != null ) {
+                replaced.add( existing );
+            }
+            return created;
+        } );
+    }
+
+    @Override
+    public synchronized void startBackgroundProcessing() {
+        if ( executor == null ) {
+            executor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+                Thread thread = new Thread( runnable, "LimiterStoreSynchronization" );
+                thread.setDaemon( true );
+                return thread;
+            } );
+            executor.scheduleWithFixedDelay( this::synchronizeSafely, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    @Override
+    public synchronized void shutdownBackgroundProcessing() {
+        if ( executor != null ) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void synchronizeSafely() {
+        try {
+            synchronize();
+        }
+        catch ( DataAccessException e ) {
+            log.warn( "Unable to synchronize rate limiter counters, limiting per node until the database is reachable", e );
+        }
+        catch ( RuntimeException e ) {
+            log.error( "Unexpected error synchronizing rate limiter counters", e );
+        }
+    }
+
+    /**
+     * Report the requests forwarded since the last call, apply the requests forwarded by other nodes, and forget ended windows.
+     */
+    // package friendly for testing
+    synchronized void synchronize() {
+        long now = timeService.getCurrentTimeMillis();
+        for ( SharedInternalLimiter limiter; (limiter = replaced.poll()) != null; ) {
+            retired.add( limiter );
+        }
+        List<SharedInternalLimiter> current = new ArrayList<>( retired );
+        current.addAll( limiters.values() );
+        try {
+            report( current );
+            reconcile( current.stream().filter( limiter -> limiter.getWindowEndMillis() > now ).toList() );
+            if ( now >= nextPurge ) {
+                nextPurge = now + PURGE_INTERVAL_MILLIS;
+                // keep ended windows for a while, other nodes may still report their last requests
+                jdbcTemplate.update( DELETE_EXPIRED_SQL, now - PURGE_INTERVAL_MILLIS );
+            }
+        }
+        finally {
+            forgetEndedWindows( current, now );
+        }
+    }
+
+    /**
+     * Ended windows are kept until their requests are reported, but no longer than their counters are kept in the database,
+     * so that the limiters do not pile up while the database is unreachable.
+     */
+    private void forgetEndedWindows( List<SharedInternalLimiter> current, long now ) {
+        long dropped = 0;
+        for ( SharedInternalLimiter limiter : current ) {
+            int unreported = limiter.getUnreported();
+            if ( (limiter.getWindowEndMillis() <= now) &&
+                 ((unreported == 0) || (limiter.getWindowEndMillis() + PURGE_INTERVAL_MILLIS <= now)) &&
+                 (retired.remove( limiter ) || limiters.remove( limiter.getCompoundKey(), limiter )) ) {
+                dropped += Math.max( 0, unreported );
+            }
+        }
+        if ( dropped > 0 ) {
+            unreportedRequests.addAndGet( dropped );
+            log.warn( "Dropped {} rate limited requests of ended windows that could not be reported", dropped );
+        }
+    }
+
+    /**
+     * @return the requests of ended windows that were forgotten before they could be reported
+     */
+    public long getUnreportedRequests() {
+        return unreportedRequests.get();
+    }
+
+    // package friendly for testing
+    synchronized int getLimiterCount() {
+        return limiters.size() + retired.size() + replaced.size();
+    }
+
+    private void report( List<SharedInternalLimiter> current ) {
+        List<SharedInternalLimiter> changed = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for ( SharedInternalLimiter limiter : current ) {
+            int delta = limiter.getUnreported();
+            if ( delta > 0 ) {
+                changed.add( limiter );
+                deltas.add( delta );
+                updates.add( new Object[] {delta, limiter.getStoreKey(), limiter.getWindowStartMillis()} );
+            }
+        }
+        if ( changed.isEmpty() ) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate( UPDATE_SQL, updates );
+        for ( int i = 0; i < changed.size(); i++ ) {
+            SharedInternalLimiter limiter = changed.get( i );
+            int delta = deltas.get( i );
+            if ( updated[i] == 0 ) {
+                insert( limiter, delta );
+            }
+            limiter.reported( delta );
+        }
+    }
+
+    private void insert( SharedInternalLimiter limiter, int delta ) {
+        try {
+            jdbcTemplate.update( INSERT_SQL, limiter.getStoreKey(), limiter.getWindowStartMillis(), limiter.getWindowEndMillis(), delta );
+        }
+        catch ( DuplicateKeyException e ) { // another node created the counter since our update
+            jdbcTemplate.update( UPDATE_SQL, delta, limiter.getStoreKey(), limiter.getWindowStartMillis() );
+        }
+    }
+
+    private void reconcile( List<SharedInternalLimiter> active ) {
+        for ( int from = 0; from < active.size(); from += MAX_KEYS_PER_SELECT ) {
+            List<SharedInternalLimiter> chunk = active.subList( from, Math.min( active.size(), from + MAX_KEYS_PER_SELECT ) );
+            Map<String, Map<Long, Long>> totals = new HashMap<>();
+            String sql = String.format( SELECT_SQL, String.join( ",", Collections.nCopies( chunk.size(), "?" ) ) );
+            jdbcTemplate.query( sql, rs -> {
+                totals.computeIfAbsent( rs.getString( 1 ).trim(), key -> new HashMap<>() ).put( rs.getLong( 2 ), rs.getLong( 3 ) );
+            }, chunk.stream().map( SharedInternalLimiter::getStoreKey ).toArray() );
+            for ( SharedInternalLimiter limiter : chunk ) {
+                Long total = totals.getOrDefault( limiter.getStoreKey(), Map.of() ).get( limiter.getWindowStartMillis() );
+                if ( total != null ) {
+                    limiter.reconcile( total );
+                }
+            }
+        }
+    }
+
+    // package friendly for testing
+    static String storeKey( CompoundKey compoundKey ) {
+        return DigestUtils.sha256Hex( compoundKey.toString().getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
@@ -0,0 +1,78 @@
+package org.cloudfoundry.identity.uaa.ratelimiting.internal.shared;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiter;
+
+/**
+ * An <code>InternalLimiter</code> whose window is aligned to the wall clock, so that every node counts the same window, and that
+ * keeps track of the requests it forwarded that are not yet reported to the store.
+ * <p>
+ * Note: everything but <code>decrementRequestsRemaining</code> and <code>incrementRequestsRemaining</code> is only called from the single store synchronization thread.
+ */
+class SharedInternalLimiter extends InternalLimiter {
+    private final String storeKey;
+    private final long windowStartMillis;
+    private final long windowEndMillis;
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private int reported;
+    private long consumedElsewhere;
+
+    SharedInternalLimiter( CompoundKey compoundKey, int initialRequestsRemaining, Instant windowEndExclusive,
+                           String storeKey, long windowStartMillis, long windowEndMillis ) {
+        super( compoundKey, initialRequestsRemaining, windowEndExclusive );
+        this.storeKey = storeKey;
+        this.windowStartMillis = windowStartMillis;
+        this.windowEndMillis = windowEndMillis;
+    }
+
+    @Override
+    protected int decrementRequestsRemaining() {
+        int remaining = super.decrementRequestsRemaining();
+        if ( remaining >= 0 ) {
+            forwarded.incrementAndGet();
+        }
+        return remaining;
+    }
+
+    @Override
+    protected void incrementRequestsRemaining() {
+        forwarded.decrementAndGet();
+        super.incrementRequestsRemaining();
+    }
+
+    String getStoreKey() {
+        return storeKey;
+    }
+
+    long getWindowStartMillis() {
+        return windowStartMillis;
+    }
+
+    long getWindowEndMillis() {
+        return windowEndMillis;
+    }
+
+    int getUnreported() {
+        return forwarded.get() - reported;
+    }
+
+    void reported( int requests ) {
+        reported += requests;
+    }
+
+    /**
+     * Apply the requests forwarded by the other nodes.
+     *
+     * @param total the requests counted in the store for this window, including the ones reported by this node
+     */
+    void reconcile( long total ) {
+        long elsewhere = total - reported;
+        if ( elsewhere > consumedElsewhere ) {
+            consumeRequests( (int) Math.min( Integer.MAX_VALUE, elsewhere - consumedElsewhere ) );
+            consumedElsewhere = elsewhere;
+        }
+    }
+}
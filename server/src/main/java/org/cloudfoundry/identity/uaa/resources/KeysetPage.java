@@ -0,0 +1,12 @@
+package org.cloudfoundry.identity.uaa.resources;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paged query.
+ *
+ * @param resources  the resources of this page
+ * @param nextCursor the cursor to pass to retrieve the following page, or {@code null} if this is the last page
+ */
+public record KeysetPage<T>(List<T> resources, String nextCursor) {
+}
@@ -0,0 +1,17 @@
+package org.cloudfoundry.identity.uaa.resources;
+
+/**
+ * A {@link Queryable} that can also page through its results with a cursor.
+ */
+public interface KeysetQueryable<T> extends Queryable<T> {
+
+    /**
+     * Keyset paged query: at most {@code count} results ordered after the position of {@code cursor}.
+     *
+     * @param cursor the {@link KeysetPage#nextCursor()} of the previous page, or {@code null} or empty for the
+     *               first page
+     * @throws IllegalArgumentException if the filter, the sort field or the cursor is invalid
+     */
+    KeysetPage<T> queryPage(String filter, String sortBy, boolean ascending, String cursor, int count, String zoneId);
+
+}
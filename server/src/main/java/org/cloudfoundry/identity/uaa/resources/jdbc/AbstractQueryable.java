@@ -1,6 +1,7 @@
 package org.cloudfoundry.identity.uaa.resources.jdbc;
 
-import org.cloudfoundry.identity.uaa.resources.Queryable;
+import org.cloudfoundry.identity.uaa.resources.KeysetPage;
+import org.cloudfoundry.identity.uaa.resources.KeysetQueryable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
@@ -8,14 +9,18 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.util.StringUtils;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.google.common.primitives.Ints.tryParse;
 import static org.cloudfoundry.identity.uaa.resources.jdbc.SearchQueryConverter.ProcessedFilter.ORDER_BY;
+import static org.springframework.util.StringUtils.hasText;
 
-public abstract class AbstractQueryable<T> implements Queryable<T> {
+public abstract class AbstractQueryable<T> implements KeysetQueryable<T> {
+
+    private static final String KEYSET_ID_COLUMN = "id";
 
     protected final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
@@ -85,6 +90,44 @@ public abstract class AbstractQueryable<T> implements Queryable<T> {
         }
     }
 
+    /**
+     * Keyset ("seek") paging ordered by {@code sortBy} and id. Unlike {@link #query(String, String, boolean, String)}
+     * this neither counts the matching rows nor skips rows with OFFSET, so the cost of a page does not depend on
+     * its position. Only the fields of {@link #getKeysetSortFields()} can be used as sort field.
+     */
+    @Override
+    public KeysetPage<T> queryPage(String filter, String sortBy, boolean ascending, String cursor, int count, String zoneId) {
+        String keysetSortBy = hasText(sortBy) ? sortBy : KEYSET_ID_COLUMN;
+        String sortColumn = queryConverter.map(keysetSortBy).toLowerCase();
+        if (!getKeysetSortFields().contains(sortColumn)) {
+            throw new IllegalArgumentException("Invalid sort field for cursor paging: " + sortBy);
+        }
+        KeysetCursor after = hasText(cursor) ? KeysetCursor.decode(cursor) : null;
+        if (after != null && (!sortColumn.equals(after.sortBy()) || ascending != after.ascending())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+        if (count <= 0) {
+            return new KeysetPage<>(Collections.emptyList(), cursor);
+        }
+
+        SearchQueryConverter.ProcessedFilter where = queryConverter.convertForKeyset(filter, keysetSortBy, ascending, zoneId, KEYSET_ID_COLUMN, after);
+        try {
+            String completeSql = getQuerySQL(where);
+            logger.debug("complete sql: " + completeSql + ", params: " + where.getParams());
+            // one extra row tells whether there is a next page
+            List<KeysetRow<T>> rows = pagingListFactory.createSeekList(completeSql, where.getParams(),
+                    (rs, rowNum) -> new KeysetRow<>(rowMapper.mapRow(rs, rowNum),
+                            KeysetCursor.fromRow(rs, sortColumn, KEYSET_ID_COLUMN, ascending)),
+                    count + 1);
+            List<T> resources = rows.stream().limit(count).map(KeysetRow::resource).toList();
+            String nextCursor = rows.size() > count ? rows.get(count - 1).position().encode() : null;
+            return new KeysetPage<>(resources, nextCursor);
+        } catch (DataAccessException e) {
+            logger.debug("Filter '" + filter + "' generated invalid SQL", e);
+            throw new IllegalArgumentException("Invalid filter: " + filter);
+        }
+    }
+
     private String getQuerySQL(SearchQueryConverter.ProcessedFilter where) {
         if (where.hasOrderBy()) {
             return getBaseSqlQuery() + " where (" + where.getSql().replace(ORDER_BY, ")" + ORDER_BY);
@@ -99,6 +142,13 @@ public abstract class AbstractQueryable<T> implements Queryable<T> {
 
     protected abstract void validateOrderBy(String orderBy) throws IllegalArgumentException;
 
+    /**
+     * @return the lower case, non-null columns that {@link #queryPage} can sort by; none by default
+     */
+    protected Set<String> getKeysetSortFields() {
+        return Collections.emptySet();
+    }
+
     protected void validateOrderBy(final String csvRequestedOrderBy, final String csvAllowedFields) throws IllegalArgumentException {
         if (!StringUtils.hasText(csvRequestedOrderBy)) {
             return;
@@ -125,4 +175,7 @@ public abstract class AbstractQueryable<T> implements Queryable<T> {
                     throw new IllegalArgumentException("Invalid sort field: " + s);
                 });
     }
+
+    private record KeysetRow<T>(T resource, KeysetCursor position) {
+    }
 }
@@ -18,7 +18,7 @@ package org.cloudfoundry.identity.uaa.resources.jdbc;
 public class HsqlDbLimitSqlAdapter implements LimitSqlAdapter {
 
     @Override
-    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, int maxRows) {
+    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, String condition, int maxRows) {
         return "DELETE FROM " +
             tablename +
             " WHERE " +
@@ -26,6 +26,7 @@ public class HsqlDbLimitSqlAdapter implements LimitSqlAdapter {
             "(SELECT " + primaryKeyColumn +
             " FROM " + tablename +
             " WHERE " + expiresColumn + " < ?" +
+            (condition == null ? "" : " AND " + condition) +
             " ORDER BY "+ expiresColumn +
             " LIMIT " + maxRows + " OFFSET 0)";
     }
@@ -0,0 +1,215 @@
+package org.cloudfoundry.identity.uaa.resources.jdbc;
+
+import org.cloudfoundry.identity.uaa.audit.JdbcUnsuccessfulLoginCountingAuditService;
+import org.cloudfoundry.identity.uaa.oauth.UaaTokenStore;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes the expired rows of the JDBC stores on a schedule, so that no request pays for a potentially large delete.
+ * <p>
+ * Only the node holding the lock row in {@code expiry_sweeper_lock} sweeps. The lock is a lease of {@code leaseMillis},
+ * renewed by every sweep of its holder, and taken over by another node once it lapsed. Each table is swept with
+ * statements deleting at most {@code maxRows} rows, the earliest expired first, until no expired row is left or
+ * {@code maxRuntimeMillis} elapsed. What is left over is reported as the lag of the table, the age of its earliest
+ * expired row.
+ */
+@ManagedResource(
+        objectName = "cloudfoundry.identity:name=ExpirySweeper",
+        description = "Expired Rows Sweeper"
+)
+public class JdbcExpirySweeper {
+
+    public static final List<Table> DEFAULT_TABLES = List.of(
+            new Table("revocable_tokens", "token_id", "expires_at", null, Duration.ZERO, false),
+            new Table("expiring_code_store", "code", "expiresat", null, Duration.ZERO, false),
+            new Table("oauth_code", "id", "expiresat", "expiresat > 0", Duration.ZERO, false),
+            new Table("oauth_code", "id", "created", "expiresat = 0", UaaTokenStore.LEGACY_CODE_EXPIRATION_TIME, true),
+            new Table("sec_audit", "id", "created", null, JdbcUnsuccessfulLoginCountingAuditService.SAVE_DATA_PERIOD, true)
+    );
+
+    static final String LOCK_NAME = "expiry_sweeper";
+    static final String RENEW_LOCK_SQL = "update expiry_sweeper_lock set owner_id = ?, expires_at = ? where lock_name = ? and (owner_id = ? or expires_at < ?)";
+    static final String INSERT_LOCK_SQL = "insert into expiry_sweeper_lock (lock_name, owner_id, expires_at) values (?, ?, ?)";
+    static final String RELEASE_LOCK_SQL = "update expiry_sweeper_lock set expires_at = 0 where lock_name = ? and owner_id = ?";
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcExpirySweeper.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TimeService timeService;
+    private final List<Sweep> sweeps;
+    private final boolean enabled;
+    private final int maxRows;
+    private final long maxRuntimeMillis;
+    private final long leaseMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean leader;
+
+    public JdbcExpirySweeper(JdbcTemplate jdbcTemplate,
+                             LimitSqlAdapter limitSqlAdapter,
+                             TimeService timeService,
+                             boolean enabled,
+                             int maxRows,
+                             long maxRuntimeMillis,
+                             long leaseMillis) {
+        this(jdbcTemplate, limitSqlAdapter, timeService, DEFAULT_TABLES, enabled, maxRows, maxRuntimeMillis, leaseMillis);
+    }
+
+    public JdbcExpirySweeper(JdbcTemplate jdbcTemplate,
+                             LimitSqlAdapter limitSqlAdapter,
+                             TimeService timeService,
+                             List<Table> tables,
+                             boolean enabled,
+                             int maxRows,
+                             long maxRuntimeMillis,
+                             long leaseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeService = timeService;
+        this.enabled = enabled;
+        this.maxRows = maxRows;
+        this.maxRuntimeMillis = maxRuntimeMillis;
+        this.leaseMillis = leaseMillis;
+        this.sweeps = tables.stream()
+                .map(table -> new Sweep(table, limitSqlAdapter.getDeleteExpiredQuery(
+                        table.name(), table.primaryKey(), table.expiresColumn(), table.condition(), maxRows)))
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${database.expirySweeper.intervalMillis:30000}")
+    public void sweep() {
+        if (!enabled || !acquireLock()) {
+            return;
+        }
+        for (Sweep sweep : sweeps) {
+            try {
+                sweep.run();
+            } catch (DataAccessException e) {
+                logger.warn("Unable to delete the expired rows of {}", sweep.table.name(), e);
+            }
+        }
+    }
+
+    /**
+     * Gives up the lock, so that another node takes over without waiting for the lease to lapse.
+     */
+    public void release() {
+        if (leader) {
+            leader = false;
+            try {
+                jdbcTemplate.update(RELEASE_LOCK_SQL, LOCK_NAME, nodeId);
+            } catch (DataAccessException e) {
+                logger.debug("Unable to release the expiry sweeper lock", e);
+            }
+        }
+    }
+
+    @ManagedAttribute(description = "Whether this node holds the lock and sweeps")
+    public boolean isLeader() {
+        return leader;
+    }
+
+    @ManagedAttribute(description = "Rows deleted per table and expiry column")
+    public Map<String, Long> getDeletedRows() {
+        Map<String, Long> deletedRows = new LinkedHashMap<>();
+        sweeps.forEach(sweep -> deletedRows.put(sweep.table.getMetricName(), sweep.deleted.get()));
+        return deletedRows;
+    }
+
+    @ManagedAttribute(description = "Milliseconds since the earliest expired row left over by the last sweep expired, per table and expiry column")
+    public Map<String, Long> getLagMillis() {
+        Map<String, Long> lagMillis = new LinkedHashMap<>();
+        sweeps.forEach(sweep -> lagMillis.put(sweep.table.getMetricName(), sweep.lagMillis));
+        return lagMillis;
+    }
+
+    boolean acquireLock() {
+        long now = timeService.getCurrentTimeMillis();
+        try {
+            if (jdbcTemplate.update(RENEW_LOCK_SQL, nodeId, now + leaseMillis, LOCK_NAME, nodeId, now) == 0) {
+                jdbcTemplate.update(INSERT_LOCK_SQL, LOCK_NAME, nodeId, now + leaseMillis);
+            }
+            leader = true;
+        } catch (DuplicateKeyException e) {
+            // another node holds the lock
+            leader = false;
+        } catch (DataAccessException e) {
+            logger.warn("Unable to acquire the expiry sweeper lock", e);
+            leader = false;
+        }
+        return leader;
+    }
+
+    /**
+     * A table whose rows expire when {@code expiresColumn} (epoch milliseconds, or a timestamp) is {@code retention}
+     * in the past, restricted to the rows matching {@code condition} when not null.
+     */
+    public record Table(String name,
+                        String primaryKey,
+                        String expiresColumn,
+                        String condition,
+                        Duration retention,
+                        boolean timestamp) {
+
+        String getMetricName() {
+            return name + "." + expiresColumn;
+        }
+    }
+
+    private final class Sweep {
+        private final Table table;
+        private final String deleteSql;
+        private final String oldestSql;
+        private final AtomicLong deleted = new AtomicLong();
+        private volatile long lagMillis;
+
+        private Sweep(Table table, String deleteSql) {
+            this.table = table;
+            this.deleteSql = deleteSql;
+            this.oldestSql = "select min(" + table.expiresColumn() + ") from " + table.name() +
+                    " where " + table.expiresColumn() + " < ?" +
+                    (table.condition() == null ? "" : " and " + table.condition());
+        }
+
+        private void run() {
+            long started = timeService.getCurrentTimeMillis();
+            long cutoff = started - table.retention().toMillis();
+            Object parameter = table.timestamp() ? new Timestamp(cutoff) : cutoff;
+            int total = 0;
+            int removed;
+            do {
+                removed = jdbcTemplate.update(deleteSql, parameter);
+                total += removed;
+            } while (removed >= maxRows && (timeService.getCurrentTimeMillis() - started) < maxRuntimeMillis);
+            deleted.addAndGet(total);
+            lagMillis = removed >= maxRows ? cutoff - oldest(parameter, cutoff) : 0;
+            if (total > 0) {
+                logger.debug("Removed {} expired rows from {}", total, table.name());
+            }
+        }
+
+        private long oldest(Object parameter, long cutoff) {
+            if (table.timestamp()) {
+                Timestamp oldest = jdbcTemplate.queryForObject(oldestSql, Timestamp.class, parameter);
+                return oldest == null ? cutoff : oldest.getTime();
+            }
+            Long oldest = jdbcTemplate.queryForObject(oldestSql, Long.class, parameter);
+            return oldest == null ? cutoff : oldest;
+        }
+    }
+}
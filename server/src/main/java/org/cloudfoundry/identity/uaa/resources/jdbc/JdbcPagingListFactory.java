@@ -38,4 +38,8 @@ public class JdbcPagingListFactory {
     public <T> List<T> createJdbcPagingList(String sql, Map<String, ?> args, RowMapper<T> mapper, int pageSize) {
         return new JdbcPagingList<T>(jdbcTemplate, limitSqlAdapter, sql, args, mapper, pageSize);
     }
+
+    public <T> List<T> createSeekList(String sql, Map<String, ?> args, RowMapper<T> mapper, int size) {
+        return jdbcTemplate.query(limitSqlAdapter.getSeekSql(sql, size), args, mapper);
+    }
 }
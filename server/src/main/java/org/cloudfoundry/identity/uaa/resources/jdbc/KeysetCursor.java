@@ -0,0 +1,70 @@
+package org.cloudfoundry.identity.uaa.resources.jdbc;
+
+import org.cloudfoundry.identity.uaa.util.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset page: the value of the (single) sort column and the id of that row. The
+ * next page is the rows ordered after {@code (value, id)}.
+ * <p>
+ * Handed out to API clients as an opaque, URL safe token. The token is not signed; its values are only ever used
+ * as bind parameters and the sort column is validated by the caller.
+ *
+ * @param sortBy    the internal name of the sort column
+ * @param ascending the sort order the cursor was created for
+ * @param value     the sort column value of the last row, a {@link String} or a {@link Timestamp}
+ * @param id        the id of the last row
+ */
+public record KeysetCursor(String sortBy, boolean ascending, Object value, String id) {
+
+    static KeysetCursor fromRow(ResultSet rs, String sortBy, String idColumn, boolean ascending) throws SQLException {
+        int column = rs.findColumn(sortBy);
+        Object value = switch (rs.getMetaData().getColumnType(column)) {
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE, Types.DATE -> rs.getTimestamp(column);
+            default -> rs.getString(column);
+        };
+        return new KeysetCursor(sortBy, ascending, value, rs.getString(idColumn));
+    }
+
+    public String encode() {
+        Token token = value instanceof Timestamp timestamp ?
+                new Token(sortBy, ascending, id, null, timestamp.getTime(), timestamp.getNanos()) :
+                new Token(sortBy, ascending, id, (String) value, null, null);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(JsonUtils.writeValueAsString(token).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static KeysetCursor decode(String encoded) throws IllegalArgumentException {
+        Token token;
+        try {
+            token = JsonUtils.readValue(Base64.getUrlDecoder().decode(encoded), Token.class);
+        } catch (IllegalArgumentException | JsonUtils.JsonUtilException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded);
+        }
+        if (token == null || token.sortBy() == null || token.id() == null
+                || (token.value() == null && token.timestamp() == null)) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded);
+        }
+        Object value = token.value();
+        if (token.timestamp() != null) {
+            Timestamp timestamp = new Timestamp(token.timestamp());
+            if (token.nanos() != null) {
+                timestamp.setNanos(token.nanos());
+            }
+            value = timestamp;
+        }
+        return new KeysetCursor(token.sortBy(), token.ascending(), value, token.id());
+    }
+
+    record Token(String sortBy, boolean ascending, String id, String value, Long timestamp, Integer nanos) {
+    }
+}
@@ -13,11 +13,46 @@
  *******************************************************************************/
 package org.cloudfoundry.identity.uaa.resources.jdbc;
 
+import java.util.List;
+
 public interface LimitSqlAdapter {
 
     default String getLimitSql(String sql, int index, int size) {
         return sql + " limit " + size + " offset " + index;
     }
 
-    String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, int maxRows);
+    /**
+     * @return the given ordered query restricted to its first {@code size} rows, used for keyset paging where
+     * the query itself seeks past the previous page
+     */
+    default String getSeekSql(String sql, int size) {
+        return sql + " limit " + size;
+    }
+
+    default String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, int maxRows) {
+        return getDeleteExpiredQuery(tablename, primaryKeyColumn, expiresColumn, null, maxRows);
+    }
+
+    /**
+     * @param condition further restricts the rows deleted, may be null
+     * @return a statement deleting at most {@code maxRows} of the rows whose {@code expiresColumn} is before its
+     * single parameter, the earliest first
+     */
+    String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, String condition, int maxRows);
+
+    /**
+     * @return a single statement inserting a row (one parameter per column, in order), or updating the other columns
+     * of the row with the same primary key, null if the database has none and callers must check for the row first
+     */
+    default String getUpsertSql(String tablename, String primaryKeyColumn, List<String> columns) {
+        return null;
+    }
+
+    /**
+     * @return a single statement inserting a row (one parameter per column, in order) unless there is a row with the
+     * same primary key, null if the database has none and callers must check for the row first
+     */
+    default String getInsertIfAbsentSql(String tablename, String primaryKeyColumn, List<String> columns) {
+        return null;
+    }
 }
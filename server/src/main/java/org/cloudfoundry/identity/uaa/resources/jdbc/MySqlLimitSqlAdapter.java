@@ -15,14 +15,42 @@
 
 package org.cloudfoundry.identity.uaa.resources.jdbc;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class MySqlLimitSqlAdapter implements LimitSqlAdapter {
-    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, int maxRows) {
+    @Override
+    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, String condition, int maxRows) {
         return "delete from " +
             tablename +
             " where " +
             expiresColumn +
-            " < ? order by " +
+            " < ?" +
+            (condition == null ? "" : " and " + condition) +
+            " order by " +
             expiresColumn +
             " limit " + maxRows;
     }
+
+    @Override
+    public String getUpsertSql(String tablename, String primaryKeyColumn, List<String> columns) {
+        return insertSql(tablename, columns) +
+            " on duplicate key update " +
+            columns.stream()
+                .filter(column -> !column.equals(primaryKeyColumn))
+                .map(column -> column + "=values(" + column + ")")
+                .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public String getInsertIfAbsentSql(String tablename, String primaryKeyColumn, List<String> columns) {
+        // unlike insert ignore, fails on errors other than the duplicate key
+        return insertSql(tablename, columns) + " on duplicate key update " + primaryKeyColumn + "=" + primaryKeyColumn;
+    }
+
+    private static String insertSql(String tablename, List<String> columns) {
+        return "insert into " + tablename + " (" + String.join(",", columns) + ") values (" +
+            String.join(",", Collections.nCopies(columns.size(), "?")) + ")";
+    }
 }
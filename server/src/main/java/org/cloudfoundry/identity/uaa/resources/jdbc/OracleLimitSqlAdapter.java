@@ -23,7 +23,12 @@ public class OracleLimitSqlAdapter implements LimitSqlAdapter {
     }
 
     @Override
-    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, int maxRows) {
+    public String getSeekSql(String sql, int size) {
+        return "select * from (" + sql + ") where rownum <= " + size;
+    }
+
+    @Override
+    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, String condition, int maxRows) {
         throw new UnsupportedOperationException();
     }
 }
@@ -15,9 +15,13 @@
 
 package org.cloudfoundry.identity.uaa.resources.jdbc;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class PostgresLimitSqlAdapter implements LimitSqlAdapter {
     @Override
-    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, int maxRows) {
+    public String getDeleteExpiredQuery(String tablename, String primaryKeyColumn, String expiresColumn, String condition, int maxRows) {
         return "DELETE FROM "+
             tablename +
             " WHERE "+
@@ -29,8 +33,29 @@ public class PostgresLimitSqlAdapter implements LimitSqlAdapter {
             " WHERE " +
             expiresColumn +
             " < ? " +
+            (condition == null ? "" : " AND " + condition) +
             " ORDER BY " +
             expiresColumn +
             " LIMIT "+maxRows+" FOR UPDATE SKIP LOCKED))";
     }
+
+    @Override
+    public String getUpsertSql(String tablename, String primaryKeyColumn, List<String> columns) {
+        return insertSql(tablename, columns) +
+            " ON CONFLICT (" + primaryKeyColumn + ") DO UPDATE SET " +
+            columns.stream()
+                .filter(column -> !column.equals(primaryKeyColumn))
+                .map(column -> column + "=EXCLUDED." + column)
+                .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public String getInsertIfAbsentSql(String tablename, String primaryKeyColumn, List<String> columns) {
+        return insertSql(tablename, columns) + " ON CONFLICT (" + primaryKeyColumn + ") DO NOTHING";
+    }
+
+    private static String insertSql(String tablename, List<String> columns) {
+        return "INSERT INTO " + tablename + " (" + String.join(",", columns) + ") VALUES (" +
+            String.join(",", Collections.nCopies(columns.size(), "?")) + ")";
+    }
 }
@@ -63,6 +63,12 @@ public interface SearchQueryConverter {
 
     ProcessedFilter convert(String filter, String sortBy, boolean ascending, String zoneId);
 
+    /**
+     * Like {@link #convert(String, String, boolean, String)}, but orders by {@code sortBy} and then
+     * {@code idColumn}, and only matches rows ordered after {@code after}, if given.
+     */
+    ProcessedFilter convertForKeyset(String filter, String sortBy, boolean ascending, String zoneId, String idColumn, KeysetCursor after);
+
     MultiValueMap<String,Object> getFilterValues(String filter, List<String> validAttributes) throws IllegalArgumentException;
 
     String map(String attribute);
@@ -119,6 +119,33 @@ public class SimpleSearchQueryConverter implements SearchQueryConverter {
         return pf;
     }
 
+    @Override
+    public ProcessedFilter convertForKeyset(String filter, String sortBy, boolean ascending, String zoneId, String idColumn, @Nullable KeysetCursor after) {
+        String paramPrefix = generateParameterPrefix(filter);
+        Map<String, Object> values = new HashMap<>();
+        String where = getWhereClause(filter, null, ascending, values, mapper, paramPrefix, zoneId);
+        String sortColumn = mapper.mapToInternal(sortBy);
+        boolean sortById = sortColumn.equalsIgnoreCase(idColumn);
+        String comparator = ascending ? " > " : " < ";
+        String direction = ascending ? " ASC" : " DESC";
+        if (after != null) {
+            String idParam = paramPrefix + "after_id";
+            values.put(idParam, after.id());
+            String seek = idColumn + comparator + ":" + idParam;
+            if (!sortById) {
+                String valueParam = paramPrefix + "after_value";
+                values.put(valueParam, after.value());
+                seek = sortColumn + comparator + ":" + valueParam
+                        + " OR (" + sortColumn + " = :" + valueParam + " AND " + seek + ")";
+            }
+            where = "(" + where + ") AND (" + seek + ")";
+        }
+        where += ORDER_BY + (sortById ? "" : sortColumn + direction + ", ") + idColumn + direction;
+        ProcessedFilter pf = new ProcessedFilter(where, values, true);
+        pf.setParamPrefix(paramPrefix);
+        return pf;
+    }
+
     private String generateParameterPrefix(String filter) {
         while (true) {
             String s = randomStringGenerator.generate().toLowerCase();
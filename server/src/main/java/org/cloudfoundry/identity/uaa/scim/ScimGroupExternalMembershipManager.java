@@ -16,6 +16,7 @@ package org.cloudfoundry.identity.uaa.scim;
 import org.cloudfoundry.identity.uaa.scim.exception.MemberAlreadyExistsException;
 import org.cloudfoundry.identity.uaa.scim.exception.ScimResourceNotFoundException;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ScimGroupExternalMembershipManager {
@@ -32,6 +33,14 @@ public interface ScimGroupExternalMembershipManager {
     List<ScimGroupExternalMember> getExternalGroupMapsByExternalGroup(String externalGroup, String origin, final String zoneId)
         throws ScimResourceNotFoundException;
 
+    /**
+     * Resolve the mappings of several external groups at once, e.g. all the groups of a federated user.
+     *
+     * @return the mappings of every given external group, in the order of the external groups
+     */
+    List<ScimGroupExternalMember> getExternalGroupMapsByExternalGroups(Collection<String> externalGroups, String origin, final String zoneId)
+        throws ScimResourceNotFoundException;
+
     List<ScimGroupExternalMember> getExternalGroupMapsByGroupName(String groupName, String origin, final String zoneId)
         throws ScimResourceNotFoundException;
 
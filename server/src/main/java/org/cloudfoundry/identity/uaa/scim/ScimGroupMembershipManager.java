@@ -4,7 +4,9 @@ import org.cloudfoundry.identity.uaa.scim.exception.MemberAlreadyExistsException
 import org.cloudfoundry.identity.uaa.scim.exception.MemberNotFoundException;
 import org.cloudfoundry.identity.uaa.scim.exception.ScimResourceNotFoundException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface ScimGroupMembershipManager {
@@ -42,6 +44,17 @@ public interface ScimGroupMembershipManager {
             final boolean transitive,
             final String zoneId) throws ScimResourceNotFoundException;
 
+    /**
+     * Retrieve the direct and indirect groups of several users at once, as
+     * set on {@link ScimUser#getGroups()}. The default groups of the zone are
+     * direct groups of every user.
+     *
+     * @return the groups by user id, with an entry for every given user id
+     */
+    Map<String, Set<ScimUser.Group>> getUserGroups(
+            final Collection<String> userIds,
+            final String zoneId);
+
     /**
      * Retrieve a particular member's membership details
      */
@@ -58,6 +71,20 @@ public interface ScimGroupMembershipManager {
             final List<ScimGroupMember> members,
             final String zoneId) throws ScimResourceNotFoundException;
 
+    /**
+     * Add a user to several groups and revoke its membership of several others,
+     * in batches. Memberships that already exist, or that do not exist when
+     * revoking, are skipped, as are the default groups of the zone.
+     *
+     * @param origin origin of the memberships added
+     */
+    void updateUserMemberships(
+            final String memberId,
+            final String origin,
+            final Collection<String> addToGroupIds,
+            final Collection<String> removeFromGroupIds,
+            final String zoneId);
+
     /**
      * Revoke membership of a member
      */
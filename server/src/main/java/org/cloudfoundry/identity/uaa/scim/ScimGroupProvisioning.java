@@ -13,11 +13,19 @@
  *******************************************************************************/
 package org.cloudfoundry.identity.uaa.scim;
 
-import org.cloudfoundry.identity.uaa.resources.Queryable;
+import org.cloudfoundry.identity.uaa.resources.KeysetQueryable;
 import org.cloudfoundry.identity.uaa.resources.ResourceManager;
 
-public interface ScimGroupProvisioning extends ResourceManager<ScimGroup>, Queryable<ScimGroup> {
+import java.util.Collection;
+import java.util.List;
+
+public interface ScimGroupProvisioning extends ResourceManager<ScimGroup>, KeysetQueryable<ScimGroup> {
     ScimGroup createOrGet(ScimGroup group, String zoneId);
 
     ScimGroup getByName(String displayName, String zoneId);
+
+    /**
+     * @return the groups with any of the (case insensitive) display names, those that do not exist are left out
+     */
+    List<ScimGroup> getByNames(Collection<String> displayNames, String zoneId);
 }
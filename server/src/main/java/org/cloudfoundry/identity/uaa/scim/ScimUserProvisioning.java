@@ -13,7 +13,7 @@
  *******************************************************************************/
 package org.cloudfoundry.identity.uaa.scim;
 
-import org.cloudfoundry.identity.uaa.resources.Queryable;
+import org.cloudfoundry.identity.uaa.resources.KeysetQueryable;
 import org.cloudfoundry.identity.uaa.resources.ResourceManager;
 import org.cloudfoundry.identity.uaa.scim.exception.InvalidPasswordException;
 import org.cloudfoundry.identity.uaa.scim.exception.InvalidScimResourceException;
@@ -22,7 +22,7 @@ import org.cloudfoundry.identity.uaa.scim.exception.ScimResourceNotFoundExceptio
 import java.util.List;
 
 
-public interface ScimUserProvisioning extends ResourceManager<ScimUser>, Queryable<ScimUser> {
+public interface ScimUserProvisioning extends ResourceManager<ScimUser>, KeysetQueryable<ScimUser> {
 
     ScimUser createUser(ScimUser user, String password, String zoneId) throws InvalidPasswordException, InvalidScimResourceException;
 
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.cloudfoundry.identity.uaa.scim.bootstrap;
 
+import org.cloudfoundry.identity.uaa.constants.OriginKeys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.cloudfoundry.identity.uaa.scim.ScimCore;
@@ -37,6 +38,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,6 +66,8 @@ public class ScimGroupBootstrap implements InitializingBean {
 
     private static final String USER_BY_NAME_FILTER = "username eq \"%s\"";
 
+    private static final int USERS_PER_QUERY = 50;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private PropertySource messageSource;
     private String messagePropertyNameTemplate = "scope.%s";
@@ -201,63 +206,69 @@ public class ScimGroupBootstrap implements InitializingBean {
             }
         }
 
-        for (ScimGroup g : groupInfos) {
-            addMembers(g);
-        }
+        addMembers(groupInfos);
     }
 
-    private void addMembers(ScimGroup group) {
-        String name = group.getDisplayName();
-        List<ScimGroupMember> members = getMembers(groupMembers.get(name));
-        members.addAll(getMembers(groupAdmins.get(name)));
-        logger.debug("adding members: " + members + " into group: " + name);
-
-        for (ScimGroupMember member : members) {
-            try {
-                membershipManager.addMember(group.getId(), member, IdentityZoneHolder.get().getId());
-            } catch (MemberAlreadyExistsException ex) {
-                logger.debug(member.getMemberId() + " already is member of group " + name);
+    /**
+     * Resolves the configured members of all groups in bulk, and adds each user to its groups in one batch.
+     */
+    private void addMembers(List<ScimGroup> groupInfos) {
+        String zoneId = IdentityZoneHolder.get().getId();
+        Map<String, Set<String>> membersByGroup = new LinkedHashMap<>();
+        for (ScimGroup group : groupInfos) {
+            Set<String> names = new LinkedHashSet<>(groupMembers.getOrDefault(group.getDisplayName(), Collections.emptySet()));
+            names.addAll(groupAdmins.getOrDefault(group.getDisplayName(), Collections.emptySet()));
+            if (!names.isEmpty()) {
+                membersByGroup.put(group.getId(), names);
             }
         }
-    }
-
-    private List<ScimGroupMember> getMembers(Set<String> names) {
-        if (names == null || names.isEmpty()) {
-            return Collections.<ScimGroupMember> emptyList();
+        if (membersByGroup.isEmpty()) {
+            return;
         }
-
-        List<ScimGroupMember> members = new ArrayList<>();
-        for (String name : names) {
-            ScimCore member = getScimResourceId(name);
-            if (member != null) {
-                members.add(
-                    new ScimGroupMember(
-                        member.getId(),
-                        (member instanceof ScimGroup) ? ScimGroupMember.Type.GROUP : ScimGroupMember.Type.USER
-                    )
-                );
+        Map<String, ScimCore> members = getMembers(membersByGroup.values().stream().flatMap(Set::stream).collect(Collectors.toSet()));
+
+        Map<String, List<String>> groupIdsByUser = new LinkedHashMap<>();
+        membersByGroup.forEach((groupId, names) -> {
+            for (String name : names) {
+                ScimCore member = members.get(name.toLowerCase());
+                if (member instanceof ScimUser) {
+                    groupIdsByUser.computeIfAbsent(member.getId(), id -> new ArrayList<>()).add(groupId);
+                } else if (member instanceof ScimGroup) {
+                    try {
+                        membershipManager.addMember(groupId, new ScimGroupMember(member.getId(), ScimGroupMember.Type.GROUP), zoneId);
+                    } catch (MemberAlreadyExistsException ex) {
+                        logger.debug(member.getId() + " already is member of group " + groupId);
+                    }
+                }
             }
-        }
-        return members;
+        });
+        logger.debug("adding users to groups: " + groupIdsByUser);
+        groupIdsByUser.forEach((userId, groupIds) ->
+                membershipManager.updateUserMemberships(userId, OriginKeys.UAA, groupIds, Collections.emptyList(), zoneId));
     }
 
-    private ScimCore getScimResourceId(String name) {
-
-        ScimCore res = getUser(name);
-        if (res != null) {
-            return res;
+    /**
+     * @return the users, or else the groups, with the names, by lower case name
+     */
+    private Map<String, ScimCore> getMembers(Set<String> names) {
+        Map<String, ScimCore> members = new HashMap<>();
+        List<String> usernames = new ArrayList<>(names);
+        for (int from = 0; from < usernames.size(); from += USERS_PER_QUERY) {
+            String filter = usernames.subList(from, Math.min(usernames.size(), from + USERS_PER_QUERY)).stream()
+                    .map(name -> String.format(USER_BY_NAME_FILTER, name))
+                    .collect(Collectors.joining(" or "));
+            for (ScimUser user : scimUserProvisioning.query(filter, IdentityZoneHolder.get().getId())) {
+                members.putIfAbsent(user.getUserName().toLowerCase(), user);
+            }
         }
-
-        logger.debug("user " + name + " does not exist, checking in groups...");
-        return getGroup(name);
-    }
-
-    private ScimUser getUser(String name) {
-        List<ScimUser> user = scimUserProvisioning.query(String.format(USER_BY_NAME_FILTER, name), IdentityZoneHolder.get().getId());
-        if (user != null && !user.isEmpty()) {
-            return user.get(0);
+        List<String> groupNames = names.stream().filter(name -> !members.containsKey(name.toLowerCase())).toList();
+        if (!groupNames.isEmpty()) {
+            logger.debug("users " + groupNames + " do not exist, checking in groups...");
+            for (ScimGroup group : scimGroupProvisioning.getByNames(groupNames, IdentityZoneHolder.get().getId())) {
+                members.putIfAbsent(group.getDisplayName().toLowerCase(), group);
+            }
         }
-        return null;
+        return members;
     }
 
     ScimGroup getGroup(String name) {
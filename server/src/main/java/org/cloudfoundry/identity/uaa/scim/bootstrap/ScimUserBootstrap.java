@@ -9,11 +9,10 @@ import org.cloudfoundry.identity.uaa.authentication.manager.NewUserAuthenticated
 import org.cloudfoundry.identity.uaa.constants.OriginKeys;
 import org.cloudfoundry.identity.uaa.scim.*;
 import org.cloudfoundry.identity.uaa.scim.exception.InvalidPasswordException;
-import org.cloudfoundry.identity.uaa.scim.exception.MemberAlreadyExistsException;
-import org.cloudfoundry.identity.uaa.scim.exception.MemberNotFoundException;
 import org.cloudfoundry.identity.uaa.scim.exception.ScimResourceNotFoundException;
 import org.cloudfoundry.identity.uaa.scim.services.ScimUserService;
 import org.cloudfoundry.identity.uaa.user.UaaUser;
+import org.cloudfoundry.identity.uaa.util.BootstrapPhases;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +33,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Optional.ofNullable;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.util.StringUtils.hasText;
@@ -59,6 +59,9 @@ public class ScimUserBootstrap implements
     private final List<String> usersToDelete;
     private final boolean aliasEntitiesEnabled;
     private ApplicationEventPublisher publisher;
+    private int parallelism = BootstrapPhases.DEFAULT_PARALLELISM;
+
+    private static final int USERS_PER_QUERY = 50;
 
     /**
      *
@@ -85,14 +88,150 @@ public class ScimUserBootstrap implements
         this.aliasEntitiesEnabled = aliasEntitiesEnabled;
     }
 
+    /**
+     * @param parallelism maximum number of users created or updated at the same time
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Fetches the existing users in bulk, creates the missing groups up front, and then creates or updates the users
+     * (hashing their passwords) on a bounded pool of threads.
+     */
     @Override
     public void afterPropertiesSet() {
         List<UaaUser> users = new LinkedList<>(ofNullable(this.users).orElse(emptyList()));
         List<String> deleteMe = ofNullable(usersToDelete).orElse(emptyList());
         users.removeIf(u -> deleteMe.contains(u.getUsername()));
-        for (UaaUser u : users) {
-            u.setVerified(true);
-            addUser(u);
+        if (users.isEmpty()) {
+            return;
+        }
+        users.forEach(u -> u.setVerified(true));
+
+        BootstrapPhases phases = new BootstrapPhases("users", parallelism);
+        Map<String, ScimUser> existingUsers = phases.run("prefetch", () -> getScimUsers(users));
+        List<UserChange> changes = phases.run("diff", () -> getChanges(users, existingUsers));
+        Map<String, String> groupIds = phases.run("groups", () -> getOrCreateGroups(changes));
+        phases.forEach("apply", changes, change -> apply(change, groupIds));
+        phases.report();
+    }
+
+    private static String userKey(String origin, String username) {
+        return (origin == null ? OriginKeys.UAA : origin) + "|" + (username == null ? "" : username.toLowerCase());
+    }
+
+    private Map<String, ScimUser> getScimUsers(List<UaaUser> users) {
+        Map<String, ScimUser> existing = new HashMap<>();
+        Map<String, List<String>> usernamesByOrigin = users.stream().collect(Collectors.groupingBy(
+                u -> u.getOrigin() == null ? OriginKeys.UAA : u.getOrigin(), LinkedHashMap::new,
+                Collectors.mapping(UaaUser::getUsername, Collectors.toList())));
+        usernamesByOrigin.forEach((origin, usernames) -> {
+            for (int from = 0; from < usernames.size(); from += USERS_PER_QUERY) {
+                String filter = usernames.subList(from, Math.min(usernames.size(), from + USERS_PER_QUERY)).stream()
+                        .map(username -> "userName eq \"" + username + "\"")
+                        .collect(Collectors.joining(" or "));
+                for (ScimUser user : scimUserProvisioning.query("origin eq \"" + origin + "\" and (" + filter + ")", IdentityZoneHolder.get().getId())) {
+                    existing.putIfAbsent(userKey(user.getOrigin(), user.getUserName()), user);
+                }
+            }
+        });
+        for (UaaUser user : users) {
+            String key = userKey(user.getOrigin(), user.getUsername());
+            if (!existing.containsKey(key) && StringUtils.hasText(user.getId())) {
+                try {
+                    existing.put(key, scimUserProvisioning.retrieve(user.getId(), IdentityZoneHolder.get().getId()));
+                } catch (ScimResourceNotFoundException x) {
+                    logger.debug("Unable to find scim user based on ID:" + user.getId());
+                }
+            }
+        }
+        return existing;
+    }
+
+    private List<UserChange> getChanges(List<UaaUser> users, Map<String, ScimUser> existingUsers) {
+        Map<String, UserChange> changes = new LinkedHashMap<>();
+        for (UaaUser user : users) {
+            String key = userKey(user.getOrigin(), user.getUsername());
+            UserChange pending = changes.get(key);
+            if (pending != null) {
+                // the same user is configured twice, the last one wins if users can be updated
+                if (override) {
+                    changes.put(key, new UserChange(user, pending.existing()));
+                }
+                continue;
+            }
+            UserChange change = getChange(user, existingUsers.get(key));
+            if (change != null) {
+                changes.put(key, change);
+            }
+        }
+        return new ArrayList<>(changes.values());
+    }
+
+    /**
+     * @return the change to apply to the existing user, null if none
+     */
+    private UserChange getChange(UaaUser user, ScimUser existing) {
+        if (existing == null) {
+            if (isEmpty(user.getPassword()) && user.getOrigin().equals(OriginKeys.UAA)) {
+                logger.debug("User's password cannot be empty");
+                throw new InvalidPasswordException("Password cannot be empty", BAD_REQUEST);
+            }
+            return new UserChange(user, null);
+        } else if (override) {
+            return new UserChange(user, existing);
+        }
+        logger.debug("Override flag not set. Not registering existing user: " + user);
+        return null;
+    }
+
+    /**
+     * @return the IDs of the groups of the users, by lower case name
+     */
+    private Map<String, String> getOrCreateGroups(List<UserChange> changes) {
+        Set<String> names = changes.stream()
+                .flatMap(change -> convertToGroups(change.user().getAuthorities()).stream())
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (names.isEmpty()) {
+            return emptyMap();
+        }
+        String zoneId = IdentityZoneHolder.get().getId();
+        Map<String, String> groupIds = new HashMap<>();
+        scimGroupProvisioning.getByNames(names, zoneId).forEach(group -> groupIds.put(group.getDisplayName().toLowerCase(), group.getId()));
+        for (String name : names) {
+            if (!groupIds.containsKey(name.toLowerCase())) {
+                logger.debug("Adding group: " + name);
+                groupIds.put(name.toLowerCase(), scimGroupProvisioning.createOrGet(new ScimGroup(null, name, zoneId), zoneId).getId());
+            }
+        }
+        return groupIds;
+    }
+
+    private void apply(UserChange change, Map<String, String> groupIds) {
+        UaaUser user = change.user();
+        String zoneId = IdentityZoneHolder.get().getId();
+        String origin = ofNullable(user.getOrigin()).orElse(OriginKeys.UAA);
+        List<String> newGroupIds = convertToGroups(user.getAuthorities()).stream()
+                .filter(StringUtils::hasText)
+                .map(name -> groupIds.get(name.toLowerCase()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (change.existing() == null) {
+            logger.debug("Registering new user account: " + user);
+            ScimUser newScimUser = scimUserProvisioning.createUser(convertToScimUser(user), user.getPassword(), zoneId);
+            membershipManager.updateUserMemberships(newScimUser.getId(), origin, newGroupIds, emptyList(), zoneId);
+        } else {
+            String id = change.existing().getId();
+            List<String> oldGroupIds = membershipManager.getGroupsWithMember(id, false, zoneId).stream()
+                    .map(ScimGroup::getId)
+                    .filter(groupId -> !newGroupIds.contains(groupId))
+                    .toList();
+            updateUser(change.existing(), user);
+            logger.debug("Replacing group memberships " + oldGroupIds + " with " + newGroupIds);
+            membershipManager.updateUserMemberships(id, origin, newGroupIds, oldGroupIds, zoneId);
         }
     }
 
@@ -136,37 +275,15 @@ public class ScimUserBootstrap implements
      * @param user a UaaUser
      */
     private void addUser(UaaUser user) {
-        ScimUser scimUser = getScimUser(user);
-        if (scimUser == null) {
-            if (isEmpty(user.getPassword()) && user.getOrigin().equals(OriginKeys.UAA)) {
-                logger.debug("User's password cannot be empty");
-                throw new InvalidPasswordException("Password cannot be empty", BAD_REQUEST);
-            }
-            createNewUser(user);
-        } else {
-            if (override) {
-                updateUser(scimUser, user);
-            } else {
-                logger.debug("Override flag not set. Not registering existing user: " + user);
-            }
+        UserChange change = getChange(user, getScimUser(user));
+        if (change != null) {
+            apply(change, getOrCreateGroups(Collections.singletonList(change)));
         }
     }
 
     private void updateUser(ScimUser existingUser, UaaUser updatedUser) {
-        updateUser(existingUser, updatedUser, true);
-    }
-
-    private void updateUser(ScimUser existingUser, UaaUser updatedUser, boolean updateGroups) {
         String id = existingUser.getId();
         logger.debug("Updating user account: " + updatedUser + " with SCIM Id: " + id);
-        if (updateGroups) {
-            logger.debug("Removing existing group memberships ...");
-            Set<ScimGroup> existingGroups = membershipManager.getGroupsWithMember(id, true, IdentityZoneHolder.get().getId());
-
-            for (ScimGroup g : existingGroups) {
-                removeFromGroup(id, g.getDisplayName());
-            }
-        }
 
         final ScimUser newScimUser = convertToScimUser(updatedUser);
         newScimUser.setVersion(existingUser.getVersion());
@@ -190,23 +307,6 @@ public class ScimUserBootstrap implements
         if (OriginKeys.UAA.equals(newScimUser.getOrigin()) && hasText(updatedUser.getPassword())) { //password is not relevant for non UAA users
             scimUserProvisioning.changePassword(id, null, updatedUser.getPassword(), IdentityZoneHolder.get().getId());
         }
-        if (updateGroups) {
-            Collection<String> newGroups = convertToGroups(updatedUser.getAuthorities());
-            logger.debug("Adding new groups " + newGroups);
-            addGroups(id, newGroups, newScimUser.getOrigin());
-        }
-    }
-
-    private void createNewUser(UaaUser user) {
-        logger.debug("Registering new user account: " + user);
-        ScimUser newScimUser = scimUserProvisioning.createUser(convertToScimUser(user), user.getPassword(), IdentityZoneHolder.get().getId());
-        addGroups(newScimUser.getId(), convertToGroups(user.getAuthorities()), newScimUser.getOrigin());
-    }
-
-    private void addGroups(String scimUserid, Collection<String> groups, String origin) {
-        for (String group : groups) {
-            addToGroup(scimUserid, group, origin, true);
-        }
     }
 
     @Override
@@ -235,7 +335,7 @@ public class ScimUserBootstrap implements
                 uaaUser.setVerified(false);
             }
             if (user != null) {
-                updateUser(user, uaaUser, false);
+                updateUser(user, uaaUser);
             }
             return;
         }
@@ -244,26 +344,28 @@ public class ScimUserBootstrap implements
             //delete previous membership relation ships
             String origin = exEvent.getUser().getOrigin();
             if (!OriginKeys.UAA.equals(origin)) {
-                Set<ScimGroup> groupsWithMember = membershipManager.getGroupsWithExternalMember(exEvent.getUser().getId(), origin, IdentityZoneHolder.get().getId());
+                String zoneId = IdentityZoneHolder.get().getId();
+                Set<ScimGroup> groupsWithMember = membershipManager.getGroupsWithExternalMember(exEvent.getUser().getId(), origin, zoneId);
                 Map<String, ScimGroup> groupsMap = groupsWithMember.stream().collect(Collectors.toMap(ScimGroup::getDisplayName, Function.identity()));
-                Collection<? extends GrantedAuthority> externalAuthorities = new LinkedHashSet<>(exEvent.getExternalAuthorities());
-                for (GrantedAuthority authority : externalAuthorities) {
-                    if (groupsMap.containsKey(authority.getAuthority())) {
-                        groupsMap.remove(authority.getAuthority());
-                    } else {
-                        addToGroup(exEvent.getUser().getId(), authority.getAuthority(), origin, exEvent.isAddGroups());
+                Set<String> groupsToAdd = new LinkedHashSet<>();
+                for (GrantedAuthority authority : exEvent.getExternalAuthorities()) {
+                    if (groupsMap.remove(authority.getAuthority()) == null && hasText(authority.getAuthority())) {
+                        groupsToAdd.add(authority.getAuthority());
                     }
                 }
-                for (ScimGroup group : groupsMap.values()) {
-                    membershipManager.removeMemberById(group.getId(), exEvent.getUser().getId(), group.getZoneId());
-                }
+                membershipManager.updateUserMemberships(
+                        exEvent.getUser().getId(),
+                        origin,
+                        findGroupIds(groupsToAdd, exEvent.isAddGroups(), zoneId),
+                        groupsMap.values().stream().map(ScimGroup::getId).toList(),
+                        zoneId);
             }
             //update the user itself
             if (event.isUserModified()) {
                 //update the user itself
                 ScimUser user = getScimUser(uaaUser);
                 if (user != null) {
-                    updateUser(user, uaaUser, false);
+                    updateUser(user, uaaUser);
                 }
             }
             return;
@@ -274,48 +376,24 @@ public class ScimUserBootstrap implements
         }
     }
 
-    private void addToGroup(String scimUserId, String gName, String origin, boolean addGroup) {
-        if (!StringUtils.hasText(gName)) {
-            return;
-        }
-        logger.debug("Adding to group: " + gName);
-        List<ScimGroup> g = scimGroupProvisioning.query(String.format("displayName eq \"%s\"", gName), IdentityZoneHolder.get().getId());
-        ScimGroup group;
-        if ((g == null || g.isEmpty()) && (!addGroup)) {
-            logger.debug("No group found with name:" + gName + ". Group membership will not be added.");
-            return;
-        } else if (g == null || g.isEmpty()) {
-            group = new ScimGroup(null, gName, IdentityZoneHolder.get().getId());
-            group = scimGroupProvisioning.create(group, IdentityZoneHolder.get().getId());
-        } else {
-            group = g.get(0);
-        }
-        try {
-            ScimGroupMember groupMember = new ScimGroupMember(scimUserId);
-            groupMember.setOrigin(ofNullable(origin).orElse(OriginKeys.UAA));
-            membershipManager.addMember(group.getId(), groupMember, IdentityZoneHolder.get().getId());
-        } catch (MemberAlreadyExistsException ex) {
-            // do nothing
+    private List<String> findGroupIds(Set<String> names, boolean addGroups, String zoneId) {
+        if (names.isEmpty()) {
+            return emptyList();
         }
-    }
-
-    private void removeFromGroup(String scimUserId, String gName) {
-        if (!StringUtils.hasText(gName)) {
-            return;
-        }
-        logger.debug("Removing membership of group: " + gName);
-        List<ScimGroup> g = scimGroupProvisioning.query(String.format("displayName eq \"%s\"", gName), IdentityZoneHolder.get().getId());
-        ScimGroup group;
-        if (g == null || g.isEmpty()) {
-            return;
-        } else {
-            group = g.get(0);
-        }
-        try {
-            membershipManager.removeMemberById(group.getId(), scimUserId, IdentityZoneHolder.get().getId());
-        } catch (MemberNotFoundException ex) {
-            // do nothing
+        List<ScimGroup> groups = scimGroupProvisioning.getByNames(names, zoneId);
+        List<String> groupIds = groups.stream().map(ScimGroup::getId).collect(Collectors.toList());
+        if (addGroups && groups.size() < names.size()) {
+            Set<String> found = groups.stream().map(group -> group.getDisplayName().toLowerCase()).collect(Collectors.toSet());
+            for (String name : names) {
+                if (!found.contains(name.toLowerCase())) {
+                    logger.debug("Adding group: " + name);
+                    groupIds.add(scimGroupProvisioning.createOrGet(new ScimGroup(null, name, zoneId), zoneId).getId());
+                }
+            }
+        } else if (groups.size() < names.size()) {
+            logger.debug("Some of the groups " + names + " were not found. Their memberships will not be added.");
         }
+        return groupIds;
     }
 
     /**
@@ -342,6 +420,9 @@ public class ScimUserBootstrap implements
         return groups;
     }
 
+    private record UserChange(UaaUser user, ScimUser existing) {
+    }
+
     public void publish(ApplicationEvent event) {
         if (publisher != null) {
             publisher.publishEvent(event);
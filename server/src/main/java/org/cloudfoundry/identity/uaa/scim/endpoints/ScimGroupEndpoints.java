@@ -2,6 +2,7 @@ package org.cloudfoundry.identity.uaa.scim.endpoints;
 
 import com.jayway.jsonpath.JsonPathException;
 import org.cloudfoundry.identity.uaa.resources.AttributeNameMapper;
+import org.cloudfoundry.identity.uaa.resources.KeysetPage;
 import org.cloudfoundry.identity.uaa.resources.SearchResults;
 import org.cloudfoundry.identity.uaa.resources.SearchResultsFactory;
 import org.cloudfoundry.identity.uaa.resources.SimpleAttributeNameMapper;
@@ -133,6 +134,16 @@ public class ScimGroupEndpoints {
         return response;
     }
 
+    public SearchResults<?> listGroups(String attributesCommaSeparated, String filter, String sortBy, String sortOrder,
+                                       int startIndex, int count) {
+        return listGroups(attributesCommaSeparated, filter, sortBy, sortOrder, startIndex, count, null);
+    }
+
+    /**
+     * @param cursor if present, selects cursor paging instead of index paging: empty for the first page, then
+     *               the {@code nextCursor} of the previous response. {@code startIndex} is ignored and
+     *               {@code totalResults} is not computed.
+     */
     @RequestMapping(value = {"/Groups"}, method = RequestMethod.GET)
     @ResponseBody
     public SearchResults<?> listGroups(
@@ -141,28 +152,48 @@ public class ScimGroupEndpoints {
             @RequestParam(required = false, defaultValue = "created") String sortBy,
             @RequestParam(required = false, defaultValue = "ascending") String sortOrder,
             @RequestParam(required = false, defaultValue = "1") int startIndex,
-            @RequestParam(required = false, defaultValue = "100") int count) {
+            @RequestParam(required = false, defaultValue = "100") int count,
+            @RequestParam(required = false) String cursor) {
 
         if (count > groupMaxCount) {
             count = groupMaxCount;
         }
 
         List<ScimGroup> result;
+        int totalResults;
+        String nextCursor = null;
         try {
-            result = dao.query(filter,
-                    sortBy,
-                    "ascending".equalsIgnoreCase(sortOrder),
-                    identityZoneManager.getCurrentIdentityZoneId());
+            if (cursor != null) {
+                KeysetPage<ScimGroup> page = dao.queryPage(filter,
+                        sortBy,
+                        "ascending".equalsIgnoreCase(sortOrder),
+                        cursor,
+                        count,
+                        identityZoneManager.getCurrentIdentityZoneId());
+                result = page.resources();
+                nextCursor = page.nextCursor();
+                startIndex = 1;
+                totalResults = SearchResults.UNKNOWN_TOTAL_RESULTS;
+            } else {
+                result = dao.query(filter,
+                        sortBy,
+                        "ascending".equalsIgnoreCase(sortOrder),
+                        identityZoneManager.getCurrentIdentityZoneId());
+                totalResults = result.size();
+            }
         } catch (IllegalArgumentException e) {
-            throw new ScimException("Invalid filter expression: [" + HtmlUtils.htmlEscape(filter) + "]",
-                    HttpStatus.BAD_REQUEST);
+            String msg = "Invalid filter expression: [" + filter + "]";
+            if (cursor != null) {
+                msg += " [cursor]: " + e.getMessage();
+            }
+            throw new ScimException(HtmlUtils.htmlEscape(msg), HttpStatus.BAD_REQUEST);
         }
 
         List<ScimGroup> input;
         if (!StringUtils.hasLength(attributesCommaSeparated)) {
             input = filterForCurrentUser(result, startIndex, count, true);
             return new SearchResults<>(Arrays.asList(ScimCore.SCHEMAS), input, startIndex, count,
-                    result.size());
+                    totalResults, nextCursor);
         }
 
         AttributeNameMapper mapper = new SimpleAttributeNameMapper(Collections.emptyMap());
@@ -171,8 +202,8 @@ public class ScimGroupEndpoints {
         input = filterForCurrentUser(result, startIndex, count, Arrays.asList(attributes).contains("members"));
 
         try {
-            return SearchResultsFactory.buildSearchResultFrom(input, startIndex, count, result.size(), attributes,
-                    mapper, Arrays.asList(ScimCore.SCHEMAS));
+            return SearchResultsFactory.buildSearchResultFrom(input, startIndex, count, totalResults, nextCursor,
+                    attributes, mapper, Arrays.asList(ScimCore.SCHEMAS));
         } catch (JsonPathException e) {
             throw new ScimException("Invalid attributes: [" + attributesCommaSeparated + "]", HttpStatus.BAD_REQUEST);
         }
@@ -17,6 +17,7 @@ import org.cloudfoundry.identity.uaa.oauth.provider.expression.OAuth2ExpressionU
 import org.cloudfoundry.identity.uaa.provider.IdentityProvider;
 import org.cloudfoundry.identity.uaa.provider.IdentityProviderProvisioning;
 import org.cloudfoundry.identity.uaa.resources.AttributeNameMapper;
+import org.cloudfoundry.identity.uaa.resources.KeysetPage;
 import org.cloudfoundry.identity.uaa.resources.ResourceMonitor;
 import org.cloudfoundry.identity.uaa.resources.SearchResults;
 import org.cloudfoundry.identity.uaa.resources.SearchResultsFactory;
@@ -86,6 +87,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -489,6 +491,16 @@ public class ScimUserEndpoints implements InitializingBean, ApplicationEventPubl
         }
     }
 
+    public SearchResults<?> findUsers(String attributesCommaSeparated, String filter, String sortBy, String sortOrder,
+                                      int startIndex, int count) {
+        return findUsers(attributesCommaSeparated, filter, sortBy, sortOrder, startIndex, count, null);
+    }
+
+    /**
+     * @param cursor if present, selects cursor paging instead of index paging: empty for the first page, then
+     *               the {@code nextCursor} of the previous response. {@code startIndex} is ignored and
+     *               {@code totalResults} is not computed.
+     */
     @RequestMapping(value = "/Users", method = RequestMethod.GET)
     @ResponseBody
     public SearchResults<?> findUsers(
@@ -497,7 +509,8 @@ public class ScimUserEndpoints implements InitializingBean, ApplicationEventPubl
             @RequestParam(required = false, defaultValue = "created") String sortBy,
             @RequestParam(required = false, defaultValue = "ascending") String sortOrder,
             @RequestParam(required = false, defaultValue = "1") int startIndex,
-            @RequestParam(required = false, defaultValue = "100") int count) {
+            @RequestParam(required = false, defaultValue = "100") int count,
+            @RequestParam(required = false) String cursor) {
 
         if (startIndex < 1) {
             startIndex = 1;
@@ -508,30 +521,43 @@ public class ScimUserEndpoints implements InitializingBean, ApplicationEventPubl
         }
 
         List<ScimUser> input = new ArrayList<>();
-        List<ScimUser> result;
+        int totalResults;
+        String nextCursor = null;
         Set<String> attributes = StringUtils.commaDelimitedListToSet(attributesCommaSeparated);
         try {
-            result = scimUserProvisioning.query(filter, sortBy, sortOrder.equals("ascending"), identityZoneManager.getCurrentIdentityZoneId());
-            for (ScimUser user : UaaPagingUtils.subList(result, startIndex, count)) {
-                if (attributes.isEmpty() || attributes.stream().anyMatch("groups"::equalsIgnoreCase)) {
-                    syncGroups(user);
-                }
-                if (attributes.isEmpty() || attributes.stream().anyMatch("approvals"::equalsIgnoreCase)) {
-                    syncApprovals(user);
-                }
-                input.add(user);
+            List<ScimUser> page;
+            if (cursor != null) {
+                KeysetPage<ScimUser> keysetPage = scimUserProvisioning.queryPage(filter, sortBy, sortOrder.equals("ascending"), cursor, count, identityZoneManager.getCurrentIdentityZoneId());
+                page = keysetPage.resources();
+                nextCursor = keysetPage.nextCursor();
+                startIndex = 1;
+                totalResults = SearchResults.UNKNOWN_TOTAL_RESULTS;
+            } else {
+                List<ScimUser> result = scimUserProvisioning.query(filter, sortBy, sortOrder.equals("ascending"), identityZoneManager.getCurrentIdentityZoneId());
+                page = UaaPagingUtils.subList(result, startIndex, count);
+                totalResults = result.size();
+            }
+            input.addAll(page);
+            if (attributes.isEmpty() || attributes.stream().anyMatch("groups"::equalsIgnoreCase)) {
+                syncGroups(input);
+            }
+            if (attributes.isEmpty() || attributes.stream().anyMatch("approvals"::equalsIgnoreCase)) {
+                syncApprovals(input);
             }
         } catch (IllegalArgumentException e) {
             String msg = "Invalid filter expression: [" + filter + "]";
             if (hasText(sortBy)) {
                 msg += " [" + sortBy + "]";
             }
+            if (cursor != null) {
+                msg += " [cursor]: " + e.getMessage();
+            }
             throw new ScimException(HtmlUtils.htmlEscape(msg), HttpStatus.BAD_REQUEST);
         }
 
         if (!StringUtils.hasLength(attributesCommaSeparated)) {
             // Return all user data
-            return new SearchResults<>(Arrays.asList(ScimCore.SCHEMAS), input, startIndex, count, result.size());
+            return new SearchResults<>(Arrays.asList(ScimCore.SCHEMAS), input, startIndex, count, totalResults, nextCursor);
         }
 
         Map<String, String> attributeMap = new HashMap<>();
@@ -544,7 +570,8 @@ public class ScimUserEndpoints implements InitializingBean, ApplicationEventPubl
             return SearchResultsFactory.buildSearchResultFrom(input,
                     startIndex,
                     count,
-                    result.size(),
+                    totalResults,
+                    nextCursor,
                     attributes.toArray(new String[0]),
                     mapper,
                     Arrays.asList(ScimCore.SCHEMAS)
@@ -600,6 +627,41 @@ public class ScimUserEndpoints implements InitializingBean, ApplicationEventPubl
         return user;
     }
 
+    /**
+     * Same as {@link #syncGroups(ScimUser)} for a whole page of users, with a constant number of queries.
+     */
+    private void syncGroups(List<ScimUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        List<String> userIds = users.stream().map(ScimUser::getId).toList();
+        Map<String, Set<ScimUser.Group>> groups = membershipManager.getUserGroups(userIds, identityZoneManager.getCurrentIdentityZoneId());
+        for (ScimUser user : users) {
+            user.setGroups(groups.getOrDefault(user.getId(), Collections.emptySet()));
+        }
+    }
+
+    /**
+     * Same as {@link #syncApprovals(ScimUser)} for a whole page of users, with a constant number of queries.
+     */
+    private void syncApprovals(List<ScimUser> users) {
+        if (users.isEmpty() || approvalStore == null) {
+            return;
+        }
+        List<String> userIds = users.stream().map(ScimUser::getId).toList();
+        Map<String, List<Approval>> approvals = approvalStore.getApprovalsForUsers(userIds, identityZoneManager.getCurrentIdentityZoneId());
+        Date now = new Date();
+        for (ScimUser user : users) {
+            Set<Approval> active = new HashSet<>();
+            for (Approval approval : approvals.getOrDefault(user.getId(), Collections.emptyList())) {
+                if (approval.isActiveAsOf(now)) {
+                    active.add(approval);
+                }
+            }
+            user.setApprovals(active);
+        }
+    }
+
     /**
      * Look up the approvals for the given user and keep only those that are currently active.
      */
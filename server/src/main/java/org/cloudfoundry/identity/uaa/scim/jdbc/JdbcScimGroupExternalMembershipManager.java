@@ -1,5 +1,7 @@
 package org.cloudfoundry.identity.uaa.scim.jdbc;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.cloudfoundry.identity.uaa.scim.ScimGroup;
 import org.cloudfoundry.identity.uaa.scim.ScimGroupExternalMember;
 import org.cloudfoundry.identity.uaa.scim.ScimGroupExternalMembershipManager;
@@ -21,11 +23,31 @@ import org.springframework.util.StringUtils;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The mappings of external groups are cached per zone, origin and external group for
+ * {@code mappingCacheExpirationSeconds}, as every federated login resolves all the groups of the user.
+ * Local changes to the mappings evict the cache of the zone; changes made on other nodes are seen once
+ * the cached mappings expire.
+ */
 public class JdbcScimGroupExternalMembershipManager
         implements ScimGroupExternalMembershipManager {
 
+    static final int MAX_EXTERNAL_GROUPS_PER_QUERY = 100;
+
+    static final int DEFAULT_MAPPING_CACHE_EXPIRATION_SECONDS = 30;
+
+    static final int MAPPING_CACHE_MAX_ENTRIES = 50_000;
+
     private JdbcTemplate jdbcTemplate;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -51,6 +73,10 @@ public class JdbcScimGroupExternalMembershipManager
     private final String getExternalGroupMappingsInZoneSql;
     private final String getGroupsByExternalGroupMappingSql;
     private final String getGroupsWithExternalGroupMappingsSql;
+    private final String getGroupsByExternalGroupMappingsSqlFormat;
+
+    private volatile Cache<ExternalGroupKey, List<ScimGroupExternalMember>> mappingCache =
+            newMappingCache(DEFAULT_MAPPING_CACHE_EXPIRATION_SECONDS);
 
     private static final String DELETE_EXTERNAL_GROUP_MAPPING_SQL =
             String.format("delete from %s where group_id=? and lower(external_group)=lower(?) and origin=? and identity_zone_id = ?",
@@ -83,6 +109,11 @@ public class JdbcScimGroupExternalMembershipManager
                 joinGroupTable,
                 JOIN_WHERE_ID
         );
+        getGroupsByExternalGroupMappingsSqlFormat = String.format("select %s from %s where gm.identity_zone_id = ? and %s and lower(external_group) in (%%s)",
+                JOIN_EXTERNAL_GROUP_MAPPING_FIELDS,
+                joinGroupTable,
+                JOIN_WHERE_ID
+        );
         getExternalGroupMappingsInZoneSql = String.format("select %s from %s where gm.identity_zone_id=? and g.id = gm.group_id ",
                 JOIN_EXTERNAL_GROUP_MAPPING_FIELDS,
                 joinGroupTable
@@ -98,6 +129,23 @@ public class JdbcScimGroupExternalMembershipManager
         this.scimGroupProvisioning = scimGroupProvisioning;
     }
 
+    /**
+     * @param mappingCacheExpirationSeconds how long resolved mappings are cached, 0 disables the cache
+     */
+    public void setMappingCacheExpirationSeconds(int mappingCacheExpirationSeconds) {
+        this.mappingCache = newMappingCache(mappingCacheExpirationSeconds);
+    }
+
+    /**
+     * Forget the cached mappings of a zone, e.g. after its groups were renamed or deleted.
+     */
+    public void evictMappingCache(String zoneId) {
+        Cache<ExternalGroupKey, List<ScimGroupExternalMember>> cache = mappingCache;
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.zoneId().equals(zoneId));
+        }
+    }
+
     @Override
     public ScimGroupExternalMember mapExternalGroup(final String groupId,
                                                     final String externalGroup,
@@ -122,6 +170,7 @@ public class JdbcScimGroupExternalMembershipManager
                     ps.setString(5, zoneId);
 
                 });
+                evictMappingCache(zoneId);
             } catch (DuplicateKeyException e) {
                 // we should not throw, if the mapping exist, we should leave it
                 // there.
@@ -154,6 +203,7 @@ public class JdbcScimGroupExternalMembershipManager
                 ps.setString(3, origin);
                 ps.setString(4, zoneId);
             });
+            evictMappingCache(zoneId);
             if (count == 1) {
                 return result;
             } else if (count == 0) {
@@ -215,6 +265,7 @@ public class JdbcScimGroupExternalMembershipManager
             ps.setString(1, groupId);
             ps.setString(2, zoneId);
         });
+        evictMappingCache(zoneId);
     }
 
     @Override
@@ -231,6 +282,74 @@ public class JdbcScimGroupExternalMembershipManager
         }, rowMapper);
     }
 
+    @Override
+    public List<ScimGroupExternalMember> getExternalGroupMapsByExternalGroups(final Collection<String> externalGroups,
+                                                                              final String origin,
+                                                                              final String zoneId)
+            throws ScimResourceNotFoundException {
+        List<ExternalGroupKey> keys = new ArrayList<>(externalGroups.size());
+        for (String externalGroup : externalGroups) {
+            if (StringUtils.hasText(externalGroup)) {
+                keys.add(new ExternalGroupKey(zoneId, origin, externalGroup.toLowerCase()));
+            }
+        }
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Cache<ExternalGroupKey, List<ScimGroupExternalMember>> cache = mappingCache;
+        Map<ExternalGroupKey, List<ScimGroupExternalMember>> mappings = cache == null ?
+                loadExternalGroupMaps(Set.copyOf(keys)) :
+                cache.getAll(keys, this::loadExternalGroupMaps);
+        List<ScimGroupExternalMember> result = new ArrayList<>();
+        for (ExternalGroupKey key : keys) {
+            result.addAll(mappings.getOrDefault(key, Collections.emptyList()));
+        }
+        return result;
+    }
+
+    /**
+     * @param keys of a single zone and origin
+     * @return the (possibly empty) mappings of every key
+     */
+    private Map<ExternalGroupKey, List<ScimGroupExternalMember>> loadExternalGroupMaps(Set<? extends ExternalGroupKey> keys) {
+        Map<ExternalGroupKey, List<ScimGroupExternalMember>> mappings = new HashMap<>();
+        List<ExternalGroupKey> remaining = new ArrayList<>(keys);
+        ExternalGroupKey first = remaining.get(0);
+        for (ExternalGroupKey key : remaining) {
+            mappings.put(key, new ArrayList<>());
+        }
+        for (int from = 0; from < remaining.size(); from += MAX_EXTERNAL_GROUPS_PER_QUERY) {
+            List<ExternalGroupKey> chunk = remaining.subList(from, Math.min(remaining.size(), from + MAX_EXTERNAL_GROUPS_PER_QUERY));
+            String sql = String.format(getGroupsByExternalGroupMappingsSqlFormat,
+                    chunk.stream().map(key -> "?").collect(Collectors.joining(",")));
+            List<Object> params = new ArrayList<>(chunk.size() + 2);
+            params.add(first.zoneId());
+            params.add(first.origin());
+            chunk.forEach(key -> params.add(key.externalGroup()));
+            for (ScimGroupExternalMember member : jdbcTemplate.query(sql, rowMapper, params.toArray())) {
+                List<ScimGroupExternalMember> mapped = mappings.get(
+                        new ExternalGroupKey(first.zoneId(), first.origin(), member.getExternalGroup().toLowerCase()));
+                if (mapped != null) {
+                    mapped.add(member);
+                }
+            }
+        }
+        return mappings;
+    }
+
+    private static Cache<ExternalGroupKey, List<ScimGroupExternalMember>> newMappingCache(int expirationSeconds) {
+        if (expirationSeconds <= 0) {
+            return null;
+        }
+        return Caffeine.newBuilder()
+                .maximumSize(MAPPING_CACHE_MAX_ENTRIES)
+                .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private record ExternalGroupKey(String zoneId, String origin, String externalGroup) {
+    }
+
     private ScimGroupExternalMember getExternalGroupMap(final String groupId,
                                                         final String externalGroup,
                                                         final String origin,
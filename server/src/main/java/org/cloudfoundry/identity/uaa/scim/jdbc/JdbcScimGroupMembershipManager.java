@@ -13,11 +13,13 @@ import org.cloudfoundry.identity.uaa.zone.IdentityZoneProvisioning;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -25,6 +27,7 @@ import java.sql.Types;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toSet;
 import static org.springframework.util.StringUtils.hasText;
@@ -43,6 +46,8 @@ public class JdbcScimGroupMembershipManager implements ScimGroupMembershipManage
 
     private static final String GET_MEMBER_SQL = String.format("select %s from %s where member_id=? and group_id=? and identity_zone_id=?", MEMBERSHIP_FIELDS, MEMBERSHIP_TABLE);
 
+    private static final String GET_GROUP_IDS_BY_MEMBER_SQL = String.format("select group_id from %s where member_id=? and identity_zone_id=?", MEMBERSHIP_TABLE);
+
     private static final String GET_MEMBER_COUNT_SQL = String.format("select count(*) from %s where member_id=? and group_id=? and identity_zone_id=?", MEMBERSHIP_TABLE);
 
     private static final String DELETE_MEMBER_WITH_ORIGIN_SQL = String.format("delete from %s where member_id=? and origin = ? and identity_zone_id=?", MEMBERSHIP_TABLE);
@@ -66,12 +71,15 @@ public class JdbcScimGroupMembershipManager implements ScimGroupMembershipManage
     @Value("${database.maxParameters:-1}")
     private int maxSqlParameters;
 
+    private boolean useRecursiveQueries;
+
     private final JdbcTemplate jdbcTemplate;
     private final ScimUserProvisioning userProvisioning;
     private final IdentityZoneProvisioning zoneProvisioning;
     private final ScimGroupMemberRowMapper rowMapper;
     private final TimeBasedExpiringValueMap<String, ScimGroup> defaultGroupCache;
     private final String dynamicGetGroupsByMemberSqlBase;
+    private final String getAllGroupsByMemberSqlFormat;
     private final String getGroupsByExternalMemberSql;
 
     private ScimGroupProvisioning scimGroupProvisioning;
@@ -88,13 +96,27 @@ public class JdbcScimGroupMembershipManager implements ScimGroupMembershipManage
         rowMapper = new ScimGroupMemberRowMapper();
         defaultGroupCache = new TimeBasedExpiringValueMap<>(timeService);
         final String quotedGroupsIdentifier = dbUtils.getQuotedIdentifier(JdbcScimGroupProvisioning.GROUP_TABLE, this.jdbcTemplate);
+        final String groupFields = "g." + JdbcScimGroupProvisioning.GROUP_FIELDS.replace(",", ",g.");
         dynamicGetGroupsByMemberSqlBase = String.format(
-                "select %s from %s g, %s gm where gm.group_id = g.id and gm.identity_zone_id = " +
+                "select %s, gm.member_id from %s g, %s gm where gm.group_id = g.id and gm.identity_zone_id = " +
                         "g.identity_zone_id and gm.identity_zone_id = ? and gm.member_id in (",
-                "g." + JdbcScimGroupProvisioning.GROUP_FIELDS.replace(",", ",g."),
+                groupFields,
                 quotedGroupsIdentifier,
                 MEMBERSHIP_TABLE
         );
+        // %% leaves a %s for the member id placeholders
+        getAllGroupsByMemberSqlFormat = String.format(
+                "with recursive member_groups (member_id, group_id, direct) as (" +
+                        "select gm.member_id, gm.group_id, 1 from %2$s gm where gm.identity_zone_id = ? and gm.member_id in (%%s) " +
+                        "union " +
+                        "select mg.member_id, gm.group_id, 0 from member_groups mg, %2$s gm where gm.member_id = mg.group_id and gm.identity_zone_id = ?" +
+                        ") select %3$s, mg.member_id as root_member_id, mg.direct from %1$s g, member_groups mg " +
+                        "where g.id = mg.group_id and g.identity_zone_id = ?",
+                quotedGroupsIdentifier,
+                MEMBERSHIP_TABLE,
+                groupFields
+        );
+        useRecursiveQueries = dbUtils.supportsRecursiveQueries(jdbcTemplate);
         getGroupsByExternalMemberSql = String.format("select g.id, g.displayName, g.description, g.created, g.lastModified, g.version, g.identity_zone_id" +
                         " from %s m, %s g where m.group_id = g.id and g.identity_zone_id = ? and m.member_id = ? and m.origin = ?",
                 MEMBERSHIP_TABLE,
@@ -109,6 +131,14 @@ public class JdbcScimGroupMembershipManager implements ScimGroupMembershipManage
         this.maxSqlParameters = maxSqlParameters;
     }
 
+    public boolean isUseRecursiveQueries() {
+        return useRecursiveQueries;
+    }
+
+    public void setUseRecursiveQueries(boolean useRecursiveQueries) {
+        this.useRecursiveQueries = useRecursiveQueries;
+    }
+
     public void setScimGroupProvisioning(final ScimGroupProvisioning groupProvisioning) {
         this.scimGroupProvisioning = groupProvisioning;
     }
@@ -201,54 +231,132 @@ public class JdbcScimGroupMembershipManager implements ScimGroupMembershipManage
     @Override
     public Set<ScimGroup> getGroupsWithMember(final String memberId, boolean transitive, String zoneId)
             throws ScimResourceNotFoundException {
-        List<ScimGroup> results = new ArrayList<>();
-        getGroupsWithMember(results, Collections.singletonList(memberId), transitive, zoneId);
+        List<String> memberIds = Collections.singletonList(memberId);
+        Set<ScimGroup> results = new HashSet<>(transitive ?
+                getAllGroupsByMember(memberIds, zoneId).getOrDefault(memberId, emptyMap()).keySet() :
+                getGroupsByMember(memberIds, zoneId).getOrDefault(memberId, emptySet()));
         if (isUser(memberId)) {
             results.addAll(getDefaultUserGroups(zoneId));
         }
-        return new HashSet<>(results);
+        return results;
     }
 
-    private void getGroupsWithMember(List<ScimGroup> results, final List<String> memberId, boolean transitive, final String zoneId) {
-        if (results == null) {
-            return;
+    @Override
+    public Map<String, Set<ScimUser.Group>> getUserGroups(final Collection<String> userIds, final String zoneId) {
+        Map<String, Map<ScimGroup, ScimUser.Group.Type>> memberGroups = getAllGroupsByMember(userIds, zoneId);
+        Set<ScimGroup> defaultGroups = userIds.isEmpty() ? emptySet() : getDefaultUserGroups(zoneId);
+        Map<String, Set<ScimUser.Group>> result = new HashMap<>();
+        for (String userId : userIds) {
+            Map<ScimGroup, ScimUser.Group.Type> groups = new HashMap<>(memberGroups.getOrDefault(userId, emptyMap()));
+            defaultGroups.forEach(group -> groups.put(group, ScimUser.Group.Type.DIRECT));
+            result.put(userId, groups.entrySet().stream()
+                    .map(e -> new ScimUser.Group(e.getKey().getId(), e.getKey().getDisplayName(), e.getValue()))
+                    .collect(toSet()));
         }
-        if (memberId.size() == 0) {
-            return;
+        return result;
+    }
+
+    /**
+     * @return the groups that directly contain each of the given members, by member id
+     */
+    private Map<String, Set<ScimGroup>> getGroupsByMember(final Collection<String> memberIds, final String zoneId) {
+        Map<String, Set<ScimGroup>> result = new HashMap<>();
+        if (memberIds.isEmpty() || !IdentityZoneHolder.get().getId().equals(zoneId)) {
+            return result;
         }
-        if (!IdentityZoneHolder.get().getId().equals(zoneId)) {
-            return;
+        RowMapper<ScimGroup> groupRowMapper = new ScimGroupRowMapper();
+        List<String> memberList = new ArrayList<>(memberIds);
+        while (!memberList.isEmpty()) {
+            int size = maxSqlParameters > 1 ? Math.min(maxSqlParameters - 1, memberList.size()) : memberList.size();
+            List<String> chunk = memberList.subList(0, size);
+            String sql = dynamicGetGroupsByMemberSqlBase + chunk.stream().map(s -> "?").collect(Collectors.joining(", ")) + ")";
+            Object[] parameterList = ArrayUtils.addAll(new Object[] { zoneId }, chunk.toArray());
+            jdbcTemplate.query(sql, rs -> {
+                ScimGroup group = groupRowMapper.mapRow(rs, 0);
+                result.computeIfAbsent(rs.getString("member_id"), k -> new HashSet<>()).add(group);
+            }, parameterList);
+            memberList = memberList.subList(size, memberList.size());
         }
-        List<ScimGroup> groups = new ArrayList<>();
-        List<String> memberList = new ArrayList<>(memberId);
-        try {
-        	while (!memberList.isEmpty()) {
-        	    int size = maxSqlParameters > 1 ? Math.min(maxSqlParameters - 1, memberList.size()) : memberList.size();
-                StringBuilder builder = new StringBuilder(dynamicGetGroupsByMemberSqlBase);
-                builder.append(memberList.subList(0, size).stream().map(s -> "?").collect(Collectors.joining(", ")));
-                builder.append(");");
-                Object[] parameterList = ArrayUtils.addAll(new Object[] { zoneId }, memberList.subList(0, size).toArray());
-                groups.addAll(jdbcTemplate.query(builder.toString(), new ScimGroupRowMapper(), parameterList));
-                memberList = memberList.subList(size, memberList.size());
-            }
-        } catch (EmptyResultDataAccessException ex) {
-            groups = Collections.EMPTY_LIST;
+        return result;
+    }
+
+    /**
+     * @return the direct and nested groups of each of the given members, by member id. A group that contains a
+     * member both directly and through another group is {@link ScimUser.Group.Type#DIRECT}.
+     */
+    private Map<String, Map<ScimGroup, ScimUser.Group.Type>> getAllGroupsByMember(final Collection<String> memberIds, final String zoneId) {
+        if (memberIds.isEmpty() || !IdentityZoneHolder.get().getId().equals(zoneId)) {
+            return new HashMap<>();
+        }
+        return useRecursiveQueries ?
+                getAllGroupsByMemberRecursively(memberIds, zoneId) :
+                getAllGroupsByMemberIteratively(memberIds, zoneId);
+    }
+
+    /**
+     * Resolves the whole hierarchy of (a chunk of) members in one recursive query. The union in the query
+     * discards the rows already seen, which ends the recursion on cycles in the group hierarchy.
+     */
+    private Map<String, Map<ScimGroup, ScimUser.Group.Type>> getAllGroupsByMemberRecursively(final Collection<String> memberIds, final String zoneId) {
+        Map<String, Map<ScimGroup, ScimUser.Group.Type>> result = new HashMap<>();
+        RowMapper<ScimGroup> groupRowMapper = new ScimGroupRowMapper();
+        List<String> memberList = new ArrayList<>(memberIds);
+        while (!memberList.isEmpty()) {
+            int size = maxSqlParameters > 3 ? Math.min(maxSqlParameters - 3, memberList.size()) : memberList.size();
+            List<String> chunk = memberList.subList(0, size);
+            String sql = String.format(getAllGroupsByMemberSqlFormat, chunk.stream().map(s -> "?").collect(Collectors.joining(", ")));
+            Object[] parameterList = ArrayUtils.addAll(ArrayUtils.addAll(new Object[] { zoneId }, chunk.toArray()), zoneId, zoneId);
+            jdbcTemplate.query(sql, rs -> {
+                ScimGroup group = groupRowMapper.mapRow(rs, 0);
+                ScimUser.Group.Type type = rs.getInt("direct") == 1 ? ScimUser.Group.Type.DIRECT : ScimUser.Group.Type.INDIRECT;
+                result.computeIfAbsent(rs.getString("root_member_id"), k -> new HashMap<>()).merge(group, type, JdbcScimGroupMembershipManager::preferDirect);
+            }, parameterList);
+            memberList = memberList.subList(size, memberList.size());
         }
+        return result;
+    }
 
-        List<String> nextLevel = new ArrayList<>();
-        for (ScimGroup group : groups) {
-            if (!results.contains(group)) { // to ensure we don't go into
-                // infinite recursion caused by
-                // nested group cycles
-                results.add(group);
-                nextLevel.add(group.getId());
-            }
+    /**
+     * Resolves the hierarchy breadth first for databases without recursive queries: one query (per chunk) per
+     * nesting level for all members together, then the closure of every member in memory.
+     */
+    private Map<String, Map<ScimGroup, ScimUser.Group.Type>> getAllGroupsByMemberIteratively(final Collection<String> memberIds, final String zoneId) {
+        Map<String, Set<ScimGroup>> directGroups = getGroupsByMember(memberIds, zoneId);
+
+        Map<String, Set<ScimGroup>> parentGroups = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        Set<String> nextLevel = directGroups.values().stream().flatMap(Set::stream).map(ScimGroup::getId).collect(toSet());
+        while (!nextLevel.isEmpty()) {
+            visited.addAll(nextLevel);
+            Map<String, Set<ScimGroup>> parents = getGroupsByMember(nextLevel, zoneId);
+            parentGroups.putAll(parents);
+            nextLevel = parents.values().stream()
+                    .flatMap(Set::stream)
+                    .map(ScimGroup::getId)
+                    .filter(id -> !visited.contains(id))
+                    .collect(toSet());
         }
-        if (transitive) {
-            getGroupsWithMember(results, nextLevel, transitive, zoneId);
+
+        Map<String, Map<ScimGroup, ScimUser.Group.Type>> result = new HashMap<>();
+        for (Map.Entry<String, Set<ScimGroup>> member : directGroups.entrySet()) {
+            Map<ScimGroup, ScimUser.Group.Type> groups = new HashMap<>();
+            member.getValue().forEach(group -> groups.put(group, ScimUser.Group.Type.DIRECT));
+            Deque<ScimGroup> pending = new ArrayDeque<>(member.getValue());
+            while (!pending.isEmpty()) {
+                for (ScimGroup parent : parentGroups.getOrDefault(pending.poll().getId(), emptySet())) {
+                    if (groups.putIfAbsent(parent, ScimUser.Group.Type.INDIRECT) == null) {
+                        pending.add(parent);
+                    }
+                }
+            }
+            result.put(member.getKey(), groups);
         }
+        return result;
     }
 
+    private static ScimUser.Group.Type preferDirect(ScimUser.Group.Type a, ScimUser.Group.Type b) {
+        return a == ScimUser.Group.Type.DIRECT ? a : b;
+    }
 
     @Override
     public Set<ScimGroup> getGroupsWithExternalMember(final String memberId, final String origin, String zoneId) throws ScimResourceNotFoundException {
@@ -313,6 +421,58 @@ public class JdbcScimGroupMembershipManager implements ScimGroupMembershipManage
         return getMembers(groupId, false, zoneId);
     }
 
+    @Override
+    public void updateUserMemberships(final String memberId,
+                                      final String origin,
+                                      final Collection<String> addToGroupIds,
+                                      final Collection<String> removeFromGroupIds,
+                                      final String zoneId) {
+        if (!removeFromGroupIds.isEmpty()) {
+            logger.debug("Removing member:{} from {} groups",
+                    UaaStringUtils.getCleanedUserControlString(memberId), removeFromGroupIds.size());
+            jdbcTemplate.batchUpdate(DELETE_MEMBER_SQL, removeFromGroupIds.stream()
+                    .map(groupId -> new Object[]{memberId, groupId, zoneId})
+                    .toList());
+        }
+        if (addToGroupIds.isEmpty()) {
+            return;
+        }
+        Set<String> skip = new HashSet<>(jdbcTemplate.queryForList(GET_GROUP_IDS_BY_MEMBER_SQL, String.class, memberId, zoneId));
+        getDefaultUserGroups(zoneId).forEach(group -> skip.add(group.getId()));
+        skip.add(memberId);
+        List<String> groupIds = addToGroupIds.stream().distinct().filter(groupId -> !skip.contains(groupId)).toList();
+        if (groupIds.isEmpty()) {
+            return;
+        }
+        logger.debug("Adding member:{} to {} groups",
+                UaaStringUtils.getCleanedUserControlString(memberId), groupIds.size());
+        Timestamp added = new Timestamp(System.currentTimeMillis());
+        try {
+            jdbcTemplate.batchUpdate(ADD_MEMBER_SQL, groupIds, groupIds.size(),
+                    (ps, groupId) -> setUserMembership(ps, groupId, memberId, origin, added, zoneId));
+        } catch (DuplicateKeyException e) {
+            // a concurrent login of the same user added some of them, add the others one by one
+            for (String groupId : groupIds) {
+                try {
+                    jdbcTemplate.update(ADD_MEMBER_SQL, ps -> setUserMembership(ps, groupId, memberId, origin, added, zoneId));
+                } catch (DuplicateKeyException ignored) {
+                    // already a member
+                }
+            }
+        }
+    }
+
+    private static void setUserMembership(PreparedStatement ps, String groupId, String memberId, String origin,
+                                          Timestamp added, String zoneId) throws SQLException {
+        ps.setString(1, groupId);
+        ps.setString(2, memberId);
+        ps.setString(3, ScimGroupMember.Type.USER.toString());
+        ps.setNull(4, Types.VARCHAR);
+        ps.setTimestamp(5, added);
+        ps.setString(6, origin);
+        ps.setString(7, zoneId);
+    }
+
     @Override
     public ScimGroupMember removeMemberById(final String groupId, final String memberId, final String zoneId)
             throws ScimResourceNotFoundException, MemberNotFoundException {
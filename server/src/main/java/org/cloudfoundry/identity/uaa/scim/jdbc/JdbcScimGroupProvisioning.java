@@ -26,10 +26,13 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.util.StringUtils;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -54,11 +57,14 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
     protected static final String GROUP_TABLE = "groups";
     private static final String GROUP_MEMBERSHIP_TABLE = "group_membership";
     private static final String EXTERNAL_GROUP_TABLE = "external_group_mapping";
+    private static final int MAX_NAMES_PER_QUERY = 100;
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "created", "lastmodified", "displayname");
 
     final String addGroupSql;
     private final String updateGroupSql;
     private final String getGroupSql;
     private final String getGroupByNameSql;
+    private final String getGroupsByNamesSqlFormat;
     private final String queryForFilter;
     private final String deleteGroupSql;
     private final String deleteGroupSqlByIdZoneVersion;
@@ -100,6 +106,11 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
                 GROUP_FIELDS,
                 quotedGroupsTableName
         );
+        getGroupsByNamesSqlFormat = String.format(
+                "select %s from %s where LOWER(identity_zone_id)=LOWER(?) and LOWER(displayName) in (%%s)",
+                GROUP_FIELDS,
+                quotedGroupsTableName
+        );
         queryForFilter = String.format(
                 "select %s from %s",
                 GROUP_FIELDS,
@@ -198,6 +209,21 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
         }
     }
 
+    @Override
+    public List<ScimGroup> getByNames(Collection<String> displayNames, String zoneId) {
+        List<String> names = displayNames.stream().filter(StringUtils::hasText).distinct().toList();
+        List<ScimGroup> groups = new ArrayList<>(names.size());
+        for (int from = 0; from < names.size(); from += MAX_NAMES_PER_QUERY) {
+            List<String> chunk = names.subList(from, Math.min(names.size(), from + MAX_NAMES_PER_QUERY));
+            String sql = String.format(getGroupsByNamesSqlFormat, String.join(",", Collections.nCopies(chunk.size(), "LOWER(?)")));
+            List<Object> params = new ArrayList<>(chunk.size() + 1);
+            params.add(zoneId);
+            params.addAll(chunk);
+            groups.addAll(jdbcTemplate.query(sql, rowMapper, params.toArray()));
+        }
+        return groups;
+    }
+
     @Override
     public void onApplicationEvent(AbstractUaaEvent event) {
         if (event instanceof IdentityZoneModifiedEvent zevent && zevent.getEventType() == AuditEventType.IdentityZoneCreatedEvent) {
@@ -313,6 +339,7 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
             if (updated != 1) {
                 throw new IncorrectResultSizeDataAccessException(1, updated);
             }
+            evictExternalGroupMappings(zoneId); // the mappings carry the group's displayName
             return retrieve(id, zoneId);
         } catch (DuplicateKeyException ex) {
             throw new InvalidScimResourceException("A group with displayName: " + group.getDisplayName()
@@ -343,6 +370,7 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
         jdbcTemplate.update(deleteZoneAdminMembershipByZone, IdentityZone.getUaaZoneId(), "zones." + zoneId + ".%");
         jdbcTemplate.update(deleteZoneAdminGroupsByZone, IdentityZone.getUaaZoneId(), "zones." + zoneId + ".%");
         jdbcTemplate.update(deleteExternalGroupByZone, zoneId);
+        evictExternalGroupMappings(zoneId);
         jdbcTemplate.update(deleteGroupMembershipByZone, zoneId);
         return jdbcTemplate.update(deleteGroupByZone, zoneId);
     }
@@ -350,6 +378,7 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
     @Override
     public int deleteByOrigin(String origin, String zoneId) {
         jdbcTemplate.update(deleteExternalGroupByProvider, zoneId, origin);
+        evictExternalGroupMappings(zoneId);
         return jdbcTemplate.update(deleteGroupMembershipByProvider, zoneId, origin);
     }
 
@@ -358,6 +387,12 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
         return jdbcTemplate.update(deleteMemberSql, userId, userId, zoneId);
     }
 
+    private void evictExternalGroupMappings(String zoneId) {
+        if (jdbcScimGroupExternalMembershipManager != null) {
+            jdbcScimGroupExternalMembershipManager.evictMappingCache(zoneId);
+        }
+    }
+
     private void validateGroup(ScimGroup group) throws ScimResourceConstraintFailedException {
         validateZoneId(group.getZoneId());
     }
@@ -373,6 +408,11 @@ public class JdbcScimGroupProvisioning extends AbstractQueryable<ScimGroup>
         super.validateOrderBy(orderBy, GROUP_FIELDS);
     }
 
+    @Override
+    protected Set<String> getKeysetSortFields() {
+        return KEYSET_SORT_FIELDS;
+    }
+
     private void validateAllowedUserGroups(String zoneId, ScimGroup group) {
         Set<String> allowedGroups = getAllowedUserGroups(zoneId);
         if ((allowedGroups != null) && (!allowedGroups.contains(group.getDisplayName()))) {
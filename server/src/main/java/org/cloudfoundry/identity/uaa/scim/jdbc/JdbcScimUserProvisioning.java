@@ -28,6 +28,7 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.cloudfoundry.identity.uaa.audit.event.SystemDeletable;
@@ -125,6 +126,8 @@ public class JdbcScimUserProvisioning extends AbstractQueryable<ScimUser>
 
     public static final String USER_COUNT_BY_ZONE = "select count(*) from users where identity_zone_id = ?";
 
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "created", "lastmodified", "username");
+
     protected final JdbcTemplate jdbcTemplate;
 
     private final PasswordEncoder passwordEncoder;
@@ -595,6 +598,11 @@ public class JdbcScimUserProvisioning extends AbstractQueryable<ScimUser>
         super.validateOrderBy(orderBy, USER_FIELDS.replace(",salt", ""));
     }
 
+    @Override
+    protected Set<String> getKeysetSortFields() {
+        return KEYSET_SORT_FIELDS;
+    }
+
     @Override
     public void updateLastLogonTime(String id, String zoneId) {
         jdbcTemplate.update(UPDATE_LAST_LOGON_TIME_SQL, timeService.getCurrentTimeMillis(), id, zoneId);
@@ -0,0 +1,146 @@
+package org.cloudfoundry.identity.uaa.util;
+
+import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the phases of a startup bootstrap (prefetching the existing entities, computing what changed, applying the
+ * changes) and reports how long each of them took.
+ * <p>
+ * {@link #forEach(String, Collection, Consumer)} processes the items of a phase on a bounded pool of threads, as
+ * applying a change is mostly spent hashing secrets and waiting for the database. The items run in the identity zone
+ * of the calling thread. Once an item failed no further items are started, and the first failure is rethrown after
+ * the running ones completed.
+ */
+public class BootstrapPhases {
+
+    public static final int DEFAULT_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final Logger logger = LoggerFactory.getLogger(BootstrapPhases.class);
+
+    private final String name;
+    private final int parallelism;
+    private final long started = System.nanoTime();
+    private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * @param name        what is bootstrapped, used to name the threads and in the report
+     * @param parallelism maximum number of items processed at the same time, 1 processes them on the calling thread
+     */
+    public BootstrapPhases(String name, int parallelism) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public <T> T run(String phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    public void run(String phase, Runnable action) {
+        run(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> void forEach(String phase, Collection<T> items, Consumer<T> action) {
+        long start = System.nanoTime();
+        try {
+            if (parallelism == 1 || items.size() <= 1) {
+                items.forEach(action);
+            } else {
+                forEachInParallel(items, action);
+            }
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    /**
+     * Logs how long each phase took.
+     */
+    public void report() {
+        if (logger.isInfoEnabled()) {
+            logger.info("Bootstrapped {} in {} ms ({})", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                    getPhaseMillis().entrySet().stream()
+                            .map(e -> e.getKey() + ": " + e.getValue() + " ms")
+                            .collect(Collectors.joining(", ")));
+        }
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        synchronized (phaseMillis) {
+            return new LinkedHashMap<>(phaseMillis);
+        }
+    }
+
+    private void record(String phase, long start) {
+        phaseMillis.merge(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Long::sum);
+    }
+
+    private <T> void forEachInParallel(Collection<T> items, Consumer<T> action) {
+        IdentityZone zone = IdentityZoneHolder.get();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()), runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap-" + name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            List<Future<?>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                    IdentityZoneHolder.set(zone);
+                    try {
+                        action.accept(item);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        IdentityZoneHolder.clear();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while bootstrapping " + name, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to bootstrap " + name, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package org.cloudfoundry.identity.uaa.util;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetricSummary;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.codec.Hex;
 import org.springframework.security.crypto.codec.Utf8;
@@ -14,39 +20,68 @@ import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import static org.springframework.security.crypto.util.EncodingUtils.concatenate;
 
 /**
- * Wrapper around a slow password encoder that does a fast translation in memory only
- * This uses a hash to as a key to store a list of
+ * Wrapper around a slow password encoder that does a fast translation in memory only.
+ * <p>
+ * A salted, iterated SHA-256 of the raw password is used as the key to a short list of encoded passwords that
+ * the raw password is already known to match. The cache is size bounded with W-TinyLFU eviction, so a burst of
+ * new keys evicts the least valuable entries rather than the whole cache. Lookups take no lock: each thread
+ * digests with its own {@link MessageDigest} and the cached lists are immutable and replaced on update.
  */
-public class CachingPasswordEncoder implements PasswordEncoder {
+public class CachingPasswordEncoder implements PasswordEncoder, CacheMetrics {
 
-    private final MessageDigest messageDigest;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final ThreadLocal<MessageDigest> messageDigest;
     private final byte[] secret;
     private final byte[] salt;
 
     private final int ITERATIONS = 25;
-    private final int MAX_KEYS = 1000;
     private final int MAX_ENCODED_PASSWORDS = 5;
-    private final Duration CACHE_TTL = Duration.ofMinutes(5L);
 
-    private volatile Cache<CharSequence, Set<String>> cache = null;
+    private final int maxKeys;
+    private final Cache<String, List<String>> cache;
 
     private final PasswordEncoder passwordEncoder;
 
     CachingPasswordEncoder(final PasswordEncoder passwordEncoder) throws NoSuchAlgorithmException {
+        this(passwordEncoder, 1000, 300);
+    }
+
+    @Autowired
+    CachingPasswordEncoder(
+            final @Qualifier("nonCachingPasswordEncoder") PasswordEncoder passwordEncoder,
+            final @Value("${passwordEncoder.cache.maxKeys:1000}") int maxKeys,
+            final @Value("${passwordEncoder.cache.expirationSeconds:300}") int expirationSeconds
+    ) throws NoSuchAlgorithmException {
+        this(passwordEncoder, maxKeys, Duration.ofSeconds(expirationSeconds), Ticker.systemTicker());
+    }
+
+    CachingPasswordEncoder(
+            final PasswordEncoder passwordEncoder,
+            final int maxKeys,
+            final Duration expiration,
+            final Ticker ticker
+    ) throws NoSuchAlgorithmException {
+        // fail on construction rather than on the first password check
+        MessageDigest.getInstance(DIGEST_ALGORITHM);
         this.passwordEncoder = passwordEncoder;
-        this.messageDigest = MessageDigest.getInstance("SHA-256");
+        this.messageDigest = ThreadLocal.withInitial(CachingPasswordEncoder::newMessageDigest);
         this.secret = Utf8.encode(new RandomValueStringGenerator().generate());
         this.salt = KeyGenerators.secureRandom().generateKey();
-        buildCache();
+        this.maxKeys = maxKeys;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(expiration.toMillis(), TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
     }
 
     @Override
@@ -61,43 +96,51 @@ public class CachingPasswordEncoder implements PasswordEncoder {
         return internalMatches(cacheKey, rawPassword, encodedPassword);
     }
 
+    @Override
+    public String getCacheName() {
+        return "passwordEncoder";
+    }
+
+    @Override
+    public CacheMetricSummary getCacheMetrics() {
+        return CacheMetrics.summarize(cache);
+    }
+
     // internal helpers
 
-    Set<String> getOrCreateHashList(String cacheKey) {
-        Set<String> result = cache.getIfPresent(cacheKey);
-        if (result == null) {
-            if (cache.size() >= MAX_KEYS) {
-                cache.invalidateAll();
-            }
-            cache.put(cacheKey, Collections.synchronizedSet(new LinkedHashSet<>()));
-        }
-        return cache.getIfPresent(cacheKey);
+    List<String> getHashList(String cacheKey) {
+        List<String> result = cache.getIfPresent(cacheKey);
+        return result != null ? result : Collections.emptyList();
     }
 
     private boolean internalMatches(String cacheKey, CharSequence rawPassword, String encodedPassword) {
-        Set<String> cacheValue = cache.getIfPresent(cacheKey);
-        boolean result = false;
-        List<String> searchList = (cacheValue != null ? new ArrayList<>(cacheValue) : Collections.emptyList());
-        for (String encoded : searchList) {
+        if (encodedPassword == null) {
+            return passwordEncoder.matches(rawPassword, null);
+        }
+        for (String encoded : getHashList(cacheKey)) {
             if (hashesEquals(encoded, encodedPassword)) {
                 return true;
             }
         }
         if (passwordEncoder.matches(rawPassword, encodedPassword)) {
-            result = true;
-            cacheValue = getOrCreateHashList(cacheKey);
-            if (cacheValue != null) {
-                //this list should never grow very long.
-                //Only if you store multiple versions of the same password more than once
-                if (cacheValue.size() >= MAX_ENCODED_PASSWORDS) {
-                    cacheValue.clear();
-                }
-                cacheValue.add(encodedPassword);
-            }
+            cache.asMap().merge(cacheKey, List.of(encodedPassword), this::append);
+            return true;
         }
-        return result;
+        return false;
     }
 
+    private List<String> append(List<String> cached, List<String> added) {
+        if (cached.containsAll(added)) {
+            return cached;
+        }
+        //this list should never grow very long.
+        //Only if you store multiple versions of the same password more than once
+        List<String> result = new ArrayList<>(cached.size() + added.size());
+        result.addAll(cached);
+        result.addAll(added);
+        int overflow = result.size() - MAX_ENCODED_PASSWORDS;
+        return List.copyOf(overflow > 0 ? result.subList(overflow, result.size()) : result);
+    }
 
     String cacheEncode(CharSequence rawPassword) {
         byte[] digest = digest(rawPassword);
@@ -110,31 +153,35 @@ public class CachingPasswordEncoder implements PasswordEncoder {
     }
 
     private byte[] digest(byte[] value) {
-        synchronized (messageDigest) {
-            for (int i = 0; i < ITERATIONS; i++) {
-                value = messageDigest.digest(value);
-            }
-            return value;
+        MessageDigest digest = messageDigest.get();
+        for (int i = 0; i < ITERATIONS; i++) {
+            value = digest.digest(value);
         }
+        return value;
     }
 
-    private boolean hashesEquals(String a, String b) {
-        char[] caa = a.toCharArray();
-        char[] cab = b.toCharArray();
+    private static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-        if (caa.length != cab.length) {
+    private boolean hashesEquals(String a, String b) {
+        if (a.length() != b.length()) {
             return false;
         }
 
-        byte ret = 0;
-        for (int i = 0; i < caa.length; i++) {
-            ret |= caa[i] ^ cab[i];
+        int ret = 0;
+        for (int i = 0; i < a.length(); i++) {
+            ret |= a.charAt(i) ^ b.charAt(i);
         }
         return ret == 0;
     }
 
     int getMaxKeys() {
-        return MAX_KEYS;
+        return maxKeys;
     }
 
     int getMaxEncodedPasswords() {
@@ -142,16 +189,11 @@ public class CachingPasswordEncoder implements PasswordEncoder {
     }
 
     long getNumberOfKeys() {
-        return cache.size();
+        cache.cleanUp();
+        return cache.estimatedSize();
     }
 
-    ConcurrentMap<CharSequence, Set<String>> asMap() {
+    ConcurrentMap<String, List<String>> asMap() {
         return cache.asMap();
     }
-
-    void buildCache() {
-        cache = CacheBuilder.newBuilder()
-                .expireAfterWrite(CACHE_TTL.getSeconds(), TimeUnit.SECONDS)
-                .build();
-    }
 }
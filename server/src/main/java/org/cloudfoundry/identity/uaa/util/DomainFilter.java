@@ -20,14 +20,11 @@ import org.cloudfoundry.identity.uaa.provider.IdentityProvider;
 import org.cloudfoundry.identity.uaa.oauth.provider.ClientDetails;
 import org.springframework.util.StringUtils;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.EMPTY_LIST;
-import static org.cloudfoundry.identity.uaa.constants.OriginKeys.UAA;
 
 public class DomainFilter {
 
@@ -45,38 +42,37 @@ public class DomainFilter {
         if (activeProviders!=null && activeProviders.size()>0) {
             //filter client providers
             List<String> clientFilter = getProvidersForClient(client);
-            if (clientFilter!=null) {
-                activeProviders =
-                    activeProviders.stream().filter(
-                        p -> clientFilter.contains(p.getOriginKey())
-                    ).collect(Collectors.toList());
-            }
             //filter for email domain
             if (email!=null && email.contains("@")) {
                 final String domain = email.substring(email.indexOf('@') + 1);
-                List<IdentityProvider> explicitlyMatched =
-                    activeProviders.stream().filter(
-                        p -> doesEmailDomainMatchProvider(p, domain, true)
-                    ).collect(Collectors.toList());
+                EmailDomainIndex index = EmailDomainIndex.of(activeProviders);
+                List<IdentityProvider> explicitlyMatched = filterForClient(index.match(activeProviders, domain, true), clientFilter);
                 if (explicitlyMatched.size()>0 || !useUaaFallback) {
                     return explicitlyMatched;
                 }
 
-                activeProviders =
-                    activeProviders.stream().filter(
-                        p -> doesEmailDomainMatchProvider(p, domain, false)
-                    ).collect(Collectors.toList());
+                return filterForClient(index.match(activeProviders, domain, false), clientFilter);
             }
+            activeProviders = filterForClient(activeProviders, clientFilter);
         }
         return activeProviders != null ? activeProviders : EMPTY_LIST;
     }
 
+    private static List<IdentityProvider> filterForClient(List<IdentityProvider> providers, List<String> clientFilter) {
+        if (clientFilter==null) {
+            return providers;
+        }
+        return providers.stream().filter(
+            p -> clientFilter.contains(p.getOriginKey())
+        ).collect(Collectors.toList());
+    }
+
     public static List<IdentityProvider> getIdpsForEmailDomain(List<IdentityProvider> activeProviders, String email) {
         if (!StringUtils.hasText(email) || !email.contains("@")) {
             return EMPTY_LIST;
         }
         final String domain = email.substring(email.indexOf('@') + 1);
-        return activeProviders.stream().filter(provider -> doesEmailDomainMatchProvider(provider, domain, true)).collect(Collectors.toList());
+        return EmailDomainIndex.of(activeProviders).match(activeProviders, domain, true);
     }
 
     protected static List<String> getProvidersForClient(ClientDetails client) {
@@ -96,21 +92,8 @@ public class DomainFilter {
 
 
     protected static boolean doesEmailDomainMatchProvider(IdentityProvider provider, String domain, boolean explicit) {
-        List<String> domainList = getEmailDomain(provider);
-        List<String> wildcardList;
-        wildcardList = domainList;
-        if (!explicit) {
-            if (UAA.equals(provider.getOriginKey())) {
-                wildcardList = domainList == null ? Arrays.asList("*.*", "*.*.*", "*.*.*.*") : domainList;
-            }
-        }
-
-        if (wildcardList==null) {
-            return false;
-        } else {
-            Set<Pattern> patterns = UaaStringUtils.constructWildcards(wildcardList);
-            return UaaStringUtils.matches(patterns, domain);
-        }
+        List<IdentityProvider> providers = Collections.singletonList(provider);
+        return !EmailDomainIndex.of(providers).match(providers, domain, explicit).isEmpty();
     }
 
 }
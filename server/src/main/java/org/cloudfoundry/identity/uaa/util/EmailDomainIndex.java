@@ -0,0 +1,121 @@
+package org.cloudfoundry.identity.uaa.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.cloudfoundry.identity.uaa.provider.IdentityProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.cloudfoundry.identity.uaa.constants.OriginKeys.UAA;
+
+/**
+ * Matches email domains against the {@code emailDomain} lists of a list of identity providers, with the semantics of
+ * {@link UaaStringUtils#constructSimpleWildcardPattern(String)}: a {@code *} stands for one or more characters other
+ * than a dot, everything else is literal.
+ * <p>
+ * Domains without wildcards are kept in a hash map, patterns with wildcards in a {@link WildcardLabelTrie} of their
+ * labels from the last to the first, so that domains are told apart by their top level labels first. The UAA provider
+ * without email domains is the fallback for domains of two to four labels, as {@code *.*} to {@code *.*.*.*}.
+ * <p>
+ * The index of a zone only changes with the origin keys and email domains of its providers, which are the key of the
+ * cache of indexes.
+ */
+public final class EmailDomainIndex {
+
+    private static final List<String> UAA_FALLBACK_DOMAINS = List.of("*.*", "*.*.*", "*.*.*.*");
+
+    private static final Cache<List<ProviderDomains>, EmailDomainIndex> INDEXES = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    private final Map<String, BitSet> exact = new HashMap<>();
+    private final Map<String, BitSet> exactFallback = new HashMap<>();
+    private final WildcardLabelTrie<Providers> wildcards = new WildcardLabelTrie<>();
+
+    private EmailDomainIndex(List<ProviderDomains> providers) {
+        for (int i = 0; i < providers.size(); i++) {
+            ProviderDomains provider = providers.get(i);
+            if (provider.emailDomains() != null) {
+                provider.emailDomains().forEach(domain -> add(domain, i, false));
+            } else if (UAA.equals(provider.originKey())) {
+                UAA_FALLBACK_DOMAINS.forEach(domain -> add(domain, i, true));
+            }
+        }
+    }
+
+    /**
+     * @return the index of the email domains of the providers, in the order of the list
+     */
+    public static EmailDomainIndex of(List<IdentityProvider> providers) {
+        List<ProviderDomains> key = new ArrayList<>(providers.size());
+        for (IdentityProvider provider : providers) {
+            List<String> emailDomains = provider.getConfig() == null ? null : provider.getConfig().getEmailDomain();
+            key.add(new ProviderDomains(provider.getOriginKey(), emailDomains == null ? null : Collections.unmodifiableList(new ArrayList<>(emailDomains))));
+        }
+        return INDEXES.get(Collections.unmodifiableList(key), EmailDomainIndex::new);
+    }
+
+    /**
+     * @param explicit whether to leave out the UAA provider matching as fallback
+     * @return the providers, of the list the index was built from, whose email domains match the domain
+     */
+    public <T extends IdentityProvider> List<T> match(List<T> providers, String domain, boolean explicit) {
+        BitSet matched = matches(domain, explicit);
+        List<T> result = new ArrayList<>(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(providers.get(i));
+        }
+        return result;
+    }
+
+    BitSet matches(String domain, boolean explicit) {
+        BitSet matched = new BitSet();
+        or(matched, exact.get(domain));
+        if (!explicit) {
+            or(matched, exactFallback.get(domain));
+        }
+        wildcards.forEachMatch(reversedLabels(domain), providers -> {
+            matched.or(providers.providers());
+            if (!explicit) {
+                matched.or(providers.fallback());
+            }
+        });
+        return matched;
+    }
+
+    private void add(String domain, int provider, boolean fallback) {
+        if (domain == null) {
+            return;
+        }
+        if (!domain.contains("*")) {
+            (fallback ? exactFallback : exact).computeIfAbsent(domain, d -> new BitSet()).set(provider);
+            return;
+        }
+        Providers providers = wildcards.computeIfAbsent(reversedLabels(domain), () -> new Providers(new BitSet(), new BitSet()));
+        (fallback ? providers.fallback() : providers.providers()).set(provider);
+    }
+
+    private static String[] reversedLabels(String domain) {
+        String[] labels = domain.split("\\.", -1);
+        Collections.reverse(Arrays.asList(labels));
+        return labels;
+    }
+
+    private static void or(BitSet matched, BitSet providers) {
+        if (providers != null) {
+            matched.or(providers);
+        }
+    }
+
+    private record ProviderDomains(String originKey, List<String> emailDomains) {
+    }
+
+    private record Providers(BitSet providers, BitSet fallback) {
+    }
+}
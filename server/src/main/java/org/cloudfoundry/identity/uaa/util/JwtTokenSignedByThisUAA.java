@@ -20,9 +20,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 
@@ -224,11 +222,10 @@ public abstract class JwtTokenSignedByThisUAA {
 
     protected JwtTokenSignedByThisUAA checkRequestedScopesAreGranted(Collection<String> grantedScopes) {
         List<String> requestedScopes = requestedScopes();
-        Set<Pattern> grantedScopePatterns = UaaStringUtils.constructWildcards(grantedScopes);
+        ScopeMatcher grantedScopePatterns = ScopeMatcher.of(grantedScopes);
         List<String> missingScopes =
                 requestedScopes.stream().filter(
-                        requestedScope -> grantedScopePatterns.stream()
-                                .noneMatch(grantedScopePattern -> grantedScopePattern.matcher(requestedScope).matches())
+                        requestedScope -> !grantedScopePatterns.matches(requestedScope)
                 ).collect(toList());
         if (!missingScopes.isEmpty()) {
             String scopeClaimKey = scopeClaimKey().keyName();
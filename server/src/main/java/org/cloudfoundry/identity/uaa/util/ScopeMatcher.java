@@ -0,0 +1,72 @@
+package org.cloudfoundry.identity.uaa.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Matches scopes against a set of scopes that may contain wildcards, with the semantics of
+ * {@link UaaStringUtils#constructWildcards(Collection)}: a {@code *} stands for one or more characters other than a
+ * dot, everything else is literal.
+ * <p>
+ * Scopes without wildcards are kept in a hash set, scopes with wildcards in a {@link WildcardLabelTrie} of their dot
+ * separated parts. Matchers are immutable; those of sets with wildcards are shared through a cache keyed by the set,
+ * so the scopes of a client, or the authorities of a user, are not compiled again on every request.
+ */
+public final class ScopeMatcher {
+
+    private static final Cache<Set<String>, ScopeMatcher> MATCHERS = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    private final Set<String> exact;
+    private final WildcardLabelTrie<Boolean> wildcards;
+
+    private ScopeMatcher(Set<String> scopes) {
+        Set<String> literal = new HashSet<>();
+        WildcardLabelTrie<Boolean> trie = null;
+        for (String scope : scopes) {
+            if (scope == null) {
+                continue;
+            }
+            if (!scope.contains("*")) {
+                literal.add(scope);
+                continue;
+            }
+            if (trie == null) {
+                trie = new WildcardLabelTrie<>();
+            }
+            trie.computeIfAbsent(scope.split("\\.", -1), () -> Boolean.TRUE);
+        }
+        this.exact = literal;
+        this.wildcards = trie;
+    }
+
+    /**
+     * @return the matcher for the scopes
+     */
+    public static ScopeMatcher of(Collection<String> scopes) {
+        Set<String> key = Collections.unmodifiableSet(new HashSet<>(scopes));
+        if (key.stream().noneMatch(scope -> scope != null && scope.contains("*"))) {
+            return new ScopeMatcher(key);
+        }
+        return MATCHERS.get(key, ScopeMatcher::new);
+    }
+
+    /**
+     * @return true if the scope is one of the scopes of the matcher, or matches one of its wildcards
+     */
+    public boolean matches(String scope) {
+        if (scope == null) {
+            return false;
+        }
+        if (exact.contains(scope)) {
+            return true;
+        }
+        return wildcards != null && wildcards.anyMatch(scope.split("\\.", -1), matched -> true);
+    }
+}
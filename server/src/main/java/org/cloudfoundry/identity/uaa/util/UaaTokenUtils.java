@@ -138,10 +138,10 @@ public final class UaaTokenUtils {
             result.addAll(requestedScopes);
             return result;
         }
-        Set<Pattern> autoApprovedScopePatterns = UaaStringUtils.constructWildcards(autoApprovedScopes);
+        ScopeMatcher autoApprovedScopePatterns = ScopeMatcher.of(autoApprovedScopes);
         // Don't want to approve more than what's requested
         for (String scope : requestedScopes) {
-            if (UaaStringUtils.matches(autoApprovedScopePatterns, scope)) {
+            if (autoApprovedScopePatterns.matches(scope)) {
                 result.add(scope);
             }
         }
@@ -42,6 +42,9 @@ public abstract class UaaUrlUtils {
 
     private static final int MAX_URI_DECODES = 5;
 
+    /** Shared so that the patterns of the whitelists are tokenized once, rather than on every redirect. */
+    private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+
     public static String getUaaUrl(String path, IdentityZone currentIdentityZone) {
         return getUaaUrl(path, false, currentIdentityZone);
     }
@@ -108,7 +111,7 @@ public abstract class UaaUrlUtils {
      * @return a redirect URI, either the requested or fallback as described above
      */
     public static String findMatchingRedirectUri(Collection<String> redirectUris, String requestedRedirectUri, String fallbackRedirectUri) {
-        AntPathMatcher matcher = new AntPathMatcher();
+        AntPathMatcher matcher = ANT_PATH_MATCHER;
 
         for (String pattern : ofNullable(redirectUris).orElse(emptyList())) {
             if (matcher.match(pattern, requestedRedirectUri)) {
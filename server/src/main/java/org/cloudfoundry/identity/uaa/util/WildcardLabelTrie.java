@@ -0,0 +1,94 @@
+package org.cloudfoundry.identity.uaa.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * A trie of dot separated patterns, with the semantics of {@link UaaStringUtils#constructSimpleWildcardPattern(String)}
+ * for each label: a {@code *} stands for one or more characters other than a dot, everything else is literal.
+ * <p>
+ * A label of a pattern is either literal, kept in a hash map, a lone {@code *}, or a mix compiled once into a pattern,
+ * so that a lookup walks the labels of a value once rather than trying every pattern. Each pattern holds a value of
+ * type {@code V}. Not thread safe while patterns are added.
+ */
+final class WildcardLabelTrie<V> {
+
+    private final Map<String, WildcardLabelTrie<V>> literals = new HashMap<>();
+    private final Map<String, Glob<V>> globs = new LinkedHashMap<>();
+    private WildcardLabelTrie<V> any;
+    private V value;
+
+    /**
+     * @return the value of the pattern made of the labels, added if absent
+     */
+    V computeIfAbsent(String[] labels, Supplier<V> supplier) {
+        WildcardLabelTrie<V> node = this;
+        for (String label : labels) {
+            node = node.child(label);
+        }
+        if (node.value == null) {
+            node.value = supplier.get();
+        }
+        return node.value;
+    }
+
+    /**
+     * Tests the values of the patterns matching the labels, until one passes.
+     *
+     * @return true if the value of a matching pattern passed the test
+     */
+    boolean anyMatch(String[] labels, Predicate<V> test) {
+        return anyMatch(labels, 0, test);
+    }
+
+    /**
+     * Passes the values of all the patterns matching the labels to the action.
+     */
+    void forEachMatch(String[] labels, Consumer<V> action) {
+        anyMatch(labels, 0, matched -> {
+            action.accept(matched);
+            return false;
+        });
+    }
+
+    private boolean anyMatch(String[] labels, int index, Predicate<V> test) {
+        if (index == labels.length) {
+            return value != null && test.test(value);
+        }
+        String label = labels[index];
+        WildcardLabelTrie<V> literal = literals.get(label);
+        if (literal != null && literal.anyMatch(labels, index + 1, test)) {
+            return true;
+        }
+        if (any != null && !label.isEmpty() && any.anyMatch(labels, index + 1, test)) {
+            return true;
+        }
+        for (Glob<V> glob : globs.values()) {
+            if (glob.pattern().matcher(label).matches() && glob.node().anyMatch(labels, index + 1, test)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private WildcardLabelTrie<V> child(String label) {
+        if ("*".equals(label)) {
+            if (any == null) {
+                any = new WildcardLabelTrie<>();
+            }
+            return any;
+        }
+        if (label.contains("*")) {
+            return globs.computeIfAbsent(label, l -> new Glob<>(Pattern.compile(UaaStringUtils.constructSimpleWildcardPattern(l)), new WildcardLabelTrie<>())).node();
+        }
+        return literals.computeIfAbsent(label, l -> new WildcardLabelTrie<>());
+    }
+
+    private record Glob<V>(Pattern pattern, WildcardLabelTrie<V> node) {
+    }
+}
@@ -13,6 +13,8 @@ import javax.sql.DataSource;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 public class DbUtils {
@@ -21,9 +23,11 @@ public class DbUtils {
     private static final char DOUBLE_QUOTE = '"';
     private static final char MYSQL_IDENTIFIER_QUOTE = BACKTICK;
     private static final char POSTGRES_IDENTIFIER_QUOTE = DOUBLE_QUOTE;
+    private static final Pattern MARIADB_VERSION = Pattern.compile("(\\d+)\\.(\\d+)\\.\\d+-MariaDB", Pattern.CASE_INSENSITIVE);
 
     private final MetaDataExtractor metaDataExtractor;
     private Optional<QuoteCharacter> cachedQuoteCharacter = Optional.empty();
+    private Optional<Boolean> cachedRecursiveQueries = Optional.empty();
 
     interface MetaDataExtractor {
         DatabaseMetaData extractDatabaseMetaData(DataSource dataSource)
@@ -96,6 +100,45 @@ public class DbUtils {
         }
     }
 
+    /**
+     * @return whether the database evaluates {@code WITH RECURSIVE} common table expressions: HSQLDB, PostgreSQL,
+     * MySQL 8 and MariaDB 10.2 onwards
+     */
+    public synchronized boolean supportsRecursiveQueries(JdbcTemplate jdbcTemplate) throws SQLException {
+        if (cachedRecursiveQueries.isEmpty()) {
+            cachedRecursiveQueries = Optional.of(computeRecursiveQueries(jdbcTemplate));
+        }
+        return cachedRecursiveQueries.get();
+    }
+
+    private boolean computeRecursiveQueries(JdbcTemplate jdbcTemplate) throws SQLException {
+        DatabaseMetaData metaData;
+        try {
+            metaData = metaDataExtractor.extractDatabaseMetaData(
+                    jdbcTemplate.getDataSource()
+            );
+        } catch (MetaDataAccessException ex) {
+            s_logger.error("Failed to extract DatabaseMetaData, aborting");
+            throw new UaaDBException("Failed to extract DatabaseMetaData", ex);
+        }
+
+        String productName = String.valueOf(metaData.getDatabaseProductName()).toLowerCase();
+        String productVersion = String.valueOf(metaData.getDatabaseProductVersion());
+        if (HsqlDatabaseProperties.PRODUCT_NAME.equalsIgnoreCase(productName) || productName.contains("postgresql")) {
+            return true;
+        } else if (productName.contains("mariadb") || productVersion.toLowerCase().contains("mariadb")) {
+            // MariaDB may report itself as 5.5.5-10.x.y-MariaDB to MySQL clients
+            Matcher version = MARIADB_VERSION.matcher(productVersion);
+            boolean parsed = version.find();
+            int major = parsed ? Integer.parseInt(version.group(1)) : metaData.getDatabaseMajorVersion();
+            int minor = parsed ? Integer.parseInt(version.group(2)) : metaData.getDatabaseMinorVersion();
+            return major > 10 || (major == 10 && minor >= 2);
+        } else if (productName.contains("mysql")) {
+            return metaData.getDatabaseMajorVersion() >= 8;
+        }
+        return false;
+    }
+
     private static char getIdentifierQuoteChar(DatabaseMetaData metaData) throws SQLException {
         final String identifierQuoteString = metaData.getIdentifierQuoteString();
         if (identifierQuoteString == null || identifierQuoteString.length() != 1) {
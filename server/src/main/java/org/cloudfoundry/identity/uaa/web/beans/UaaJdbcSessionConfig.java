@@ -1,21 +1,30 @@
 package org.cloudfoundry.identity.uaa.web.beans;
 
+import org.cloudfoundry.identity.uaa.resources.jdbc.LimitSqlAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Condition;
 import org.springframework.context.annotation.ConditionContext;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
 import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
 import org.springframework.session.jdbc.config.annotation.web.http.JdbcHttpSessionConfiguration;
 
 @Configuration
 @Conditional(UaaJdbcSessionConfig.DatabaseConfigured.class)
 @EnableJdbcHttpSession
+@EnableScheduling
 public class UaaJdbcSessionConfig extends UaaSessionConfig {
 
     private final static Logger logger = LoggerFactory.getLogger(UaaJdbcSessionConfig.class);
@@ -36,6 +45,35 @@ public class UaaJdbcSessionConfig extends UaaSessionConfig {
         jdbcHttpSessionConfiguration.setMaxInactiveIntervalInSeconds(idleTimeout);
     }
 
+    @Autowired
+    public void disableBulkCleanup(final JdbcHttpSessionConfiguration jdbcHttpSessionConfiguration) {
+        // the UaaJdbcSessionRepository deletes expired sessions in batches instead
+        jdbcHttpSessionConfiguration.setCleanupCron(Scheduled.CRON_DISABLED);
+    }
+
+    @Bean
+    public UaaSessionAttributeCodec uaaSessionAttributeCodec(
+            final @Value("${servlet.session-attributes.compression-threshold:1024}") int compressionThreshold) {
+        return new UaaSessionAttributeCodec(compressionThreshold);
+    }
+
+    @Bean
+    public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> uaaSessionAttributeCodecCustomizer(
+            final UaaSessionAttributeCodec uaaSessionAttributeCodec) {
+        return sessionRepository -> sessionRepository.setConversionService(uaaSessionAttributeCodec.getConversionService());
+    }
+
+    @Bean
+    @Primary
+    public UaaJdbcSessionRepository uaaSessionRepository(
+            final JdbcIndexedSessionRepository sessionRepository,
+            final UaaSessionAttributeCodec uaaSessionAttributeCodec,
+            final JdbcTemplate jdbcTemplate,
+            final LimitSqlAdapter limitSqlAdapter,
+            final @Value("${servlet.session-cleanup.batch-size:500}") int cleanupBatchSize) {
+        return new UaaJdbcSessionRepository(sessionRepository, uaaSessionAttributeCodec, jdbcTemplate, limitSqlAdapter, cleanupBatchSize);
+    }
+
     @Autowired
     void log() {
         logger.info("Using JDBC session configuration");
@@ -0,0 +1,212 @@
+package org.cloudfoundry.identity.uaa.web.beans;
+
+import org.cloudfoundry.identity.uaa.resources.jdbc.LimitSqlAdapter;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.cloudfoundry.identity.uaa.util.TimeServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorates the {@link JdbcIndexedSessionRepository} to reduce what the login flow writes to the database.
+ * <p>
+ * The stock repository writes every attribute set on a session, even when it is set to the value it already holds.
+ * The sessions returned here keep a digest of the serialized form of each attribute read or set, and do not pass on
+ * setting an attribute to a value with the same serialized form. An attribute mutated in place and set again is still
+ * written, as its digest was taken when it was first read.
+ * <p>
+ * Expired sessions (and their attributes, by cascade) are deleted in batches of {@code cleanupBatchSize}, each batch in
+ * a statement of its own, until none are left or {@code maxCleanupRuntime} elapsed, rather than in one unbounded delete.
+ */
+public class UaaJdbcSessionRepository implements FindByIndexNameSessionRepository<UaaJdbcSessionRepository.UaaJdbcSession> {
+
+    private static final Logger logger = LoggerFactory.getLogger(UaaJdbcSessionRepository.class);
+
+    private final FindByIndexNameSessionRepository<Session> delegate;
+    private final UaaSessionAttributeCodec codec;
+    private final JdbcTemplate jdbcTemplate;
+    private final String deleteExpiredSql;
+    private final int cleanupBatchSize;
+    private TimeService timeService = new TimeServiceImpl();
+    private Duration maxCleanupRuntime = Duration.ofSeconds(30);
+
+    @SuppressWarnings("unchecked")
+    public UaaJdbcSessionRepository(
+            final FindByIndexNameSessionRepository<? extends Session> delegate,
+            final UaaSessionAttributeCodec codec,
+            final JdbcTemplate jdbcTemplate,
+            final LimitSqlAdapter limitSqlAdapter,
+            final int cleanupBatchSize) {
+        this.delegate = (FindByIndexNameSessionRepository<Session>) delegate;
+        this.codec = codec;
+        this.jdbcTemplate = jdbcTemplate;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.deleteExpiredSql = limitSqlAdapter.getDeleteExpiredQuery(
+                JdbcIndexedSessionRepository.DEFAULT_TABLE_NAME, "PRIMARY_ID", "EXPIRY_TIME", cleanupBatchSize);
+    }
+
+    @Override
+    public UaaJdbcSession createSession() {
+        return new UaaJdbcSession(delegate.createSession());
+    }
+
+    @Override
+    public void save(UaaJdbcSession session) {
+        delegate.save(session.delegate);
+    }
+
+    @Override
+    public UaaJdbcSession findById(String id) {
+        Session session = delegate.findById(id);
+        return session == null ? null : new UaaJdbcSession(session);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public Map<String, UaaJdbcSession> findByIndexNameAndIndexValue(String indexName, String indexValue) {
+        Map<String, UaaJdbcSession> sessions = new LinkedHashMap<>();
+        delegate.findByIndexNameAndIndexValue(indexName, indexValue)
+                .forEach((id, session) -> sessions.put(id, new UaaJdbcSession(session)));
+        return sessions;
+    }
+
+    @Scheduled(cron = "${servlet.session-cleanup.cron:0 * * * * *}")
+    public void cleanUpExpiredSessions() {
+        long now = timeService.getCurrentTimeMillis();
+        int total = 0;
+        int removed;
+        do {
+            removed = jdbcTemplate.update(deleteExpiredSql, now);
+            total += removed;
+        } while (removed >= cleanupBatchSize && (timeService.getCurrentTimeMillis() - now) < maxCleanupRuntime.toMillis());
+        if (total > 0) {
+            logger.debug("Cleaned up {} expired sessions", total);
+        }
+    }
+
+    public void setTimeService(TimeService timeService) {
+        this.timeService = timeService;
+    }
+
+    public void setMaxCleanupRuntime(long maxCleanupRuntime) {
+        this.maxCleanupRuntime = Duration.ofMillis(maxCleanupRuntime);
+    }
+
+    public final class UaaJdbcSession implements Session {
+
+        private final Session delegate;
+        private final Map<String, byte[]> digests = new ConcurrentHashMap<>();
+
+        private UaaJdbcSession(Session delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            T value = delegate.getAttribute(attributeName);
+            if (value != null && !digests.containsKey(attributeName)) {
+                byte[] digest = digest(value);
+                if (digest != null) {
+                    digests.put(attributeName, digest);
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            if (attributeValue == null) {
+                removeAttribute(attributeName);
+                return;
+            }
+            byte[] digest = digest(attributeValue);
+            byte[] stored = digests.get(attributeName);
+            if (digest != null && stored != null && MessageDigest.isEqual(digest, stored)) {
+                return;
+            }
+            delegate.setAttribute(attributeName, attributeValue);
+            if (digest != null) {
+                digests.put(attributeName, digest);
+            } else {
+                digests.remove(attributeName);
+            }
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            digests.remove(attributeName);
+            delegate.removeAttribute(attributeName);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            delegate.setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+
+        private byte[] digest(Object value) {
+            try {
+                return codec.digest(value);
+            } catch (SerializationFailedException e) {
+                // left to the delegate, which fails to store it
+                return null;
+            }
+        }
+    }
+}
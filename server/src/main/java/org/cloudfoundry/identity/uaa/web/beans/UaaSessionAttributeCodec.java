@@ -0,0 +1,88 @@
+package org.cloudfoundry.identity.uaa.web.beans;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializationFailedException;
+import org.springframework.core.serializer.support.SerializingConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Converts session attributes to and from the bytes stored in SPRING_SESSION_ATTRIBUTES.
+ * <p>
+ * Attributes are Java serialized, as by the stock repository, and GZIP compressed when their serialized form is larger
+ * than {@code compressionThreshold} bytes (a negative threshold disables compression). Compressed values are told
+ * apart by the GZIP header, so values stored uncompressed, or before compression was enabled, are read as they are.
+ */
+public class UaaSessionAttributeCodec {
+
+    private static final int GZIP_MAGIC = GZIPInputStream.GZIP_MAGIC;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer;
+    private final int compressionThreshold;
+
+    public UaaSessionAttributeCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+        this.deserializer = new DeserializingConverter(UaaSessionAttributeCodec.class.getClassLoader());
+    }
+
+    public byte[] serialize(Object value) {
+        byte[] serialized = serializer.convert(value);
+        if (compressionThreshold < 0 || serialized.length <= compressionThreshold) {
+            return serialized;
+        }
+        byte[] compressed = compress(serialized);
+        return compressed.length < serialized.length ? compressed : serialized;
+    }
+
+    public Object deserialize(byte[] bytes) {
+        return deserializer.convert(isCompressed(bytes) ? decompress(bytes) : bytes);
+    }
+
+    /**
+     * @return a digest of the serialized form of the value, equal for values that would be stored the same
+     */
+    public byte[] digest(Object value) {
+        return DigestUtils.sha256(serializer.convert(value));
+    }
+
+    /**
+     * @return the conversion service the {@code JdbcIndexedSessionRepository} stores attributes with
+     */
+    public ConversionService getConversionService() {
+        GenericConversionService conversionService = new GenericConversionService();
+        conversionService.addConverter(Object.class, byte[].class, this::serialize);
+        conversionService.addConverter(byte[].class, Object.class, this::deserialize);
+        return conversionService;
+    }
+
+    private static boolean isCompressed(byte[] bytes) {
+        return bytes.length >= 2 && (bytes[0] & 0xff) == (GZIP_MAGIC & 0xff) && (bytes[1] & 0xff) == (GZIP_MAGIC >>> 8);
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new SerializationFailedException("Unable to compress session attribute", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new SerializationFailedException("Unable to decompress session attribute", e);
+        }
+    }
+}
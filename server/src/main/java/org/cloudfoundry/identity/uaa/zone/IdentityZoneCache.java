@@ -0,0 +1,172 @@
+package org.cloudfoundry.identity.uaa.zone;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.cloudfoundry.identity.uaa.audit.event.AbstractUaaEvent;
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityZoneModifiedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-process cache of active identity zones, used to resolve the zone of every incoming request without a
+ * database round-trip and a parse of the zone configuration JSON.
+ * <p>
+ * Zones are cached by subdomain and by id. Local modifications evict the cache through the zone events. Changes
+ * made on other nodes are detected by polling a cheap version of the {@code identity_zone} table (row count,
+ * {@code max(lastmodified)} and {@code sum(version)}) at most once per {@code versionCheckInterval}; any change
+ * clears the cache. Entries additionally expire {@code expiration} after they were loaded, which is the upper
+ * bound on staleness should the version check be unable to reach the database.
+ * <p>
+ * Cached zones are shared between requests and must be treated as read-only.
+ */
+@Component("identityZoneCache")
+public class IdentityZoneCache implements ApplicationListener<AbstractUaaEvent> {
+
+    static final String ZONE_TABLE_VERSION_QUERY = "select count(*), max(lastmodified), sum(version) from identity_zone";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdentityZoneCache.class);
+
+    private final IdentityZoneProvisioning provisioning;
+    private final JdbcTemplate jdbcTemplate;
+    private final TimeService timeService;
+    private final boolean enabled;
+    private final long versionCheckIntervalMillis;
+    private final Cache<String, IdentityZone> bySubdomain;
+    private final Cache<String, IdentityZone> byId;
+    private final AtomicLong nextVersionCheck = new AtomicLong(0);
+    private final AtomicReference<ZoneTableVersion> tableVersion = new AtomicReference<>();
+
+    @Autowired
+    public IdentityZoneCache(
+            final @Qualifier("identityZoneProvisioning") IdentityZoneProvisioning provisioning,
+            final JdbcTemplate jdbcTemplate,
+            final TimeService timeService,
+            final @Value("${zones.cache.enabled:true}") boolean enabled,
+            final @Value("${zones.cache.maxEntries:10000}") int maxEntries,
+            final @Value("${zones.cache.expirationSeconds:60}") int expirationSeconds,
+            final @Value("${zones.cache.versionCheckIntervalMillis:1000}") long versionCheckIntervalMillis) {
+        this(provisioning, jdbcTemplate, timeService, enabled, maxEntries, Duration.ofSeconds(expirationSeconds),
+                versionCheckIntervalMillis, Ticker.systemTicker());
+    }
+
+    IdentityZoneCache(IdentityZoneProvisioning provisioning,
+                      JdbcTemplate jdbcTemplate,
+                      TimeService timeService,
+                      boolean enabled,
+                      int maxEntries,
+                      Duration expiration,
+                      long versionCheckIntervalMillis,
+                      Ticker ticker) {
+        this.provisioning = provisioning;
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeService = timeService;
+        this.enabled = enabled;
+        this.versionCheckIntervalMillis = versionCheckIntervalMillis;
+        this.bySubdomain = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expiration.toMillis(), TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expiration.toMillis(), TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * @throws EmptyResultDataAccessException if there is no active zone with the given subdomain
+     */
+    public IdentityZone retrieveBySubdomain(String subdomain) {
+        if (!enabled || subdomain == null) {
+            return provisioning.retrieveBySubdomain(subdomain);
+        }
+        checkTableVersion();
+        IdentityZone zone = bySubdomain.get(subdomain.toLowerCase(), provisioning::retrieveBySubdomain);
+        byId.put(zone.getId(), zone);
+        return zone;
+    }
+
+    /**
+     * @throws ZoneDoesNotExistsException if there is no active zone with the given id
+     */
+    public IdentityZone retrieve(String id) {
+        if (!enabled || id == null) {
+            return provisioning.retrieve(id);
+        }
+        checkTableVersion();
+        IdentityZone zone = byId.get(id, provisioning::retrieve);
+        if (zone.getSubdomain() != null) {
+            bySubdomain.put(zone.getSubdomain().toLowerCase(), zone);
+        }
+        return zone;
+    }
+
+    public void evict(String zoneId) {
+        byId.invalidate(zoneId);
+        bySubdomain.asMap().values().removeIf(zone -> Objects.equals(zone.getId(), zoneId));
+    }
+
+    public void clear() {
+        byId.invalidateAll();
+        bySubdomain.invalidateAll();
+    }
+
+    long size() {
+        bySubdomain.cleanUp();
+        byId.cleanUp();
+        return bySubdomain.estimatedSize() + byId.estimatedSize();
+    }
+
+    @Override
+    public void onApplicationEvent(AbstractUaaEvent event) {
+        if (event instanceof IdentityZoneModifiedEvent) {
+            evict(((IdentityZone) event.getSource()).getId());
+        } else if (event instanceof EntityDeletedEvent<?> deletedEvent && deletedEvent.getDeleted() instanceof IdentityZone zone) {
+            evict(zone.getId());
+        }
+    }
+
+    private void checkTableVersion() {
+        long now = timeService.getCurrentTimeMillis();
+        long next = nextVersionCheck.get();
+        // a single request thread per interval pays for the version query, all others use the cache as is
+        if (now < next || !nextVersionCheck.compareAndSet(next, now + versionCheckIntervalMillis)) {
+            return;
+        }
+        ZoneTableVersion current;
+        try {
+            current = jdbcTemplate.queryForObject(ZONE_TABLE_VERSION_QUERY, (rs, rowNum) ->
+                    new ZoneTableVersion(rs.getLong(1), rs.getTimestamp(2), rs.getLong(3)));
+        } catch (DataAccessException e) {
+            logger.warn("Unable to check identity zone table version, cached zones expire by time only.", e);
+            return;
+        }
+        ZoneTableVersion previous = tableVersion.getAndSet(current);
+        if (previous != null && !previous.equals(current)) {
+            logger.debug("Identity zone table version changed, clearing zone cache.");
+            clear();
+        }
+    }
+
+    private record ZoneTableVersion(long count, Timestamp lastModified, long versionSum) {
+    }
+}
@@ -41,6 +41,7 @@ public class IdentityZoneResolvingFilter extends OncePerRequestFilter implements
     private final Set<String> staticResources = Set.of("/resources/", "/vendor/font-awesome/");
     private Set<String> defaultZoneHostnames = new HashSet<>();
     private Logger logger = LoggerFactory.getLogger(getClass());
+    private IdentityZoneCache zoneCache;
 
     public IdentityZoneResolvingFilter(final IdentityZoneProvisioning dao) {
         this.dao = dao;
@@ -54,7 +55,7 @@ public class IdentityZoneResolvingFilter extends OncePerRequestFilter implements
         String subdomain = getSubdomain(hostname);
         if (subdomain != null) {
             try {
-                identityZone = dao.retrieveBySubdomain(subdomain);
+                identityZone = zoneCache != null ? zoneCache.retrieveBySubdomain(subdomain) : dao.retrieveBySubdomain(subdomain);
             } catch (EmptyResultDataAccessException ex) {
                 logger.debug("Cannot find identity zone for subdomain " + subdomain);
             } catch (Exception ex) {
@@ -131,6 +132,10 @@ public class IdentityZoneResolvingFilter extends OncePerRequestFilter implements
         }
     }
 
+    public void setZoneCache(IdentityZoneCache zoneCache) {
+        this.zoneCache = zoneCache;
+    }
+
     public Set<String> getDefaultZoneHostnames() {
         return new HashSet<>(defaultZoneHostnames);
     }
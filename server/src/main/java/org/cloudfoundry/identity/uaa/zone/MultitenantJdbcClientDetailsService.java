@@ -1,10 +1,15 @@
 package org.cloudfoundry.identity.uaa.zone;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 import org.cloudfoundry.identity.uaa.audit.event.SystemDeletable;
 import org.cloudfoundry.identity.uaa.authentication.UaaPrincipal;
 import org.cloudfoundry.identity.uaa.client.InvalidClientDetailsException;
 import org.cloudfoundry.identity.uaa.client.UaaClientDetails;
 import org.cloudfoundry.identity.uaa.client.ClientJwtConfiguration;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetricSummary;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetrics;
 import org.cloudfoundry.identity.uaa.oauth.client.ClientConstants;
 import org.cloudfoundry.identity.uaa.oauth.common.util.DefaultJdbcListFactory;
 import org.cloudfoundry.identity.uaa.oauth.common.util.JdbcListFactory;
@@ -18,6 +23,7 @@ import org.cloudfoundry.identity.uaa.zone.beans.IdentityZoneManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
@@ -33,6 +39,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -43,6 +50,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Collections.emptySet;
 import static org.cloudfoundry.identity.uaa.oauth.client.ClientConstants.REQUIRED_USER_GROUPS;
@@ -51,11 +60,19 @@ import static org.springframework.util.StringUtils.commaDelimitedListToSet;
 
 /**
  * A copy of JdbcClientDetailsService but with IdentityZone awareness
+ * <p>
+ * Loaded clients are kept in a size bounded read-through cache, keyed by zone and client id, and every caller
+ * receives its own copy. Writes through this service evict the entry and increment the {@code revision} column of the
+ * client. Once an entry is older than {@code clients.cache.revalidateAfterMillis} its {@code revision} and
+ * {@code lastmodified} columns are compared with the cached values before it is served again, which picks up changes
+ * made on other nodes with a primary key lookup instead of a full reload. Entries are reloaded at the latest
+ * {@code clients.cache.timeToLiveMillis} after they were loaded, whether or not they changed.
  */
 @Component("jdbcClientDetailsService")
 public class MultitenantJdbcClientDetailsService extends MultitenantClientServices implements
         ResourceMonitor<ClientDetails>,
-        SystemDeletable {
+        SystemDeletable,
+        CacheMetrics {
 
     protected static final Logger logger = LoggerFactory.getLogger(MultitenantJdbcClientDetailsService.class);
 
@@ -90,13 +107,16 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
 
     private static final String DEFAULT_UPDATE_STATEMENT =
             BASE_UPDATE_STATEMENT + CLIENT_FIELDS_FOR_UPDATE.replace(", ", "=?, ")
-                    + "=? where client_id = ? and identity_zone_id = ?";
+                    + "=?, revision = revision + 1 where client_id = ? and identity_zone_id = ?";
 
     private static final String DEFAULT_UPDATE_SECRET_STATEMENT =
-            BASE_UPDATE_STATEMENT + "client_secret = ? where client_id = ? and identity_zone_id = ?";
+            BASE_UPDATE_STATEMENT + "client_secret = ?, lastmodified = ?, revision = revision + 1 where client_id = ? and identity_zone_id = ?";
 
     private static final String DEFAULT_UPDATE_CLIENT_JWT_CONFIG_STATEMENT =
-            BASE_UPDATE_STATEMENT + "client_jwt_config = ? where client_id = ? and identity_zone_id = ?";
+            BASE_UPDATE_STATEMENT + "client_jwt_config = ?, lastmodified = ?, revision = revision + 1 where client_id = ? and identity_zone_id = ?";
+
+    private static final String VERSION_STATEMENT =
+            "select lastmodified, revision from oauth_client_details where client_id = ? and identity_zone_id = ?";
 
     static final String DEFAULT_DELETE_STATEMENT =
             "delete from oauth_client_details where client_id = ? and identity_zone_id = ?";
@@ -115,6 +135,17 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
 
     private JdbcListFactory listFactory;
 
+    @Value("${clients.cache.enabled:true}")
+    private boolean cacheEnabled;
+    @Value("${clients.cache.maxEntries:10000}")
+    private int cacheMaxEntries;
+    @Value("${clients.cache.revalidateAfterMillis:1000}")
+    private long cacheRevalidateAfterMillis;
+    @Value("${clients.cache.timeToLiveMillis:60000}")
+    private long cacheTimeToLiveMillis;
+    private Cache<ClientKey, CachedClient> clientCache;
+    private Ticker ticker = Ticker.systemTicker();
+
     public MultitenantJdbcClientDetailsService(
             final NamedParameterJdbcTemplate jdbcTemplate,
             final IdentityZoneManager identityZoneManager,
@@ -126,16 +157,96 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
         this.passwordEncoder = passwordEncoder;
     }
 
+    @PostConstruct
+    public void init() {
+        if (cacheEnabled) {
+            enableCache(cacheMaxEntries, cacheRevalidateAfterMillis, cacheTimeToLiveMillis, Ticker.systemTicker());
+        }
+    }
+
+    void enableCache(int maxEntries, long revalidateAfterMillis, long timeToLiveMillis, Ticker ticker) {
+        this.cacheRevalidateAfterMillis = revalidateAfterMillis;
+        this.ticker = ticker;
+        this.clientCache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
     @Override
     public ClientDetails loadClientByClientId(String clientId, String zoneId) throws InvalidClientException {
-        ClientDetails details;
+        if (clientCache == null) {
+            return queryClientDetails(clientId, zoneId);
+        }
+        ClientKey key = new ClientKey(zoneId, clientId);
+        long now = ticker.read();
+        CachedClient cached = clientCache.getIfPresent(key);
+        if (cached != null) {
+            if (now - cached.verifiedAt().get() < TimeUnit.MILLISECONDS.toNanos(cacheRevalidateAfterMillis)) {
+                return copyOf(cached.details());
+            }
+            ClientVersion version = queryVersion(clientId, zoneId);
+            if (version != null && version.equals(cached.version())) {
+                // replacing the entry would restart its time to live
+                cached.verifiedAt().set(now);
+                return copyOf(cached.details());
+            }
+        }
+        // the version is read first, so a write in between makes the entry look modified rather than unmodified
+        ClientVersion version = queryVersion(clientId, zoneId);
+        UaaClientDetails details = queryClientDetails(clientId, zoneId);
+        clientCache.put(key, new CachedClient(details, version, new AtomicLong(now)));
+        return copyOf(details);
+    }
+
+    private UaaClientDetails queryClientDetails(String clientId, String zoneId) {
         try {
-            details = jdbcTemplate.queryForObject(selectClientDetailsSql, new ClientDetailsRowMapper(), clientId, zoneId);
+            return (UaaClientDetails) jdbcTemplate.queryForObject(selectClientDetailsSql, rowMapper, clientId, zoneId);
         } catch (EmptyResultDataAccessException | DataIntegrityViolationException e) {
             throw new NoSuchClientException("No client with requested id: " + clientId);
         }
+    }
+
+    private ClientVersion queryVersion(String clientId, String zoneId) {
+        List<ClientVersion> versions = jdbcTemplate.query(VERSION_STATEMENT,
+                (rs, rowNum) -> new ClientVersion(rs.getTimestamp(1), rs.getLong(2)), clientId, zoneId);
+        return versions.size() == 1 ? versions.get(0) : null;
+    }
 
-        return details;
+    /**
+     * Cached clients are shared, callers are free to modify the instance they get.
+     */
+    private static UaaClientDetails copyOf(UaaClientDetails details) {
+        UaaClientDetails copy = new UaaClientDetails(details);
+        if (details.getAutoApproveScopes() != null) {
+            copy.setAutoApproveScopes(details.getAutoApproveScopes());
+        }
+        copy.setClientJwtConfig(details.getClientJwtConfig());
+        return copy;
+    }
+
+    private void evict(String clientId, String zoneId) {
+        if (clientCache != null) {
+            clientCache.invalidate(new ClientKey(zoneId, clientId));
+        }
+    }
+
+    public void clearCache() {
+        if (clientCache != null) {
+            clientCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public String getCacheName() {
+        return "clients";
+    }
+
+    @Override
+    public CacheMetricSummary getCacheMetrics() {
+        return clientCache == null ? new CacheMetricSummary(0, 0, 0, 0) : CacheMetrics.summarize(clientCache);
     }
 
     @Override
@@ -144,6 +255,7 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
             throw new ClientAlreadyExistsException("Client already exists: " + clientDetails.getClientId());
         }
         jdbcTemplate.update(DEFAULT_INSERT_STATEMENT, getInsertClientDetailsFields(clientDetails, zoneId));
+        evict(clientDetails.getClientId(), zoneId);
     }
 
     private boolean exists(String clientId, String zoneId) {
@@ -154,6 +266,7 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
     @Override
     public void updateClientDetails(ClientDetails clientDetails, String zoneId) throws NoSuchClientException {
         int count = jdbcTemplate.update(DEFAULT_UPDATE_STATEMENT, getFieldsForUpdate(clientDetails, zoneId));
+        evict(clientDetails.getClientId(), zoneId);
         if (count != 1) {
             throw new NoSuchClientException(NO_CLIENT_FOUND_WITH_ID + clientDetails.getClientId() + " in identity zone id=" + zoneId);
         }
@@ -161,7 +274,8 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
 
     @Override
     public void updateClientSecret(String clientId, String secret, String zoneId) throws NoSuchClientException {
-        int count = jdbcTemplate.update(DEFAULT_UPDATE_SECRET_STATEMENT, secret != null ? passwordEncoder.encode(secret) : null, clientId, zoneId);
+        int count = jdbcTemplate.update(DEFAULT_UPDATE_SECRET_STATEMENT, secret != null ? passwordEncoder.encode(secret) : null, new Timestamp(System.currentTimeMillis()), clientId, zoneId);
+        evict(clientId, zoneId);
         if (count != 1) {
             throw new NoSuchClientException(NO_CLIENT_FOUND_WITH_ID + clientId);
         }
@@ -169,7 +283,8 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
 
     @Override
     public void updateClientJwtConfig(String clientId, String keyConfig, String zoneId) throws NoSuchClientException {
-        int count = jdbcTemplate.update(DEFAULT_UPDATE_CLIENT_JWT_CONFIG_STATEMENT, keyConfig, clientId, zoneId);
+        int count = jdbcTemplate.update(DEFAULT_UPDATE_CLIENT_JWT_CONFIG_STATEMENT, keyConfig, new Timestamp(System.currentTimeMillis()), clientId, zoneId);
+        evict(clientId, zoneId);
         if (count != 1) {
             throw new NoSuchClientException(NO_CLIENT_FOUND_WITH_ID + clientId);
         }
@@ -251,12 +366,17 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
 
     @Override
     public int deleteByIdentityZone(String zoneId) {
-        return jdbcTemplate.update(DELETE_CLIENTS_BY_ZONE, zoneId);
+        int count = jdbcTemplate.update(DELETE_CLIENTS_BY_ZONE, zoneId);
+        if (clientCache != null) {
+            clientCache.asMap().keySet().removeIf(key -> key.zoneId().equals(zoneId));
+        }
+        return count;
     }
 
     @Override
     public int deleteByClient(String clientId, String zoneId) {
         int count = jdbcTemplate.update(DEFAULT_DELETE_STATEMENT, clientId, zoneId);
+        evict(clientId, zoneId);
         if (count == 0) {
             throw new NoSuchClientException(NO_CLIENT_FOUND_WITH_ID + clientId);
         }
@@ -275,7 +395,8 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
         StringBuilder newSecretBuilder = new StringBuilder()
                 .append(clientDetails.getClientSecret() == null ? "" : clientDetails.getClientSecret() + " ")
                 .append(encodedNewSecret);
-        int count = jdbcTemplate.update(DEFAULT_UPDATE_SECRET_STATEMENT, newSecretBuilder.toString(), clientId, zoneId);
+        int count = jdbcTemplate.update(DEFAULT_UPDATE_SECRET_STATEMENT, newSecretBuilder.toString(), new Timestamp(System.currentTimeMillis()), clientId, zoneId);
+        evict(clientId, zoneId);
         if (count != 1) {
             throw new NoSuchClientException(NO_CLIENT_FOUND_WITH_ID + clientId);
         }
@@ -285,7 +406,8 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
     public void deleteClientSecret(String clientId, String zoneId) throws NoSuchClientException {
         ClientDetails clientDetails = loadClientByClientId(clientId, zoneId);
         String clientSecret = clientDetails.getClientSecret().split(" ")[1];
-        int count = jdbcTemplate.update(DEFAULT_UPDATE_SECRET_STATEMENT, clientSecret, clientId, zoneId);
+        int count = jdbcTemplate.update(DEFAULT_UPDATE_SECRET_STATEMENT, clientSecret, new Timestamp(System.currentTimeMillis()), clientId, zoneId);
+        evict(clientId, zoneId);
         if (count != 1) {
             throw new NoSuchClientException("Unable to update client with " + clientId);
         }
@@ -393,6 +515,15 @@ public class MultitenantJdbcClientDetailsService extends MultitenantClientServic
         }
     }
 
+    private record ClientKey(String zoneId, String clientId) {
+    }
+
+    private record ClientVersion(Timestamp lastModified, long revision) {
+    }
+
+    private record CachedClient(UaaClientDetails details, ClientVersion version, AtomicLong verifiedAt) {
+    }
+
     @Override
     public int getTotalCount() {
         Integer count = jdbcTemplate.queryForObject("select count(*) from oauth_client_details", Integer.class);
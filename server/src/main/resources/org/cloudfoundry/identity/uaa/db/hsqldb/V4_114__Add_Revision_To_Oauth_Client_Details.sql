@@ -0,0 +1 @@
+ALTER TABLE oauth_client_details ADD COLUMN revision BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,9 @@
+CREATE TABLE rate_limit_counter (
+  limiter_key CHAR(64) NOT NULL,
+  window_start BIGINT NOT NULL,
+  expires_at BIGINT NOT NULL,
+  requests BIGINT DEFAULT 0 NOT NULL,
+  PRIMARY KEY (limiter_key, window_start)
+) ENGINE=InnoDB;
+
+CREATE INDEX rate_limit_counter_expires_at ON rate_limit_counter (expires_at);
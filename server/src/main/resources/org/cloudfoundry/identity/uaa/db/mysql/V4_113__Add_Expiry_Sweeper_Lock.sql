@@ -0,0 +1,5 @@
+CREATE TABLE expiry_sweeper_lock (
+  lock_name VARCHAR(64) NOT NULL PRIMARY KEY,
+  owner_id VARCHAR(64) NOT NULL,
+  expires_at BIGINT NOT NULL
+) ENGINE=InnoDB;
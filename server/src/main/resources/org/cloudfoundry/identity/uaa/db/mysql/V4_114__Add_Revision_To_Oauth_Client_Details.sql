@@ -0,0 +1 @@
+ALTER TABLE oauth_client_details ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,200 @@
+package org.cloudfoundry.identity.uaa.audit;
+
+import org.cloudfoundry.identity.uaa.annotations.WithDatabaseContext;
+import org.cloudfoundry.identity.uaa.audit.AsyncAuditService.OverflowPolicy;
+import org.cloudfoundry.identity.uaa.audit.JdbcAuditService.ZonedAuditEvent;
+import org.cloudfoundry.identity.uaa.util.TimeServiceImpl;
+import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticationFailure;
+import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticationSuccess;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@WithDatabaseContext
+class AsyncAuditServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch committed = new CountDownLatch(1);
+    private CountDownLatch afterCommit = new CountDownLatch(0);
+    private JdbcUnsuccessfulLoginCountingAuditService delegate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("delete from sec_audit where principal_id in ('async-1', 'async-2')");
+        delegate = new JdbcUnsuccessfulLoginCountingAuditService(jdbcTemplate, new TimeServiceImpl()) {
+            @Override
+            public void log(List<ZonedAuditEvent> auditEvents) {
+                writing.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                super.log(auditEvents);
+                committed.countDown();
+                try {
+                    assertTrue(afterCommit.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        delegate.setExpirySweeperEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        afterCommit.countDown();
+        jdbcTemplate.update("delete from sec_audit where principal_id in ('async-1', 'async-2')");
+    }
+
+    @Test
+    void eventsAreWrittenInTheBackgroundInOrder() {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, true, 100, 100, OverflowPolicy.CALLER_RUNS);
+        release.countDown();
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        auditService.log(event(UserAuthenticationSuccess, "async-1"), zoneId());
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        auditService.log(event(UserAuthenticationFailure, "async-2"), zoneId());
+        auditService.shutdown();
+
+        assertEquals(1, count("async-1"));
+        assertEquals(1, count("async-2"));
+    }
+
+    @Test
+    void findSeesTheEventsNotWrittenYet() throws InterruptedException {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, true, 100, 100, OverflowPolicy.CALLER_RUNS);
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+
+        assertEquals(0, count("async-1"));
+        assertEquals(2, auditService.find("async-1", 0, zoneId()).size());
+        assertEquals(0, auditService.find("async-2", 0, zoneId()).size());
+
+        auditService.log(event(UserAuthenticationSuccess, "async-1"), zoneId());
+        assertEquals(0, auditService.find("async-1", 0, zoneId()).size());
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        assertEquals(1, auditService.find("async-1", 0, zoneId()).size());
+
+        release.countDown();
+        auditService.shutdown();
+        assertEquals(1, count("async-1"));
+        assertEquals(1, auditService.find("async-1", 0, zoneId()).size());
+    }
+
+    @Test
+    void findCountsTheEventsCommittedMeanwhileOnce() throws InterruptedException {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, true, 100, 100, OverflowPolicy.CALLER_RUNS);
+        afterCommit = new CountDownLatch(1);
+        release.countDown();
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        assertTrue(committed.await(10, TimeUnit.SECONDS));
+        List<List<AuditEvent>> found = new CopyOnWriteArrayList<>();
+        Thread finder = new Thread(() -> found.add(auditService.find("async-1", 0, zoneId())));
+        finder.start();
+        Thread.sleep(20);
+        afterCommit.countDown();
+        finder.join(10000);
+
+        assertEquals(1, found.get(0).size());
+        auditService.shutdown();
+    }
+
+    @Test
+    void overflowingEventsAreWrittenByTheCallerAfterTheQueuedEvents() throws InterruptedException {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, true, 1, 100, OverflowPolicy.CALLER_RUNS);
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        Thread caller = new Thread(() -> auditService.log(event(UserAuthenticationFailure, "async-2"), zoneId()));
+        caller.start();
+        caller.join(100);
+
+        assertTrue(caller.isAlive());
+        release.countDown();
+        caller.join(10000);
+        assertEquals(2, count("async-1"));
+        assertEquals(1, count("async-2"));
+        auditService.shutdown();
+    }
+
+    @Test
+    void overflowingResetIsWrittenAfterTheQueuedFailures() throws InterruptedException {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, true, 1, 100, OverflowPolicy.CALLER_RUNS);
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        Thread caller = new Thread(() -> auditService.log(event(UserAuthenticationSuccess, "async-1"), zoneId()));
+        caller.start();
+        release.countDown();
+        caller.join(10000);
+        auditService.shutdown();
+
+        assertEquals(0, count("async-1"));
+        assertEquals(0, auditService.find("async-1", 0, zoneId()).size());
+    }
+
+    @Test
+    void overflowingEventsAreDiscarded() throws InterruptedException {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, true, 1, 100, OverflowPolicy.DISCARD);
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+        auditService.log(event(UserAuthenticationFailure, "async-2"), zoneId());
+
+        assertEquals(1, auditService.getDiscardedCount());
+        release.countDown();
+        auditService.shutdown();
+        assertEquals(2, count("async-1"));
+        assertEquals(0, count("async-2"));
+        assertEquals(2, auditService.getWrittenCount());
+    }
+
+    @Test
+    void eventsAreWrittenByTheCallerWhenDisabled() {
+        AsyncAuditService auditService = new AsyncAuditService(delegate, false, 100, 100, OverflowPolicy.CALLER_RUNS);
+
+        auditService.log(event(UserAuthenticationFailure, "async-1"), zoneId());
+
+        assertEquals(1, count("async-1"));
+        assertEquals(0, auditService.getWrittenCount());
+    }
+
+    private int count(String principalId) {
+        return jdbcTemplate.queryForObject("select count(*) from sec_audit where principal_id = ?", Integer.class, principalId);
+    }
+
+    private static String zoneId() {
+        return IdentityZone.getUaaZoneId();
+    }
+
+    private static AuditEvent event(AuditEventType type, String principalId) {
+        return new AuditEvent(type, principalId, "1.1.1.1", null, System.currentTimeMillis(), zoneId(), null, null);
+    }
+}
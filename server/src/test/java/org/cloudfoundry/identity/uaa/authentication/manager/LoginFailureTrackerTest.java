@@ -0,0 +1,138 @@
+package org.cloudfoundry.identity.uaa.authentication.manager;
+
+import org.cloudfoundry.identity.uaa.audit.AuditEvent;
+import org.cloudfoundry.identity.uaa.audit.AuditEventType;
+import org.cloudfoundry.identity.uaa.audit.UaaAuditService;
+import org.cloudfoundry.identity.uaa.util.MockTimeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAccountUnlockedEvent;
+import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticationFailure;
+import static org.cloudfoundry.identity.uaa.audit.AuditEventType.UserAuthenticationSuccess;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginFailureTrackerTest {
+
+    private static final String ZONE_ID = "zone-id";
+    private static final String PRINCIPAL = "principal-id";
+
+    private UaaAuditService delegate;
+    private MockTimeService timeService;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UaaAuditService.class);
+        timeService = new MockTimeService();
+        timeService.setTime(100000);
+    }
+
+    @Test
+    void failuresAreLoadedOnceAndThenTracked() {
+        when(delegate.find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID))).thenReturn(List.of(
+                event(UserAuthenticationFailure, 90000),
+                event(UserAuthenticationSuccess, 80000),
+                event(UserAuthenticationFailure, 70000)
+        ));
+        LoginFailureTracker tracker = tracker(true, 128);
+
+        assertEquals(List.of(90000L), times(tracker.find(PRINCIPAL, 0, ZONE_ID)));
+        tracker.log(event(UserAuthenticationFailure, 95000), ZONE_ID);
+        tracker.log(event(UserAuthenticationFailure, 96000), "other-zone");
+
+        assertEquals(List.of(95000L, 90000L), times(tracker.find(PRINCIPAL, 0, ZONE_ID)));
+        assertEquals(List.of(95000L), times(tracker.find(PRINCIPAL, 92000, ZONE_ID)));
+        verify(delegate, times(1)).find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID));
+    }
+
+    @Test
+    void resetsClearTheFailures() {
+        when(delegate.find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID))).thenReturn(List.of(event(UserAuthenticationFailure, 90000)));
+        LoginFailureTracker tracker = tracker(true, 128);
+
+        tracker.find(PRINCIPAL, 0, ZONE_ID);
+        tracker.log(event(UserAccountUnlockedEvent, 95000), ZONE_ID);
+        assertEquals(List.of(), tracker.find(PRINCIPAL, 0, ZONE_ID));
+
+        tracker.log(event(UserAuthenticationFailure, 96000), ZONE_ID);
+        assertEquals(List.of(96000L), times(tracker.find(PRINCIPAL, 0, ZONE_ID)));
+    }
+
+    @Test
+    void eventsLoadedBeforeTheyAreLoggedAreAppliedOnce() {
+        when(delegate.find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID))).thenReturn(List.of(
+                event(UserAuthenticationFailure, 97000),
+                event(UserAuthenticationSuccess, 95000),
+                event(UserAuthenticationFailure, 90000)
+        ));
+        LoginFailureTracker tracker = tracker(true, 128);
+
+        tracker.find(PRINCIPAL, 0, ZONE_ID);
+        tracker.log(event(UserAuthenticationSuccess, 95000), ZONE_ID);
+        tracker.log(event(UserAuthenticationFailure, 97000), ZONE_ID);
+
+        assertEquals(List.of(97000L), times(tracker.find(PRINCIPAL, 0, ZONE_ID)));
+    }
+
+    @Test
+    void failuresAreReloadedAfterTheRefreshInterval() {
+        when(delegate.find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID)))
+                .thenReturn(List.of(event(UserAuthenticationFailure, 90000)))
+                .thenReturn(List.of(event(UserAuthenticationFailure, 99000), event(UserAuthenticationFailure, 90000)));
+        LoginFailureTracker tracker = tracker(true, 128);
+
+        assertEquals(1, tracker.find(PRINCIPAL, 0, ZONE_ID).size());
+        timeService.addAndGet(10000);
+        assertEquals(1, tracker.find(PRINCIPAL, 0, ZONE_ID).size());
+        timeService.addAndGet(1);
+        assertEquals(List.of(99000L, 90000L), times(tracker.find(PRINCIPAL, 0, ZONE_ID)));
+        verify(delegate, times(2)).find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID));
+    }
+
+    @Test
+    void failuresNoLongerKeptAreFoundByTheDelegate() {
+        when(delegate.find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID))).thenReturn(List.of());
+        LoginFailureTracker tracker = tracker(true, 2);
+
+        tracker.find(PRINCIPAL, 0, ZONE_ID);
+        tracker.log(event(UserAuthenticationFailure, 91000), ZONE_ID);
+        tracker.log(event(UserAuthenticationFailure, 92000), ZONE_ID);
+        tracker.log(event(UserAuthenticationFailure, 93000), ZONE_ID);
+
+        assertEquals(List.of(93000L), times(tracker.find(PRINCIPAL, 92000, ZONE_ID)));
+        verify(delegate, times(1)).find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID));
+        tracker.find(PRINCIPAL, 0, ZONE_ID);
+        verify(delegate, times(2)).find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID));
+    }
+
+    @Test
+    void theDelegateIsQueriedWhenDisabled() {
+        when(delegate.find(eq(PRINCIPAL), anyLong(), eq(ZONE_ID))).thenReturn(List.of(event(UserAuthenticationFailure, 90000)));
+        LoginFailureTracker tracker = tracker(false, 128);
+
+        tracker.find(PRINCIPAL, 0, ZONE_ID);
+        tracker.find(PRINCIPAL, 0, ZONE_ID);
+
+        verify(delegate, times(2)).find(PRINCIPAL, 0, ZONE_ID);
+    }
+
+    private LoginFailureTracker tracker(boolean enabled, int maxFailures) {
+        return new LoginFailureTracker(delegate, timeService, enabled, 1000, maxFailures, 3600, 10);
+    }
+
+    private static List<Long> times(List<AuditEvent> events) {
+        return events.stream().map(AuditEvent::getTime).toList();
+    }
+
+    private static AuditEvent event(AuditEventType type, long time) {
+        return new AuditEvent(type, PRINCIPAL, null, null, time, ZONE_ID, null, null);
+    }
+}
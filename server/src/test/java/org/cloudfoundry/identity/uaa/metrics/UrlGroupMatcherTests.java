@@ -0,0 +1,80 @@
+package org.cloudfoundry.identity.uaa.metrics;
+
+import org.cloudfoundry.identity.uaa.util.TimeServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UrlGroupMatcherTests {
+
+    private List<UrlGroup> groups;
+    private UrlGroupMatcher matcher;
+
+    @BeforeEach
+    void setup() throws Exception {
+        groups = new UaaMetricsFilter(true, false, new TimeServiceImpl()).getUrlGroups();
+        matcher = new UrlGroupMatcher(groups);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "/", "//", "/Groups", "/Groups/", "/Groups/x", "/Groups/x/members", "/Groups/x/members/y",
+            "/Groups/External", "/Groups/External/list", "/Groupsx", "/groups", "/oauth/clients",
+            "/oauth/clients/x/secret", "/oauth/clients/x/secret/", "/oauth/clients/x/meta", "/oauth/clients/tx/secret",
+            "/oauth/clients/tx", "/oauth/clients/restricted", "/oauth/clients/x", "/oauth/token", "/oauth/token/",
+            "/oauth/token/list/user/x", "/oauth/token/.well-known/openid-configuration", "/.well-known/openid-configuration",
+            "/error", "/error404", "/errors/x", "/error/", "/Users", "/Users/x/verify", "/ids/Users", "/login",
+            "/login.do", "/login/callback/origin", "/login_implicit", "/loginx", "/vendor/font-awesome/css/x.css",
+            "/resources/oss/images/square-logo.png", "/saml/metadata", "/unknown/path", "/oauth/clients//x/secret",
+            "//Groups", "/Groups//x/members", "/a?b", "/%2e%2e/Users"
+    })
+    void agrees_with_ant_path_request_matchers(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setPathInfo(path);
+
+        assertSame(matchLinearly(request), matcher.match(request), path);
+        // a second time from the cache
+        assertSame(matchLinearly(request), matcher.match(request), path);
+    }
+
+    @Test
+    void servlet_path_and_path_info() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/oauth");
+        request.setPathInfo("/token");
+
+        assertEquals("/oauth/token", UrlGroupMatcher.getRequestPath(request));
+        assertEquals("/oauth-oidc", matcher.match(request).getGroup());
+    }
+
+    @Test
+    void no_match() {
+        List<UrlGroup> users = new ArrayList<>();
+        users.add(new UrlGroup().setGroup("/users").setPattern("/Users/**").setCategory("API").setLimit(1000));
+        UrlGroupMatcher usersOnly = new UrlGroupMatcher(users, 1);
+
+        assertNull(usersOnly.match("/Groups"));
+        assertNull(usersOnly.match("/Groups"));
+        assertEquals("/users", usersOnly.match("/Users/x").getGroup());
+        assertEquals("/users", usersOnly.match("/Users/y").getGroup());
+    }
+
+    private UrlGroup matchLinearly(MockHttpServletRequest request) {
+        for (UrlGroup group : groups) {
+            if (new AntPathRequestMatcher(group.getPattern()).matches(request)) {
+                return group;
+            }
+        }
+        return null;
+    }
+}
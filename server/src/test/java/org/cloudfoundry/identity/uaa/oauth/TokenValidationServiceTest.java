@@ -4,10 +4,12 @@ import com.google.common.collect.Lists;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSSigner;
 import org.cloudfoundry.identity.uaa.client.UaaClientDetails;
+import org.cloudfoundry.identity.uaa.oauth.event.TokenRevocationEvent;
 import org.cloudfoundry.identity.uaa.oauth.token.RevocableTokenProvisioning;
 import org.cloudfoundry.identity.uaa.user.UaaAuthority;
 import org.cloudfoundry.identity.uaa.user.UaaUser;
 import org.cloudfoundry.identity.uaa.user.UaaUserDatabase;
+import org.cloudfoundry.identity.uaa.util.MockTimeService;
 import org.cloudfoundry.identity.uaa.util.UaaTokenUtils;
 import org.cloudfoundry.identity.uaa.zone.MultitenantClientServices;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
@@ -16,20 +18,28 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.cloudfoundry.identity.uaa.oauth.common.exceptions.InvalidTokenException;
 import org.cloudfoundry.identity.uaa.provider.NoSuchClientException;
 
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.cloudfoundry.identity.uaa.config.IdentityZoneConfigurationBootstrapTests.PRIVATE_KEY;
 import static org.cloudfoundry.identity.uaa.oauth.token.ClaimConstants.*;
 import static org.cloudfoundry.identity.uaa.util.UaaMapUtils.entry;
 import static org.cloudfoundry.identity.uaa.util.UaaMapUtils.map;
 import static org.cloudfoundry.identity.uaa.util.UaaStringUtils.DEFAULT_UAA_URL;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TokenValidationServiceTest {
@@ -46,6 +56,9 @@ public class TokenValidationServiceTest {
     private String userId = "asdf-bfdsajk-asdfjsa";
     private String clientId = "myclient";
     private Map<String, Object> content;
+    private final MockTimeService timeService = new MockTimeService();
+    private final AtomicLong ticker = new AtomicLong();
+    private TokenValidationCache validationCache;
 
     @Before
     public void setup() throws ParseException, JOSEException {
@@ -153,6 +166,82 @@ public class TokenValidationServiceTest {
         tokenValidationService.validateToken(refreshToken, false);
     }
 
+    @Test
+    public void validatedAccessTokensAreCached() {
+        useValidationCache(Duration.ofSeconds(60));
+        String accessToken = expiringToken(3600);
+
+        assertSame(tokenValidationService.validateToken(accessToken, true), tokenValidationService.validateToken(accessToken, true));
+
+        verify(userDatabase, times(1)).retrieveUserById(userId);
+        verify(mockMultitenantClientServices, times(1)).loadClientByClientId(clientId, IdentityZoneHolder.get().getId());
+    }
+
+    @Test
+    public void refreshTokensAreNotCached() {
+        useValidationCache(Duration.ofSeconds(60));
+        content.put(JTI, "abcdefg-r");
+        String refreshToken = expiringToken(3600);
+
+        tokenValidationService.validateToken(refreshToken, false);
+        tokenValidationService.validateToken(refreshToken, false);
+
+        verify(userDatabase, times(2)).retrieveUserById(userId);
+    }
+
+    @Test
+    public void failedValidationsAreNotCached() {
+        useValidationCache(Duration.ofSeconds(60));
+        when(userDatabase.retrieveUserById(userId)).thenThrow(UsernameNotFoundException.class);
+        String accessToken = expiringToken(3600);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                tokenValidationService.validateToken(accessToken, true);
+                fail();
+            } catch (InvalidTokenException expected) {
+            }
+        }
+
+        verify(userDatabase, times(2)).retrieveUserById(userId);
+    }
+
+    @Test
+    public void cachedValidationsExpireWithTheToken() {
+        useValidationCache(Duration.ofSeconds(60));
+        String accessToken = expiringToken(10);
+
+        tokenValidationService.validateToken(accessToken, true);
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        tokenValidationService.validateToken(accessToken, true);
+
+        verify(userDatabase, times(2)).retrieveUserById(userId);
+    }
+
+    @Test
+    public void revokingTheTokensOfTheUserEvictsCachedValidations() {
+        useValidationCache(Duration.ofSeconds(60));
+        String accessToken = expiringToken(3600);
+
+        tokenValidationService.validateToken(accessToken, true);
+        validationCache.onApplicationEvent(new TokenRevocationEvent(userId, null, IdentityZoneHolder.get().getId(), mock(Authentication.class)));
+        tokenValidationService.validateToken(accessToken, true);
+        validationCache.onApplicationEvent(new TokenRevocationEvent(null, "other-client", IdentityZoneHolder.get().getId(), mock(Authentication.class)));
+        tokenValidationService.validateToken(accessToken, true);
+
+        verify(userDatabase, times(2)).retrieveUserById(userId);
+    }
+
+    private void useValidationCache(Duration expiration) {
+        validationCache = new TokenValidationCache(timeService, true, 100, expiration, ticker::get);
+        tokenValidationService.setValidationCache(validationCache);
+    }
+
+    private String expiringToken(int secondsFromNow) {
+        content.put(EXPIRY_IN_SECONDS, TimeUnit.MILLISECONDS.toSeconds(timeService.getCurrentTimeMillis()) + secondsFromNow);
+        return UaaTokenUtils.constructToken(header, content, signer);
+    }
+
     private ArrayList<GrantedAuthority> buildGrantedAuthorities(String authority) {
         ArrayList<GrantedAuthority> grantedAuthorities = new ArrayList<>();
         grantedAuthorities.add(UaaAuthority.authority(authority));
@@ -18,8 +18,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.cloudfoundry.identity.uaa.oauth.common.util.RandomValueStringGenerator;
 
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static org.cloudfoundry.identity.uaa.approval.Approval.ApprovalStatus.APPROVED;
@@ -216,6 +218,21 @@ class JdbcApprovalStoreTests {
         assertThat(jdbcApprovalStore.getApprovalsForClient("c3", defaultZoneId).size(), equalTo(0));
     }
 
+    @Test
+    void canGetApprovalsForSeveralUsers() {
+        addApproval(jdbcApprovalStore, "u2", "c1", "openid", 6000, APPROVED, otherZoneId);
+        // one user per query
+        jdbcApprovalStore.setMaxSqlParameters(2);
+
+        Map<String, List<Approval>> approvals = jdbcApprovalStore.getApprovalsForUsers(Arrays.asList("u1", "u2", "u3"), defaultZoneId);
+
+        assertEquals(3, approvals.size());
+        assertEquals(2, approvals.get("u1").size());
+        assertEquals(1, approvals.get("u2").size());
+        assertEquals(0, approvals.get("u3").size());
+        assertTrue(approvals.get("u1").containsAll(jdbcApprovalStore.getApprovalsForUser("u1", defaultZoneId)));
+    }
+
     @Test
     void canRevokeApprovals() {
         assertEquals(2, jdbcApprovalStore.getApprovalsForUser("u1", defaultZoneId).size());
@@ -775,4 +775,21 @@ class LegacyRedirectResolverTest {
             assertFalse(resolver.redirectMatches(BASE_URI + requestedSuffix, BASE_URI + "/**"));
         }
     }
+
+    @Test
+    void matchesTheUpdatedRedirectUrisOfAClient() {
+        UaaClientDetails client = (UaaClientDetails) createClient("foo", "https://*.example.com/*", "https://example.com:*/callback");
+
+        assertThat(resolver.resolveRedirect("https://sub.example.com/path", client), is("https://sub.example.com/path"));
+        assertThat(resolver.resolveRedirect("https://sub.example.com/path", client), is("https://sub.example.com/path"));
+        assertThat(resolver.resolveRedirect("https://example.com:8443/callback", client), is("https://example.com:8443/callback"));
+        assertThrows(RedirectMismatchException.class,
+                () -> resolver.resolveRedirect("https://sub.example.org/path", client));
+
+        client.setRegisteredRedirectUri(Collections.singleton("https://*.example.org/*"));
+
+        assertThat(resolver.resolveRedirect("https://sub.example.org/path", client), is("https://sub.example.org/path"));
+        assertThrows(RedirectMismatchException.class,
+                () -> resolver.resolveRedirect("https://sub.example.com/path", client));
+    }
 }
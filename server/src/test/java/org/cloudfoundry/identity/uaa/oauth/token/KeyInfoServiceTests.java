@@ -1,5 +1,7 @@
 package org.cloudfoundry.identity.uaa.oauth.token;
 
+import org.cloudfoundry.identity.uaa.audit.AuditEventType;
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
 import org.cloudfoundry.identity.uaa.impl.config.LegacyTokenKey;
 import org.cloudfoundry.identity.uaa.oauth.KeyInfo;
 import org.cloudfoundry.identity.uaa.oauth.KeyInfoService;
@@ -9,6 +11,7 @@ import org.cloudfoundry.identity.uaa.zone.IdentityZoneConfiguration;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneProvisioning;
 import org.cloudfoundry.identity.uaa.zone.TokenPolicy;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityZoneModifiedEvent;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +26,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -135,6 +140,61 @@ class KeyInfoServiceTests {
         assertEquals(keyInfoService.getActiveKey().verifierKey(), "testLegacyKey");
     }
 
+    @Test
+    void keysAreBuiltOnceForUnchangedKeyMaterial() {
+        String keyId = generator.generate();
+        configureDefaultZoneKeys(Collections.singletonMap(keyId, SIGNING_KEY));
+
+        KeyInfo first = keyInfoService.getKey(keyId);
+        assertSame(first, keyInfoService.getKey(keyId));
+        assertSame(first, keyInfoService.getActiveKey());
+    }
+
+    @Test
+    void rotatedKeyMaterialIsNotServedFromRegistry() {
+        String keyId = generator.generate();
+        configureDefaultZoneKeys(Collections.singletonMap(keyId, SIGNING_KEY));
+        KeyInfo rsaKey = keyInfoService.getKey(keyId);
+
+        configureDefaultZoneKeys(Collections.singletonMap(keyId, "symmetric-key"));
+        KeyInfo macKey = keyInfoService.getKey(keyId);
+
+        assertNotSame(rsaKey, macKey);
+        assertEquals("MAC", macKey.type());
+    }
+
+    @Test
+    void signatureAlgorithmOverrideIsRegisteredSeparately() {
+        String keyId = generator.generate();
+        configureDefaultZoneKeys(Collections.singletonMap(keyId, SIGNING_KEY));
+
+        assertEquals("RS256", keyInfoService.getKey(keyId).algorithm());
+        assertEquals("RS512", keyInfoService.getKey(keyId, "RS512").algorithm());
+        assertEquals("RS256", keyInfoService.getKey(keyId).algorithm());
+    }
+
+    @Test
+    void zoneModifiedEventEvictsRegisteredKeys() {
+        String keyId = generator.generate();
+        configureDefaultZoneKeys(Collections.singletonMap(keyId, SIGNING_KEY));
+        KeyInfo key = keyInfoService.getKey(keyId);
+
+        keyInfoService.onApplicationEvent(new IdentityZoneModifiedEvent(IdentityZone.getUaa(), null, AuditEventType.IdentityZoneModifiedEvent, IdentityZone.getUaaZoneId()));
+
+        assertNotSame(key, keyInfoService.getKey(keyId));
+    }
+
+    @Test
+    void zoneDeletedEventEvictsRegisteredKeys() {
+        String keyId = generator.generate();
+        configureDefaultZoneKeys(Collections.singletonMap(keyId, SIGNING_KEY));
+        KeyInfo key = keyInfoService.getKey(keyId);
+
+        keyInfoService.onApplicationEvent(new EntityDeletedEvent<>(IdentityZone.getUaa(), null, IdentityZone.getUaaZoneId()));
+
+        assertNotSame(key, keyInfoService.getKey(keyId));
+    }
+
     @Test
     void testTokenEndpointUrl() throws URISyntaxException {
         configureDefaultZoneKeys(Collections.emptyMap());
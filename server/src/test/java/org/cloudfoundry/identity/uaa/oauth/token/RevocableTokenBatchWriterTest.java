@@ -0,0 +1,159 @@
+package org.cloudfoundry.identity.uaa.oauth.token;
+
+import org.cloudfoundry.identity.uaa.annotations.WithDatabaseContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@WithDatabaseContext
+class RevocableTokenBatchWriterTest {
+
+    private static final String INSERT = "insert into batch_writer_test (id, payload) values (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RevocableTokenBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("create table batch_writer_test (id varchar(10) primary key, payload varchar(20))");
+        writer = new RevocableTokenBatchWriter(jdbcTemplate, transactionManager, true, 10, 5, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+        jdbcTemplate.update("drop table batch_writer_test");
+    }
+
+    @Test
+    void concurrentWritesAreCommittedBeforeReturning() throws Exception {
+        int writes = 50;
+        ExecutorService requests = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < writes; i++) {
+                String id = "id-" + i;
+                results.add(requests.submit(() -> {
+                    start.await();
+                    writer.write(INSERT, id, "payload");
+                    return jdbcTemplate.queryForObject("select count(*) from batch_writer_test where id = ?", Integer.class, id);
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(1, (int) result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            requests.shutdownNow();
+        }
+        assertEquals(writes, (int) jdbcTemplate.queryForObject("select count(*) from batch_writer_test", Integer.class));
+    }
+
+    @Test
+    void failedWritesOnlyFailTheirOwnRequest() throws Exception {
+        writer.write(INSERT, "taken", "first");
+        ExecutorService requests = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> duplicate = requests.submit(() -> writer.write(INSERT, "taken", "second"));
+            Future<?> other = requests.submit(() -> writer.write(INSERT, "free", "other"));
+
+            other.get(10, TimeUnit.SECONDS);
+            Exception failure = assertThrows(Exception.class, () -> duplicate.get(10, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof DataIntegrityViolationException, failure.toString());
+        } finally {
+            requests.shutdownNow();
+        }
+        assertEquals("first", jdbcTemplate.queryForObject("select payload from batch_writer_test where id = 'taken'", String.class));
+        assertEquals("other", jdbcTemplate.queryForObject("select payload from batch_writer_test where id = 'free'", String.class));
+    }
+
+    @Test
+    void writesAreTakenOverByANewWriterWhenTheWriterFails() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        PlatformTransactionManager failingOnce = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                if (fail.getAndSet(false)) {
+                    throw new AssertionError("writer failure");
+                }
+                return transactionManager.getTransaction(definition);
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+                transactionManager.commit(status);
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+                transactionManager.rollback(status);
+            }
+        };
+        RevocableTokenBatchWriter failing = new RevocableTokenBatchWriter(jdbcTemplate, failingOnce, true, 10, 5, 100);
+        try {
+            assertThrows(RuntimeException.class, () -> failing.write(INSERT, "lost", "payload"));
+            failing.write(INSERT, "written", "payload");
+        } finally {
+            failing.shutdown();
+        }
+
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from batch_writer_test where id = 'written'", Integer.class));
+    }
+
+    @Test
+    void writesDirectlyWhenNotTakenInTime() throws Exception {
+        RevocableTokenBatchWriter slow = new RevocableTokenBatchWriter(jdbcTemplate, transactionManager, true, 10, 60000, 100);
+        slow.setMaxWaitMillis(50);
+        ExecutorService requests = Executors.newFixedThreadPool(1);
+        try {
+            // holds the writer, collecting for a minute
+            Future<?> first = requests.submit(() -> slow.write(INSERT, "first", "payload"));
+            Thread.sleep(20);
+
+            slow.write(INSERT, "second", "payload");
+            assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from batch_writer_test where id = 'second'", Integer.class));
+
+            slow.shutdown();
+            first.get(10, TimeUnit.SECONDS);
+        } finally {
+            slow.shutdown();
+            requests.shutdownNow();
+        }
+        assertEquals(2, (int) jdbcTemplate.queryForObject("select count(*) from batch_writer_test", Integer.class));
+    }
+
+    @Test
+    void writesDirectlyWhenDisabled() {
+        RevocableTokenBatchWriter disabled = new RevocableTokenBatchWriter(jdbcTemplate, transactionManager, false, 10, 5, 100);
+
+        disabled.write(INSERT, "direct", "payload");
+        assertThrows(DataIntegrityViolationException.class, () -> disabled.write(INSERT, "direct", "payload"));
+
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from batch_writer_test", Integer.class));
+    }
+}
@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import org.apache.commons.collections4.SetUtils;
@@ -44,6 +46,11 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.cloudfoundry.identity.uaa.oauth.common.util.RandomValueStringGenerator;
 import org.springframework.util.StringUtils;
 
@@ -56,6 +63,9 @@ class JdbcIdentityProviderProvisioningTests {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private String origin;
     private String uaaZoneId;
     private String otherZoneId1;
@@ -488,4 +498,84 @@ class JdbcIdentityProviderProvisioningTests {
         jdbcIdentityProviderProvisioning.create(idp, otherZoneId2);
         assertFalse(jdbcIdentityProviderProvisioning.idpWithAliasExistsInZone(otherZoneId2));
     }
+
+    @Test
+    void cachedProvidersAreReloadedOnceExpired() {
+        AtomicLong ticker = new AtomicLong();
+        jdbcIdentityProviderProvisioning.enableCache(100, 1000, ticker::get);
+        IdentityProvider idp = jdbcIdentityProviderProvisioning.create(MultitenancyFixture.identityProvider(origin, otherZoneId1), otherZoneId1);
+
+        assertEquals(1, jdbcIdentityProviderProvisioning.retrieveActive(otherZoneId1).size());
+        jdbcTemplate.update("update identity_provider set name = 'changed' where id = ?", idp.getId());
+        assertEquals(origin + " name", jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId1).getName());
+
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(1001));
+        assertEquals("changed", jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId1).getName());
+        assertEquals(2, jdbcIdentityProviderProvisioning.getCacheMetrics().getMissCount());
+    }
+
+    @Test
+    void writesDropTheCachedProvidersOfTheZone() {
+        jdbcIdentityProviderProvisioning.enableCache(100, 60000, System::nanoTime);
+        IdentityProvider idp = jdbcIdentityProviderProvisioning.create(MultitenancyFixture.identityProvider(origin, otherZoneId1), otherZoneId1);
+        assertTrue(jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId1).isActive());
+
+        idp.setActive(false);
+        jdbcIdentityProviderProvisioning.update(idp, otherZoneId1);
+        assertEquals(0, jdbcIdentityProviderProvisioning.retrieveActive(otherZoneId1).size());
+        assertFalse(jdbcIdentityProviderProvisioning.retrieveByOriginIgnoreActiveFlag(origin, otherZoneId1).isActive());
+
+        jdbcIdentityProviderProvisioning.deleteByOrigin(origin, otherZoneId1);
+        assertEquals(0, jdbcIdentityProviderProvisioning.retrieveAll(false, otherZoneId1).size());
+        assertThrows(EmptyResultDataAccessException.class, () -> jdbcIdentityProviderProvisioning.retrieveByOriginIgnoreActiveFlag(origin, otherZoneId1));
+    }
+
+    @Test
+    void writesDropTheCachedProvidersOfTheZoneAgainAfterCompletion() {
+        jdbcIdentityProviderProvisioning.enableCache(100, 60000, System::nanoTime);
+        IdentityProvider idp = jdbcIdentityProviderProvisioning.create(MultitenancyFixture.identityProvider(origin, otherZoneId1), otherZoneId1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            idp.setActive(false);
+            jdbcIdentityProviderProvisioning.update(idp, otherZoneId1);
+            jdbcTemplate.update("update identity_provider set active=? where id=?", true, idp.getId());
+            // read by another request before the commit
+            assertTrue(jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId1).isActive());
+            jdbcTemplate.update("update identity_provider set active=? where id=?", false, idp.getId());
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertFalse(jdbcIdentityProviderProvisioning.retrieveByOriginIgnoreActiveFlag(origin, otherZoneId1).isActive());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcIdentityProviderProvisioning.create(MultitenancyFixture.identityProvider(origin, otherZoneId2), otherZoneId2);
+            // cached with the uncommitted row
+            assertNotNull(jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId2));
+            status.setRollbackOnly();
+        });
+
+        assertThrows(EmptyResultDataAccessException.class, () -> jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId2));
+    }
+
+    @Test
+    void cachedProvidersAreCopiedForEachCaller() {
+        jdbcIdentityProviderProvisioning.enableCache(100, 60000, System::nanoTime);
+        IdentityProvider<OIDCIdentityProviderDefinition> idp = MultitenancyFixture.identityProvider(origin, otherZoneId1);
+        idp.setType(OIDC10);
+        OIDCIdentityProviderDefinition definition = new OIDCIdentityProviderDefinition();
+        definition.setRelyingPartySecret("secret");
+        idp.setConfig(definition);
+        jdbcIdentityProviderProvisioning.create(idp, otherZoneId1);
+
+        IdentityProvider<OIDCIdentityProviderDefinition> first = jdbcIdentityProviderProvisioning.retrieveByOrigin(origin, otherZoneId1);
+        first.getConfig().setRelyingPartySecret(null);
+        IdentityProvider<OIDCIdentityProviderDefinition> second = jdbcIdentityProviderProvisioning.retrieveActiveByTypes(otherZoneId1, OIDC10).get(0);
+
+        assertEquals("secret", second.getConfig().getRelyingPartySecret());
+    }
 }
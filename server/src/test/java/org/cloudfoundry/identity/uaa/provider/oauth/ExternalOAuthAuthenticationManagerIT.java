@@ -81,6 +81,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -192,12 +193,18 @@ class ExternalOAuthAuthenticationManagerIT {
         IdentityZoneManager identityZoneManager = new IdentityZoneManagerImpl();
         ScimGroupExternalMembershipManager externalMembershipManager = mock(ScimGroupExternalMembershipManager.class);
 
-        for (String scope : SCOPES_LIST) {
-            ScimGroupExternalMember member = new ScimGroupExternalMember();
-            member.setDisplayName(scope);
-            when(externalMembershipManager.getExternalGroupMapsByExternalGroup(eq(scope), anyString(), anyString()))
-                    .thenReturn(Collections.singletonList(member));
-        }
+        when(externalMembershipManager.getExternalGroupMapsByExternalGroups(any(), anyString(), anyString())).thenAnswer(invocation -> {
+            Collection<String> externalGroups = invocation.getArgument(0);
+            List<ScimGroupExternalMember> members = new ArrayList<>();
+            for (String scope : externalGroups) {
+                if (SCOPES_LIST.contains(scope)) {
+                    ScimGroupExternalMember member = new ScimGroupExternalMember();
+                    member.setDisplayName(scope);
+                    members.add(member);
+                }
+            }
+            return members;
+        });
 
         userDatabase = new InMemoryUaaUserDatabase(Collections.emptySet());
         publisher = mock(ApplicationEventPublisher.class);
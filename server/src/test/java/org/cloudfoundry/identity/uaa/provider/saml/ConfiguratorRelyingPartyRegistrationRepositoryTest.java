@@ -171,6 +171,27 @@ class ConfiguratorRelyingPartyRegistrationRepositoryTest {
                 .returns("https://idp-saml.ua3.int/simplesaml/saml2/idp/metadata.php", RelyingPartyRegistration.AssertingPartyDetails::getEntityId);
     }
 
+    @Test
+    void registrationIsBuiltOnceUntilTheMetadataChanges() {
+        String metadata = loadResouceAsString("saml-sample-metadata.xml");
+        when(repository.retrieveZone()).thenReturn(identityZone);
+        when(identityZone.isUaa()).thenReturn(true);
+        when(identityZone.getConfig()).thenReturn(identityZoneConfiguration);
+        when(identityZoneConfiguration.getSamlConfig()).thenReturn(samlConfig);
+        when(definition.getIdpEntityAlias()).thenReturn(REGISTRATION_ID);
+        when(definition.getNameID()).thenReturn(NAME_ID);
+        when(definition.getMetaDataLocation()).thenReturn(metadata);
+        when(configurator.getIdentityProviderDefinitionsForZone(identityZone)).thenReturn(List.of(definition));
+
+        RelyingPartyRegistration registration = repository.findByRegistrationId(REGISTRATION_ID);
+        assertThat(repository.findByRegistrationId(REGISTRATION_ID)).isSameAs(registration);
+
+        when(definition.getMetaDataLocation()).thenReturn("saml-sample-metadata.xml");
+        assertThat(repository.findByRegistrationId(REGISTRATION_ID))
+                .isNotSameAs(registration)
+                .returns(REGISTRATION_ID, RelyingPartyRegistration::getRegistrationId);
+    }
+
     @Test
     void zoneWithCredentialsUsesCorrectValues() {
         samlConfigProps.setKeys(Map.of(keyName1(), samlKey1(), keyName2(), samlKey2()));
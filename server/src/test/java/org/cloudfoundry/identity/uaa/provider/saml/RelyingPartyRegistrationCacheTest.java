@@ -0,0 +1,70 @@
+package org.cloudfoundry.identity.uaa.provider.saml;
+
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
+import org.cloudfoundry.identity.uaa.provider.IdentityProvider;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityProviderModifiedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.saml2.provider.service.registration.RelyingPartyRegistration;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RelyingPartyRegistrationCacheTest {
+
+    private final RelyingPartyRegistrationCache cache = new RelyingPartyRegistrationCache(10, Duration.ofMinutes(10));
+    private final AtomicInteger built = new AtomicInteger();
+
+    @Test
+    void registrationIsBuiltOncePerKey() {
+        RelyingPartyRegistration first = cache.get(key("zone1", "metadata"), this::build);
+        RelyingPartyRegistration second = cache.get(key("zone1", "metadata"), this::build);
+        cache.get(key("zone1", "other metadata"), this::build);
+
+        assertThat(second).isSameAs(first);
+        assertThat(built).hasValue(2);
+    }
+
+    @Test
+    void zoneIsEvictedWhenAProviderIsModified() {
+        cache.get(key("zone1", "metadata"), this::build);
+        cache.get(key("zone2", "metadata"), this::build);
+
+        cache.onApplicationEvent(IdentityProviderModifiedEvent.identityProviderModified(provider("zone1"), "zone1"));
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.get(key("zone1", "metadata"), this::build);
+        assertThat(built).hasValue(3);
+    }
+
+    @Test
+    void zoneIsEvictedWhenAProviderIsDeleted() {
+        cache.get(key("zone1", "metadata"), this::build);
+        cache.get(key("zone2", "metadata"), this::build);
+
+        cache.onApplicationEvent(new EntityDeletedEvent<>(provider("zone2"), null, "zone2"));
+
+        cache.get(key("zone1", "metadata"), this::build);
+        assertThat(built).hasValue(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private RelyingPartyRegistration build() {
+        built.incrementAndGet();
+        return mock(RelyingPartyRegistration.class);
+    }
+
+    private static IdentityProvider<?> provider(String zoneId) {
+        IdentityProvider<?> provider = new IdentityProvider<>();
+        provider.setIdentityZoneId(zoneId);
+        return provider;
+    }
+
+    private static RelyingPartyRegistrationCache.Key key(String zoneId, String metadata) {
+        return new RelyingPartyRegistrationCache.Key(zoneId, "registrationId", metadata, "nameId", "entityId",
+                "entityIdAlias", true, "key1", Map.of());
+    }
+}
@@ -0,0 +1,62 @@
+package org.cloudfoundry.identity.uaa.ratelimiting.core.http;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.cloudfoundry.identity.uaa.ratelimiting.core.http.CredentialIdTypeAbstractTestJWT.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class CredentialIdCacheTest {
+    private final CredentialIdCache cache = new CredentialIdCache();
+    private final AtomicInteger extractions = new AtomicInteger();
+
+    @Test
+    void extractsOncePerToken() {
+        assertEquals( "|a|", cache.get( "x", "token", () -> extract( "|a|" ) ) );
+        assertEquals( "|a|", cache.get( "x", "token", () -> extract( "|b|" ) ) );
+        assertEquals( 1, extractions.get() );
+
+        assertEquals( 1, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+        assertEquals( 0.5, cache.getHitRate() );
+        assertEquals( 1, cache.getSize() );
+    }
+
+    @Test
+    void nullsAreCached() {
+        assertNull( cache.get( "x", "token", () -> extract( null ) ) );
+        assertNull( cache.get( "x", "token", () -> extract( "|a|" ) ) );
+        assertEquals( 1, extractions.get() );
+    }
+
+    @Test
+    void keyedOnExtractorAndWholeToken() {
+        assertEquals( "|a|", cache.get( "x", "header.claimsA.signature", () -> extract( "|a|" ) ) );
+        assertEquals( "|b|", cache.get( "y", "header.claimsA.signature", () -> extract( "|b|" ) ) );
+        assertEquals( "|c|", cache.get( "x", "header.claimsB.signature", () -> extract( "|c|" ) ) );
+        assertEquals( 3, extractions.get() );
+    }
+
+    @Test
+    void sharedByTheJwtExtractors() {
+        AuthorizationCredentialIdExtractor regex = new CredentialIdTypeJWT( null, cache ).factory( CredentialIdTypeJWTTest.EMAIL_FROM_CLAIMS );
+        AuthorizationCredentialIdExtractor field = new CredentialIdTypeJWTjsonField( null, cache ).factory( CredentialIdTypeJWTjsonFieldTest.EMAIL_FROM_CLAIMS );
+        RequestInfo requestInfo = Mockito.mock( RequestInfo.class );
+        when( requestInfo.getAuthorizationHeader() ).thenReturn( AUTH_HEADER_VALUE_PREFIX_UC + JWT );
+
+        for ( int i = 0; i < 3; i++ ) {
+            assertEquals( "|" + EMAIL_DEVIN + "|", regex.mapAuthorizationToCredentialsID( requestInfo ) );
+            assertEquals( "|" + EMAIL_DEVIN + "|", field.mapAuthorizationToCredentialsID( requestInfo ) );
+        }
+        assertEquals( 2, cache.getMissCount() );
+        assertEquals( 4, cache.getHitCount() );
+    }
+
+    private String extract( String id ) {
+        extractions.incrementAndGet();
+        return id;
+    }
+}
@@ -75,6 +75,48 @@ class InternalLimiterTest {
         assertTrue( problemStream.isEmpty(), "unexpected sequence from:\n" + problemStream );
     }
 
+    @Test
+    void sharedLimiterNeverOverAdmits() throws InterruptedException {
+        int threads = 16;
+        InternalLimiter shared = new InternalLimiter( KEY_Z, 1000, NOW );
+        InternalLimiter[] own = new InternalLimiter[threads];
+        int[] forwarded = new int[threads];
+        Coordinator coordinator = new Coordinator( threads, 9, IllegalStateException::new );
+        List<Thread> workers = new LinkedList<>();
+        for ( int t = 0; t < threads; t++ ) {
+            int index = t;
+            own[t] = new InternalLimiter( CompoundKey.from( "T" + t, "T", "T" ), 100, NOW );
+            Thread thread = new Thread( () -> {
+                coordinator.ready();
+                coordinator.waitForStart();
+                for ( int i = 0; i < 200; i++ ) {
+                    if ( !LimiterImpl.from( List.of( own[index], shared ), LoggingOption.DEFAULT ).shouldLimit() ) {
+                        forwarded[index]++;
+                    }
+                }
+                coordinator.done();
+            } );
+            thread.setDaemon( true );
+            thread.start();
+            workers.add( thread );
+        }
+        coordinator.waitForReady();
+        coordinator.start();
+        coordinator.waitForDone();
+        for ( Thread worker : workers ) {
+            worker.join();
+        }
+
+        int total = 0;
+        for ( int t = 0; t < threads; t++ ) {
+            // all or nothing: each forwarded request took exactly one from each limiter
+            assertEquals( 100 - forwarded[t], own[t].getRequestsRemaining() );
+            total += forwarded[t];
+        }
+        assertEquals( 1000, total );
+        assertEquals( 0, shared.getRequestsRemaining() );
+    }
+
     // Start of stream:   A1ok B2ok Z1ok Z1-- A1-- Z2ok Z2-- B2-- B2ok Z2ok A1ok Z2-- B2-- Z1ok Z1-- A1--
     // End of stream:          B2no A1ok Z1ok Z1-- A1-- A1ok Z1ok Z1-- A1-- A1ok Z1ok Z1-- A1-- A1ok Z1no
     private static class StreamProcessor {
@@ -112,10 +154,10 @@ class InternalLimiterTest {
                 if ( nextNode.startsWith( findType ) ) {
                     boolean isDecrementTail = nextNode.endsWith( "--" );
                     if ( decrementTail ) {
-                        if ( isDecrementTail ) {
+                        if ( isDecrementTail || nextNode.endsWith( "no" ) ) { // 'no' - lost the race for the last request
                             return fromOffsetIndex;
                         }
-                        message = "'--'";
+                        message = "'--' or 'no'";
                     } else if ( !isDecrementTail ) {
                         return fromOffsetIndex;
                     } else {
@@ -155,8 +197,10 @@ class InternalLimiterTest {
             if ( !nextNode.endsWith( "no" ) ) {
                 // must be "Z?ok"
                 int zTypeDecAt = nextSetNode( okTypeAt + 1, zType, okType, true );
-                int okTypeDecAt = nextSetNode( zTypeDecAt + 1, okType, zType, true );
-                dropNode( okTypeDecAt );
+                if ( nextNode.endsWith( "--" ) ) {
+                    int okTypeDecAt = nextSetNode( zTypeDecAt + 1, okType, zType, true );
+                    dropNode( okTypeDecAt );
+                }
                 dropNode( zTypeDecAt );
             }
             dropNode( okTypeAt );
@@ -278,8 +322,9 @@ class InternalLimiterTest {
 
         @Override
         protected int decrementRequestsRemaining() {
-            logCall( "--" );
-            return super.decrementRequestsRemaining();
+            int remaining = super.decrementRequestsRemaining();
+            logCall( (remaining < 0) ? "no" : "--" );
+            return remaining;
         }
 
         void logCall( String tail ) {
@@ -5,6 +5,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 
 import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
@@ -62,7 +63,7 @@ class ExpirationBucketsTest {
     }
 
     private void assertBadBucketSecondRequest( long second ) {
-        List<CompoundKey> bucket;
+        Queue<CompoundKey> bucket;
 
         try {
             bucket = buckets.getBucket( second );
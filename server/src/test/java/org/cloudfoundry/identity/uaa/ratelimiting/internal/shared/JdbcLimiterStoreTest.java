@@ -0,0 +1,189 @@
+package org.cloudfoundry.identity.uaa.ratelimiting.internal.shared;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.cloudfoundry.identity.uaa.annotations.WithDatabaseContext;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.CompoundKey;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.LoggingOption;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.config.RequestsPerWindowSecs;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.InternalLimiter;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.common.LimiterImpl;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.limitertracking.InternalLimiterFactoryImpl;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.limitertracking.WindowType;
+import org.cloudfoundry.identity.uaa.ratelimiting.util.NanoTimeSupplier;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@WithDatabaseContext
+class JdbcLimiterStoreTest {
+    private static final String WINDOW_TYPE = WindowType.NON_GLOBAL.CredentialsID.windowType();
+    private static final long WINDOW_START = 1_700_000_000_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final NanoTimeSupplier.Mock nanoTime = new NanoTimeSupplier.Mock();
+    private long wallClock = WINDOW_START + 2000;
+    private final TimeService timeService = new TimeService() {
+        @Override
+        public long getCurrentTimeMillis() {
+            return wallClock;
+        }
+    };
+
+    private final InternalLimiterFactoryImpl factory = InternalLimiterFactoryImpl.builder()
+            .name( "Test" ).windowType( WINDOW_TYPE )
+            .requestsPerWindow( RequestsPerWindowSecs.from( "Test", "testData", "5r/10s" ) )
+            .build();
+
+    private CompoundKey compoundKey;
+    private JdbcLimiterStore nodeA;
+    private JdbcLimiterStore nodeB;
+
+    @BeforeEach
+    void setUp() {
+        compoundKey = CompoundKey.from( "Test", WINDOW_TYPE, UUID.randomUUID().toString() );
+        nodeA = new JdbcLimiterStore( jdbcTemplate, timeService, 1000 );
+        nodeB = new JdbcLimiterStore( jdbcTemplate, timeService, 1000 );
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update( "DELETE FROM rate_limit_counter" );
+    }
+
+    @Test
+    void windowsAreAlignedToTheWallClock() {
+        InternalLimiter limiter = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+
+        assertEquals( 5, limiter.getRequestsRemaining() );
+        assertEquals( nanoTime.nowAsInstant().plusSeconds( 8 ), limiter.getWindowEndExclusive() );
+    }
+
+    @Test
+    void requestsForwardedByOtherNodesAreApplied() {
+        InternalLimiter limiterA = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        InternalLimiter limiterB = nodeB.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+
+        assertFalse( forward( limiterA, 3 ) );
+        nodeA.synchronize();
+        nodeB.synchronize();
+        assertEquals( 2, limiterA.getRequestsRemaining() );
+        assertEquals( 2, limiterB.getRequestsRemaining() );
+
+        assertFalse( forward( limiterB, 2 ) );
+        nodeB.synchronize();
+        nodeA.synchronize();
+        assertEquals( 0, limiterA.getRequestsRemaining() );
+        assertEquals( 0, limiterB.getRequestsRemaining() );
+        assertTrue( forward( limiterA, 1 ) );
+        assertEquals( 5L, jdbcTemplate.queryForObject( "select requests from rate_limit_counter where limiter_key = ?",
+                                                      Long.class, JdbcLimiterStore.storeKey( compoundKey ) ) );
+    }
+
+    @Test
+    void requestsAreOnlyReportedOnce() {
+        InternalLimiter limiterA = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        InternalLimiter limiterB = nodeB.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+
+        forward( limiterA, 1 );
+        nodeA.synchronize();
+        nodeA.synchronize();
+        nodeB.synchronize();
+        nodeB.synchronize();
+
+        assertEquals( 4, limiterA.getRequestsRemaining() );
+        assertEquals( 4, limiterB.getRequestsRemaining() );
+    }
+
+    @Test
+    void oneLimiterPerWindow() {
+        InternalLimiter first = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        assertSame( first, nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() ) );
+
+        advance( Duration.ofSeconds( 8 ) );
+        InternalLimiter next = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+
+        assertNotSame( first, next );
+        assertEquals( 5, next.getRequestsRemaining() );
+        assertEquals( nanoTime.nowAsInstant().plusSeconds( 10 ), next.getWindowEndExclusive() );
+    }
+
+    @Test
+    void endedWindowsAreReportedThenPurged() {
+        InternalLimiter limiter = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        forward( limiter, 2 );
+
+        advance( Duration.ofSeconds( 9 ) );
+        nodeA.synchronize();
+        assertEquals( 2L, jdbcTemplate.queryForObject( "select requests from rate_limit_counter where limiter_key = ?",
+                                                      Long.class, JdbcLimiterStore.storeKey( compoundKey ) ) );
+
+        advance( Duration.ofMinutes( 2 ) );
+        nodeA.synchronize();
+        assertEquals( 0, jdbcTemplate.queryForObject( "select count(*) from rate_limit_counter where limiter_key = ?",
+                                                     Integer.class, JdbcLimiterStore.storeKey( compoundKey ) ) );
+    }
+
+    @Test
+    void requestsOfReplacedWindowsAreReported() {
+        InternalLimiter limiter = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        forward( limiter, 2 );
+
+        advance( Duration.ofSeconds( 8 ) );
+        InternalLimiter next = nodeA.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        forward( next, 1 );
+        nodeA.synchronize();
+
+        assertEquals( 2L, jdbcTemplate.queryForObject( "select requests from rate_limit_counter where limiter_key = ? and window_start = ?",
+                                                      Long.class, JdbcLimiterStore.storeKey( compoundKey ), WINDOW_START ) );
+        assertEquals( 1L, jdbcTemplate.queryForObject( "select requests from rate_limit_counter where limiter_key = ? and window_start = ?",
+                                                      Long.class, JdbcLimiterStore.storeKey( compoundKey ), WINDOW_START + 10_000 ) );
+        assertEquals( 1, nodeA.getLimiterCount() );
+    }
+
+    @Test
+    void endedWindowsAreForgottenWhenTheyCannotBeReported() {
+        JdbcTemplate unavailable = mock( JdbcTemplate.class );
+        when( unavailable.batchUpdate( anyString(), anyList() ) ).thenThrow( new CannotGetJdbcConnectionException( "unavailable" ) );
+        JdbcLimiterStore store = new JdbcLimiterStore( unavailable, timeService, 1000 );
+        InternalLimiter limiter = store.newLimiter( compoundKey, factory, nanoTime.nowAsInstant() );
+        forward( limiter, 2 );
+
+        advance( Duration.ofSeconds( 9 ) );
+        assertThrows( CannotGetJdbcConnectionException.class, store::synchronize );
+        assertEquals( 1, store.getLimiterCount() );
+
+        advance( Duration.ofMinutes( 1 ) );
+        assertThrows( CannotGetJdbcConnectionException.class, store::synchronize );
+        assertEquals( 0, store.getLimiterCount() );
+        assertEquals( 2, store.getUnreportedRequests() );
+    }
+
+    private boolean forward( InternalLimiter limiter, int requests ) {
+        boolean limited = false;
+        for ( int i = 0; i < requests; i++ ) {
+            limited = LimiterImpl.from( List.of( limiter ), LoggingOption.OnlyLimited ).shouldLimit();
+        }
+        return limited;
+    }
+
+    private void advance( Duration duration ) {
+        nanoTime.add( duration );
+        wallClock += duration.toMillis();
+    }
+}
@@ -0,0 +1,143 @@
+package org.cloudfoundry.identity.uaa.resources.jdbc;
+
+import org.cloudfoundry.identity.uaa.annotations.WithDatabaseContext;
+import org.cloudfoundry.identity.uaa.util.MockTimeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@WithDatabaseContext
+class JdbcExpirySweeperTest {
+
+    private static final List<JdbcExpirySweeper.Table> TABLES = List.of(
+            new JdbcExpirySweeper.Table("expiry_sweeper_test", "id", "expires_at", "kept = 0", Duration.ZERO, false),
+            new JdbcExpirySweeper.Table("expiry_sweeper_test", "id", "created", null, Duration.ofDays(1), true)
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LimitSqlAdapter limitSqlAdapter;
+
+    private MockTimeService timeService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("create table expiry_sweeper_test (id varchar(10) primary key, expires_at bigint, created timestamp, kept integer)");
+        jdbcTemplate.update("delete from expiry_sweeper_lock");
+        timeService = new MockTimeService();
+        timeService.setTime(Duration.ofDays(10).toMillis());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("drop table expiry_sweeper_test");
+        jdbcTemplate.update("delete from expiry_sweeper_lock");
+    }
+
+    @Test
+    void expiredRowsAreDeletedInBatches() {
+        long now = timeService.getCurrentTimeMillis();
+        for (int i = 0; i < 25; i++) {
+            insert("expired-" + i, now - 1000 + i, now, 0);
+        }
+        insert("valid", now + 1000, now, 0);
+        insert("kept", now - 1000, now, 1);
+        insert("old", now + 1000, now - Duration.ofDays(2).toMillis(), 0);
+
+        JdbcExpirySweeper sweeper = sweeper(10, 10000);
+        sweeper.sweep();
+
+        assertEquals(List.of("kept", "valid"), jdbcTemplate.queryForList("select id from expiry_sweeper_test order by id", String.class));
+        assertEquals(Map.of("expiry_sweeper_test.expires_at", 25L, "expiry_sweeper_test.created", 1L), sweeper.getDeletedRows());
+        assertEquals(Map.of("expiry_sweeper_test.expires_at", 0L, "expiry_sweeper_test.created", 0L), sweeper.getLagMillis());
+    }
+
+    @Test
+    void rowsLeftOverAreReportedAsLag() {
+        long now = timeService.getCurrentTimeMillis();
+        for (int i = 0; i < 25; i++) {
+            insert("expired-" + i, now - 1000 + i, now, 0);
+        }
+
+        JdbcExpirySweeper sweeper = sweeper(10, 0);
+        sweeper.sweep();
+
+        assertEquals(15, (int) jdbcTemplate.queryForObject("select count(*) from expiry_sweeper_test", Integer.class));
+        assertEquals(10L, sweeper.getDeletedRows().get("expiry_sweeper_test.expires_at"));
+        assertEquals(990L, sweeper.getLagMillis().get("expiry_sweeper_test.expires_at"));
+    }
+
+    @Test
+    void onlyTheLockHolderSweeps() {
+        long now = timeService.getCurrentTimeMillis();
+        JdbcExpirySweeper leader = sweeper(10, 10000);
+        JdbcExpirySweeper follower = sweeper(10, 10000);
+
+        insert("first", now - 1000, now, 0);
+        leader.sweep();
+        insert("second", now - 1000, now, 0);
+        follower.sweep();
+
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from expiry_sweeper_test", Integer.class));
+
+        timeService.addAndGet(60000);
+        leader.sweep();
+        timeService.addAndGet(60000);
+        follower.sweep();
+        assertFalse(follower.isLeader());
+
+        leader.release();
+        follower.sweep();
+        assertTrue(follower.isLeader());
+    }
+
+    @Test
+    void theLockIsTakenOverOnceTheLeaseLapsed() {
+        JdbcExpirySweeper leader = sweeper(10, 10000);
+        JdbcExpirySweeper follower = sweeper(10, 10000);
+
+        leader.sweep();
+        timeService.addAndGet(120001);
+        follower.sweep();
+        leader.sweep();
+
+        assertTrue(follower.isLeader());
+        assertFalse(leader.isLeader());
+    }
+
+    @Test
+    void nothingIsDeletedWhenDisabled() {
+        long now = timeService.getCurrentTimeMillis();
+        insert("expired", now - 1000, now, 0);
+
+        JdbcExpirySweeper sweeper = new JdbcExpirySweeper(jdbcTemplate, limitSqlAdapter, timeService, TABLES, false, 10, 10000, 120000);
+        sweeper.sweep();
+
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from expiry_sweeper_test", Integer.class));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from expiry_sweeper_lock", Integer.class));
+    }
+
+    private JdbcExpirySweeper sweeper(int maxRows, long maxRuntimeMillis) {
+        return new JdbcExpirySweeper(jdbcTemplate, limitSqlAdapter, timeService, TABLES, true, maxRows, maxRuntimeMillis, 120000);
+    }
+
+    private void insert(String id, long expiresAt, long created, int kept) {
+        jdbcTemplate.update("insert into expiry_sweeper_test (id, expires_at, created, kept) values (?, ?, ?, ?)",
+                id, expiresAt, new Timestamp(created), kept);
+    }
+}
@@ -7,7 +7,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 @WithDatabaseContext
 class LimitSqlAdapterTests {
@@ -26,11 +29,39 @@ class LimitSqlAdapterTests {
         jdbcTemplate.update("insert into delete_top_rows_test values (?,?,?)", "K", 3, "some-data");
         jdbcTemplate.update("insert into delete_top_rows_test values (?,?,?)", "D", 4, "some-data");
         jdbcTemplate.update("insert into delete_top_rows_test values (?,?,?)", "A", 5, "some-data");
+        jdbcTemplate.update("create table upsert_test (id varchar(10) primary key, expires integer, payload varchar(20))");
     }
 
     @AfterEach
     void tearDown() {
         jdbcTemplate.update("drop table delete_top_rows_test");
+        jdbcTemplate.update("drop table upsert_test");
+    }
+
+    @Test
+    void upsert() {
+        String query = limitSqlAdapter.getUpsertSql("upsert_test", "id", List.of("id", "expires", "payload"));
+        assumeTrue(query != null, "no single statement upsert");
+
+        jdbcTemplate.update(query, "X", 1, "inserted");
+        jdbcTemplate.update(query, "X", 2, "updated");
+        jdbcTemplate.update(query, "Y", 3, "inserted");
+
+        assertEquals("updated", jdbcTemplate.queryForObject("select payload from upsert_test where id = 'X'", String.class));
+        assertEquals(2, (int) jdbcTemplate.queryForObject("select expires from upsert_test where id = 'X'", Integer.class));
+        assertEquals(2, (int) jdbcTemplate.queryForObject("select count(*) from upsert_test", Integer.class));
+    }
+
+    @Test
+    void insertIfAbsent() {
+        String query = limitSqlAdapter.getInsertIfAbsentSql("upsert_test", "id", List.of("id", "expires", "payload"));
+        assumeTrue(query != null, "no single statement insert if absent");
+
+        jdbcTemplate.update(query, "X", 1, "inserted");
+        jdbcTemplate.update(query, "X", 2, "ignored");
+
+        assertEquals("inserted", jdbcTemplate.queryForObject("select payload from upsert_test where id = 'X'", String.class));
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from upsert_test", Integer.class));
     }
 
     @Test
@@ -58,4 +89,23 @@ class LimitSqlAdapterTests {
         assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from delete_top_rows_test where id = 'A'", Integer.class));
         assertEquals(3, (int) jdbcTemplate.queryForObject("select count(*) from delete_top_rows_test", Integer.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteTopRowsMatchingCondition() {
+        jdbcTemplate.update("update delete_top_rows_test set payload = 'kept' where id = 'M'");
+        jdbcTemplate.update(
+                limitSqlAdapter.getDeleteExpiredQuery(
+                        "delete_top_rows_test",
+                        "id",
+                        "expires",
+                        "payload = 'some-data'",
+                        2
+                ),
+                5
+        );
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from delete_top_rows_test where id = 'M'", Integer.class));
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from delete_top_rows_test where id = 'D'", Integer.class));
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from delete_top_rows_test where id = 'A'", Integer.class));
+        assertEquals(3, (int) jdbcTemplate.queryForObject("select count(*) from delete_top_rows_test", Integer.class));
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.util.MultiValueMap;
 
+import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +61,41 @@ class SimpleSearchQueryConverterTests {
         assertEquals("group-value", result.get("externalGroup").get(0));
     }
 
+    @Test
+    void keysetFilterSeeksAfterCursor() {
+        KeysetCursor after = new KeysetCursor("username", true, "joe", "joe-id");
+
+        SearchQueryConverter.ProcessedFilter filter = converter.convertForKeyset("id pr", "userName", true, "zone", "id", after);
+
+        String prefix = filter.getParamPrefix();
+        assertThat(filter.getSql(), containsString(
+                "AND (userName > :" + prefix + "after_value OR (userName = :" + prefix + "after_value AND id > :" + prefix + "after_id))"));
+        assertThat(filter.getSql(), containsString(" ORDER BY userName ASC, id ASC"));
+        assertEquals("joe", filter.getParams().get(prefix + "after_value"));
+        assertEquals("joe-id", filter.getParams().get(prefix + "after_id"));
+    }
+
+    @Test
+    void keysetFilterById() {
+        SearchQueryConverter.ProcessedFilter first = converter.convertForKeyset("id pr", "id", false, "zone", "id", null);
+        assertThat(first.getSql(), containsString(" ORDER BY id DESC"));
+        assertFalse(first.getSql().contains(":" + first.getParamPrefix() + "after_id"));
+
+        SearchQueryConverter.ProcessedFilter next = converter.convertForKeyset("id pr", "id", false, "zone", "id",
+                new KeysetCursor("id", false, "b", "b"));
+        assertThat(next.getSql(), containsString("AND (id < :" + next.getParamPrefix() + "after_id)"));
+    }
+
+    @Test
+    void keysetCursorRoundTrip() {
+        Timestamp created = new Timestamp(1_700_000_000_123L);
+        created.setNanos(123_456_789);
+        KeysetCursor cursor = new KeysetCursor("created", false, created, "some-id");
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("%%%"));
+    }
+
     @Test
     void invalidFilterAttribute() {
         String query = "origin eq \"origin-value\" and externalGroup eq \"group-value\"";
@@ -751,11 +751,18 @@ class ScimUserBootstrapTests {
         List<GrantedAuthority> authorities = getAuthorities(externalAuthorities);
         authorities.addAll(getAuthorities(externalAuthorities));
         assertEquals(2*externalAuthorities.length, authorities.size());
-        verify(spy, times(externalAuthorities.length)).addMember(any(), any(), any());
+        assertEquals(userAuthorities.length, spy.getGroupsWithExternalMember(userId, origin, IdentityZone.getUaaZoneId()).size());
+        reset(spy);
 
         bootstrap.onApplicationEvent(new ExternalGroupAuthorizationEvent(user, true, authorities, true));
 
-        verify(spy, times(externalAuthorities.length*2)).addMember(any(), any(), any());
+        ArgumentCaptor<Collection<String>> added = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<String>> removed = ArgumentCaptor.forClass(Collection.class);
+        verify(spy).updateUserMemberships(eq(userId), eq(origin), added.capture(), removed.capture(), eq(IdentityZone.getUaaZoneId()));
+        assertEquals(externalAuthorities.length, added.getValue().size());
+        assertEquals(userAuthorities.length, removed.getValue().size());
+        assertEquals(externalAuthorities.length, spy.getGroupsWithExternalMember(userId, origin, IdentityZone.getUaaZoneId()).size());
+        verify(spy, never()).addMember(any(), any(), any());
     }
 
     @Test
@@ -779,6 +786,24 @@ class ScimUserBootstrapTests {
         assertEquals(2, jdbcScimUserProvisioning.retrieveAll(IdentityZone.getUaaZoneId()).size());
     }
 
+    @Test
+    void bootstrapsUsersInParallelWithSharedGroups() {
+        List<UaaUser> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(new UaaUser("user" + i, "password", "user" + i + "@test.org", "User", "Number" + i)
+                    .authorities(AuthorityUtils.commaSeparatedStringToAuthorityList("shared.group,own.group" + i)));
+        }
+        ScimUserBootstrap bootstrap = new ScimUserBootstrap(jdbcScimUserProvisioning, scimUserService, jdbcScimGroupProvisioning, jdbcScimGroupMembershipManager, users, false, Collections.emptyList(), false);
+        bootstrap.setParallelism(4);
+        bootstrap.afterPropertiesSet();
+
+        String zoneId = IdentityZone.getUaaZoneId();
+        assertEquals(20, jdbcScimUserProvisioning.retrieveAll(zoneId).size());
+        ScimGroup shared = jdbcScimGroupProvisioning.getByName("shared.group", zoneId);
+        assertEquals(20, jdbcScimGroupMembershipManager.getMembers(shared.getId(), false, zoneId).size());
+        assertEquals(1, jdbcScimGroupMembershipManager.getMembers(jdbcScimGroupProvisioning.getByName("own.group7", zoneId).getId(), false, zoneId).size());
+    }
+
     @Test
     void concurrentAuthEventsRaceCondition() throws Exception {
         int numthreads = 5;
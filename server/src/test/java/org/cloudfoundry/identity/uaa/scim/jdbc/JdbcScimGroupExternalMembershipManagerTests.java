@@ -181,6 +181,44 @@ class JdbcScimGroupExternalMembershipManagerTests {
         }
     }
 
+    @Test
+    void externalGroupMapsAreResolvedInBulk() {
+        map3GroupsInEachZone();
+        edao.mapExternalGroup("g2-" + IdentityZone.getUaaZoneId(), "cn=hr,ou=groups,dc=example,dc=com", origin, IdentityZone.getUaaZoneId());
+
+        List<ScimGroupExternalMember> externalMappings = edao.getExternalGroupMapsByExternalGroups(
+                Arrays.asList("CN=HR,ou=groups,dc=example,dc=com", "cn=unknown", "cn=mgmt,ou=groups,dc=example,dc=com", ""),
+                origin, IdentityZone.getUaaZoneId());
+
+        assertEquals(3, externalMappings.size());
+        assertEquals("cn=hr,ou=groups,dc=example,dc=com", externalMappings.get(0).getExternalGroup());
+        assertEquals("cn=hr,ou=groups,dc=example,dc=com", externalMappings.get(1).getExternalGroup());
+        assertEquals("cn=mgmt,ou=groups,dc=example,dc=com", externalMappings.get(2).getExternalGroup());
+        for (ScimGroupExternalMember member : externalMappings) {
+            assertEquals(IdentityZone.getUaaZoneId(), gdao.retrieve(member.getGroupId(), IdentityZone.getUaaZoneId()).getZoneId());
+        }
+        assertEquals(0, edao.getExternalGroupMapsByExternalGroups(Arrays.asList("cn=hr,ou=groups,dc=example,dc=com"), OriginKeys.SAML, IdentityZone.getUaaZoneId()).size());
+    }
+
+    @Test
+    void externalGroupMapsAreCachedUntilChanged() {
+        List<String> externalGroups = Arrays.asList("cn=engineering,ou=groups,dc=example,dc=com");
+        assertEquals(0, edao.getExternalGroupMapsByExternalGroups(externalGroups, origin, IdentityZone.getUaaZoneId()).size());
+
+        createGroupMapping();
+        assertEquals(1, edao.getExternalGroupMapsByExternalGroups(externalGroups, origin, IdentityZone.getUaaZoneId()).size());
+
+        jdbcTemplate.update("delete from external_group_mapping");
+        assertEquals(1, edao.getExternalGroupMapsByExternalGroups(externalGroups, origin, IdentityZone.getUaaZoneId()).size());
+        edao.evictMappingCache(IdentityZone.getUaaZoneId());
+        assertEquals(0, edao.getExternalGroupMapsByExternalGroups(externalGroups, origin, IdentityZone.getUaaZoneId()).size());
+
+        edao.setMappingCacheExpirationSeconds(0);
+        createGroupMapping();
+        jdbcTemplate.update("delete from external_group_mapping");
+        assertEquals(0, edao.getExternalGroupMapsByExternalGroups(externalGroups, origin, IdentityZone.getUaaZoneId()).size());
+    }
+
     @Test
     void adding_ExternalMappingToGroup_IsCaseInsensitive() {
         createGroupMapping();
@@ -9,6 +9,7 @@ import org.cloudfoundry.identity.uaa.resources.jdbc.LimitSqlAdapter;
 import org.cloudfoundry.identity.uaa.resources.jdbc.SimpleSearchQueryConverter;
 import org.cloudfoundry.identity.uaa.scim.ScimGroup;
 import org.cloudfoundry.identity.uaa.scim.ScimGroupMember;
+import org.cloudfoundry.identity.uaa.scim.ScimUser;
 import org.cloudfoundry.identity.uaa.scim.exception.InvalidScimResourceException;
 import org.cloudfoundry.identity.uaa.scim.exception.MemberAlreadyExistsException;
 import org.cloudfoundry.identity.uaa.scim.exception.MemberNotFoundException;
@@ -28,6 +29,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -37,10 +40,12 @@ import org.cloudfoundry.identity.uaa.oauth.common.util.RandomValueStringGenerato
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -193,6 +198,22 @@ class JdbcScimGroupMembershipManagerTests {
         validateCount(3, jdbcTemplate, uaaIdentityZone.getId());
     }
 
+    @Test
+    void updateUserMembershipsInBatches() throws SQLException {
+        addMember("g1", "m3", "USER", LDAP, jdbcTemplate, uaaIdentityZone.getId());
+        addMember("g2", "m3", "USER", LDAP, jdbcTemplate, uaaIdentityZone.getId());
+        validateCount(2, jdbcTemplate, uaaIdentityZone.getId());
+        String defaultGroupId = jdbcScimGroupProvisioning.getByName("uaa.user", uaaIdentityZone.getId()).getId();
+
+        jdbcScimGroupMembershipManager.updateUserMemberships("m3", LDAP,
+                Arrays.asList("g2", "g3", "g3", defaultGroupId), Collections.singletonList("g1"), uaaIdentityZone.getId());
+
+        validateCount(2, jdbcTemplate, uaaIdentityZone.getId());
+        Set<String> groupIds = jdbcScimGroupMembershipManager.getGroupsWithExternalMember("m3", LDAP, uaaIdentityZone.getId())
+                .stream().map(ScimGroup::getId).collect(Collectors.toSet());
+        assertEquals(Set.of("g2", "g3"), groupIds);
+    }
+
     @Test
     void canDeleteWithOrigin() throws SQLException {
         addMembers(jdbcTemplate, uaaIdentityZone.getId());
@@ -423,6 +444,73 @@ class JdbcScimGroupMembershipManagerTests {
         assertEquals(4, groups.size());
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void canGetGroupsForSeveralUsers(boolean useRecursiveQueries) {
+        jdbcScimGroupMembershipManager.setUseRecursiveQueries(useRecursiveQueries);
+        addMembers(jdbcTemplate, uaaIdentityZone.getId());
+        addMember("g3", "g1", "GROUP", "READER", jdbcTemplate, uaaIdentityZone.getId());
+        // one member per query
+        jdbcScimGroupMembershipManager.setMaxSqlParameters(2);
+
+        Map<String, Set<ScimUser.Group>> groups = jdbcScimGroupMembershipManager.getUserGroups(Arrays.asList("m1", "m2", "m3"), uaaIdentityZone.getId());
+
+        assertEquals(3, groups.size());
+        for (String userId : Arrays.asList("m1", "m2", "m3")) {
+            assertEquals(getUserGroups(userId, jdbcScimGroupMembershipManager, uaaIdentityZone.getId()), groups.get(userId));
+        }
+        assertEquals(4, groups.get("m3").size());
+        assertTrue(groups.get("m3").contains(new ScimUser.Group("g3", "test3", ScimUser.Group.Type.INDIRECT)));
+        assertTrue(groups.get("m3").contains(new ScimUser.Group("g1", "test1", ScimUser.Group.Type.DIRECT)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void canGetGroupsForSeveralUsersEvenWhenCycleExistsInGroupHierarchy(boolean useRecursiveQueries) {
+        jdbcScimGroupMembershipManager.setUseRecursiveQueries(useRecursiveQueries);
+        addMember("g1", "m3", "USER", "READER", jdbcTemplate, uaaIdentityZone.getId());
+        addMember("g1", "g2", "GROUP", "READER", jdbcTemplate, uaaIdentityZone.getId());
+        addMember("g2", "g3", "GROUP", "READER", jdbcTemplate, uaaIdentityZone.getId());
+        addMember("g3", "g1", "GROUP", "READER", jdbcTemplate, uaaIdentityZone.getId());
+
+        Map<String, Set<ScimUser.Group>> groups = jdbcScimGroupMembershipManager.getUserGroups(Arrays.asList("m1", "m3"), uaaIdentityZone.getId());
+
+        assertEquals(getUserGroups("m3", jdbcScimGroupMembershipManager, uaaIdentityZone.getId()), groups.get("m3"));
+        assertEquals(4, groups.get("m3").size());
+        assertEquals(1, groups.get("m1").size());
+    }
+
+    @Test
+    void recursiveAndIterativeResolutionAgreeOnLargeHierarchy() throws SQLException {
+        // every group is a member of up to three groups of the next level, and the last group closes a cycle
+        int groupCount = 10_000;
+        String zoneId = uaaIdentityZone.getId();
+        List<Object[]> groups = new ArrayList<>();
+        List<Object[]> memberships = new ArrayList<>();
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new Object[]{"big-" + i, "big-" + i, zoneId});
+            if (i > 0) {
+                memberships.add(new Object[]{"big-" + i, "big-" + ((i - 1) / 3), "GROUP", UAA, zoneId});
+            }
+        }
+        memberships.add(new Object[]{"big-0", "big-" + (groupCount - 1), "GROUP", UAA, zoneId});
+        memberships.add(new Object[]{"big-0", "m1", "USER", UAA, zoneId});
+        memberships.add(new Object[]{"big-" + (groupCount - 1), "m2", "USER", UAA, zoneId});
+        jdbcTemplate.batchUpdate("insert into " + dbUtils.getQuotedIdentifier("groups", jdbcTemplate) + " (id, displayName, identity_zone_id) values (?,?,?)", groups);
+        jdbcTemplate.batchUpdate("insert into group_membership (group_id, member_id, member_type, origin, identity_zone_id) values (?,?,?,?,?)", memberships);
+
+        jdbcScimGroupMembershipManager.setUseRecursiveQueries(true);
+        Map<String, Set<ScimUser.Group>> recursive = jdbcScimGroupMembershipManager.getUserGroups(Arrays.asList("m1", "m2"), zoneId);
+        jdbcScimGroupMembershipManager.setUseRecursiveQueries(false);
+        Map<String, Set<ScimUser.Group>> iterative = jdbcScimGroupMembershipManager.getUserGroups(Arrays.asList("m1", "m2"), zoneId);
+
+        assertEquals(recursive, iterative);
+        // all groups and the default group
+        assertEquals(groupCount + 1, recursive.get("m1").size());
+        assertEquals(groupCount + 1, recursive.get("m2").size());
+        assertEquals(groupCount + 1, jdbcScimGroupMembershipManager.getGroupsWithMember("m1", true, zoneId).size());
+    }
+
     @Test
     void canAddMember() throws SQLException {
         validateCount(0, jdbcTemplate, uaaIdentityZone.getId());
@@ -761,6 +849,19 @@ class JdbcScimGroupMembershipManagerTests {
         }
     }
 
+    private static Set<ScimUser.Group> getUserGroups(
+            final String memberId,
+            final JdbcScimGroupMembershipManager jdbcScimGroupMembershipManager,
+            final String zoneId) {
+        Set<ScimGroup> directGroups = jdbcScimGroupMembershipManager.getGroupsWithMember(memberId, false, zoneId);
+        Set<ScimGroup> indirectGroups = jdbcScimGroupMembershipManager.getGroupsWithMember(memberId, true, zoneId);
+        indirectGroups.removeAll(directGroups);
+        Set<ScimUser.Group> groups = new HashSet<>();
+        directGroups.forEach(g -> groups.add(new ScimUser.Group(g.getId(), g.getDisplayName(), ScimUser.Group.Type.DIRECT)));
+        indirectGroups.forEach(g -> groups.add(new ScimUser.Group(g.getId(), g.getDisplayName(), ScimUser.Group.Type.INDIRECT)));
+        return groups;
+    }
+
     private static void addMembers(
             final String origin,
             final JdbcTemplate jdbcTemplate,
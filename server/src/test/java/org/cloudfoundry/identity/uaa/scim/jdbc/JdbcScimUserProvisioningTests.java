@@ -44,6 +44,7 @@ import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
 import org.cloudfoundry.identity.uaa.constants.OriginKeys;
 import org.cloudfoundry.identity.uaa.provider.IdentityProvider;
 import org.cloudfoundry.identity.uaa.resources.JoinAttributeNameMapper;
+import org.cloudfoundry.identity.uaa.resources.KeysetPage;
 import org.cloudfoundry.identity.uaa.resources.SimpleAttributeNameMapper;
 import org.cloudfoundry.identity.uaa.resources.jdbc.JdbcPagingListFactory;
 import org.cloudfoundry.identity.uaa.resources.jdbc.LimitSqlAdapter;
@@ -325,6 +326,51 @@ class JdbcScimUserProvisioningTests {
         Assertions.assertThat(usernames).isEmpty();
     }
 
+    @Test
+    void keysetPagingSeeksPastUsersWithEqualSortValues() {
+        for (int i = 0; i < 5; i++) {
+            addUser(jdbcTemplate, UUID.randomUUID().toString(), "user" + i, "password", "user" + i + "@test.org", "Given", "Family", "", currentIdentityZoneId);
+        }
+        jdbcTemplate.update("update users set created = ? where identity_zone_id = ?", new Timestamp(1_000_000L), currentIdentityZoneId);
+        List<String> expected = jdbcTemplate.queryForList("select id from users where identity_zone_id = ? order by id", String.class, currentIdentityZoneId);
+
+        List<String> ids = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            KeysetPage<ScimUser> page = jdbcScimUserProvisioning.queryPage("id pr", "created", true, cursor, 2, currentIdentityZoneId);
+            page.resources().forEach(user -> ids.add(user.getId()));
+            cursor = page.nextCursor();
+            pages++;
+        }
+
+        assertEquals(expected, ids);
+        assertEquals(4, pages);
+    }
+
+    @Test
+    void keysetPagingDescending() {
+        List<String> expected = jdbcScimUserProvisioning.query("id pr", "username", false, currentIdentityZoneId)
+                .stream().map(ScimUser::getUserName).collect(toList());
+
+        KeysetPage<ScimUser> first = jdbcScimUserProvisioning.queryPage("id pr", "userName", false, null, 1, currentIdentityZoneId);
+        KeysetPage<ScimUser> second = jdbcScimUserProvisioning.queryPage("id pr", "userName", false, first.nextCursor(), 1, currentIdentityZoneId);
+
+        assertEquals(expected.get(0), first.resources().get(0).getUserName());
+        assertEquals(expected.get(1), second.resources().get(0).getUserName());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void keysetPagingRejectsInvalidSortAndCursor() {
+        String cursor = jdbcScimUserProvisioning.queryPage("id pr", "created", true, null, 1, currentIdentityZoneId).nextCursor();
+
+        assertThrows(IllegalArgumentException.class, () -> jdbcScimUserProvisioning.queryPage("id pr", "givenName", true, null, 1, currentIdentityZoneId));
+        assertThrows(IllegalArgumentException.class, () -> jdbcScimUserProvisioning.queryPage("id pr", "username", true, cursor, 1, currentIdentityZoneId));
+        assertThrows(IllegalArgumentException.class, () -> jdbcScimUserProvisioning.queryPage("id pr", "created", false, cursor, 1, currentIdentityZoneId));
+        assertThrows(IllegalArgumentException.class, () -> jdbcScimUserProvisioning.queryPage("id pr", "created", true, "not-a-cursor", 1, currentIdentityZoneId));
+    }
+
     @Test
     void retrieveByScimFilterNoPaging() {
         JdbcPagingListFactory notInUse = mock(JdbcPagingListFactory.class);
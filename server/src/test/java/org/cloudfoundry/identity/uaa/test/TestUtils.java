@@ -4,6 +4,8 @@ import org.cloudfoundry.identity.uaa.client.ClientAdminBootstrap;
 import org.cloudfoundry.identity.uaa.constants.OriginKeys;
 import org.cloudfoundry.identity.uaa.impl.config.IdentityProviderBootstrap;
 import org.cloudfoundry.identity.uaa.impl.config.IdentityZoneConfigurationBootstrap;
+import org.cloudfoundry.identity.uaa.oauth.KeyInfoService;
+import org.cloudfoundry.identity.uaa.provider.JdbcIdentityProviderProvisioning;
 import org.cloudfoundry.identity.uaa.provider.saml.BootstrapSamlIdentityProviderData;
 import org.cloudfoundry.identity.uaa.provider.saml.SamlKeyManagerFactory;
 import org.cloudfoundry.identity.uaa.scim.bootstrap.ScimExternalGroupBootstrap;
@@ -11,8 +13,10 @@ import org.cloudfoundry.identity.uaa.scim.bootstrap.ScimGroupBootstrap;
 import org.cloudfoundry.identity.uaa.scim.bootstrap.ScimUserBootstrap;
 import org.cloudfoundry.identity.uaa.util.beans.DbUtils;
 import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.cloudfoundry.identity.uaa.zone.IdentityZoneCache;
 import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
 import org.cloudfoundry.identity.uaa.zone.JdbcIdentityZoneProvisioning;
+import org.cloudfoundry.identity.uaa.zone.MultitenantJdbcClientDetailsService;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.context.ApplicationContext;
@@ -78,10 +82,18 @@ public class TestUtils {
         }
 
         cleanAndSeedDb(jdbcTemplate);
+        clearCaches(applicationContext);
 
         bootstrapDb(applicationContext);
     }
 
+    private static void clearCaches(ApplicationContext applicationContext) {
+        applicationContext.getBeansOfType(IdentityZoneCache.class).values().forEach(IdentityZoneCache::clear);
+        applicationContext.getBeansOfType(KeyInfoService.class).values().forEach(KeyInfoService::clear);
+        applicationContext.getBeansOfType(MultitenantJdbcClientDetailsService.class).values().forEach(MultitenantJdbcClientDetailsService::clearCache);
+        applicationContext.getBeansOfType(JdbcIdentityProviderProvisioning.class).values().forEach(JdbcIdentityProviderProvisioning::clearCache);
+    }
+
     private static void seedUaaZoneSimilarToHowTheRealFlywayMigrationDoesIt(JdbcTemplate jdbcTemplate) {
         IdentityZone uaa = IdentityZone.getUaa();
         Timestamp t = new Timestamp(uaa.getCreated().getTime());
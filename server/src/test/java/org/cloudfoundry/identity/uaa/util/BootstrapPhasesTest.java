@@ -0,0 +1,79 @@
+package org.cloudfoundry.identity.uaa.util;
+
+import org.cloudfoundry.identity.uaa.zone.IdentityZone;
+import org.cloudfoundry.identity.uaa.zone.IdentityZoneHolder;
+import org.cloudfoundry.identity.uaa.zone.MultitenancyFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BootstrapPhasesTest {
+
+    @AfterEach
+    void clearZone() {
+        IdentityZoneHolder.clear();
+    }
+
+    @Test
+    void itemsAreProcessedConcurrentlyInTheCallersZone() {
+        IdentityZone zone = MultitenancyFixture.identityZone("bootstrap-zone", "bootstrap-zone");
+        IdentityZoneHolder.set(zone);
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Set<String> zoneIds = ConcurrentHashMap.newKeySet();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        new BootstrapPhases("test", 3).forEach("apply", List.of(1, 2, 3), item -> {
+            allStarted.countDown();
+            try {
+                assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            zoneIds.add(IdentityZoneHolder.get().getId());
+            threads.add(Thread.currentThread().getName());
+        });
+
+        assertEquals(Set.of("bootstrap-zone"), zoneIds);
+        assertEquals(3, threads.size());
+        assertSame(zone, IdentityZoneHolder.get());
+    }
+
+    @Test
+    void theFirstFailureIsRethrown() {
+        IllegalArgumentException failure = new IllegalArgumentException("invalid item");
+        List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () ->
+                new BootstrapPhases("test", 2).forEach("apply", items, item -> {
+                    if (item == 0) {
+                        throw failure;
+                    }
+                }));
+
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void phasesAreTimedInOrder() {
+        BootstrapPhases phases = new BootstrapPhases("test", 1);
+
+        assertEquals("value", phases.run("prefetch", () -> "value"));
+        phases.forEach("apply", List.of(1, 2), item -> {});
+        phases.run("cleanup", () -> {});
+
+        assertEquals(List.of("prefetch", "apply", "cleanup"), List.copyOf(phases.getPhaseMillis().keySet()));
+        phases.report();
+    }
+}
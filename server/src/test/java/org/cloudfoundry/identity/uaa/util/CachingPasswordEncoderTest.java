@@ -1,17 +1,24 @@
 package org.cloudfoundry.identity.uaa.util;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetricSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.cloudfoundry.identity.uaa.oauth.common.util.RandomValueStringGenerator;
-import org.springframework.test.util.ReflectionTestUtils;
 
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -59,21 +66,20 @@ class CachingPasswordEncoderTest {
 
     @Test
     void matchesButExpires() throws Exception {
-        Duration shortTTL = Duration.ofSeconds(1);
-        ReflectionTestUtils.setField(cachingPasswordEncoder, "CACHE_TTL", shortTTL);
-        cachingPasswordEncoder.buildCache();
+        AtomicLong ticker = new AtomicLong();
+        cachingPasswordEncoder = new CachingPasswordEncoder(passwordEncoder, 10, Duration.ofSeconds(1), ticker::get);
         String encoded = cachingPasswordEncoder.encode(password);
         String cacheKey = cachingPasswordEncoder.cacheEncode(password);
 
         assertTrue(passwordEncoder.matches(password, encoded));
         assertTrue(cachingPasswordEncoder.matches(password, encoded));
 
-        assertTrue(cachingPasswordEncoder.getOrCreateHashList(cacheKey).size() > 0,
+        assertTrue(cachingPasswordEncoder.getHashList(cacheKey).size() > 0,
                 "Password is no longer cached when we expected it to be cached");
 
-        Thread.sleep(shortTTL.toMillis() + 100);
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(1100));
 
-        assertEquals(0, cachingPasswordEncoder.getOrCreateHashList(cacheKey).size(), "Password is still cached when we expected it to be expired");
+        assertEquals(0, cachingPasswordEncoder.getHashList(cacheKey).size(), "Password is still cached when we expected it to be expired");
     }
 
     @Test
@@ -122,35 +128,67 @@ class CachingPasswordEncoderTest {
     }
 
     @Test
-    // TODO: This test takes a long time to run :(
-    void ensureNoMemoryLeak() {
-        assertEquals(0, cachingPasswordEncoder.getNumberOfKeys());
-        for (int i = 0; i < cachingPasswordEncoder.getMaxKeys(); i++) {
+    void ensureNoMemoryLeak() throws NoSuchAlgorithmException {
+        CachingPasswordEncoder smallCache = new CachingPasswordEncoder(passwordEncoder, 20, Duration.ofMinutes(5), Ticker.systemTicker());
+        assertEquals(0, smallCache.getNumberOfKeys());
+        for (int i = 0; i < smallCache.getMaxKeys() * 2; i++) {
             String password = new RandomValueStringGenerator().generate();
-            for (int j = 0; j < cachingPasswordEncoder.getMaxEncodedPasswords(); j++) {
-                String encoded = cachingPasswordEncoder.encode(password);
-                assertTrue(cachingPasswordEncoder.matches(password, encoded));
-            }
+            String encoded = smallCache.encode(password);
+            assertTrue(smallCache.matches(password, encoded));
         }
-        assertEquals(cachingPasswordEncoder.getMaxKeys(), cachingPasswordEncoder.getNumberOfKeys());
-        String password = new RandomValueStringGenerator().generate();
-        String encoded = cachingPasswordEncoder.encode(password);
-        assertTrue(cachingPasswordEncoder.matches(password, encoded));
-        //overflow happened
-        assertEquals(1, cachingPasswordEncoder.getNumberOfKeys());
-
+        //overflow evicts individual entries, not the whole cache
+        long numberOfKeys = smallCache.getNumberOfKeys();
+        assertTrue(numberOfKeys > 0);
+        assertTrue(numberOfKeys <= smallCache.getMaxKeys());
+    }
 
-        for (int j = 1; j < cachingPasswordEncoder.getMaxEncodedPasswords(); j++) {
-            encoded = cachingPasswordEncoder.encode(password);
+    @Test
+    void encodedPasswordsPerKeyAreBounded() {
+        List<String> encodings = new ArrayList<>();
+        for (int j = 0; j <= cachingPasswordEncoder.getMaxEncodedPasswords(); j++) {
+            String encoded = cachingPasswordEncoder.encode(password);
+            encodings.add(encoded);
             assertTrue(cachingPasswordEncoder.matches(password, encoded));
         }
 
-        ConcurrentMap<CharSequence, Set<String>> cache = cachingPasswordEncoder.asMap();
-        assertNotNull(cache);
-        Set<String> passwords = cache.get(cachingPasswordEncoder.cacheEncode(password));
+        ConcurrentMap<String, List<String>> cache = cachingPasswordEncoder.asMap();
+        List<String> passwords = cache.get(cachingPasswordEncoder.cacheEncode(password));
         assertNotNull(passwords);
-        assertEquals(cachingPasswordEncoder.getMaxEncodedPasswords(), passwords.size());
-        cachingPasswordEncoder.matches(password, cachingPasswordEncoder.encode(password));
-        assertEquals(1, passwords.size());
+        //the oldest encoding was dropped
+        assertEquals(encodings.subList(1, encodings.size()), passwords);
+    }
+
+    @Test
+    void exportsCacheMetrics() {
+        String encoded = cachingPasswordEncoder.encode(password);
+        assertTrue(cachingPasswordEncoder.matches(password, encoded));
+        assertTrue(cachingPasswordEncoder.matches(password, encoded));
+        assertTrue(cachingPasswordEncoder.matches(password, encoded));
+
+        CacheMetricSummary metrics = cachingPasswordEncoder.getCacheMetrics();
+        assertEquals("passwordEncoder", cachingPasswordEncoder.getCacheName());
+        assertEquals(2, metrics.getHitCount());
+        assertEquals(1, metrics.getMissCount());
+        assertEquals(1, metrics.getSize());
+    }
+
+    @Test
+    void concurrentMatchesAreConsistent() throws Exception {
+        String encoded = cachingPasswordEncoder.encode(password);
+        String otherPassword = new RandomValueStringGenerator().generate();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> cachingPasswordEncoder.matches(password, encoded)
+                        && !cachingPasswordEncoder.matches(otherPassword, encoded)));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of(encoded), cachingPasswordEncoder.getHashList(cachingPasswordEncoder.cacheEncode(password)));
     }
 }
@@ -25,6 +25,7 @@ import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -301,4 +302,36 @@ public class DomainFilterTest {
 
         assertEquals(0, idpsForEmailDomain.size());
     }
+
+    @Test
+    public void test_idps_with_wildcard_labels_for_email_domain() {
+        samlDef1.setEmailDomain(Collections.singletonList("*.example.com"));
+        samlDef2.setEmailDomain(Arrays.asList("a*b.*.org", "Test.org"));
+        configureTestData();
+
+        assertThat(filter.getIdpsForEmailDomain(activeProviders, "abc@mail.example.com"), Matchers.contains(samlProvider1));
+        assertThat(filter.getIdpsForEmailDomain(activeProviders, "abc@example.com"), Matchers.empty());
+        assertThat(filter.getIdpsForEmailDomain(activeProviders, "abc@a.b.example.com"), Matchers.empty());
+        assertThat(filter.getIdpsForEmailDomain(activeProviders, "abc@axyb.test.org"), Matchers.contains(samlProvider2));
+        assertThat(filter.getIdpsForEmailDomain(activeProviders, "abc@ab.test.org"), Matchers.empty());
+        assertThat(filter.getIdpsForEmailDomain(activeProviders, "abc@test.org"), Matchers.empty());
+        assertThat(filter.filter(activeProviders, client, "abc@a.b.c.d.org"), Matchers.empty());
+        assertThat(filter.filter(activeProviders, client, "abc@a.b.c.org"), Matchers.contains(uaaProvider));
+    }
+
+    @Test
+    public void test_many_idps_for_email_domain_keep_their_order() {
+        List<IdentityProvider> providers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            SamlIdentityProviderDefinition definition = new SamlIdentityProviderDefinition();
+            definition.setEmailDomain(i % 10 == 0 ? Collections.singletonList("*.org") : Collections.singletonList("domain" + i + ".org"));
+            providers.add(new IdentityProvider().setActive(true).setType(OriginKeys.SAML).setOriginKey("saml" + i).setConfig(definition));
+        }
+
+        List<IdentityProvider> idpsForEmailDomain = filter.getIdpsForEmailDomain(providers, "abc@domain55.org");
+
+        assertThat(idpsForEmailDomain, Matchers.contains(
+            providers.get(0), providers.get(10), providers.get(20), providers.get(30), providers.get(40),
+            providers.get(50), providers.get(55), providers.get(60), providers.get(70), providers.get(80), providers.get(90)));
+    }
 }
@@ -0,0 +1,59 @@
+package org.cloudfoundry.identity.uaa.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopeMatcherTest {
+
+    private static final List<String> SCOPES = List.of(
+            "openid",
+            "zones.*.admin",
+            "zones.*.*.read",
+            "uaa.*",
+            "a*b.c",
+            "scim.me"
+    );
+
+    @ParameterizedTest
+    @CsvSource({
+            "openid",
+            "zones.zone-1.admin",
+            "zones..admin",
+            "zones.zone-1.sub.admin",
+            "zones.zone-1.idps.read",
+            "zones.zone-1.read",
+            "uaa.admin",
+            "uaa.",
+            "uaa.admin.read",
+            "axyb.c",
+            "ab.c",
+            "scim.me",
+            "scim.read",
+            "Openid",
+            "zones.*.admin"
+    })
+    void matchesLikeTheWildcardPatterns(String scope) {
+        assertEquals(
+                UaaStringUtils.matches(UaaStringUtils.constructWildcards(SCOPES), scope),
+                ScopeMatcher.of(SCOPES).matches(scope));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"zones.zone-1.admin", "uaa.user", "axyb.c"})
+    void matchesWildcards(String scope) {
+        assertTrue(ScopeMatcher.of(SCOPES).matches(scope));
+    }
+
+    @Test
+    void matchersWithWildcardsAreShared() {
+        assertSame(ScopeMatcher.of(Set.of("openid", "zones.*.admin")), ScopeMatcher.of(List.of("zones.*.admin", "openid")));
+    }
+}
@@ -3,6 +3,7 @@ package org.cloudfoundry.identity.uaa.util.beans;
 import org.hsqldb.persist.HsqlDatabaseProperties;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -52,6 +53,24 @@ class DbUtilsTest {
         assertEquals(IDENTIFIER_NAME, subsequentQuotedIdentifier);
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            HsqlDatabaseProperties.PRODUCT_NAME + ", 2.7.1, 2, true",
+            "PostgreSQL, 15.4, 15, true",
+            "MySQL, 8.0.33, 8, true",
+            "MySQL, 5.7.42, 5, false",
+            "MySQL, 5.5.5-10.6.12-MariaDB, 5, true",
+            "MariaDB, 10.1.48-MariaDB, 10, false",
+            "Oracle, 19.0.0.0.0, 19, false",
+    })
+    void detectsRecursiveQuerySupport(String productName, String productVersion, int majorVersion, boolean expected) throws SQLException {
+        when(databaseMetaData.getDatabaseProductName()).thenReturn(productName);
+        when(databaseMetaData.getDatabaseProductVersion()).thenReturn(productVersion);
+        when(databaseMetaData.getDatabaseMajorVersion()).thenReturn(majorVersion);
+
+        assertEquals(expected, dbUtils.supportsRecursiveQueries(jdbcTemplate));
+    }
+
     @Nested
     @DisplayName("Tests for databases other than HSQLDB")
     class nonHsqldbTests {
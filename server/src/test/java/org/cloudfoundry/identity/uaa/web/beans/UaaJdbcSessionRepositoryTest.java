@@ -0,0 +1,127 @@
+package org.cloudfoundry.identity.uaa.web.beans;
+
+import org.cloudfoundry.identity.uaa.annotations.WithDatabaseContext;
+import org.cloudfoundry.identity.uaa.resources.jdbc.LimitSqlAdapter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@WithDatabaseContext
+class UaaJdbcSessionRepositoryTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LimitSqlAdapter limitSqlAdapter;
+
+    private final UaaSessionAttributeCodec codec = new UaaSessionAttributeCodec(64);
+    private UaaJdbcSessionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        JdbcIndexedSessionRepository sessionRepository = new JdbcIndexedSessionRepository(jdbcTemplate, TransactionOperations.withoutTransaction());
+        sessionRepository.setConversionService(codec.getConversionService());
+        repository = new UaaJdbcSessionRepository(sessionRepository, codec, jdbcTemplate, limitSqlAdapter, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from SPRING_SESSION_ATTRIBUTES");
+        jdbcTemplate.update("delete from SPRING_SESSION");
+    }
+
+    @Test
+    void unchangedAttributesAreNotWritten() {
+        String id = createSession(new ArrayList<>(List.of("a")));
+
+        UaaJdbcSessionRepository.UaaJdbcSession session = repository.findById(id);
+        assertEquals(List.of("a"), session.getAttribute("list"));
+        session.setAttribute("list", new ArrayList<>(List.of("a")));
+        storeAttribute(id, List.of("stored-since"));
+        repository.save(session);
+
+        assertEquals(List.of("stored-since"), repository.findById(id).getAttribute("list"));
+    }
+
+    @Test
+    void attributesChangedInPlaceAreWritten() {
+        String id = createSession(new ArrayList<>(List.of("a")));
+
+        UaaJdbcSessionRepository.UaaJdbcSession session = repository.findById(id);
+        List<String> list = session.getAttribute("list");
+        list.add("b");
+        session.setAttribute("list", list);
+        repository.save(session);
+
+        assertEquals(List.of("a", "b"), repository.findById(id).getAttribute("list"));
+    }
+
+    @Test
+    void attributesNotReadAreWritten() {
+        String id = createSession(new ArrayList<>(List.of("a")));
+
+        UaaJdbcSessionRepository.UaaJdbcSession session = repository.findById(id);
+        session.setAttribute("list", new ArrayList<>(List.of("b")));
+        repository.save(session);
+
+        assertEquals(List.of("b"), repository.findById(id).getAttribute("list"));
+    }
+
+    @Test
+    void removedAttributesAreDeleted() {
+        String id = createSession(new ArrayList<>(List.of("a")));
+
+        UaaJdbcSessionRepository.UaaJdbcSession session = repository.findById(id);
+        assertNotNull(session.getAttribute("list"));
+        session.removeAttribute("list");
+        repository.save(session);
+
+        assertNull(repository.findById(id).getAttribute("list"));
+    }
+
+    @Test
+    void expiredSessionsAreDeletedInBatches() {
+        Instant longAgo = Instant.now().minus(Duration.ofHours(1));
+        for (int i = 0; i < 5; i++) {
+            UaaJdbcSessionRepository.UaaJdbcSession expired = repository.createSession();
+            expired.setAttribute("list", new ArrayList<>(List.of("expired")));
+            expired.setLastAccessedTime(longAgo);
+            expired.setMaxInactiveInterval(Duration.ofMinutes(1));
+            repository.save(expired);
+        }
+        String active = createSession(new ArrayList<>(List.of("active")));
+
+        repository.cleanUpExpiredSessions();
+
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from SPRING_SESSION", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from SPRING_SESSION_ATTRIBUTES", Integer.class));
+        assertNotNull(repository.findById(active));
+    }
+
+    private String createSession(List<String> list) {
+        UaaJdbcSessionRepository.UaaJdbcSession session = repository.createSession();
+        session.setAttribute("list", list);
+        repository.save(session);
+        return session.getId();
+    }
+
+    private void storeAttribute(String sessionId, Object value) {
+        jdbcTemplate.update(
+                "update SPRING_SESSION_ATTRIBUTES set ATTRIBUTE_BYTES = ? where ATTRIBUTE_NAME = 'list' and SESSION_PRIMARY_ID = (select PRIMARY_ID from SPRING_SESSION where SESSION_ID = ?)",
+                codec.serialize(value), sessionId);
+    }
+}
@@ -0,0 +1,74 @@
+package org.cloudfoundry.identity.uaa.web.beans;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.serializer.support.SerializingConverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UaaSessionAttributeCodecTest {
+
+    private static final String LARGE_VALUE = "saved-request-".repeat(100);
+
+    @Test
+    void largeValuesAreCompressed() {
+        UaaSessionAttributeCodec codec = new UaaSessionAttributeCodec(64);
+        byte[] uncompressed = new SerializingConverter().convert(LARGE_VALUE);
+
+        byte[] stored = codec.serialize(LARGE_VALUE);
+
+        assertTrue(stored.length < uncompressed.length / 10);
+        assertEquals(LARGE_VALUE, codec.deserialize(stored));
+    }
+
+    @Test
+    void smallValuesAreNotCompressed() {
+        UaaSessionAttributeCodec codec = new UaaSessionAttributeCodec(64);
+
+        byte[] stored = codec.serialize("small");
+
+        assertArrayEquals(new SerializingConverter().convert("small"), stored);
+        assertEquals("small", codec.deserialize(stored));
+    }
+
+    @Test
+    void compressionCanBeDisabled() {
+        UaaSessionAttributeCodec codec = new UaaSessionAttributeCodec(-1);
+
+        assertArrayEquals(new SerializingConverter().convert(LARGE_VALUE), codec.serialize(LARGE_VALUE));
+    }
+
+    @Test
+    void valuesStoredByTheDefaultConverterAreRead() {
+        byte[] stored = new SerializingConverter().convert(LARGE_VALUE);
+
+        assertEquals(LARGE_VALUE, new UaaSessionAttributeCodec(64).deserialize(stored));
+    }
+
+    @Test
+    void digestsTellValuesApart() {
+        UaaSessionAttributeCodec codec = new UaaSessionAttributeCodec(64);
+        List<String> value = new ArrayList<>(List.of("a"));
+        byte[] digest = codec.digest(value);
+
+        assertArrayEquals(digest, codec.digest(new ArrayList<>(List.of("a"))));
+        value.add("b");
+        assertFalse(Arrays.equals(digest, codec.digest(value)));
+    }
+
+    @Test
+    void conversionServiceUsesTheCodec() {
+        UaaSessionAttributeCodec codec = new UaaSessionAttributeCodec(64);
+
+        byte[] stored = codec.getConversionService().convert(LARGE_VALUE, byte[].class);
+
+        assertArrayEquals(codec.serialize(LARGE_VALUE), stored);
+        assertEquals(LARGE_VALUE, codec.getConversionService().convert(stored, Object.class));
+    }
+}
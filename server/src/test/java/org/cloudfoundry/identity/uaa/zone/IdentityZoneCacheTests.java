@@ -0,0 +1,130 @@
+package org.cloudfoundry.identity.uaa.zone;
+
+import org.cloudfoundry.identity.uaa.annotations.WithDatabaseContext;
+import org.cloudfoundry.identity.uaa.audit.event.EntityDeletedEvent;
+import org.cloudfoundry.identity.uaa.oauth.common.util.RandomValueStringGenerator;
+import org.cloudfoundry.identity.uaa.util.MockTimeService;
+import org.cloudfoundry.identity.uaa.zone.event.IdentityZoneModifiedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@WithDatabaseContext
+class IdentityZoneCacheTests {
+
+    private static final long VERSION_CHECK_INTERVAL = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcIdentityZoneProvisioning provisioning;
+    private MockTimeService timeService;
+    private AtomicLong ticker;
+    private IdentityZoneCache cache;
+    private IdentityZone zone;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("delete from identity_zone where id != 'uaa'");
+        provisioning = spy(new JdbcIdentityZoneProvisioning(jdbcTemplate));
+        timeService = new MockTimeService();
+        ticker = new AtomicLong();
+        cache = new IdentityZoneCache(provisioning, jdbcTemplate, timeService, true, 100,
+                Duration.ofSeconds(60), VERSION_CHECK_INTERVAL, ticker::get);
+
+        String id = new RandomValueStringGenerator().generate().toLowerCase();
+        zone = provisioning.create(MultitenancyFixture.identityZone(id, id));
+    }
+
+    @Test
+    void zoneIsLoadedOnceBySubdomainAndId() {
+        IdentityZone bySubdomain = cache.retrieveBySubdomain(zone.getSubdomain());
+        assertSame(bySubdomain, cache.retrieveBySubdomain(zone.getSubdomain().toUpperCase()));
+        assertSame(bySubdomain, cache.retrieve(zone.getId()));
+
+        verify(provisioning, times(1)).retrieveBySubdomain(zone.getSubdomain());
+        verify(provisioning, times(0)).retrieve(zone.getId());
+    }
+
+    @Test
+    void unknownSubdomainIsNotCached() {
+        assertThrows(EmptyResultDataAccessException.class, () -> cache.retrieveBySubdomain("does-not-exist"));
+        assertThrows(EmptyResultDataAccessException.class, () -> cache.retrieveBySubdomain("does-not-exist"));
+        verify(provisioning, times(2)).retrieveBySubdomain("does-not-exist");
+    }
+
+    @Test
+    void localModificationEvictsZone() {
+        cache.retrieveBySubdomain(zone.getSubdomain());
+
+        cache.onApplicationEvent(IdentityZoneModifiedEvent.identityZoneModified(zone));
+
+        cache.retrieveBySubdomain(zone.getSubdomain());
+        verify(provisioning, times(2)).retrieveBySubdomain(zone.getSubdomain());
+    }
+
+    @Test
+    void localDeletionEvictsZone() {
+        cache.retrieve(zone.getId());
+
+        cache.onApplicationEvent(new EntityDeletedEvent<>(zone, null, IdentityZone.getUaaZoneId()));
+
+        cache.retrieve(zone.getId());
+        verify(provisioning, times(2)).retrieve(zone.getId());
+    }
+
+    @Test
+    void remoteModificationIsSeenAfterVersionCheckInterval() {
+        cache.retrieveBySubdomain(zone.getSubdomain());
+        // simulates an update from another node, which publishes no local event
+        jdbcTemplate.update("update identity_zone set name = ?, version = version + 1 where id = ?", "changed", zone.getId());
+
+        assertEquals(zone.getName(), cache.retrieveBySubdomain(zone.getSubdomain()).getName());
+
+        timeService.addAndGet(VERSION_CHECK_INTERVAL);
+        assertEquals("changed", cache.retrieveBySubdomain(zone.getSubdomain()).getName());
+    }
+
+    @Test
+    void remoteDeletionIsSeenAfterVersionCheckInterval() {
+        cache.retrieve(zone.getId());
+        jdbcTemplate.update("delete from identity_zone where id = ?", zone.getId());
+
+        timeService.addAndGet(VERSION_CHECK_INTERVAL);
+        assertThrows(ZoneDoesNotExistsException.class, () -> cache.retrieve(zone.getId()));
+    }
+
+    @Test
+    void entriesExpire() {
+        cache.retrieveBySubdomain(zone.getSubdomain());
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        cache.retrieveBySubdomain(zone.getSubdomain());
+        verify(provisioning, times(2)).retrieveBySubdomain(zone.getSubdomain());
+    }
+
+    @Test
+    void disabledCacheAlwaysReadsDatabase() {
+        cache = new IdentityZoneCache(provisioning, jdbcTemplate, timeService, false, 100,
+                Duration.ofSeconds(60), VERSION_CHECK_INTERVAL, ticker::get);
+
+        cache.retrieveBySubdomain(zone.getSubdomain());
+        cache.retrieveBySubdomain(zone.getSubdomain());
+
+        verify(provisioning, times(2)).retrieveBySubdomain(zone.getSubdomain());
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -38,6 +39,8 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.cloudfoundry.identity.uaa.oauth.client.ClientConstants.REQUIRED_USER_GROUPS;
 import static org.cloudfoundry.identity.uaa.oauth.client.ClientDetailsModification.SECRET;
@@ -50,10 +53,12 @@ import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -787,6 +792,99 @@ class MultitenantJdbcClientDetailsServiceTests {
         return jdbcTemplate.queryForObject("select count(*) from oauth_client_details where client_id = ? and identity_zone_id=?", new Object[]{clientId, zoneId}, Integer.class) == 1;
     }
 
+    @Test
+    void cachedClientIsLoadedOnceAndCopiedPerCaller() {
+        AtomicLong ticker = new AtomicLong();
+        MultitenantJdbcClientDetailsService cachingService = cachingService(ticker);
+        String clientId = randomValueStringGenerator.generate();
+        addClientToDb(clientId, cachingService);
+
+        UaaClientDetails first = (UaaClientDetails) cachingService.loadClientByClientId(clientId, currentZoneId);
+        first.setClientSecret(null);
+        UaaClientDetails second = (UaaClientDetails) cachingService.loadClientByClientId(clientId, currentZoneId);
+
+        assertNotNull(second.getClientSecret());
+        verify(spyJdbcTemplate, times(1)).queryForObject(anyString(), any(RowMapper.class), eq(clientId), eq(currentZoneId));
+        assertEquals(2, cachingService.getCacheMetrics().getHitCount());
+    }
+
+    @Test
+    void cachedClientIsEvictedOnWrite() {
+        MultitenantJdbcClientDetailsService cachingService = cachingService(new AtomicLong());
+        String clientId = randomValueStringGenerator.generate();
+        addClientToDb(clientId, cachingService);
+
+        UaaClientDetails client = (UaaClientDetails) cachingService.loadClientByClientId(clientId, currentZoneId);
+        client.setScope(Collections.singleton("new.scope"));
+        cachingService.updateClientDetails(client, currentZoneId);
+        assertEquals(Collections.singleton("new.scope"), cachingService.loadClientByClientId(clientId, currentZoneId).getScope());
+
+        cachingService.updateClientSecret(clientId, "newsecret", currentZoneId);
+        assertTrue(passwordEncoder.matches("newsecret", cachingService.loadClientByClientId(clientId, currentZoneId).getClientSecret()));
+
+        cachingService.removeClientDetails(clientId, currentZoneId);
+        assertThrows(NoSuchClientException.class, () -> cachingService.loadClientByClientId(clientId, currentZoneId));
+    }
+
+    @Test
+    void cachedClientIsRevalidatedAgainstLastModified() {
+        AtomicLong ticker = new AtomicLong();
+        MultitenantJdbcClientDetailsService cachingService = cachingService(ticker);
+        String clientId = randomValueStringGenerator.generate();
+        addClientToDb(clientId, cachingService);
+        cachingService.loadClientByClientId(clientId, currentZoneId);
+
+        // simulates a write on another node
+        jdbcTemplate.update("update oauth_client_details set scope = ?, lastmodified = ? where client_id = ?", "other.scope", new Timestamp(System.currentTimeMillis() + 1000), clientId);
+        assertNotEquals(Collections.singleton("other.scope"), cachingService.loadClientByClientId(clientId, currentZoneId).getScope());
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(Collections.singleton("other.scope"), cachingService.loadClientByClientId(clientId, currentZoneId).getScope());
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        cachingService.loadClientByClientId(clientId, currentZoneId);
+        verify(spyJdbcTemplate, times(2)).queryForObject(anyString(), any(RowMapper.class), eq(clientId), eq(currentZoneId));
+    }
+
+    @Test
+    void cachedClientIsRevalidatedAgainstRevision() {
+        AtomicLong ticker = new AtomicLong();
+        MultitenantJdbcClientDetailsService cachingService = cachingService(ticker);
+        String clientId = randomValueStringGenerator.generate();
+        addClientToDb(clientId, cachingService);
+        cachingService.loadClientByClientId(clientId, currentZoneId);
+
+        // simulates a write on another node within the same second
+        jdbcTemplate.update("update oauth_client_details set scope = ?, revision = revision + 1 where client_id = ?", "other.scope", clientId);
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(Collections.singleton("other.scope"), cachingService.loadClientByClientId(clientId, currentZoneId).getScope());
+    }
+
+    @Test
+    void cachedClientIsReloadedAfterTimeToLive() {
+        AtomicLong ticker = new AtomicLong();
+        MultitenantJdbcClientDetailsService cachingService = cachingService(ticker);
+        String clientId = randomValueStringGenerator.generate();
+        addClientToDb(clientId, cachingService);
+        cachingService.loadClientByClientId(clientId, currentZoneId);
+
+        // a write that changes neither the revision nor the last modified time
+        jdbcTemplate.update("update oauth_client_details set scope = ? where client_id = ?", "other.scope", clientId);
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertNotEquals(Collections.singleton("other.scope"), cachingService.loadClientByClientId(clientId, currentZoneId).getScope());
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(Collections.singleton("other.scope"), cachingService.loadClientByClientId(clientId, currentZoneId).getScope());
+    }
+
+    private MultitenantJdbcClientDetailsService cachingService(AtomicLong ticker) {
+        MultitenantJdbcClientDetailsService cachingService = new MultitenantJdbcClientDetailsService(spyNamedJdbcTemplate, mockIdentityZoneManager, passwordEncoder);
+        cachingService.enableCache(100, 1000, 60000, ticker::get);
+        return cachingService;
+    }
+
     private static ClientDetails addClientToDb(String clientId, MultitenantJdbcClientDetailsService service) {
         UaaClientDetails clientDetails = new UaaClientDetails();
         clientDetails.setClientId(clientId);
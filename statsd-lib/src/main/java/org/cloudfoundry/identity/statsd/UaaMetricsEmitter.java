@@ -14,6 +14,8 @@
 package org.cloudfoundry.identity.statsd;
 
 import com.timgroup.statsd.StatsDClient;
+import org.cloudfoundry.identity.uaa.metrics.CacheMetricSummary;
+import org.cloudfoundry.identity.uaa.metrics.LatencyHistogram;
 import org.cloudfoundry.identity.uaa.metrics.MetricsQueue;
 import org.cloudfoundry.identity.uaa.metrics.RequestMetricSummary;
 import org.cloudfoundry.identity.uaa.metrics.StatusCodeGroup;
@@ -55,6 +57,7 @@ public class UaaMetricsEmitter {
     private final MetricsUtils metricsUtils;
     private boolean notificationsEnabled;
     private ConcurrentMap<String, Long> delta = new ConcurrentHashMap<>();
+    private ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
 
     public UaaMetricsEmitter(MetricsUtils metricsUtils, StatsDClient statsDClient, MBeanServerConnection server) {
         this.statsDClient = statsDClient;
@@ -114,6 +117,30 @@ public class UaaMetricsEmitter {
             RequestMetricSummary metricTotals = metric.getTotals();
             statsDClient.gauge(String.format(prefix + "completed.count", prefixName), metricTotals.getCount());
             statsDClient.gauge(String.format(prefix + "completed.time", prefixName), (long) metricTotals.getAverageTime());
+            emitLatencyPercentiles(String.format(prefix + "completed", prefixName), metricTotals.getRequestTimes());
+        }
+    }
+
+    @Scheduled(fixedRate = 5000, initialDelay = 1000)
+    public void emitCacheMetrics() throws Exception {
+        try {
+            UaaMetrics metrics = metricsUtils.getUaaMetrics(server);
+            emitCacheMetrics(metrics);
+        } catch (Exception x) {
+            throwIfOtherThanNotFound(x);
+        }
+    }
+
+    private void emitCacheMetrics(UaaMetrics metrics) {
+        Map<String, String> caches = metrics.getCacheSummary();
+        String prefix = "caches.%s.";
+        for (Map.Entry<String, String> entry : caches.entrySet()) {
+            String name = entry.getKey();
+            CacheMetricSummary summary = JsonUtils.readValue(entry.getValue(), CacheMetricSummary.class);
+            statsDClient.count(String.format(prefix + "hit.count", name), getMetricDelta(String.format(prefix + "hit.count", name), summary.getHitCount()));
+            statsDClient.count(String.format(prefix + "miss.count", name), getMetricDelta(String.format(prefix + "miss.count", name), summary.getMissCount()));
+            statsDClient.count(String.format(prefix + "eviction.count", name), getMetricDelta(String.format(prefix + "eviction.count", name), summary.getEvictionCount()));
+            statsDClient.gauge(String.format(prefix + "size", name), summary.getSize());
         }
     }
 
@@ -134,6 +161,7 @@ public class UaaMetricsEmitter {
         statsDClient.count(prefix + "completed.count", getMetricDelta(prefix + "completed.count",totals.getCount()));
         statsDClient.count(prefix + "unhealthy.count",getMetricDelta(prefix + "unhealthy.count",totals.getIntolerableCount()));
         statsDClient.gauge(prefix + "unhealthy.time", (long) totals.getAverageIntolerableTime());
+        emitLatencyPercentiles(prefix + "completed", totals.getRequestTimes());
         //status codes
         for (StatusCodeGroup family : StatusCodeGroup.values()) {
             RequestMetricSummary summary = ofNullable(globals.getDetailed().get(family)).orElse(MISSING_METRICS);
@@ -146,6 +174,23 @@ public class UaaMetricsEmitter {
         statsDClient.count(prefix + "completed.count", getMetricDelta(prefix + "completed.count",totals.getDatabaseQueryCount()));
         statsDClient.count(prefix + "unhealthy.count", getMetricDelta(prefix + "unhealthy.count", totals.getDatabaseIntolerableQueryCount()));
         statsDClient.gauge(prefix + "unhealthy.time", (long) totals.getAverageDatabaseIntolerableQueryTime());
+        emitLatencyPercentiles(prefix + "completed", totals.getDatabaseQueryTimes());
+    }
+
+    /**
+     * Emits the percentiles of the latencies recorded since the previous call for the same prefix, nothing if
+     * there were none.
+     */
+    private void emitLatencyPercentiles(String prefix, LatencyHistogram histogram) {
+        LatencyHistogram previous = histograms.put(prefix, histogram);
+        LatencyHistogram interval = previous == null ? histogram : histogram.since(previous);
+        if (interval.getCount() == 0) {
+            return;
+        }
+        statsDClient.gauge(prefix + ".p50", interval.getP50());
+        statsDClient.gauge(prefix + ".p95", interval.getP95());
+        statsDClient.gauge(prefix + ".p99", interval.getP99());
+        statsDClient.gauge(prefix + ".max", interval.getMax());
     }
 
     @Scheduled(fixedRate = 5000, initialDelay = 2000)
@@ -2,7 +2,12 @@ package org.cloudfoundry.identity.statsd;
 
 import com.timgroup.statsd.ConvenienceMethodProvidingStatsDClient;
 import com.timgroup.statsd.StatsDClient;
+import org.cloudfoundry.identity.uaa.metrics.MetricsQueue;
+import org.cloudfoundry.identity.uaa.metrics.QueryMetric;
+import org.cloudfoundry.identity.uaa.metrics.RequestMetric;
 import org.cloudfoundry.identity.uaa.metrics.UaaMetrics;
+import org.cloudfoundry.identity.uaa.metrics.UrlGroup;
+import org.cloudfoundry.identity.uaa.util.JsonUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -159,6 +164,42 @@ class UaaMetricsEmitterTest {
         Mockito.verify(statsDClient).gauge(eq("requests.static-content.completed.time"), geq(23L));
     }
 
+    @Test
+    void latency_percentiles_emitted_per_interval() throws Exception {
+        UrlGroup group = new UrlGroup().setGroup("/api").setLimit(1000).setPattern("/api/**").setCategory("api");
+        MetricsQueue queue = new MetricsQueue();
+        for (long time : new long[]{10, 10, 10, 400}) {
+            RequestMetric metric = RequestMetric.start("/api/x", group, 0);
+            metric.addQuery(new QueryMetric("select 1", 0, 3, false));
+            metric.stop(200, time);
+            queue.offer(metric);
+        }
+        when(uaaMetrics1.getGlobals()).thenAnswer(invocation -> JsonUtils.writeValueAsString(queue));
+        Mockito.when(metricsUtils.getUaaMetrics(any())).thenReturn(uaaMetrics1);
+
+        uaaMetricsEmitter.emitGlobalRequestMetrics();
+        Mockito.verify(statsDClient).gauge("requests.global.completed.p50", 10L);
+        Mockito.verify(statsDClient).gauge("requests.global.completed.p99", 400L);
+        Mockito.verify(statsDClient).gauge("requests.global.completed.max", 400L);
+        Mockito.verify(statsDClient).gauge("database.global.completed.p95", 3L);
+
+        // nothing new in the next interval
+        reset(statsDClient);
+        uaaMetricsEmitter.emitGlobalRequestMetrics();
+        Mockito.verify(statsDClient, never()).gauge(eq("requests.global.completed.p50"), anyLong());
+    }
+
+    @Test
+    void cache_metrics() throws Exception {
+        when(uaaMetrics1.getCacheSummary()).thenReturn(Map.of("clients", "{\"hitCount\":90,\"missCount\":10,\"evictionCount\":2,\"size\":8}"));
+        Mockito.when(metricsUtils.getUaaMetrics(any())).thenReturn(uaaMetrics1);
+        uaaMetricsEmitter.emitCacheMetrics();
+        Mockito.verify(statsDClient).count("caches.clients.hit.count", 90L);
+        Mockito.verify(statsDClient).count("caches.clients.miss.count", 10L);
+        Mockito.verify(statsDClient).count("caches.clients.eviction.count", 2L);
+        Mockito.verify(statsDClient).gauge("caches.clients.size", 8L);
+    }
+
     @Test
     void sendNotification() {
         uaaMetricsEmitter.enableNotification();
@@ -11,11 +11,16 @@ import org.cloudfoundry.identity.uaa.ratelimiting.config.RateLimitingConfigIniti
 import org.cloudfoundry.identity.uaa.ratelimiting.core.RateLimiter;
 import org.cloudfoundry.identity.uaa.ratelimiting.core.config.exception.RateLimitingConfigException;
 import org.cloudfoundry.identity.uaa.ratelimiting.core.http.AuthorizationCredentialIdExtractorErrorLogger;
+import org.cloudfoundry.identity.uaa.ratelimiting.core.http.CredentialIdCache;
 import org.cloudfoundry.identity.uaa.ratelimiting.core.http.CredentialIdTypeJWT;
 import org.cloudfoundry.identity.uaa.ratelimiting.core.http.CredentialIdTypeJWTjsonField;
 import org.cloudfoundry.identity.uaa.ratelimiting.internal.limitertracking.LimiterManagerImpl;
+import org.cloudfoundry.identity.uaa.ratelimiting.internal.shared.JdbcLimiterStore;
+import org.cloudfoundry.identity.uaa.util.TimeService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
  * Spring based configuration to configure the RateLimitingConfigLoader
@@ -53,11 +58,32 @@ public class RateLimiterConfigConfiguration {
         }
     };
 
+    /**
+     * Caller Credentials IDs extracted from bearer tokens, shared by the JWT based credential ID types
+     */
     @Bean
-    public RateLimitingConfigInitializer loader() {
+    public CredentialIdCache credentialIdCache() {
+        return new CredentialIdCache();
+    }
+
+    /**
+     * @param store "node" (default) to limit per UAA instance, or "database" to share the requests counted by all instances
+     */
+    @Bean
+    public RateLimitingConfigInitializer loader(
+            CredentialIdCache credentialIdCache,
+            JdbcTemplate jdbcTemplate,
+            TimeService timeService,
+            @Value("${ratelimit.store:node}") String store,
+            @Value("${ratelimit.storeSyncIntervalMillis:1000}") long storeSyncIntervalMillis) {
         AuthorizationCredentialIdExtractorErrorLogger errLogger =
                 e -> logger.error( "AuthorizationCredentialIdExtractor", e );
-        return new RateLimitingConfigInitializer(rateLimiting, Optional.ofNullable(loaderLogger()).orElse(DEFAULT_LOGGER), InitialConfig.SINGLETON.getInstance(), LimiterManagerImpl.SINGLETON.getInstance(), new CredentialIdTypeJWT( errLogger ), new CredentialIdTypeJWTjsonField( errLogger ));
+        LimiterManagerImpl limiterManager = LimiterManagerImpl.SINGLETON.getInstance();
+        if ( rateLimiting && "database".equalsIgnoreCase( store ) ) {
+            logger.info( "RateLimiting shares counters through the database, synchronized every " + storeSyncIntervalMillis + "ms" );
+            limiterManager.setLimiterStore( new JdbcLimiterStore( jdbcTemplate, timeService, storeSyncIntervalMillis ) );
+        }
+        return new RateLimitingConfigInitializer(rateLimiting, Optional.ofNullable(loaderLogger()).orElse(DEFAULT_LOGGER), InitialConfig.SINGLETON.getInstance(), limiterManager, new CredentialIdTypeJWT( errLogger, credentialIdCache ), new CredentialIdTypeJWTjsonField( errLogger, credentialIdCache ));
     }
 
     protected LoaderLogger loaderLogger() {
@@ -463,6 +463,7 @@ class IdentityProviderEndpointDocs extends EndpointDocs {
     @AfterEach
     void clearUaaConfig() {
         webApplicationContext.getBean(JdbcTemplate.class).update("UPDATE identity_provider SET config=null WHERE origin_key='uaa'");
+        webApplicationContext.getBean(JdbcIdentityProviderProvisioning.class).clearCache();
     }
 
     @Test
@@ -127,6 +127,7 @@ class IdentityProviderEndpointsMockMvcTests {
     @AfterEach
     void clearUaaConfig() {
         webApplicationContext.getBean(JdbcTemplate.class).update("UPDATE identity_provider SET config=null WHERE origin_key='uaa'");
+        webApplicationContext.getBean(JdbcIdentityProviderProvisioning.class).clearCache();
         MockMvcUtils.removeEventListener(webApplicationContext, eventListener);
     }
 
@@ -90,8 +90,10 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
@@ -596,13 +598,16 @@ class ScimUserEndpointsTests {
 
         SearchResults<?> results = scimUserEndpoints.findUsers("id,groups,approvals", isJoelOrDaleFilter, null, "ascending", 1, 100);
         assertEquals(2, results.getTotalResults());
-        verify(spiedScimGroupMembershipManager).getGroupsWithMember(joel.getId(), false, identityZone.getId());
-        verify(spiedScimGroupMembershipManager).getGroupsWithMember(joel.getId(), true, identityZone.getId());
-        verify(spiedScimGroupMembershipManager).getGroupsWithMember(dale.getId(), false, identityZone.getId());
-        verify(spiedScimGroupMembershipManager).getGroupsWithMember(dale.getId(), true, identityZone.getId());
-
-        verify(mockApprovalStore).getApprovalsForUser(joel.getId(), identityZone.getId());
-        verify(mockApprovalStore).getApprovalsForUser(dale.getId(), identityZone.getId());
+        // a single lookup for the whole page
+        verify(spiedScimGroupMembershipManager).getUserGroups(argThat(ids -> ids.containsAll(asList(joel.getId(), dale.getId()))), eq(identityZone.getId()));
+        verify(spiedScimGroupMembershipManager, never()).getGroupsWithMember(anyString(), anyBoolean(), anyString());
+        verify(mockApprovalStore).getApprovalsForUsers(argThat(ids -> ids.containsAll(asList(joel.getId(), dale.getId()))), eq(identityZone.getId()));
+        verify(mockApprovalStore, never()).getApprovalsForUser(anyString(), anyString());
+
+        for (Object resource : results.getResources()) {
+            // the default uaa.user group
+            assertEquals(1, ((Collection<?>) ((Map<?, ?>) resource).get("groups")).size());
+        }
     }
 
     @Test
@@ -694,13 +699,13 @@ class ScimUserEndpointsTests {
     @Test
     void findUsersGroupsSyncedByDefault() {
         scimUserEndpoints.findUsers("", "id pr", null, "ascending", 1, 100);
-        verify(spiedScimGroupMembershipManager, atLeastOnce()).getGroupsWithMember(anyString(), anyBoolean(), eq(identityZone.getId()));
+        verify(spiedScimGroupMembershipManager).getUserGroups(anyCollection(), eq(identityZone.getId()));
     }
 
     @Test
     void findUsersGroupsSyncedIfIncluded() {
         scimUserEndpoints.findUsers("groups", "id pr", null, "ascending", 1, 100);
-        verify(spiedScimGroupMembershipManager, atLeastOnce()).getGroupsWithMember(anyString(), anyBoolean(), eq(identityZone.getId()));
+        verify(spiedScimGroupMembershipManager).getUserGroups(anyCollection(), eq(identityZone.getId()));
     }
 
     @Test
@@ -712,13 +717,13 @@ class ScimUserEndpointsTests {
     @Test
     void findUsersApprovalsSyncedByDefault() {
         scimUserEndpoints.findUsers("", "id pr", null, "ascending", 1, 100);
-        verify(mockApprovalStore, atLeastOnce()).getApprovalsForUser(anyString(), eq(identityZone.getId()));
+        verify(mockApprovalStore).getApprovalsForUsers(anyCollection(), eq(identityZone.getId()));
     }
 
     @Test
     void findUsersApprovalsSyncedIfIncluded() {
         scimUserEndpoints.findUsers("approvals", "id pr", null, "ascending", 1, 100);
-        verify(mockApprovalStore, atLeastOnce()).getApprovalsForUser(anyString(), eq(identityZone.getId()));
+        verify(mockApprovalStore).getApprovalsForUsers(anyCollection(), eq(identityZone.getId()));
     }
 
     @Test